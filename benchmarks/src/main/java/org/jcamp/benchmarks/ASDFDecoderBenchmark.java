@@ -0,0 +1,62 @@
+package org.jcamp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jcamp.parser.ASDFDecoder;
+import org.jcamp.parser.JCAMPBlock;
+import org.jcamp.parser.JCAMPDataRecord;
+import org.jcamp.parser.JCAMPException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * decoding of <code>##XYDATA=(X++(Y..Y))</code> by ASDFDecoder, from a string and from
+ * the data record of a parsed block.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ASDFDecoderBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int points;
+
+  @Param({"AFFN", "PAC", "SQZ", "DIF", "DUP"})
+  public String compression;
+
+  private String data;
+
+  private JCAMPDataRecord record;
+
+  private ASDFDecoder decoder;
+
+  @Setup
+  public void setup() throws JCAMPException {
+    data = SyntheticJCAMP.xydata(SyntheticJCAMP.intensities(points, points), compression);
+    JCAMPBlock block = new JCAMPBlock(SyntheticJCAMP.spectrum("IR", points, compression));
+    record = block.getDataRecord("XYDATA");
+    decoder = new ASDFDecoder();
+  }
+
+  @Benchmark
+  public double[] decodeString() throws JCAMPException {
+    return decoder.decode(data, 0, points - 1, 1.0, points);
+  }
+
+  @Benchmark
+  public double[] decodeRecord() throws JCAMPException {
+    return decoder.decode(record, 0, points - 1, 1.0, points);
+  }
+}
@@ -0,0 +1,105 @@
+package org.jcamp.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.jcamp.parser.ASDFEncoder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DIFDUP encoding by <code>ASDFEncoder.encode</code>, into a string and
+ * into a Writer that discards the characters.
+ * the secondary results <code>bytes</code> and <code>points</code> give characters written
+ * and values encoded per second, their ratio is the output size per point.
+ * run with <code>-prof gc</code> for the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class ASDFEncoderBenchmark {
+
+  /**
+   * intensities to encode.
+   */
+  @State(Scope.Benchmark)
+  public static class Data {
+    @Param({"1000", "65536", "1048576", "4194304"})
+    public int points;
+
+    int[] intensities;
+
+    @Setup
+    public void setup() {
+      intensities = SyntheticJCAMP.intensities(points, points);
+    }
+  }
+
+  /**
+   * output counters, reported per second.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Output {
+    public long bytes;
+
+    public long points;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+      points = 0;
+    }
+  }
+
+  @Benchmark
+  public String encode(Data data, Output output) {
+    String difdup = ASDFEncoder.encode(0, data.points - 1, data.intensities);
+    output.bytes += difdup.length();
+    output.points += data.points;
+    return difdup;
+  }
+
+  @Benchmark
+  public void encodeToWriter(Data data, Output output) throws IOException {
+    CountingWriter writer = new CountingWriter();
+    ASDFEncoder.encode(0, data.points - 1, data.intensities, writer);
+    output.bytes += writer.count;
+    output.points += data.points;
+  }
+
+  /**
+   * Writer that only counts the characters.
+   */
+  static class CountingWriter
+    extends Writer {
+    long count;
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+      count += len;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
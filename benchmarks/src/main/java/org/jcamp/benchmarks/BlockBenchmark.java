@@ -0,0 +1,57 @@
+package org.jcamp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jcamp.parser.ErrorHandlerAdapter;
+import org.jcamp.parser.IErrorHandler;
+import org.jcamp.parser.JCAMPBlock;
+import org.jcamp.parser.JCAMPException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * construction of JCAMPBlock, eager and lazy, without creating the spectrum.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockBenchmark {
+
+  @Param({"1000", "100000"})
+  public int points;
+
+  @Param({"AFFN", "DUP"})
+  public String compression;
+
+  private String jcamp;
+
+  private IErrorHandler errorHandler;
+
+  @Setup
+  public void setup() {
+    jcamp = SyntheticJCAMP.spectrum("IR", points, compression);
+    errorHandler = new ErrorHandlerAdapter();
+  }
+
+  @Benchmark
+  public JCAMPBlock eager() throws JCAMPException {
+    return new JCAMPBlock(jcamp, errorHandler, false);
+  }
+
+  @Benchmark
+  public JCAMPBlock lazy() throws JCAMPException {
+    return new JCAMPBlock(jcamp, errorHandler, true);
+  }
+}
@@ -0,0 +1,86 @@
+package org.jcamp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jcamp.parser.JCAMPException;
+import org.jcamp.parser.JCAMPReader;
+import org.jcamp.spectrum.Spectrum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * end-to-end <code>JCAMPReader.createSpectrum(String)</code> for each reader adapter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReaderBenchmark {
+
+  /**
+   * equidistant spectra with <code>##XYDATA=</code>.
+   */
+  @State(Scope.Thread)
+  public static class SpectrumState {
+    @Param({"NMR", "IR", "UV", "MS", "RAMAN", "FLUORESCENCE", "CHROMATOGRAM"})
+    public String type;
+
+    @Param({"1000", "100000"})
+    public int points;
+
+    @Param({"AFFN", "PAC", "SQZ", "DIF", "DUP"})
+    public String compression;
+
+    String jcamp;
+
+    @Setup
+    public void setup() {
+      jcamp = SyntheticJCAMP.spectrum(type, points, compression);
+    }
+  }
+
+  /**
+   * GC/MS runs as NTUPLE, one page per scan.
+   */
+  @State(Scope.Thread)
+  public static class GCMSState {
+    @Param({"100", "1000"})
+    public int scans;
+
+    @Param({"100"})
+    public int peaks;
+
+    @Param({"false", "true"})
+    public boolean lazy;
+
+    String jcamp;
+
+    JCAMPReader reader;
+
+    @Setup
+    public void setup() {
+      jcamp = SyntheticJCAMP.gcms(scans, peaks);
+      reader = JCAMPReader.getInstance().withLazy(lazy);
+    }
+  }
+
+  @Benchmark
+  public Spectrum spectrum(SpectrumState state) throws JCAMPException {
+    return JCAMPReader.getInstance().createSpectrum(state.jcamp);
+  }
+
+  @Benchmark
+  public Spectrum gcms(GCMSState state) throws JCAMPException {
+    return state.reader.createSpectrum(state.jcamp);
+  }
+}
@@ -0,0 +1,302 @@
+package org.jcamp.benchmarks;
+
+import java.util.Random;
+
+import org.jcamp.parser.ASDFEncoder;
+
+/**
+ * generates synthetic JCAMP-DX files for the benchmarks.
+ * intensities are integers built from lorentzian peaks on a noisy baseline,
+ * so that difference and duplicate compression behave like on measured data.
+ */
+public class SyntheticJCAMP {
+
+  /** ordinates as decimal numbers separated by blanks */
+  public final static String AFFN = "AFFN";
+
+  /** ordinates as decimal numbers separated by signs */
+  public final static String PAC = "PAC";
+
+  /** ordinates in squeezed form */
+  public final static String SQZ = "SQZ";
+
+  /** squeezed form followed by differences */
+  public final static String DIF = "DIF";
+
+  /** differences with duplicate suppression, as written by ASDFEncoder */
+  public final static String DUP = "DUP";
+
+  /** spectrum types supported by {@link #spectrum(String, int, String)} */
+  public final static String[] TYPES = new String[] {
+    "NMR", "IR", "UV", "MS", "RAMAN", "FLUORESCENCE", "CHROMATOGRAM"};
+
+  private final static String CRLF = "\r\n";
+
+  private final static int VALUES_PER_LINE = 10;
+
+  private final static char[] POS_SQZ = new char[] { '@', 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I' };
+  private final static char[] NEG_SQZ = new char[] { '@', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i' };
+  private final static char[] POS_DIF = new char[] { '%', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R' };
+  private final static char[] NEG_DIF = new char[] { '%', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r' };
+
+  private SyntheticJCAMP() {
+  }
+
+  /**
+   * creates integer intensities, reproducible for equal arguments.
+   *
+   * @param n number of points
+   * @param seed random seed
+   * @return int[]
+   */
+  public static int[] intensities(int n, long seed) {
+    Random random = new Random(seed);
+    int nPeaks = 5 + n / 2000;
+    double[] centers = new double[nPeaks];
+    double[] widths = new double[nPeaks];
+    double[] heights = new double[nPeaks];
+    for (int j = 0; j < nPeaks; j++) {
+      centers[j] = random.nextDouble() * n;
+      widths[j] = 2.0 + random.nextDouble() * Math.min(n / 200.0, 50.0);
+      heights[j] = 1000.0 + random.nextDouble() * 100000.0;
+    }
+    // peaks are evaluated within 400 widths only, so large spectra are generated in linear time
+    double[] values = new double[n];
+    for (int j = 0; j < nPeaks; j++) {
+      int from = (int) Math.max(0, Math.floor(centers[j] - 400 * widths[j]));
+      int to = (int) Math.min(n, Math.ceil(centers[j] + 400 * widths[j]));
+      for (int i = from; i < to; i++) {
+        double d = (i - centers[j]) / widths[j];
+        values[i] += heights[j] / (1.0 + d * d);
+      }
+    }
+    int[] y = new int[n];
+    for (int i = 0; i < n; i++) {
+      double value = values[i];
+      // flat baseline with sparse noise gives runs of equal differences
+      if (random.nextInt(4) == 0)
+        value += random.nextInt(5) - 2;
+      y[i] = (int) Math.round(value);
+    }
+    return y;
+  }
+
+  /**
+   * encodes intensities as <code>##XYDATA=(X++(Y..Y))</code> content, x values are the indices.
+   *
+   * @param y int[] intensities
+   * @param compression one of AFFN, PAC, SQZ, DIF, DUP
+   * @return String lines of data, each ending with CRLF
+   */
+  public static String xydata(int[] y, String compression) {
+    StringBuilder out = new StringBuilder(y.length * 6);
+    int n = y.length;
+    if (DUP.equals(compression)) {
+      return ASDFEncoder.encode(0, n - 1, y);
+    } else if (DIF.equals(compression)) {
+      // each line after the first repeats the last ordinate of the previous line as y check
+      int i = 0;
+      while (i < n) {
+        int start = i == 0 ? 0 : i - 1;
+        out.append(start);
+        appendSQZ(out, y[start]);
+        int end = Math.min(start + VALUES_PER_LINE, n - 1);
+        for (int k = start + 1; k <= end; k++)
+          appendDIF(out, y[k] - y[k - 1]);
+        out.append(CRLF);
+        i = end + 1;
+      }
+      // final y check
+      out.append(n - 1);
+      appendSQZ(out, y[n - 1]);
+      out.append(CRLF);
+    } else {
+      for (int i = 0; i < n; i += VALUES_PER_LINE) {
+        out.append(i);
+        int end = Math.min(i + VALUES_PER_LINE, n);
+        for (int k = i; k < end; k++) {
+          if (AFFN.equals(compression))
+            out.append(' ').append(y[k]);
+          else if (PAC.equals(compression))
+            out.append(y[k] < 0 ? '-' : '+').append(Math.abs(y[k]));
+          else if (SQZ.equals(compression))
+            appendSQZ(out, y[k]);
+          else
+            throw new IllegalArgumentException("unknown compression: " + compression);
+        }
+        out.append(CRLF);
+      }
+    }
+    return out.toString();
+  }
+
+  /**
+   * creates a JCAMP-DX file with an equidistant <code>##XYDATA=</code> record.
+   *
+   * @param type one of {@link #TYPES}
+   * @param n number of points
+   * @param compression one of AFFN, PAC, SQZ, DIF, DUP
+   * @return String
+   */
+  public static String spectrum(String type, int n, String compression) {
+    String dataType;
+    String xUnits;
+    String yUnits;
+    String extra = "";
+    if ("NMR".equals(type)) {
+      dataType = "NMR SPECTRUM";
+      xUnits = "HZ";
+      yUnits = "ARBITRARY UNITS";
+      extra = "##.OBSERVE FREQUENCY=400.13" + CRLF + "##.OBSERVE NUCLEUS=^1H" + CRLF;
+    } else if ("IR".equals(type)) {
+      dataType = "INFRARED SPECTRUM";
+      xUnits = "1/CM";
+      yUnits = "ABSORBANCE";
+    } else if ("UV".equals(type)) {
+      dataType = "UV/VIS SPECTRUM";
+      xUnits = "NANOMETERS";
+      yUnits = "ABSORBANCE";
+    } else if ("MS".equals(type)) {
+      dataType = "CONTINUOUS MASS SPECTRUM";
+      xUnits = "M/Z";
+      yUnits = "RELATIVE ABUNDANCE";
+    } else if ("RAMAN".equals(type)) {
+      dataType = "RAMAN SPECTRUM";
+      xUnits = "1/CM";
+      yUnits = "ARBITRARY UNITS";
+    } else if ("FLUORESCENCE".equals(type)) {
+      dataType = "FLUORESCENCE SPECTRUM";
+      xUnits = "NANOMETERS";
+      yUnits = "ARBITRARY UNITS";
+    } else if ("CHROMATOGRAM".equals(type)) {
+      dataType = "CHROMATOGRAM";
+      xUnits = "SECONDS";
+      yUnits = "ARBITRARY UNITS";
+    } else
+      throw new IllegalArgumentException("unknown spectrum type: " + type);
+    int[] y = intensities(n, n);
+    StringBuilder out = new StringBuilder(n * 6 + 512);
+    out.append("##TITLE=synthetic ").append(type).append(' ').append(compression).append(CRLF);
+    out.append("##JCAMP-DX=4.24").append(CRLF);
+    out.append("##DATA TYPE=").append(dataType).append(CRLF);
+    out.append("##ORIGIN=synthetic").append(CRLF);
+    out.append("##OWNER=public domain").append(CRLF);
+    out.append(extra);
+    out.append("##XUNITS=").append(xUnits).append(CRLF);
+    out.append("##YUNITS=").append(yUnits).append(CRLF);
+    out.append("##XFACTOR=1").append(CRLF);
+    out.append("##YFACTOR=1").append(CRLF);
+    out.append("##FIRSTX=0").append(CRLF);
+    out.append("##LASTX=").append(n - 1).append(CRLF);
+    out.append("##DELTAX=1").append(CRLF);
+    out.append("##FIRSTY=").append(y[0]).append(CRLF);
+    out.append("##NPOINTS=").append(n).append(CRLF);
+    out.append("##XYDATA=(X++(Y..Y))").append(CRLF);
+    out.append(xydata(y, compression));
+    out.append("##END=").append(CRLF);
+    return out.toString();
+  }
+
+  /**
+   * creates an IR spectrum with <code>##XYPOINTS=(XY..XY)</code>, one pair per line.
+   *
+   * @param n number of points
+   * @return String
+   */
+  public static String xyPoints(int n) {
+    return xyTable("INFRARED SPECTRUM", "XYPOINTS", "1/CM", "ABSORBANCE", n);
+  }
+
+  /**
+   * creates an IR peak table with <code>##PEAK TABLE=(XY..XY)</code>, one pair per line.
+   *
+   * @param n number of peaks
+   * @return String
+   */
+  public static String peakTable(int n) {
+    return xyTable("INFRARED PEAK TABLE", "PEAK TABLE", "1/CM", "ABSORBANCE", n);
+  }
+
+  /**
+   * creates a mass spectrum peak table with <code>##PEAK TABLE=(XY..XY)</code>, one pair per line.
+   *
+   * @param n number of peaks
+   * @return String
+   */
+  public static String massPeakTable(int n) {
+    return xyTable("MASS SPECTRUM", "PEAK TABLE", "M/Z", "RELATIVE ABUNDANCE", n);
+  }
+
+  private static String xyTable(String dataType, String label, String xUnits, String yUnits, int n) {
+    int[] y = intensities(n, n);
+    StringBuilder out = new StringBuilder(n * 16 + 512);
+    out.append("##TITLE=synthetic ").append(dataType).append(CRLF);
+    out.append("##JCAMP-DX=4.24").append(CRLF);
+    out.append("##DATA TYPE=").append(dataType).append(CRLF);
+    out.append("##ORIGIN=synthetic").append(CRLF);
+    out.append("##OWNER=public domain").append(CRLF);
+    out.append("##XUNITS=").append(xUnits).append(CRLF);
+    out.append("##YUNITS=").append(yUnits).append(CRLF);
+    out.append("##XFACTOR=1").append(CRLF);
+    out.append("##YFACTOR=1").append(CRLF);
+    out.append("##FIRSTX=400").append(CRLF);
+    out.append("##LASTX=").append(400 + (n - 1) * 0.5).append(CRLF);
+    out.append("##NPOINTS=").append(n).append(CRLF);
+    out.append("##").append(label).append("=(XY..XY)").append(CRLF);
+    for (int i = 0; i < n; i++)
+      out.append(400 + i * 0.5).append(", ").append(y[i]).append(CRLF);
+    out.append("##END=").append(CRLF);
+    return out.toString();
+  }
+
+  /**
+   * creates a GC/MS run as NTUPLE with one <code>##PAGE=</code> per scan.
+   *
+   * @param scans number of scans
+   * @param peaks number of (m/z, intensity) pairs per scan
+   * @return String
+   */
+  public static String gcms(int scans, int peaks) {
+    Random random = new Random(scans);
+    StringBuilder out = new StringBuilder(scans * (peaks * 12 + 64) + 1024);
+    out.append("##TITLE=synthetic GC/MS").append(CRLF);
+    out.append("##JCAMP-DX=5.00").append(CRLF);
+    out.append("##DATA TYPE=MASS SPECTRUM").append(CRLF);
+    out.append("##DATA CLASS=NTUPLES").append(CRLF);
+    out.append("##ORIGIN=synthetic").append(CRLF);
+    out.append("##OWNER=public domain").append(CRLF);
+    out.append("##NTUPLES=MASS SPECTRUM").append(CRLF);
+    out.append("##VAR_NAME=MASS, INTENSITY, RETENTION TIME").append(CRLF);
+    out.append("##SYMBOL=X, Y, T").append(CRLF);
+    out.append("##VAR_TYPE=INDEPENDENT, DEPENDENT, INDEPENDENT").append(CRLF);
+    out.append("##VAR_FORM=AFFN, AFFN, AFFN").append(CRLF);
+    out.append("##VAR_DIM=").append(peaks).append(", ").append(peaks).append(", ").append(scans).append(CRLF);
+    out.append("##UNITS=M/Z, RELATIVE ABUNDANCE, SECONDS").append(CRLF);
+    out.append("##FIRST=0, 0, 1").append(CRLF);
+    out.append("##LAST=0, 0, ").append(scans).append(CRLF);
+    for (int p = 0; p < scans; p++) {
+      out.append("##PAGE=T=").append(p + 1).append(CRLF);
+      out.append("##NPOINTS=").append(peaks).append(CRLF);
+      out.append("##DATA TABLE=(XY..XY), PEAKS").append(CRLF);
+      for (int i = 0; i < peaks; i++)
+        out.append(40 + i).append('.').append(random.nextInt(10)).append(", ").append(random.nextInt(100000)).append(CRLF);
+    }
+    out.append("##END NTUPLES=MASS SPECTRUM").append(CRLF);
+    out.append("##END=").append(CRLF);
+    return out.toString();
+  }
+
+  private static void appendSQZ(StringBuilder out, int value) {
+    appendDigits(out, value, POS_SQZ, NEG_SQZ);
+  }
+
+  private static void appendDIF(StringBuilder out, int value) {
+    appendDigits(out, value, POS_DIF, NEG_DIF);
+  }
+
+  private static void appendDigits(StringBuilder out, int value, char[] pos, char[] neg) {
+    String digits = Integer.toString(Math.abs(value));
+    out.append(value < 0 ? neg[digits.charAt(0) - '0'] : pos[digits.charAt(0) - '0']);
+    out.append(digits, 1, digits.length());
+  }
+}
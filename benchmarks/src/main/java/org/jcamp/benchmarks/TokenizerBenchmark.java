@@ -0,0 +1,78 @@
+package org.jcamp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jcamp.parser.AFFNGroup;
+import org.jcamp.parser.AFFNTokenizer;
+import org.jcamp.parser.DataGroup;
+import org.jcamp.parser.DatatableTokenizer;
+import org.jcamp.parser.JCAMPBlock;
+import org.jcamp.parser.JCAMPDataRecord;
+import org.jcamp.parser.JCAMPException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * AFFNTokenizer on <code>##XYPOINTS=(XY..XY)</code> and DatatableTokenizer on
+ * <code>##PEAK TABLE=(XY..XY)</code>, group by group and column-wise.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+
+  @Param({"1000", "100000"})
+  public int points;
+
+  private JCAMPDataRecord xyPoints;
+
+  private JCAMPDataRecord peakTable;
+
+  @Setup
+  public void setup() throws JCAMPException {
+    xyPoints = new JCAMPBlock(SyntheticJCAMP.xyPoints(points)).getDataRecord("XYPOINTS");
+    peakTable = new JCAMPBlock(SyntheticJCAMP.peakTable(points)).getDataRecord("PEAKTABLE");
+  }
+
+  @Benchmark
+  public void affnGroups(Blackhole bh) throws JCAMPException {
+    AFFNTokenizer tokenizer = new AFFNTokenizer(xyPoints);
+    while (tokenizer.hasMoreGroups()) {
+      AFFNGroup group = tokenizer.nextGroup();
+      bh.consume(group.getValue(0));
+      bh.consume(group.getValue(1));
+    }
+  }
+
+  @Benchmark
+  public double[][] affnColumns() throws JCAMPException {
+    return new AFFNTokenizer(xyPoints).readColumns();
+  }
+
+  @Benchmark
+  public void datatableGroups(Blackhole bh) throws JCAMPException {
+    DatatableTokenizer tokenizer = new DatatableTokenizer(peakTable);
+    while (tokenizer.hasMoreGroups()) {
+      DataGroup group = tokenizer.nextGroup();
+      bh.consume(group);
+    }
+  }
+
+  @Benchmark
+  public double[][] datatableColumns() throws JCAMPException {
+    return new DatatableTokenizer(peakTable).readColumns();
+  }
+}
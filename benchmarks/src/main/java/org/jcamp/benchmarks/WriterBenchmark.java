@@ -0,0 +1,95 @@
+package org.jcamp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jcamp.parser.JCAMPException;
+import org.jcamp.parser.JCAMPReader;
+import org.jcamp.parser.JCAMPWriter;
+import org.jcamp.spectrum.Spectrum;
+import org.jcamp.spectrum.Spectrum1D;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <code>JCAMPWriter.toJCAMP</code> and <code>toSimpleJCAMP</code> for the spectrum types
+ * with a writer adapter (NMR, IR, UV, Raman, fluorescence and MS peak tables).
+ * besides the operations per second, the secondary results <code>bytes</code> and
+ * <code>points</code> give characters written and data points encoded per second,
+ * their ratio is the output size per point.
+ * run with <code>-prof gc</code> for the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class WriterBenchmark {
+
+  /**
+   * spectrum to write, parsed from a synthetic file.
+   */
+  @State(Scope.Benchmark)
+  public static class SpectrumState {
+    @Param({"NMR", "IR", "UV", "MS", "RAMAN", "FLUORESCENCE"})
+    public String type;
+
+    @Param({"1000", "65536", "1048576", "4194304"})
+    public int points;
+
+    Spectrum spectrum;
+
+    @Setup
+    public void setup() throws JCAMPException {
+      String jcamp;
+      if ("MS".equals(type))
+        jcamp = SyntheticJCAMP.massPeakTable(points);
+      else
+        jcamp = SyntheticJCAMP.spectrum(type, points, SyntheticJCAMP.DUP);
+      spectrum = JCAMPReader.getInstance().createSpectrum(jcamp);
+    }
+  }
+
+  /**
+   * output counters, reported per second.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Output {
+    public long bytes;
+
+    public long points;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+      points = 0;
+    }
+
+    String count(String jcamp, Spectrum spectrum) {
+      bytes += jcamp.length();
+      points += ((Spectrum1D) spectrum).getXData().getLength();
+      return jcamp;
+    }
+  }
+
+  @Benchmark
+  public String toJCAMP(SpectrumState state, Output output) throws JCAMPException {
+    return output.count(JCAMPWriter.getInstance().toJCAMP(state.spectrum), state.spectrum);
+  }
+
+  @Benchmark
+  public String toSimpleJCAMP(SpectrumState state, Output output) throws JCAMPException {
+    return output.count(JCAMPWriter.getInstance().toSimpleJCAMP(state.spectrum), state.spectrum);
+  }
+}
@@ -1,6 +1,7 @@
 package org.jcamp.math;
 
 import java.io.Serializable;
+import java.nio.DoubleBuffer;
 
 /**
  * 1-dimensional numerical data arrays.
@@ -62,6 +63,14 @@ public class Array1D
     this.range = from.getRange1D();
   }
 
+  /**
+   * read-only view of the array values, not copied.
+   * @return DoubleBuffer
+   */
+  public DoubleBuffer asBuffer() {
+    return DoubleBuffer.wrap(array).asReadOnlyBuffer();
+  }
+
   /**
    * calculate maximum and minimum.
    */
@@ -92,6 +101,17 @@ public class Array1D
     return array;
   }
 
+  /**
+   * copies array values <code>from</code> to <code>to</code> (exclusive) into <code>dst</code>.
+   * @param dst double[]
+   * @param dstOffset int
+   * @param from int
+   * @param to int
+   */
+  public void copyTo(double[] dst, int dstOffset, int from, int to) {
+    System.arraycopy(array, from, dst, dstOffset, to - from);
+  }
+
   /**
    * gets data value at index.
    * @param index int
@@ -181,6 +201,17 @@ public class Array1D
     return a;
   }
 
+  /**
+   * scale all array values by <code>amount</code> and translate them by <code>translation</code>.
+   * @param amount double
+   * @param translation double
+   */
+  public void transform(double amount, double translation) {
+    for (int i = 0; i < array.length; i++)
+      array[i] = array[i] * amount + translation;
+    this.range = new Range1D.Double(this.range.getXMin() * amount + translation, this.range.getXMax() * amount + translation);
+  }
+
   /**
    * translate all array values by <code>amount</code>
    * @param amount double
@@ -0,0 +1,144 @@
+package org.jcamp.math;
+
+/**
+ * reduces xy data to a number of points for display.
+ * the results are written into arrays of the caller, so repeated
+ * decimation, e.g. while zooming, does not allocate.
+ */
+public class Decimator {
+
+  /**
+   * minimum and maximum of each bucket, in the order of the data points.
+   * peaks are kept, so the envelope of the data is preserved.
+   */
+  public final static int MIN_MAX = 0;
+
+  /**
+   * largest triangle three buckets, one point per bucket that keeps the
+   * visual shape of the data. first and last data point are kept.
+   */
+  public final static int LTTB = 1;
+
+  private Decimator() {
+  }
+
+  /**
+   * decimates data points <code>from</code> to <code>to</code> (exclusive) into
+   * at most <code>targetPoints</code> points. if there are not more data points,
+   * they are copied unchanged.
+   *
+   * @param x IArray1D x values
+   * @param y IArray1D y values
+   * @param from int first data point
+   * @param to int end of data points, exclusive
+   * @param targetPoints int maximum number of points
+   * @param mode int {@link #MIN_MAX} or {@link #LTTB}
+   * @param xOut double[] x values of the points, at least <code>min(to - from, targetPoints)</code> long
+   * @param yOut double[] y values of the points, at least <code>min(to - from, targetPoints)</code> long
+   * @return int number of points
+   */
+  public static int decimate(IArray1D x, IArray1D y, int from, int to, int targetPoints, int mode, double[] xOut,
+      double[] yOut) {
+    if (mode != MIN_MAX && mode != LTTB)
+      throw new IllegalArgumentException("unknown mode: " + mode);
+    if (targetPoints < (mode == LTTB ? 3 : 2))
+      throw new IllegalArgumentException("too few target points: " + targetPoints);
+    int n = to - from;
+    if (n <= targetPoints) {
+      x.copyTo(xOut, 0, from, to);
+      y.copyTo(yOut, 0, from, to);
+      return n;
+    }
+    if (mode == LTTB)
+      return lttb(x, y, from, to, targetPoints, xOut, yOut);
+    return minMax(x, y, from, to, targetPoints / 2, xOut, yOut);
+  }
+
+  /**
+   * minimum and maximum of <code>buckets</code> buckets.
+   */
+  private static int minMax(IArray1D x, IArray1D y, int from, int to, int buckets, double[] xOut, double[] yOut) {
+    int n = to - from;
+    int count = 0;
+    for (int b = 0; b < buckets; b++) {
+      int start = from + (int) ((long) b * n / buckets);
+      int end = from + (int) ((long) (b + 1) * n / buckets);
+      int iMin = start;
+      int iMax = start;
+      double min = y.pointAt(start);
+      double max = min;
+      for (int i = start + 1; i < end; i++) {
+	double value = y.pointAt(i);
+	if (value < min || min != min) {
+	  min = value;
+	  iMin = i;
+	}
+	if (value > max || max != max) {
+	  max = value;
+	  iMax = i;
+	}
+      }
+      int first = Math.min(iMin, iMax);
+      int last = Math.max(iMin, iMax);
+      xOut[count] = x.pointAt(first);
+      yOut[count++] = y.pointAt(first);
+      if (last != first) {
+	xOut[count] = x.pointAt(last);
+	yOut[count++] = y.pointAt(last);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * largest triangle three buckets.
+   */
+  private static int lttb(IArray1D x, IArray1D y, int from, int to, int targetPoints, double[] xOut, double[] yOut) {
+    int n = to - from;
+    // first and last data point are buckets of their own
+    double every = (double) (n - 2) / (targetPoints - 2);
+    double ax = x.pointAt(from);
+    double ay = y.pointAt(from);
+    xOut[0] = ax;
+    yOut[0] = ay;
+    int count = 1;
+    for (int b = 0; b < targetPoints - 2; b++) {
+      // average of next bucket
+      int nextStart = from + 1 + (int) ((b + 1) * every);
+      int nextEnd = Math.min(from + 1 + (int) ((b + 2) * every), to);
+      if (b == targetPoints - 3)
+	nextEnd = to;
+      double avgX = 0;
+      double avgY = 0;
+      for (int i = nextStart; i < nextEnd; i++) {
+	avgX += x.pointAt(i);
+	avgY += y.pointAt(i);
+      }
+      avgX /= nextEnd - nextStart;
+      avgY /= nextEnd - nextStart;
+      // point of current bucket with largest triangle
+      int start = from + 1 + (int) (b * every);
+      int end = from + 1 + (int) ((b + 1) * every);
+      double maxArea = -1;
+      double nx = x.pointAt(start);
+      double ny = y.pointAt(start);
+      for (int i = start; i < end; i++) {
+	double px = x.pointAt(i);
+	double py = y.pointAt(i);
+	double area = Math.abs((ax - avgX) * (py - ay) - (ax - px) * (avgY - ay));
+	if (area > maxArea) {
+	  maxArea = area;
+	  nx = px;
+	  ny = py;
+	}
+      }
+      xOut[count] = nx;
+      yOut[count++] = ny;
+      ax = nx;
+      ay = ny;
+    }
+    xOut[count] = x.pointAt(to - 1);
+    yOut[count++] = y.pointAt(to - 1);
+    return count;
+  }
+}
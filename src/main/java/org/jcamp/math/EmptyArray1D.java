@@ -1,5 +1,7 @@
 package org.jcamp.math;
 
+import java.nio.DoubleBuffer;
+
 /**
  * interval of width 0.
  * @author Thomas Weber
@@ -11,6 +13,19 @@ public class EmptyArray1D implements IArray1D {
     public EmptyArray1D() {
         super();
     }
+    /**
+     * asBuffer method comment.
+     */
+    public DoubleBuffer asBuffer() {
+        return DoubleBuffer.allocate(0).asReadOnlyBuffer();
+    }
+    /**
+     * copyTo method comment.
+     */
+    public void copyTo(double[] dst, int dstOffset, int from, int to) {
+        if (from != 0 || to != 0)
+            throw new ArrayIndexOutOfBoundsException("empty array");
+    }
     /**
      * getLength method comment.
      */
@@ -46,6 +61,11 @@ public class EmptyArray1D implements IArray1D {
     public double[] toArray() {
         return new double[0];
     }
+    /**
+     * transform method comment.
+     */
+    public void transform(double amount, double translation) {
+    }
     /**
      * translate method comment.
      */
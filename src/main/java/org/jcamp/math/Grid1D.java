@@ -1,6 +1,7 @@
 package org.jcamp.math;
 
 import java.io.Serializable;
+import java.nio.DoubleBuffer;
 
 /**
  * abstract base class for 1-dimensional grids
@@ -39,6 +40,14 @@ public abstract class Grid1D
     return g;
   }
 
+  /**
+   * read-only copy of the grid points.
+   * @return DoubleBuffer
+   */
+  public DoubleBuffer asBuffer() {
+    return DoubleBuffer.wrap(toArray()).asReadOnlyBuffer();
+  }
+
   /**
    * cloning
    * 
@@ -72,6 +81,23 @@ public abstract class Grid1D
    */
   public abstract double coordinateAt(double value);
 
+  /**
+   * copies grid points <code>from</code> to <code>to</code> (exclusive) into <code>dst</code>.
+   * grid points outside the grid are not extrapolated.
+   * @param dst double[]
+   * @param dstOffset int
+   * @param from int
+   * @param to int
+   */
+  public void copyTo(double[] dst, int dstOffset, int from, int to) {
+    if (from < 0 || to > getLength() || from > to)
+      throw new ArrayIndexOutOfBoundsException("grid points " + from + " to " + to + " of " + getLength());
+    if (dstOffset < 0 || dstOffset + to - from > dst.length)
+      throw new ArrayIndexOutOfBoundsException("destination " + dstOffset + " to " + (dstOffset + to - from) + " of " + dst.length);
+    for (int i = from; i < to; i++)
+      dst[dstOffset++] = pointAt(i);
+  }
+
   /**
    * convert value into grid coordinate.
    * Creation date: (01/12/00 10:55:42)
@@ -92,11 +118,20 @@ public abstract class Grid1D
    * @param value double
    */
   public double[] coordinatesAt(double[] values) {
+    double[] grid = new double[values.length];
+    coordinatesAt(values, grid);
+    return grid;
+  }
+
+  /**
+   * converts values into grid coordinates, written into <code>grid</code>.
+   * @param values double[]
+   * @param grid double[] grid coordinates, at least as long as <code>values</code>
+   */
+  public void coordinatesAt(double[] values, double[] grid) {
     int n = values.length;
-    double[] grid = new double[n];
     for (int i = 0; i < n; i++)
       grid[i] = coordinateAt(values[i]);
-    return grid;
   }
 
   /**
@@ -184,6 +219,31 @@ public abstract class Grid1D
     return indices;
   }
 
+  /**
+   * linear interpolation of <code>data</code>, sampled at the grid points, at
+   * <code>positions</code>, e.g. to map a spectrum onto the x values of another one.
+   * positions outside of the grid are NaN.
+   * @param data double[] data values at the grid points
+   * @param positions double[] positions to interpolate at
+   * @param result double[] interpolated values, at least as long as <code>positions</code>
+   */
+  public void interpolate(double[] data, double[] positions, double[] result) {
+    int length = getLength();
+    coordinatesAt(positions, result);
+    for (int i = 0; i < positions.length; i++) {
+      double g = result[i];
+      if (g >= 0 && g <= length - 1 && length > 1) {
+	int i0 = Math.min((int) g, length - 2);
+	double dg = g - i0;
+	result[i] = data[i0] + dg * (data[i0 + 1] - data[i0]);
+      } else if (g == 0) {
+	result[i] = data[0];
+      } else {
+	result[i] = Double.NaN;
+      }
+    }
+  }
+
   /**
    * Insert the method's description here.
    * Creation date: (2/24/00 5:05:23 PM)
@@ -213,6 +273,16 @@ public abstract class Grid1D
     return grid;
   }
 
+  /**
+   * scale grid points by <code>amount</code> and translate them by <code>translation</code>.
+   * @param amount double
+   * @param translation double
+   */
+  public void transform(double amount, double translation) {
+    scale(amount);
+    translate(translation);
+  }
+
   /**
    * convert grid coordinate into value
    * Creation date: (01/12/00 10:56:08)
@@ -252,10 +322,19 @@ public abstract class Grid1D
    * @param grid double
    */
   public double[] valuesAt(double[] grid) {
+    double[] values = new double[grid.length];
+    valuesAt(grid, values);
+    return values;
+  }
+
+  /**
+   * converts grid coordinates into values, written into <code>values</code>.
+   * @param grid double[]
+   * @param values double[] values, at least as long as <code>grid</code>
+   */
+  public void valuesAt(double[] grid, double[] values) {
     int n = grid.length;
-    double[] values = new double[n];
     for (int i = 0; i < n; i++)
       values[i] = valueAt(grid[i]);
-    return values;
   }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package org.jcamp.math;
 
+import java.nio.DoubleBuffer;
+
 /**
  * real interval with discrete data points.
  * 
@@ -8,6 +10,37 @@ package org.jcamp.math;
 public interface IArray1D
   extends IInterval1D {
   
+  /**
+   * read-only view of the data points. arrays storing their values as doubles
+   * are not copied, other arrays return a read-only copy. the view is to be
+   * used before the values are changed, e.g. by scaling or translation.
+   * 
+   * @return DoubleBuffer with position 0 and limit <code>getLength()</code>
+   */
+  public default DoubleBuffer asBuffer() {
+    return DoubleBuffer.wrap(toArray()).asReadOnlyBuffer();
+  }
+  
+  /**
+   * copies data points <code>from</code> (inclusive) to <code>to</code> (exclusive)
+   * into <code>dst</code>, starting at <code>dstOffset</code>.
+   * 
+   * @param dst double[] destination array
+   * @param dstOffset int first position in <code>dst</code>
+   * @param from int first data point
+   * @param to int end of data points, exclusive
+   * @throws IndexOutOfBoundsException if the data points or <code>dst</code> are out of bounds
+   */
+  public default void copyTo(double[] dst, int dstOffset, int from, int to) {
+    int length = getLength();
+    if (from < 0 || to > length || from > to)
+      throw new ArrayIndexOutOfBoundsException("values " + from + " to " + to + " of " + length);
+    if (dstOffset < 0 || dstOffset + to - from > dst.length)
+      throw new ArrayIndexOutOfBoundsException("destination " + dstOffset + " to " + (dstOffset + to - from) + " of " + dst.length);
+    for (int i = from; i < to; i++)
+      dst[dstOffset++] = pointAt(i);
+  }
+  
   /**
    * number of data points in interval.
    * @return int
@@ -33,6 +66,18 @@ public interface IArray1D
    */
   public double[] toArray();
   
+  /**
+   * scale by <code>amount</code> and translate by <code>translation</code>
+   * in a single pass, same as <code>scale(amount)</code> followed by
+   * <code>translate(translation)</code>.
+   * @param amount double
+   * @param translation double
+   */
+  public default void transform(double amount, double translation) {
+    scale(amount);
+    translate(translation);
+  }
+  
   /**
    * translate by given amount.
    * @param amount double
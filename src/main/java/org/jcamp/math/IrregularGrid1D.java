@@ -1,5 +1,7 @@
 package org.jcamp.math;
 
+import java.nio.DoubleBuffer;
+
 /**
  * generic 1-dimensional grid.
  * linear interpolation between grid samples.
@@ -115,6 +117,15 @@ public class IrregularGrid1D
     }
   }
   
+  /**
+   * read-only view of the grid samples, not copied.
+   * @return DoubleBuffer
+   */
+  @Override
+  public DoubleBuffer asBuffer() {
+    return DoubleBuffer.wrap(samples).asReadOnlyBuffer();
+  }
+  
   /**
    * cloning.
    * @return Object
@@ -124,6 +135,14 @@ public class IrregularGrid1D
     return new IrregularGrid1D(samples, range, ascending);
   }
   
+  /**
+   * copies grid samples <code>from</code> to <code>to</code> (exclusive) into <code>dst</code>.
+   */
+  @Override
+  public void copyTo(double[] dst, int dstOffset, int from, int to) {
+    System.arraycopy(samples, from, dst, dstOffset, to - from);
+  }
+  
   /**
    * 
    */
@@ -186,68 +205,67 @@ public class IrregularGrid1D
   }
   
   /**
-   * 
+   * converts values into grid coordinates, written into <code>grid</code>.
+   * values sorted in ascending or descending order, e.g. the x values of another
+   * spectrum, are swept together with the samples in O(n + m), other values
+   * are searched in O(m log n).
    */
   @Override
-  public double[] coordinatesAt(double[] value) {
-    int n = value.length;
-    double[] grid = new double[n];
-    for (int i = 0; i < n; i++) {
-      double x = value[i];
+  public void coordinatesAt(double[] values, double[] grid) {
+    int n = values.length;
+    int order = 0;
+    double last = Double.NaN;
+    for (int i = 0; i < n && order != 2; i++) {
+      double x = values[i];
       if (Double.isNaN(x))
+	continue;
+      if (last == last && x != last) {
+	int o = (x > last) ? 1 : -1;
+	if (order == 0)
+	  order = o;
+	else if (order != o)
+	  order = 2;
+      }
+      last = x;
+    }
+    if (order == 2) {
+      for (int i = 0; i < n; i++)
+	grid[i] = coordinateAt(values[i]);
+      return;
+    }
+    // sweep in order of increasing sample index
+    boolean forward = (order >= 0) == ascending;
+    int length = getLength();
+    double sleft = samples[0];
+    double sright = samples[length - 1];
+    int left = 0;
+    for (int k = 0; k < n; k++) {
+      int i = forward ? k : n - 1 - k;
+      double x = values[i];
+      if (Double.isNaN(x)) {
 	grid[i] = Double.NaN;
-      else {
-	int left = 0;
-	int right = getLength() - 1;
-	int mid;
-	double sleft = samples[left];
-	double sright = samples[right];
-	if (ascending) {
-	  if (x < sleft) { // extrapolate
-	    grid[i] = left + (x - sleft) / (samples[left + 1] - sleft);
-	  continue;
-	  } else if (x > sright) { // extrapolate
-	    grid[i] = right + (x - sright) / (sright - samples[right - 1]);
-	    continue;
-	  }
-	  while (right - left > 1) {
-	    mid = (right + left) / 2;
-	    double sx = samples[mid];
-	    if (x > sx)
-	      left = mid;
-	    else if (x < sx)
-	      right = mid;
-	    else {
-	      left = mid;
-	      break;
-	    }
-	  }
+      } else if (ascending) {
+	if (x < sleft) { // extrapolate
+	  grid[i] = (x - sleft) / (samples[1] - sleft);
+	} else if (x > sright) { // extrapolate
+	  grid[i] = length - 1 + (x - sright) / (sright - samples[length - 2]);
+	} else {
+	  while (left < length - 2 && samples[left + 1] <= x)
+	    left++;
 	  grid[i] = left + (x - samples[left]) / (samples[left + 1] - samples[left]);
+	}
+      } else {
+	if (x < sright) { // extrapolate
+	  grid[i] = length - 1 + (sright - x) / (samples[length - 2] - sright);
+	} else if (x > sleft) { // extrapolate
+	  grid[i] = (sleft - x) / (sleft - samples[1]);
 	} else {
-	  if (x < sright) { // extrapolate
-	    grid[i] = right + (sright - x) / (samples[right - 1] - sright);
-	    continue;
-	  } else if (x > sleft) { // extrapolate
-	    grid[i] = left + (sleft - x) / (sleft - samples[left + 1]);
-	    continue;
-	  }
-	  while (right - left > 1) {
-	    mid = (right + left) / 2;
-	    double sx = samples[mid];
-	    if (x < sx)
-	      left = mid;
-	    else if (x > sx)
-	      right = mid;
-	    else {
-	      left = mid;
-	      break;
-	    }
-	  }
+	  while (left < length - 2 && samples[left + 1] >= x)
+	    left++;
 	  grid[i] = left + (samples[left] - x) / (samples[left] - samples[left + 1]);
 	}
       }
     }
-    return grid;
   }
   
   /**
@@ -375,6 +393,15 @@ public class IrregularGrid1D
     return a;
   }
   
+  @Override
+  public void transform(double amount, double translation) {
+    for (int i = 0; i < samples.length; i++)
+      samples[i] = samples[i] * amount + translation;
+    range = new Range1D.Double(range.getXMin() * amount + translation, range.getXMax() * amount + translation);
+    if (amount < 0)
+      ascending = !ascending;
+  }
+  
   public void translate(double amount) {
     for (int i = 0; i < samples.length; i++)
       samples[i] += amount;
@@ -408,21 +435,20 @@ public class IrregularGrid1D
   }
   
   /**
-   * getValueFromGrid method comment.
+   * converts grid coordinates into values, written into <code>values</code>.
    */
   @Override
-  public double[] valuesAt(double[] grid) {
+  public void valuesAt(double[] grid, double[] values) {
     int n = grid.length;
-    double[] value = new double[n];
     int length = getLength();
     for (int i = 0; i < n; i++) {
       double gx = grid[i];
       if (gx < 0) {
 	double dx = samples[1] - samples[0];
-	value[i] = samples[0] + dx * gx;
+	values[i] = samples[0] + dx * gx;
       } else if (gx > length - 1) {
 	double dx = samples[length - 1] - samples[length - 2];
-	value[i] = samples[length - 1] + dx * (gx - length + 1);
+	values[i] = samples[length - 1] + dx * (gx - length + 1);
       } else {
 	// find nearest integer lesser than g
 	int gx0 = (int) Math.floor(gx + 0.5);
@@ -431,9 +457,8 @@ public class IrregularGrid1D
 	if (gx0 > length - 2)
 	  gx0 = length - 2;
 	double dx = gx - gx0;
-	value[i] = (1 - dx) * samples[gx0] + dx * samples[gx0 + 1];
+	values[i] = (1 - dx) * samples[gx0] + dx * samples[gx0 + 1];
       }
     }
-    return value;
   }
 }
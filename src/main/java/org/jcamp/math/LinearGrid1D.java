@@ -52,6 +52,24 @@ public class LinearGrid1D
     this.istep = 1.0 / step;
   }
 
+  /**
+   * linear grid of <code>length</code> points from <code>start</code> in steps of <code>step</code>,
+   * e.g. to restore a stored grid. <code>end</code> is not checked against the other values.
+   * @param start double
+   * @param end double
+   * @param step double
+   * @param length int
+   */
+  public LinearGrid1D(double start, double end, double step, int length) {
+    super(length);
+    if (length < 2)
+      throw new IllegalArgumentException("grid length lesser than 2");
+    this.start = start;
+    this.end = end;
+    this.step = step;
+    this.istep = 1.0 / step;
+  }
+
   /**
    * linear grid from <code>start</code> to <code>end</code> in  <code>length</code> steps.
    * @param length int
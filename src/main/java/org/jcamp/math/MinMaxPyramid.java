@@ -0,0 +1,167 @@
+package org.jcamp.math;
+
+/**
+ * multi-resolution minima and maxima of a data array, a segment tree over
+ * blocks of {@link #BLOCK} data points. ranges of data points are answered in
+ * O(log n), e.g. the y range of a zoomed spectrum.
+ * <p>
+ * the array is not watched for changes: scaling and translation of the values
+ * are passed on by {@link #transform(double, double)}, other changes need a new pyramid.
+ */
+public class MinMaxPyramid {
+
+  /** number of data points per block of the lowest level */
+  public final static int BLOCK = 32;
+
+  private final IArray1D data;
+
+  private final int length;
+
+  // minima and maxima per level, level 0 holds the blocks
+  private final double[][] min;
+
+  private final double[][] max;
+
+  // stored minima and maxima are factor * value + offset
+  private double factor = 1;
+
+  private double offset = 0;
+
+  /**
+   * builds the pyramid for the current values of <code>data</code>.
+   * @param data IArray1D
+   */
+  public MinMaxPyramid(IArray1D data) {
+    this.data = data;
+    this.length = data.getLength();
+    int blocks = (length + BLOCK - 1) / BLOCK;
+    int levels = 1;
+    for (int n = blocks; n > 1; n = (n + 1) / 2)
+      levels++;
+    min = new double[levels][];
+    max = new double[levels][];
+    min[0] = new double[blocks];
+    max[0] = new double[blocks];
+    double[] buffer = new double[Math.min(length, 1024 * BLOCK)];
+    for (int start = 0; start < length; start += buffer.length) {
+      int end = Math.min(start + buffer.length, length);
+      data.copyTo(buffer, 0, start, end);
+      for (int i = start; i < end; i += BLOCK) {
+	double lo = Double.POSITIVE_INFINITY;
+	double hi = Double.NEGATIVE_INFINITY;
+	int n = Math.min(i + BLOCK, end) - start;
+	for (int j = i - start; j < n; j++) {
+	  double value = buffer[j];
+	  if (value < lo)
+	    lo = value;
+	  if (value > hi)
+	    hi = value;
+	}
+	min[0][i / BLOCK] = lo;
+	max[0][i / BLOCK] = hi;
+      }
+    }
+    for (int l = 1; l < levels; l++) {
+      int n = (min[l - 1].length + 1) / 2;
+      min[l] = new double[n];
+      max[l] = new double[n];
+      for (int i = 0; i < n; i++) {
+	int left = 2 * i;
+	int right = Math.min(left + 1, min[l - 1].length - 1);
+	min[l][i] = Math.min(min[l - 1][left], min[l - 1][right]);
+	max[l][i] = Math.max(max[l - 1][left], max[l - 1][right]);
+      }
+    }
+  }
+
+  /**
+   * gets the data array of the pyramid.
+   * @return IArray1D
+   */
+  public IArray1D getData() {
+    return data;
+  }
+
+  /**
+   * gets number of data points.
+   * @return int
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * gets minimum and maximum of data points <code>from</code> to <code>to</code> (exclusive).
+   * NaN values are ignored.
+   *
+   * @param from int first data point
+   * @param to int end of data points, exclusive
+   * @return Range1D.Double, or null if there are no values
+   * @throws ArrayIndexOutOfBoundsException if the data points are out of bounds
+   */
+  public Range1D.Double getRange(int from, int to) {
+    if (from < 0 || to > length || from > to)
+      throw new ArrayIndexOutOfBoundsException("data points " + from + " to " + to + " of " + length);
+    double lo = Double.POSITIVE_INFINITY;
+    double hi = Double.NEGATIVE_INFINITY;
+    int b0 = (from + BLOCK - 1) / BLOCK;
+    int b1 = to / BLOCK;
+    if (b0 >= b1) {
+      b0 = b1;
+    } else {
+      // partial blocks at the borders are read from the data
+      for (int i = b1 * BLOCK; i < to; i++) {
+	double value = data.pointAt(i);
+	if (value < lo)
+	  lo = value;
+	if (value > hi)
+	  hi = value;
+      }
+      to = b0 * BLOCK;
+    }
+    for (int i = from; i < to; i++) {
+      double value = data.pointAt(i);
+      if (value < lo)
+	lo = value;
+      if (value > hi)
+	hi = value;
+    }
+    // whole blocks from the levels
+    double slo = Double.POSITIVE_INFINITY;
+    double shi = Double.NEGATIVE_INFINITY;
+    for (int l = 0; b0 < b1; l++) {
+      if ((b0 & 1) != 0) {
+	slo = Math.min(slo, min[l][b0]);
+	shi = Math.max(shi, max[l][b0]);
+	b0++;
+      }
+      if ((b1 & 1) != 0) {
+	b1--;
+	slo = Math.min(slo, min[l][b1]);
+	shi = Math.max(shi, max[l][b1]);
+      }
+      b0 >>= 1;
+      b1 >>= 1;
+    }
+    if (slo <= shi) {
+      double a = factor * slo + offset;
+      double b = factor * shi + offset;
+      lo = Math.min(lo, Math.min(a, b));
+      hi = Math.max(hi, Math.max(a, b));
+    }
+    if (lo > hi)
+      return null;
+    return new Range1D.Double(lo, hi);
+  }
+
+  /**
+   * to be called when the values of the data array are scaled by <code>amount</code>
+   * and translated by <code>translation</code>.
+   * @param amount double
+   * @param translation double
+   */
+  public void transform(double amount, double translation) {
+    factor *= amount;
+    offset = offset * amount + translation;
+  }
+}
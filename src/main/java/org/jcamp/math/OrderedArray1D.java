@@ -1,6 +1,7 @@
 package org.jcamp.math;
 
 import java.io.Serializable;
+import java.nio.DoubleBuffer;
 import java.util.Arrays;
 
 /**
@@ -68,6 +69,14 @@ public class OrderedArray1D
     this.range = from.getRange1D();
   }
 
+  /**
+   * read-only view of the array values, not copied.
+   * @return DoubleBuffer
+   */
+  public DoubleBuffer asBuffer() {
+    return DoubleBuffer.wrap(array).asReadOnlyBuffer();
+  }
+
   /**
    * calculate maximum and minimum.
    */
@@ -98,6 +107,17 @@ public class OrderedArray1D
     return array;
   }
 
+  /**
+   * copies array values <code>from</code> to <code>to</code> (exclusive) into <code>dst</code>.
+   * @param dst double[]
+   * @param dstOffset int
+   * @param from int
+   * @param to int
+   */
+  public void copyTo(double[] dst, int dstOffset, int from, int to) {
+    System.arraycopy(array, from, dst, dstOffset, to - from);
+  }
+
   /**
    * return data value at index.
    * @return double
@@ -214,6 +234,12 @@ public class OrderedArray1D
     return a;
   }
 
+  public void transform(double amount, double translation) {
+    for (int i = 0; i < array.length; i++)
+      array[i] = array[i] * amount + translation;
+    range = new Range1D.Double(range.getXMin() * amount + translation, range.getXMax() * amount + translation);
+  }
+
   public void translate(double amount) {
     for (int i = 0; i < array.length; i++)
       array[i] += amount;
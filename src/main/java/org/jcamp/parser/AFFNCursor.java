@@ -0,0 +1,436 @@
+package org.jcamp.parser;
+
+import java.util.Hashtable;
+
+/**
+ * cursor over AFFN (ASCII free format numeric) data tables like ##XYPOINTS= or ##PEAKTABLE=.
+ * values are parsed from the data record text directly into a primitive array,
+ * without building a normalized copy of the table.
+ * <p>
+ * the group structure is validated like the normalized form used before, where values are
+ * separated by ',' and groups by ';', and white space ends a value, a group if it is complete.
+ * the positions of the cursor correspond to the values of this normalized form, so the
+ * tokenizers report the same errors for incomplete groups.
+ * <p>
+ * also contains the number parser for plain decimal numbers used for data and header values.
+ */
+final class AFFNCursor {
+    /** value syntax of AFFN data: digits, '.', '+', '-', 'e', 'E' */
+    static final int AFFN = 0;
+    /** value syntax of data tables: letters, digits, '.', '+', '-', parentheses are ignored */
+    static final int DATATABLE = 1;
+
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+    private static final long MAX_EXACT = 1L << 53;
+
+    private final int groupLength;
+    private double[] values;
+    private int count = 0;
+    // false if the data ends with a separator, which gives an additional empty value
+    private boolean endsInValue = false;
+    // values that are not numbers by index, reported when they are read
+    private Hashtable badValues = null;
+    private int pos = 0;
+
+    /**
+     * scans the data between <code>start</code> and <code>end</code>.
+     *
+     * @param text data record text
+     * @param groupLength number of values per group
+     * @param syntax {@link #AFFN} or {@link #DATATABLE}
+     * @param skipComments skip "$$" comments
+     * @throws JCAMPException on unexpected characters or bad group structure
+     */
+    AFFNCursor(CharSequence text, int start, int end, int groupLength, int syntax, boolean skipComments)
+            throws JCAMPException {
+        this.groupLength = groupLength;
+        this.values = new double[Math.max(16, (end - start) / 8)];
+        String what = syntax == AFFN ? "AFFN data" : "data";
+        boolean inValue = false;
+        int valueStart = start;
+        // end of value without following comments
+        int valueEnd = start;
+        int j = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (inValue) {
+                    inValue = false;
+                    addValue(text, valueStart, valueEnd, syntax);
+                    j++;
+                    if (j >= groupLength)
+                        j = 0;
+                }
+            } else if (c == ';') {
+                if (inValue) {
+                    inValue = false;
+                    addValue(text, valueStart, valueEnd, syntax);
+                    j++;
+                    if (j < groupLength)
+                        throw new JCAMPException("missing numbers in " + what);
+                    j = 0;
+                }
+            } else if (c == ',') {
+                if (inValue) {
+                    inValue = false;
+                    addValue(text, valueStart, valueEnd, syntax);
+                    j++;
+                    if (j >= groupLength)
+                        throw new JCAMPException("extra commas in " + what);
+                }
+            } else if (syntax == DATATABLE && (c == '(' || c == ')')) {
+                // ignored
+            } else if (c == '$' && skipComments && i + 1 < end && text.charAt(i + 1) == '$') {
+                // comment up to line break
+                while (i + 1 < end && text.charAt(i + 1) != '\n' && text.charAt(i + 1) != '\r')
+                    i++;
+            } else if (isValueChar(c, syntax)) {
+                if (!inValue) {
+                    inValue = true;
+                    valueStart = i;
+                }
+                valueEnd = i + 1;
+            } else
+                throw new JCAMPException("unexpected character \'" + c + "\' in " + what);
+        }
+        if (inValue) {
+            addValue(text, valueStart, valueEnd, syntax);
+            endsInValue = true;
+        }
+    }
+
+    /**
+     * creates cursor for the data of a table LDR, skipping the variable list.
+     * the first line is ended like {@link LineTokenizer} does, comments are skipped.
+     *
+     * @param ldr table data record
+     * @param groupLength number of variables
+     * @param syntax {@link #AFFN} or {@link #DATATABLE}
+     * @return AFFNCursor
+     * @throws JCAMPException on bad data
+     */
+    static AFFNCursor forDataRecord(JCAMPDataRecord ldr, int groupLength, int syntax) throws JCAMPException {
+        CharSequence text = ldr.getText();
+        int e = ldr.getContentEnd();
+        int s = ldr.getContentStart(e);
+        return new AFFNCursor(text, skipLine(text, s, e), e, groupLength, syntax, true);
+    }
+
+    /**
+     * gets start of second line, using the line break convention guessed by {@link LineTokenizer}
+     * for the text without comments.
+     */
+    private static int skipLine(CharSequence text, int start, int end) {
+        int lf = -1;
+        int cr = -1;
+        boolean afterCR = false;
+        boolean afterDollar = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '$' && !afterDollar && i + 1 < end && text.charAt(i + 1) == '$') {
+                // comment up to line break, "\r$$...\n" gives "\r\n"
+                while (i + 1 < end && text.charAt(i + 1) != '\n' && text.charAt(i + 1) != '\r')
+                    i++;
+                continue;
+            }
+            // char after single '$' is never start of a comment
+            afterDollar = c == '$' && !afterDollar;
+            if (c == '\r') {
+                if (cr < 0)
+                    cr = i;
+                afterCR = true;
+            } else if (c == '\n') {
+                if (afterCR)
+                    return i + 1;
+                if (lf < 0)
+                    lf = i;
+                afterCR = false;
+            } else
+                afterCR = false;
+        }
+        if (lf >= 0)
+            return lf + 1;
+        if (cr >= 0)
+            return cr + 1;
+        return end;
+    }
+
+    private static boolean isValueChar(char c, int syntax) {
+        if (syntax == AFFN)
+            return Character.isDigit(c) || c == '.' || c == '+' || c == '-' || c == 'e' || c == 'E';
+        return Character.isLetterOrDigit(c) || c == '.' || c == '+' || c == '-';
+    }
+
+    private void addValue(CharSequence text, int start, int end, int syntax) {
+        int s = start;
+        int e = end;
+        if (syntax == DATATABLE) {
+            while (s < e && text.charAt(s) == '(')
+                s++;
+            while (e > s && text.charAt(e - 1) == ')')
+                e--;
+        }
+        double v = parseDecimal(text, s, e, false);
+        if (Double.isNaN(v)) {
+            // other notations (or parentheses within the value)
+            String value = syntax == DATATABLE ? removeParentheses(text, start, end) : text.subSequence(start, end).toString();
+            try {
+                v = Double.parseDouble(value);
+            } catch (NumberFormatException ex) {
+                if (badValues == null)
+                    badValues = new Hashtable();
+                badValues.put(new Integer(count), value);
+                v = Double.NaN;
+            }
+        }
+        if (count == values.length) {
+            double[] tmp = new double[count * 2];
+            System.arraycopy(values, 0, tmp, 0, count);
+            values = tmp;
+        }
+        values[count++] = v;
+    }
+
+    private static String removeParentheses(CharSequence text, int start, int end) {
+        StringBuilder tmp = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c != '(' && c != ')')
+                tmp.append(c);
+        }
+        return tmp.toString();
+    }
+
+    /**
+     * number of positions, including the empty value after a trailing separator.
+     */
+    private int size() {
+        return endsInValue ? count : count + 1;
+    }
+
+    /**
+     * gets separator following the value at position <code>index</code> in normalized form.
+     */
+    private char separator(int index) {
+        if (index >= count)
+            return ';';
+        int complete = count - count % groupLength;
+        if (index < complete)
+            return index % groupLength == groupLength - 1 ? ';' : ',';
+        if (index == count - 1 && endsInValue)
+            return ';';
+        return ',';
+    }
+
+    /**
+     * checks for a value at the current position.
+     *
+     * @return boolean
+     */
+    boolean hasMoreValues() {
+        return pos < count;
+    }
+
+    /**
+     * checks for a value or a trailing empty value at the current position.
+     *
+     * @return boolean
+     */
+    boolean hasMorePositions() {
+        return pos < size();
+    }
+
+    /**
+     * checks if a value terminated by <code>delimiter</code> follows.
+     *
+     * @param delimiter ',' or ';'
+     * @return boolean
+     */
+    boolean hasNext(char delimiter) {
+        int n = size();
+        for (int i = pos; i < n; i++) {
+            if (separator(i) == delimiter)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * gets value at the current position, which has to be terminated by <code>delimiter</code>.
+     *
+     * @param delimiter ',' or ';'
+     * @return double
+     * @throws NumberFormatException if the value is not a number
+     */
+    double value(char delimiter) {
+        checkDelimiter(pos, delimiter);
+        return value(pos);
+    }
+
+    /**
+     * moves past the next <code>delimiter</code>.
+     * the delimiter always follows the current value for data that passed validation,
+     * see {@link #hasNext(char)}.
+     *
+     * @param delimiter ',' or ';'
+     */
+    void skip(char delimiter) {
+        int n = size();
+        while (pos < n && separator(pos) != delimiter)
+            pos++;
+        pos++;
+    }
+
+    /**
+     * moves past the next <code>delimiter</code> and gets the value before.
+     *
+     * @param delimiter ',' or ';'
+     * @return double
+     * @throws NumberFormatException if the value is not a number
+     */
+    double next(char delimiter) {
+        int index = pos;
+        skip(delimiter);
+        checkDelimiter(index, delimiter);
+        return value(index);
+    }
+
+    /**
+     * checks that the value at <code>index</code> is terminated by <code>delimiter</code>.
+     * this is always the case unless reading continues after an incomplete group,
+     * the normalized form then gives several values separated by the other delimiter.
+     */
+    private void checkDelimiter(int index, char delimiter) {
+        if (index < size() && separator(index) != delimiter)
+            throw new NumberFormatException("missing delimiter '" + delimiter + "' after value " + index);
+    }
+
+    private double value(int index) {
+        if (index >= count)
+            return Double.parseDouble("");
+        double v = values[index];
+        if (Double.isNaN(v) && badValues != null) {
+            String bad = (String) badValues.get(new Integer(index));
+            if (bad != null)
+                return Double.parseDouble(bad);
+        }
+        return v;
+    }
+
+    /**
+     * reads all remaining complete groups into columns, one array per variable.
+     *
+     * @return double[][]
+     * @throws NumberFormatException if a value is not a number
+     */
+    double[][] readColumns() {
+        int rows = (count - count % groupLength - pos) / groupLength;
+        double[][] columns = new double[groupLength][rows];
+        for (int r = 0; r < rows; r++) {
+            for (int i = 0; i < groupLength; i++)
+                columns[i][r] = value(pos++);
+        }
+        return columns;
+    }
+
+    /**
+     * parses a plain decimal number like <code>-12.5e3</code> without creating objects.
+     * the result is exact, as significand and power of ten are exact doubles.
+     * other notations and numbers beyond these limits give NaN, these have to be parsed
+     * by <code>Double.parseDouble()</code>.
+     *
+     * @param decimalComma accept ',' as decimal separator
+     * @return value or NaN
+     */
+    static double parseDecimal(CharSequence text, int start, int end, boolean decimalComma) {
+        int i = start;
+        if (i >= end)
+            return Double.NaN;
+        boolean negative = false;
+        char c = text.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean anyDigit = false;
+        boolean point = false;
+        for (; i < end; i++) {
+            c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                anyDigit = true;
+                if (point)
+                    scale--;
+                if (mantissa == 0 && c == '0')
+                    continue;
+                if (++digits > 18)
+                    return Double.NaN;
+                mantissa = mantissa * 10 + (c - '0');
+            } else if (!point && (c == '.' || (decimalComma && c == ',')))
+                point = true;
+            else
+                break;
+        }
+        if (!anyDigit)
+            return Double.NaN;
+        if (i < end) {
+            c = text.charAt(i);
+            if (c != 'e' && c != 'E')
+                return Double.NaN;
+            i++;
+            boolean negativeExp = false;
+            if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                negativeExp = text.charAt(i) == '-';
+                i++;
+            }
+            if (i >= end)
+                return Double.NaN;
+            int exp = 0;
+            for (; i < end; i++) {
+                c = text.charAt(i);
+                if (c < '0' || c > '9')
+                    return Double.NaN;
+                if (exp < 1000)
+                    exp = exp * 10 + (c - '0');
+            }
+            scale += negativeExp ? -exp : exp;
+        }
+        double value;
+        if (mantissa == 0)
+            value = 0;
+        else if (mantissa > MAX_EXACT)
+            return Double.NaN;
+        else if (scale == 0)
+            value = mantissa;
+        else if (scale > 0 && scale < POW10.length)
+            value = mantissa * POW10[scale];
+        else if (scale < 0 && -scale < POW10.length)
+            value = mantissa / POW10[-scale];
+        else
+            return Double.NaN;
+        return negative ? -value : value;
+    }
+
+    /**
+     * parses a header value, accepting ',' as decimal separator.
+     *
+     * @param s value
+     * @return double
+     * @throws NumberFormatException if <code>s</code> is not a number
+     */
+    static double parseDouble(String s) {
+        double v = parseDecimal(s, 0, s.length(), true);
+        if (!Double.isNaN(v))
+            return v;
+        // other notations, e.g. with white space
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            return Double.parseDouble(s.replace(",", "."));
+        }
+    }
+}
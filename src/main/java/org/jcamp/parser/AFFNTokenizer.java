@@ -9,10 +9,8 @@ public class AFFNTokenizer
   implements java.util.Enumeration {
   
   private final DataType type;
-  private String data;
   private final String[] varSymbols;
-  private int pos;
-  private int length;
+  private final AFFNCursor cursor;
   /**
    * AFFNTokenizer constructor comment.
    */
@@ -23,8 +21,7 @@ public class AFFNTokenizer
       this.varSymbols = symbols;
     else
       this.varSymbols = this.type.getSymbols();
-    this.data = normalizeData(varSymbols.length, data);
-    this.length = this.data.length();
+    this.cursor = new AFFNCursor(data, 0, data.length(), varSymbols.length, AFFNCursor.AFFN, false);
   }
   /**
    * AFFNTokenizer constructor comment.
@@ -37,12 +34,8 @@ public class AFFNTokenizer
       this.varSymbols = varInfo.getSymbols();
     else
       this.varSymbols = this.type.getSymbols();
-    String ldrData = ldr.getContent();
-    LineTokenizer lt = new LineTokenizer(ldrData);
-    lt.nextLine(); // skip variable declaration
-    this.data =
-	normalizeData(varSymbols.length, ldrData.substring(lt.getPosition()));
-    this.length = this.data.length();
+    // skips variable declaration
+    this.cursor = AFFNCursor.forDataRecord(ldr, varSymbols.length, AFFNCursor.AFFN);
   }
   /**
    * check for errornous symbols or standard symbols.
@@ -92,9 +85,7 @@ public class AFFNTokenizer
    * @return boolean
    */
   public boolean hasMoreGroups() {
-    if (pos < length-1)
-      return true;
-    return false;
+    return cursor.hasMoreValues();
   }
   /**
    * gets next data group.
@@ -114,7 +105,7 @@ public class AFFNTokenizer
    * @return com.creon.chem.jcamp.AFFNGroup
    */
   public AFFNGroup nextGroup() throws JCAMPException {
-    if (pos >= length)
+    if (!cursor.hasMorePositions())
       throw new JCAMPException("parsed beyond end of AFFN block");
     if (DataType.XY.equals(type))
       return nextXYGroup();
@@ -123,18 +114,16 @@ public class AFFNTokenizer
     int n = varSymbols.length;
     double[] values = new double[n];
     for (int i = 0; i < n - 1; i++) {
-      int p = data.indexOf(",", pos);
-      if (p < 0)
+      if (!cursor.hasNext(','))
 	throw new JCAMPException("missing data in AFFN block");
-      values[i] = Double.parseDouble(data.substring(pos, p));
-      pos = p + 1;
+      values[i] = cursor.value(',');
+      cursor.skip(',');
     }
 
-    int p = data.indexOf(";", pos);
-    if (p < 0)
+    if (!cursor.hasNext(';'))
       throw new JCAMPException("extra data in AFFN block");
-    values[n - 1] = Double.parseDouble(data.substring(pos, p));
-    pos = p + 1;
+    values[n - 1] = cursor.value(';');
+    cursor.skip(';');
     return new AFFNGroup(varSymbols, values);
 
   }
@@ -146,17 +135,15 @@ public class AFFNTokenizer
   private AFFNGroup nextXYGroup() throws JCAMPException {
     double x;
     double y;
-    int p = data.indexOf(',', pos);
-    if (p < 0) {
+    if (!cursor.hasNext(',')) {
       throw new JCAMPException("missing x data");
     }
-    x = Double.parseDouble(data.substring(pos, p));
-    pos = p + 1;
-    p = data.indexOf(';', pos);
-    if (p < 0)
+    x = cursor.value(',');
+    cursor.skip(',');
+    if (!cursor.hasNext(';'))
       throw new JCAMPException("missing y data");
-    y = Double.parseDouble(data.substring(pos, p));
-    pos = p + 1;
+    y = cursor.value(';');
+    cursor.skip(';');
     return new AFFNGroup(x, y);
   }
   /**
@@ -168,87 +155,32 @@ public class AFFNTokenizer
     double x;
     double y;
     double w;
-    int p = data.indexOf(',', pos);
-    if (p < 0)
+    if (!cursor.hasNext(','))
       throw new JCAMPException("missing x data");
-    x = Double.parseDouble(data.substring(pos, p));
-    pos = p + 1;
-    p = data.indexOf(',', pos);
-    if (p < 0)
+    x = cursor.value(',');
+    cursor.skip(',');
+    if (!cursor.hasNext(','))
       throw new JCAMPException("missing y data");
-    y = Double.parseDouble(data.substring(pos, p));
-    pos = p + 1;
-    p = data.indexOf(';', pos);
-    if (p < 0)
+    y = cursor.value(',');
+    cursor.skip(',');
+    if (!cursor.hasNext(';'))
       throw new JCAMPException("missing w data");
-    w = Double.parseDouble(data.substring(pos, p));
-    pos = p + 1;
+    w = cursor.value(';');
+    cursor.skip(';');
     return new AFFNGroup(x, y, w);
   }
   /**
-   * normalize data block in standard form:
-   * values are separated by ',', groups are separated by ';'
-   * whitespace is skipped
+   * reads all remaining data groups into primitive arrays, one per variable,
+   * without creating group objects.
+   * incomplete data at the end is reported like by {@link #nextGroup()}.
    * 
-   * @return java.lang.String
-   * @param orig java.lang.String
+   * @return double[][] values by variable index
+   * @throws JCAMPException on incomplete data
    */
-  private static String normalizeData(int groupLength, String orig)
-      throws JCAMPException {
-    StringBuilder normal = new StringBuilder();
-    boolean inNumber = false;
-    int j = 0;
-    for (int i = 0; i < orig.length(); i++) {
-      char c = orig.charAt(i);
-      if (Character.isWhitespace(c)) {
-	if (inNumber) {
-	  inNumber = false;
-	  j++;
-	  if (j<groupLength)
-	    normal.append(',');
-	  else {
-	    normal.append(';');
-	    j=0;
-	  }
-	}
-	continue;
-      }
-      if (c == ';') {
-	if (inNumber) {
-	  inNumber = false;
-	  j++;
-	  if (j<groupLength)
-	    throw new JCAMPException("missing numbers in AFFN data");
-	  if (j>groupLength)
-	    throw new JCAMPException("extra numbers in AFFN data");
-	  normal.append(';');
-	  j=0;
-	}
-	continue;
-      }
-      if (c == ',') {
-	if (inNumber) {
-	  inNumber = false;
-	  j++;
-	  if (j>=groupLength)
-	    throw new  JCAMPException("extra commas in AFFN data");
-	  normal.append(',');
-	}
-	continue;
-      }
-      if (Character.isDigit(c)
-	  || c == '.'
-	  || c == '+'
-	  || c == '-'
-	  || c == 'e'
-	  || c == 'E') {
-	normal.append(c);
-	inNumber = true;
-      } else {
-	throw new JCAMPException("unexpected character \'" + c + "\' in AFFN data");
-      }
-    }
-    normal.append(';');
-    return normal.toString();
+  public double[][] readColumns() throws JCAMPException {
+    double[][] columns = cursor.readColumns();
+    if (hasMoreGroups())
+      nextGroup();
+    return columns;
   }
 }
@@ -2,6 +2,7 @@ package org.jcamp.parser;
 import java.io.ByteArrayInputStream;
 import java.io.CharArrayReader;
 import java.io.StringReader;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -15,6 +16,10 @@ public class ASDFDecoder {
     private final static byte[] CRLF = {(byte) '\r', (byte) '\n' };
     private boolean isUnicodeAware = false;
     private boolean isValidating = true;
+    private boolean isUsingANTLR = false;
+    /** default minimum number of chars of data decoded in parallel */
+    public final static int DEFAULT_PARALLEL_THRESHOLD = 1 << 20;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
 
     /**
      * ASDFDecoder constructor.
@@ -33,9 +38,32 @@ public class ASDFDecoder {
      */
     public double[] decode(JCAMPDataRecord ldr, double firstX, double lastX, double xFactor, int nPoints)
         throws JCAMPException {
+        return decode(ldr, firstX, lastX, xFactor, nPoints, null);
+    }
+
+    /**
+     * decode data LDR, data of at least {@link #getParallelThreshold()} chars is split into
+     * line-aligned chunks that are decoded by <code>pool</code>.
+     * the chunks are joined with the same x-checks and y-checks, the result does not
+     * depend on the pool. the ANTLR parser always decodes in the calling thread.
+     * 
+     * @return double[]
+     * @param ldr labeled data record
+     * @param firstX double
+     * @param lastX double
+     * @param nPoints int
+     * @param pool fork-join pool, null to decode in calling thread
+     */
+    public double[] decode(JCAMPDataRecord ldr, double firstX, double lastX, double xFactor, int nPoints,
+        ForkJoinPool pool) throws JCAMPException {
         try {
             DataVariableInfo varInfo = new DataVariableInfo(ldr);
-            if (varInfo.isIncremental()) {
+            if (varInfo.isIncremental() && !isUsingANTLR) {
+                ASDFCheckHandler checkHandler = null;
+                if (isValidating)
+                    checkHandler = new ReplacingCheckHandler(firstX, lastX, xFactor, nPoints);
+                return ASDFScanner.forDataRecord(ldr).decode(checkHandler, nPoints, pool, parallelThreshold);
+            } else if (varInfo.isIncremental()) {
                 ASDFLexer lexer;
                 if (isUnicodeAware) {
                     char[] xyData = getASDFBlockAsChars(ldr.getContent());
@@ -69,7 +97,28 @@ public class ASDFDecoder {
      */
     public double[] decode(String difdup, double firstX, double lastX, double xFactor, int nPoints)
         throws JCAMPException {
+        return decode(difdup, firstX, lastX, xFactor, nPoints, null);
+    }
+
+    /**
+     * decode a ASDF (ASCII Squeezed Difference Form) encoded data block,
+     * in parallel by <code>pool</code> if long enough.
+     * 
+     * @return int[] y-data array
+     * @param difdup String encoded data
+     * @param pool fork-join pool, null to decode in calling thread
+     * @see #decode(JCAMPDataRecord, double, double, double, int, ForkJoinPool)
+     */
+    public double[] decode(String difdup, double firstX, double lastX, double xFactor, int nPoints,
+        ForkJoinPool pool) throws JCAMPException {
         try {
+            if (!isUsingANTLR) {
+                ASDFCheckHandler checkHandler = null;
+                if (isValidating)
+                    checkHandler = new ReplacingCheckHandler(firstX, lastX, xFactor, nPoints);
+                return new ASDFScanner(difdup, 0, difdup.length(), false).decode(checkHandler, nPoints, pool,
+                    parallelThreshold);
+            }
             ASDFLexer lexer = new ASDFLexer(new StringReader(difdup));
             ASDFParser parser = new ASDFParser(lexer);
             if (isValidating)
@@ -83,6 +132,42 @@ public class ASDFDecoder {
         }
     }
 
+    /**
+     * decodes data LDR once and creates an index of its lines, that decodes
+     * ranges of points without decoding the full data again.
+     * the hand-written decoder is used, even if the ANTLR parser is set.
+     * 
+     * @return ASDFLineIndex
+     * @param ldr labeled data record
+     * @param firstX double
+     * @param lastX double
+     * @param nPoints int
+     * @see ASDFLineIndex#decodeRange(double, double)
+     */
+    public ASDFLineIndex createIndex(JCAMPDataRecord ldr, double firstX, double lastX, double xFactor, int nPoints)
+        throws JCAMPException {
+        DataVariableInfo varInfo = new DataVariableInfo(ldr);
+        if (!varInfo.isIncremental()) {
+            String msg = "data not in ASDF encoding";
+            log.error(msg);
+            throw new JCAMPException(msg);
+        }
+        return ASDFScanner.forDataRecord(ldr).createIndex(firstX, lastX, xFactor, nPoints, isValidating);
+    }
+
+    /**
+     * decodes ASDF encoded data block once and creates an index of its lines.
+     * 
+     * @return ASDFLineIndex
+     * @param difdup String encoded data
+     * @see #createIndex(JCAMPDataRecord, double, double, double, int)
+     */
+    public ASDFLineIndex createIndex(String difdup, double firstX, double lastX, double xFactor, int nPoints)
+        throws JCAMPException {
+        return new ASDFScanner(difdup, 0, difdup.length(), false).createIndex(firstX, lastX, xFactor, nPoints,
+            isValidating);
+    }
+
     /**
      * enables/disables validation.
      * 
@@ -188,6 +273,15 @@ public class ASDFDecoder {
         return isUnicodeAware;
     }
 
+    /**
+     * gets minimum number of chars of data decoded in parallel.
+     * 
+     * @return int
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
     /**
      * indicates if decoder validates.
      * 
@@ -197,6 +291,38 @@ public class ASDFDecoder {
         return isValidating;
     }
 
+    /**
+     * indicates if the ANTLR generated lexer and parser are used instead of the
+     * hand-written decoder.
+     * 
+     * @return boolean
+     */
+    public boolean isUsingANTLR() {
+        return isUsingANTLR;
+    }
+
+    /**
+     * switches between the hand-written decoder (default) and the ANTLR generated
+     * lexer and parser, e.g. for comparing results.
+     * Unicode awareness only applies to the ANTLR parser, the hand-written decoder
+     * always works on chars.
+     * 
+     * @param newIsUsingANTLR boolean
+     */
+    public void setUseANTLR(boolean newIsUsingANTLR) {
+        isUsingANTLR = newIsUsingANTLR;
+    }
+
+    /**
+     * sets minimum number of chars of data decoded in parallel,
+     * see {@link #DEFAULT_PARALLEL_THRESHOLD}.
+     * 
+     * @param newParallelThreshold int
+     */
+    public void setParallelThreshold(int newParallelThreshold) {
+        parallelThreshold = newParallelThreshold;
+    }
+
     /**
      * sets Unicode awareness.
      * Note: this is NOT allowed in standard JCAMP
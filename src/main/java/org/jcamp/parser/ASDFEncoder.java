@@ -1,11 +1,13 @@
 package org.jcamp.parser;
 
+import java.io.IOException;
+
 /**
  * Utility class for ASDF encoding of spectrum data
  * @author Thomas Weber
  */
 public class ASDFEncoder {
-  
+
   private final static char[] posSQZ = new char[] { '@', 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I' };
   private final static char[] negSQZ = new char[] { '@', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i' };
   private final static char[] posDIF = new char[] { '%', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R' };
@@ -14,7 +16,10 @@ public class ASDFEncoder {
   private final static int MODE_SQZ = 0;
   private final static int MODE_DIF = 1;
   private final static int MAX_CHARS_PER_LINE = 60;
-  
+  // a line is ended after it exceeds MAX_CHARS_PER_LINE, by at most a DUP, a SQZ or DIF
+  // and the final DUP (10 + 11 + 10 chars) plus CRLF
+  private final static int LINE_CAPACITY = 128;
+
   /**
    * JCAMPWriter constructor comment.
    */
@@ -22,42 +27,66 @@ public class ASDFEncoder {
   }
   /**
    * encode an integer intensity array with ASDF (ASCII Squeezed Difference Form)
-   * 
+   *
    * @return String
    * @param firstx double first x value
    * @param lastx double last x value
    * @param data int[] array of y values
    */
   public static String encode(double firstx, double lastx, int[] data) {
+    StringBuilder difdup = new StringBuilder(data.length * 2 + LINE_CAPACITY);
+    try {
+      encode(firstx, lastx, data, difdup);
+    } catch (IOException e) {
+      // cannot happen with a StringBuilder
+      throw new IllegalStateException(e);
+    }
+    return difdup.toString();
+  }
+  /**
+   * encode an integer intensity array with ASDF (ASCII Squeezed Difference Form)
+   * and append it line by line to <code>difdup</code>.
+   * each line is built in a single char buffer, only the x value of a line
+   * is formatted into a temporary string.
+   *
+   * @param firstx double first x value
+   * @param lastx double last x value
+   * @param data int[] array of y values
+   * @param difdup Appendable target
+   * @throws IOException if the target fails
+   */
+  public static void encode(double firstx, double lastx, int[] data, Appendable difdup) throws IOException {
+    JCAMPOutput out = JCAMPOutput.wrap(difdup);
+    char[] line = new char[LINE_CAPACITY];
+    int len = 0;
     int mode = MODE_SQZ;
-    StringBuilder line = new StringBuilder();
-    StringBuilder difdup = new StringBuilder();
     int n = data.length;
     int dup = 1;
     int dif;
     int odif = 0;
     boolean checkDUP = false;
     double deltax = (lastx - firstx) / (n - 1);
-    line.append(firstx);
-    line.append(toSQZ(data[0]));
+    len = appendX(line, len, firstx);
+    len = append(line, len, data[0], posSQZ, negSQZ);
     for (int i = 1; i < n; i++) {
-      if (line.length() > MAX_CHARS_PER_LINE) {
+      if (len > MAX_CHARS_PER_LINE) {
 	// insert linefeed
-	difdup.append(line).append("\r\n");
-	line.setLength(0);
+	len = appendCRLF(line, len);
+	out.append(line, 0, len);
+	len = 0;
 	// if last mode was DIF
 	if (mode == MODE_DIF) {
 	  // insert x-sequence check (no advance in abszissa)
-	  line.append(deltax * (i - 1) + firstx);
+	  len = appendX(line, len, deltax * (i - 1) + firstx);
 	  // insert a  y-value check (repeat last value)
-	  line.append(toSQZ(data[i - 1]));
+	  len = append(line, len, data[i - 1], posSQZ, negSQZ);
 	  mode = MODE_SQZ;
 	  dup = 1;
 	  checkDUP = false;
 	} else {
 	  // insert x-sequence check 	and actual value
-	  line.append(deltax * i + firstx);
-	  line.append(toSQZ(data[i]));
+	  len = appendX(line, len, deltax * i + firstx);
+	  len = append(line, len, data[i], posSQZ, negSQZ);
 	  mode = MODE_SQZ;
 	  dup = 1;
 	  checkDUP = false;
@@ -67,30 +96,28 @@ public class ASDFEncoder {
 
       // calc difference
       dif = data[i] - data[i - 1];
-      char[] difChars = toDIF(dif);
-      char[] sqzChars = toSQZ(data[i]);
 
-      // if difChars are longer than sqzChars switch back to SQZ-mode
-      if (difChars.length > sqzChars.length) {
+      // if DIF is longer than SQZ switch back to SQZ-mode
+      if (digits(dif) > digits(data[i])) {
 	// check if we have pending DUPs
 	if (dup > 1) {
-	  line.append(toDUP(dup));
+	  len = append(line, len, dup, posDUP, null);
 	  dup = 1;
 	}
-	line.append(sqzChars);
+	len = append(line, len, data[i], posSQZ, negSQZ);
 	checkDUP = false;
 	mode = MODE_SQZ;
       } else { // DIF-mode
 	// check if difference has not changed
 	if (checkDUP && dif == odif) {
-	  dup++; // increase DUP counter but do not output 
+	  dup++; // increase DUP counter but do not output
 	} else {
 	  // different difference, we must check for pending DUPs
 	  if (dup > 1) {
-	    line.append(toDUP(dup));
+	    len = append(line, len, dup, posDUP, null);
 	    dup = 1;
 	  }
-	  line.append(difChars);
+	  len = append(line, len, dif, posDIF, negDIF);
 	  odif = dif;
 	}
 	checkDUP = true;
@@ -98,69 +125,76 @@ public class ASDFEncoder {
       }
     }
     if (dup > 1)
-      line.append(toDUP(dup));
-    difdup.append(line).append("\r\n");
+      len = append(line, len, dup, posDUP, null);
+    len = appendCRLF(line, len);
+    out.append(line, 0, len);
     // if last mode was DIF
     if (mode == MODE_DIF) {
       // insert x-sequence check (no advance in abszissa)
-      difdup.append(deltax * (n - 1) + firstx);
+      len = appendX(line, 0, deltax * (n - 1) + firstx);
       // insert a  y-value check (repeat last value)
-      difdup.append(toSQZ(data[n - 1]));
-      difdup.append("\r\n");
+      len = append(line, len, data[n - 1], posSQZ, negSQZ);
+      len = appendCRLF(line, len);
+      out.append(line, 0, len);
     }
-
-    return difdup.toString();
   }
   /**
-   * DIF encoding of an integer
-   * 
-   * @return char[]
+   * number of decimal digits of the absolute value.
+   *
+   * @return int
    * @param value int
    */
-  private static char[] toDIF(int value) {
-    if (value > 0) {
-      char[] dif = Integer.toString(value).toCharArray();
-      char first = dif[0];
-      dif[0] = posDIF[first - '0'];
-      return dif;
-    } else if (value < 0) {
-      char[] dif = Integer.toString(-value).toCharArray();
-      char first = dif[0];
-      dif[0] = negDIF[first - '0'];
-      return dif;
-    } else
-      return new char[] { '%' };
+  private static int digits(int value) {
+    long abs = Math.abs((long) value);
+    int digits = 1;
+    for (long limit = 10; abs >= limit; limit *= 10)
+      digits++;
+    return digits;
   }
   /**
-   * DUP encoding of an integer
-   * 
-   * @return char[]
+   * SQZ, DIF or DUP encoding of an integer, i.e. its decimal digits with the
+   * leading digit replaced by the character of <code>pos</code> or <code>neg</code>.
+   *
+   * @return int new length of the line
+   * @param line char[] line buffer
+   * @param len int current length of the line
    * @param value int
+   * @param pos char[] leading characters for positive values and zero
+   * @param neg char[] leading characters for negative values
    */
-  private static char[] toDUP(int value) {
-    char[] dup = Integer.toString(value).toCharArray();
-    char first = dup[0];
-    dup[0] = posDUP[first - '0'];
-    return dup;
+  private static int append(char[] line, int len, int value, char[] pos, char[] neg) {
+    long abs = Math.abs((long) value);
+    int end = len + digits(value);
+    for (int i = end - 1; i > len; i--) {
+      line[i] = (char) ('0' + abs % 10);
+      abs /= 10;
+    }
+    line[len] = (value < 0) ? neg[(int) abs] : pos[(int) abs];
+    return end;
   }
   /**
-   * SQZ encoding of an integer
-   * 
-   * @return char[]
-   * @param value int
+   * appends x value, formatted like <code>StringBuilder.append(double)</code>.
+   *
+   * @return int new length of the line
+   * @param line char[] line buffer
+   * @param len int current length of the line
+   * @param x double
+   */
+  private static int appendX(char[] line, int len, double x) {
+    String s = Double.toString(x);
+    s.getChars(0, s.length(), line, len);
+    return len + s.length();
+  }
+  /**
+   * appends line end.
+   *
+   * @return int new length of the line
+   * @param line char[] line buffer
+   * @param len int current length of the line
    */
-  private static char[] toSQZ(int value) {
-    if (value > 0) {
-      char[] sqz = Integer.toString(value).toCharArray();
-      char first = sqz[0];
-      sqz[0] = posSQZ[first - '0'];
-      return sqz;
-    } else if (value < 0) {
-      char[] sqz = Integer.toString(-value).toCharArray();
-      char first = sqz[0];
-      sqz[0] = negSQZ[first - '0'];
-      return sqz;
-    } else
-      return new char[] { '@' };
+  private static int appendCRLF(char[] line, int len) {
+    line[len] = '\r';
+    line[len + 1] = '\n';
+    return len + 2;
   }
 }
@@ -0,0 +1,225 @@
+package org.jcamp.parser;
+
+import java.util.Arrays;
+
+/**
+ * index of the lines of ASDF data, created by
+ * {@link ASDFDecoder#createIndex(JCAMPDataRecord, double, double, double, int)}.
+ *
+ * For every line the index keeps its start and the decoder state before the line,
+ * so a range of points is decoded from the lines covering it only. The result is
+ * the same as the corresponding part of a full decode, including x-checks and y-checks.
+ * Data with x-checks jumping backwards is decoded from the first line.
+ * The index holds a reference to the data, it is immutable and can be shared by threads.
+ */
+public final class ASDFLineIndex {
+    private final CharSequence text;
+    private final int end;
+    private final boolean terminated;
+    private final double firstX;
+    private final double lastX;
+    private final double xFactor;
+    private final int nPoints;
+    private final boolean isValidating;
+    private int lines;
+    // start of line within text
+    private int[] lineStarts = new int[64];
+    // number of points before line
+    private int[] sizeBefore = new int[64];
+    // parser index before line
+    private int[] indexBefore = new int[64];
+    // true if previous line ended in DIF mode
+    private boolean[] inDIFBefore = new boolean[64];
+    // last point before line
+    private double[] lastYBefore = new double[64];
+    // lowest point index written by line, later the minimum of all following lines
+    private int[] lowestIndex = new int[64];
+    // true if lines are decoded in order, without x-checks jumping backwards
+    private boolean isMonotonic = true;
+    private int pointCount;
+
+    ASDFLineIndex(CharSequence text, int end, boolean terminated, double firstX, double lastX, double xFactor,
+        int nPoints, boolean isValidating) {
+        super();
+        this.text = text;
+        this.end = end;
+        this.terminated = terminated;
+        this.firstX = firstX;
+        this.lastX = lastX;
+        this.xFactor = xFactor;
+        this.nPoints = nPoints;
+        this.isValidating = isValidating;
+    }
+
+    /**
+     * records a line while decoding.
+     *
+     * @param lineStart start of line
+     * @param size number of points before line
+     * @param index parser index before line
+     * @param inDIF true if previous line ended in DIF mode
+     * @param lastY last point before line
+     * @param firstIndex index of first point of line after x-check
+     */
+    void addLine(int lineStart, int size, int index, boolean inDIF, double lastY, int firstIndex) {
+        if (lines + 1 >= lineStarts.length) {
+            int n = lineStarts.length * 2;
+            lineStarts = Arrays.copyOf(lineStarts, n);
+            sizeBefore = Arrays.copyOf(sizeBefore, n);
+            indexBefore = Arrays.copyOf(indexBefore, n);
+            inDIFBefore = Arrays.copyOf(inDIFBefore, n);
+            lastYBefore = Arrays.copyOf(lastYBefore, n);
+            lowestIndex = Arrays.copyOf(lowestIndex, n);
+        }
+        int lowest = Math.min(size, firstIndex);
+        if (lines > 0 && size < sizeBefore[lines - 1])
+            isMonotonic = false;
+        if (lowest < size - 1)
+            isMonotonic = false;
+        lineStarts[lines] = lineStart;
+        sizeBefore[lines] = size;
+        indexBefore[lines] = index;
+        inDIFBefore[lines] = inDIF;
+        lastYBefore[lines] = lastY;
+        lowestIndex[lines] = lowest;
+        lines++;
+    }
+
+    /**
+     * completes index after decoding.
+     *
+     * @param size number of decoded points
+     */
+    void finish(int size) {
+        pointCount = size;
+        lineStarts = Arrays.copyOf(lineStarts, lines);
+        sizeBefore = Arrays.copyOf(sizeBefore, lines);
+        indexBefore = Arrays.copyOf(indexBefore, lines);
+        inDIFBefore = Arrays.copyOf(inDIFBefore, lines);
+        lastYBefore = Arrays.copyOf(lastYBefore, lines);
+        // lowest point index written by a line or any following line
+        int[] lowest = new int[lines + 1];
+        lowest[lines] = Integer.MAX_VALUE;
+        for (int i = lines - 1; i >= 0; i--)
+            lowest[i] = Math.min(lowestIndex[i], lowest[i + 1]);
+        lowestIndex = lowest;
+    }
+
+    int getSizeBefore(int line) {
+        return sizeBefore[line];
+    }
+
+    int getIndexBefore(int line) {
+        return indexBefore[line];
+    }
+
+    boolean isInDIFBefore(int line) {
+        return inDIFBefore[line];
+    }
+
+    double getLastYBefore(int line) {
+        return lastYBefore[line];
+    }
+
+    /**
+     * gets number of lines.
+     *
+     * @return int
+     */
+    public int getLineCount() {
+        return lines;
+    }
+
+    /**
+     * gets number of points of the full decode.
+     *
+     * @return int
+     */
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * gets index of the point nearest to <code>x</code>, limited to valid indices.
+     *
+     * @param x double abscissa value
+     * @return int
+     */
+    public int indexOf(double x) {
+        if (pointCount == 0)
+            return 0;
+        double deltaX = (lastX - firstX) / (nPoints - 1);
+        double index = (nPoints > 1) ? Math.floor((x - firstX) / deltaX + .5) : 0;
+        if (!(index > 0))
+            return 0;
+        return (int) Math.min(index, pointCount - 1);
+    }
+
+    /**
+     * gets abscissa value of point <code>index</code>.
+     *
+     * @param index int
+     * @return double
+     */
+    public double getX(int index) {
+        if (nPoints < 2)
+            return firstX;
+        return firstX + index * ((lastX - firstX) / (nPoints - 1));
+    }
+
+    /**
+     * decodes the y values of points <code>from</code> to <code>to - 1</code>.
+     *
+     * @param from first point index
+     * @param to end point index (exclusive)
+     * @return double[] y values, not scaled by YFACTOR
+     * @throws JCAMPException on syntax errors
+     */
+    public double[] decode(int from, int to) throws JCAMPException {
+        if (from < 0 || to > pointCount || from > to)
+            throw new IndexOutOfBoundsException("range " + from + " to " + to + " of " + pointCount + " points");
+        if (from == to)
+            return new double[0];
+        int first = 0;
+        int last = lines - 1;
+        if (isMonotonic) {
+            // last line starting at or before the point before from
+            int lo = 0;
+            int hi = lines - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (sizeBefore[mid] <= from + 1)
+                    lo = mid;
+                else
+                    hi = mid - 1;
+            }
+            first = lo;
+            // no following line writes before to
+            last = first;
+            while (lowestIndex[last + 1] < to)
+                last++;
+        }
+        ASDFCheckHandler checkHandler = null;
+        if (isValidating)
+            checkHandler = new ReplacingCheckHandler(firstX, lastX, xFactor, nPoints);
+        ASDFScanner scanner = new ASDFScanner(text, lineStarts[first], end, terminated);
+        return scanner.decodeLines(checkHandler, this, first, last, from, to);
+    }
+
+    /**
+     * decodes the y values of the points from <code>indexOf(x0)</code> to <code>indexOf(x1)</code>,
+     * in order of the point index. the first index is <code>Math.min(indexOf(x0), indexOf(x1))</code>.
+     *
+     * @param x0 double abscissa value
+     * @param x1 double abscissa value
+     * @return double[] y values, not scaled by YFACTOR
+     * @throws JCAMPException on syntax errors
+     */
+    public double[] decodeRange(double x0, double x1) throws JCAMPException {
+        int i0 = indexOf(x0);
+        int i1 = indexOf(x1);
+        if (pointCount == 0)
+            return new double[0];
+        return decode(Math.min(i0, i1), Math.max(i0, i1) + 1);
+    }
+}
@@ -32,6 +32,9 @@ final class ASDFParseState {
 	void incrCurrentLineNumber() {
 		currentLineNumber ++;
 	}
+	void setCurrentLineNumber(int lineNumber) {
+		currentLineNumber = lineNumber;
+	}
 	void setCheckX(double x) 
 	{
 		this.checkX = x;
@@ -0,0 +1,745 @@
+package org.jcamp.parser;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * hand-written decoder for ASDF (ASCII Squeezed Difference Form) data.
+ *
+ * Implements the grammar of the ANTLR generated <code>ASDFParser</code> as a
+ * table driven state machine: SQZ, DIF, DUP and PAC forms are decoded directly
+ * from the character sequence into a <code>double[]</code> without creating
+ * tokens or boxed values. Line comments are skipped while scanning.
+ * X-checks and y-checks are handled as in <code>ASDFParser.block()</code>,
+ * using the same <code>ASDFCheckHandler</code> and <code>ASDFParseState</code>.
+ *
+ * Large data can be split into line-aligned chunks that are scanned in parallel,
+ * every line starts with its own x value and SQZ value. The scanned lines are then
+ * appended in order with the same x-check and y-check handling as in a single pass.
+ *
+ * @see ASDFParser
+ */
+final class ASDFScanner {
+    // character classes
+    private final static byte OTHER = 0;
+    private final static byte NUMBER = 1;
+    private final static byte SQZ = 2;
+    private final static byte DIF = 3;
+    private final static byte DUP = 4;
+    private final static byte WS = 5;
+    private final static byte EOL = 6;
+    private final static byte ERROR = 7;
+    private final static byte[] CLASS = new byte[128];
+    // value of the leading character of SQZ, DIF and DUP tokens (sign included)
+    private final static int[] LEAD = new int[128];
+    // end of input
+    private final static int EOF = -1;
+    static {
+        CLASS['+'] = NUMBER;
+        CLASS['-'] = NUMBER;
+        CLASS['.'] = NUMBER;
+        for (char c = '0'; c <= '9'; c++)
+            CLASS[c] = NUMBER;
+        CLASS['@'] = SQZ;
+        for (char c = 'A'; c <= 'I'; c++) {
+            CLASS[c] = SQZ;
+            LEAD[c] = c - 'A' + 1;
+        }
+        for (char c = 'a'; c <= 'i'; c++) {
+            CLASS[c] = SQZ;
+            LEAD[c] = -(c - 'a' + 1);
+        }
+        CLASS['%'] = DIF;
+        for (char c = 'J'; c <= 'R'; c++) {
+            CLASS[c] = DIF;
+            LEAD[c] = c - 'J' + 1;
+        }
+        for (char c = 'j'; c <= 'r'; c++) {
+            CLASS[c] = DIF;
+            LEAD[c] = -(c - 'j' + 1);
+        }
+        for (char c = 'S'; c <= 'Z'; c++) {
+            CLASS[c] = DUP;
+            LEAD[c] = c - 'S' + 1;
+        }
+        CLASS['s'] = DUP;
+        LEAD['s'] = 9;
+        CLASS[' '] = WS;
+        CLASS['\t'] = WS;
+        CLASS['\r'] = EOL;
+        CLASS['\n'] = EOL;
+        CLASS['?'] = ERROR;
+    }
+    // powers of ten that are exact doubles
+    private final static double[] POW10 = new double[23];
+    // chunks per thread of the fork-join pool
+    private final static int CHUNKS_PER_THREAD = 4;
+    static {
+        POW10[0] = 1.0;
+        for (int i = 1; i < POW10.length; i++)
+            POW10[i] = POW10[i - 1] * 10.0;
+    }
+    private final CharSequence text;
+    private final int start;
+    private final int end;
+    // true if input is terminated by an implicit line end
+    private final boolean terminated;
+    private int pos;
+    // y values of current line
+    private double[] line = new double[128];
+    private int lineSize;
+    // decoded y values
+    private double[] y;
+    private int size;
+    // index of first value in y, not 0 if decoding lines of an ASDFLineIndex
+    private int base;
+    private boolean currentInDIF = false;
+    // true if scanning a chunk, values of preceding lines are unknown then
+    private boolean isChunk = false;
+
+    /**
+     * ASDFScanner constructor.
+     *
+     * @param text character sequence containing ASDF lines
+     * @param start start of first ASDF line
+     * @param end end of ASDF data
+     * @param terminated true if the last line may end without line break
+     */
+    ASDFScanner(CharSequence text, int start, int end, boolean terminated) {
+        super();
+        this.text = text;
+        this.start = start;
+        this.end = end;
+        this.terminated = terminated;
+    }
+
+    /**
+     * creates scanner for the value of a data LDR, handled like
+     * <code>ldr.getContent()</code> with the variable list line removed.
+     *
+     * @param ldr data LDR
+     * @return ASDFScanner
+     */
+    static ASDFScanner forDataRecord(JCAMPDataRecord ldr) {
+        CharSequence text = ldr.getText();
+        int e = ldr.getContentEnd();
+        int s = ldr.getContentStart(e);
+        // skip variable list, e.g. (X++(Y..Y))
+        while (s < e && !isLineBreak(text.charAt(s)))
+            s++;
+        if (s < e) {
+            if (text.charAt(s) == '\r' && s + 1 < e && text.charAt(s + 1) == '\n')
+                s++;
+            s++;
+        }
+        return new ASDFScanner(text, s, e, true);
+    }
+
+    private static boolean isLineBreak(char c) {
+        return c == '\n' || c == '\r';
+    }
+
+    /**
+     * decodes all ASDF lines.
+     *
+     * @param checkHandler handler for x-checks and y-checks, null for no checks
+     * @param expectedSize expected number of points
+     * @return decoded y values
+     * @throws JCAMPException on syntax errors or aborted checks
+     */
+    double[] decode(ASDFCheckHandler checkHandler, int expectedSize) throws JCAMPException {
+        return decode(checkHandler, expectedSize, null);
+    }
+
+    /**
+     * decodes all ASDF lines and records the start and decoder state of each line
+     * in <code>index</code>.
+     *
+     * @param checkHandler handler for x-checks and y-checks, null for no checks
+     * @param expectedSize expected number of points
+     * @param index line index to fill or null
+     * @return decoded y values
+     * @throws JCAMPException on syntax errors or aborted checks
+     */
+    double[] decode(ASDFCheckHandler checkHandler, int expectedSize, ASDFLineIndex index) throws JCAMPException {
+        ASDFParseState state = new ASDFParseState();
+        y = new double[Math.max(expectedSize, 16)];
+        size = 0;
+        base = 0;
+        pos = start;
+        currentInDIF = false;
+        boolean lastInDIF = false;
+        int lines = 0;
+        while (true) {
+            int c = peek();
+            byte cls = classOf(c);
+            if (cls != NUMBER && cls != WS) {
+                if (lines == 0)
+                    fail(state, "no ASDF data");
+                if (cls == OTHER && c != EOF)
+                    fail(state, "unexpected character");
+                // any other token ends the data block
+                break;
+            }
+            int lineStart = pos;
+            int sizeBefore = size;
+            int indexBefore = state.getCurrentIndex();
+            double lastY = (sizeBefore > 0) ? y[sizeBefore - 1] : 0;
+            double xCheck = parseLine(state);
+            addLine(state, checkHandler, xCheck, line, 0, lineSize, lastInDIF);
+            if (index != null)
+                index.addLine(lineStart, sizeBefore, indexBefore, lastInDIF, lastY,
+                    state.getCurrentIndex() - (lineSize - 1));
+            lastInDIF = currentInDIF;
+            lines++;
+        }
+        double[] result = result();
+        if (index != null)
+            index.finish(result.length);
+        return result;
+    }
+
+    /**
+     * decodes all ASDF lines and creates the line index.
+     *
+     * @param firstX double
+     * @param lastX double
+     * @param xFactor double
+     * @param nPoints int
+     * @param isValidating true for x-checks and y-checks
+     * @return ASDFLineIndex
+     * @throws JCAMPException on syntax errors or aborted checks
+     */
+    ASDFLineIndex createIndex(double firstX, double lastX, double xFactor, int nPoints, boolean isValidating)
+        throws JCAMPException {
+        ASDFLineIndex index = new ASDFLineIndex(text, end, terminated, firstX, lastX, xFactor, nPoints, isValidating);
+        ASDFCheckHandler checkHandler = null;
+        if (isValidating)
+            checkHandler = new ReplacingCheckHandler(firstX, lastX, xFactor, nPoints);
+        decode(checkHandler, nPoints, index);
+        return index;
+    }
+
+    /**
+     * decodes lines <code>first</code> to <code>last</code> of <code>index</code>,
+     * starting with the decoder state recorded for line <code>first</code>.
+     * the scanner has to start at line <code>first</code>.
+     *
+     * @param checkHandler handler for x-checks and y-checks, null for no checks
+     * @param index line index
+     * @param first first line
+     * @param last last line
+     * @param from first point index
+     * @param to end point index
+     * @return y values of points <code>from</code> to <code>to - 1</code>
+     * @throws JCAMPException on syntax errors or aborted checks
+     */
+    double[] decodeLines(ASDFCheckHandler checkHandler, ASDFLineIndex index, int first, int last, int from, int to)
+        throws JCAMPException {
+        ASDFParseState state = new ASDFParseState();
+        state.setCurrentIndex(index.getIndexBefore(first));
+        state.setCurrentLineNumber(first + 1);
+        int sizeBefore = index.getSizeBefore(first);
+        // keep the last point before the line for y-checks
+        base = (sizeBefore > 0) ? sizeBefore - 1 : 0;
+        y = new double[Math.max(to - base, 16)];
+        size = 0;
+        if (sizeBefore > 0)
+            add(index.getLastYBefore(first));
+        pos = start;
+        boolean lastInDIF = index.isInDIFBefore(first);
+        currentInDIF = lastInDIF;
+        for (int l = first; l <= last; l++) {
+            double xCheck = parseLine(state);
+            addLine(state, checkHandler, xCheck, line, 0, lineSize, lastInDIF);
+            lastInDIF = currentInDIF;
+        }
+        double[] result = Arrays.copyOfRange(y, from - base, to - base);
+        y = null;
+        return result;
+    }
+
+    /**
+     * decodes all ASDF lines, data of at least <code>minLength</code> chars is split
+     * into chunks of at least <code>minLength / 4</code> chars that are scanned in
+     * parallel by <code>pool</code>.
+     * the result is the same as for {@link #decode(ASDFCheckHandler, int)}, which is
+     * used for short data, for data with '?' as first y value of a line and for
+     * reporting syntax errors.
+     *
+     * @param checkHandler handler for x-checks and y-checks, null for no checks
+     * @param expectedSize expected number of points
+     * @param pool fork-join pool, null to decode in calling thread
+     * @param minLength minimum number of chars for parallel decoding
+     * @return decoded y values
+     * @throws JCAMPException on syntax errors or aborted checks
+     */
+    double[] decode(ASDFCheckHandler checkHandler, int expectedSize, ForkJoinPool pool, int minLength)
+        throws JCAMPException {
+        int length = end - start;
+        if (pool == null || length < minLength)
+            return decode(checkHandler, expectedSize);
+        // chunks are at least a quarter of the minimum length
+        int numChunks = Math.min(CHUNKS_PER_THREAD * pool.getParallelism(), length / Math.max(minLength / 4, 1));
+        if (numChunks < 2)
+            return decode(checkHandler, expectedSize);
+        ASDFScanner[] scanners = split(numChunks);
+        Chunk[] chunks = new Chunk[scanners.length];
+        pool.invoke(new ChunkTask(scanners, chunks, 0, scanners.length));
+        if (chunks[0] == null || chunks[0].lines == 0)
+            return decode(checkHandler, expectedSize);
+        for (int i = 1; i < chunks.length; i++) {
+            if (chunks[i - 1].stopped)
+                break;
+            if (chunks[i] == null)
+                return decode(checkHandler, expectedSize);
+        }
+        // append lines in order
+        ASDFParseState state = new ASDFParseState();
+        y = new double[Math.max(expectedSize, 16)];
+        size = 0;
+        base = 0;
+        boolean lastInDIF = false;
+        for (int i = 0; i < chunks.length; i++) {
+            Chunk chunk = chunks[i];
+            for (int l = 0; l < chunk.lines; l++) {
+                addLine(state, checkHandler, chunk.xChecks[l], chunk.values, chunk.lineStarts[l],
+                    chunk.lineStarts[l + 1], lastInDIF);
+                lastInDIF = chunk.inDIF[l];
+            }
+            if (chunk.stopped)
+                break;
+        }
+        return result();
+    }
+
+    /**
+     * splits data into scanners for line-aligned chunks.
+     *
+     * @param numChunks number of chunks of about equal length
+     * @return ASDFScanner[]
+     */
+    private ASDFScanner[] split(int numChunks) {
+        int[] bounds = new int[numChunks + 1];
+        int n = 0;
+        bounds[n++] = start;
+        for (int i = 1; i < numChunks; i++) {
+            int p = Math.max(start + (int) ((long) (end - start) * i / numChunks), bounds[n - 1]);
+            // move behind next line break, never between CR and LF
+            while (p < end && !isLineBreak(text.charAt(p)))
+                p++;
+            if (p < end && text.charAt(p) == '\r' && p + 1 < end && text.charAt(p + 1) == '\n')
+                p++;
+            p++;
+            if (p < end && p > bounds[n - 1])
+                bounds[n++] = p;
+        }
+        bounds[n] = end;
+        ASDFScanner[] scanners = new ASDFScanner[n];
+        for (int i = 0; i < n; i++) {
+            scanners[i] = new ASDFScanner(text, bounds[i], bounds[i + 1], (i == n - 1) && terminated);
+            scanners[i].isChunk = true;
+        }
+        return scanners;
+    }
+
+    /**
+     * scans all lines of a chunk without checks.
+     *
+     * @return Chunk
+     * @throws JCAMPException on syntax errors or '?' as first y value of a line
+     */
+    private Chunk scanChunk() throws JCAMPException {
+        ASDFParseState state = new ASDFParseState();
+        Chunk chunk = new Chunk((end - start) / 2);
+        pos = start;
+        currentInDIF = false;
+        while (true) {
+            int c = peek();
+            byte cls = classOf(c);
+            if (cls != NUMBER && cls != WS) {
+                if (cls == OTHER && c != EOF)
+                    fail(state, "unexpected character");
+                // data block ends within this chunk
+                chunk.stopped = (pos < end);
+                break;
+            }
+            double xCheck = parseLine(state);
+            chunk.addLine(xCheck, line, lineSize, currentInDIF);
+            state.incrCurrentLineNumber();
+        }
+        return chunk;
+    }
+
+    /**
+     * appends y values of one line, starting with a y-check or a real data point,
+     * and handles the x-check and y-check.
+     *
+     * @param state parse state
+     * @param checkHandler handler for x-checks and y-checks or null
+     * @param xCheck x value of line
+     * @param values y values of line
+     * @param from index of first y value
+     * @param to end index of y values
+     * @param lastInDIF true if the previous line ended in DIF mode
+     */
+    private void addLine(ASDFParseState state, ASDFCheckHandler checkHandler, double xCheck, double[] values,
+        int from, int to, boolean lastInDIF) throws JCAMPException {
+        int indexBeforeCheck;
+        state.setCheckX(xCheck);
+        if (lastInDIF) {
+            // last y-value was in DIF mode
+            // first y-element is y-value check
+            indexBeforeCheck = state.getCurrentIndex();
+            state.setCheckY(values[from]);
+            state.setCurrentY((int) y[size - 1]);
+        } else {
+            // first element is a real data point
+            // insert it into data point array and increase index
+            double y0 = values[from];
+            add(y0);
+            state.incrCurrentIndex();
+            indexBeforeCheck = state.getCurrentIndex();
+            // insert dummy check values
+            state.setCheckY((int) y0);
+            state.setCurrentY((int) y0);
+        }
+        int policy = (checkHandler == null) ? ASDFCheckHandler.IGNORE : checkHandler.check(state);
+        switch (policy) {
+            case ASDFCheckHandler.IGNORE :
+                break;
+            case ASDFCheckHandler.ABORT :
+                fail(state, "ASDF parsing aborted, failed check");
+                break;
+            case ASDFCheckHandler.REPLACE :
+                int indexAfterCheck = state.getCurrentIndex();
+                if (indexBeforeCheck < indexAfterCheck) {
+                    // if new index is greater, insert error values (last value so far)
+                    double errorValue = y[size - 1];
+                    for (int i = indexBeforeCheck; i < indexAfterCheck; i++)
+                        add(errorValue);
+                } else if (indexBeforeCheck > indexAfterCheck) {
+                    // if new index is lesser, remove values
+                    size = indexAfterCheck + 1 - base;
+                    y[indexAfterCheck - base] = state.getCurrentY();
+                } else {
+                    // simply replace current value
+                    y[indexAfterCheck - base] = state.getCurrentY();
+                }
+                break;
+        }
+        // insert rest of line starting at second element
+        int count = to - from - 1;
+        if (count > 0) {
+            if (size + count > y.length)
+                y = Arrays.copyOf(y, Math.max(size + count, size + (size >> 1) + 16));
+            System.arraycopy(values, from + 1, y, size, count);
+            size += count;
+            state.incrCurrentIndex(count);
+        }
+        state.incrCurrentLineNumber();
+    }
+
+    /**
+     * gets decoded y values.
+     *
+     * @return double[]
+     */
+    private double[] result() {
+        double[] result = (size == y.length) ? y : Arrays.copyOf(y, size);
+        y = null;
+        return result;
+    }
+
+    /**
+     * parses one line into <code>line</code>.
+     *
+     * @return x-check value of line
+     */
+    private double parseLine(ASDFParseState state) throws JCAMPException {
+        lineSize = 0;
+        if (classOf(peek()) == WS)
+            skipWS();
+        if (classOf(peek()) != NUMBER)
+            fail(state, "missing x value");
+        double xCheck = parseNumber(state);
+        if (classOf(peek()) == WS)
+            skipWS();
+        switch (classOf(peek())) {
+            case SQZ :
+            case ERROR :
+                parseDifNumbers(state);
+                break;
+            case NUMBER :
+                parsePacNumbers(state);
+                break;
+            default :
+                fail(state, "missing y values");
+        }
+        // line end
+        int c = peek();
+        if (c == '\r') {
+            pos++;
+            if (peek() == '\n')
+                pos++;
+        } else if (c == '\n')
+            pos++;
+        else
+            fail(state, "unexpected character");
+        return xCheck;
+    }
+
+    /**
+     * parses y values in SQZ, DIF, DUP form.
+     */
+    private void parseDifNumbers(ASDFParseState state) throws JCAMPException {
+        int c = peek();
+        if (classOf(c) == SQZ) {
+            addToLine(parseToken(c));
+        } else {
+            // '?'
+            if (isChunk)
+                fail(state, "'?' as first y value in chunk");
+            pos++;
+            addToLine(size > 0 ? y[size - 1] : 0);
+        }
+        currentInDIF = false;
+        while (true) {
+            c = peek();
+            switch (classOf(c)) {
+                case SQZ :
+                    addToLine(parseToken(c));
+                    currentInDIF = false;
+                    break;
+                case DIF :
+                    int d = parseToken(c);
+                    currentInDIF = true;
+                    addToLine(line[lineSize - 1] + d);
+                    break;
+                case DUP :
+                    int u = parseToken(c);
+                    if (currentInDIF) {
+                        // repeat addition of last difference u-1 times
+                        double l0 = line[lineSize - 1];
+                        double dif = l0 - line[lineSize - 2];
+                        for (int i = 1; i < u; i++) {
+                            l0 += dif;
+                            addToLine(l0);
+                        }
+                    } else {
+                        // repeat last value u-1 times
+                        double l = line[lineSize - 1];
+                        for (int i = 1; i < u; i++)
+                            addToLine(l);
+                    }
+                    break;
+                case ERROR :
+                    pos++;
+                    addToLine(line[lineSize - 1]);
+                    break;
+                default :
+                    return;
+            }
+        }
+    }
+
+    /**
+     * parses y values in PAC or AFFN form.
+     */
+    private void parsePacNumbers(ASDFParseState state) throws JCAMPException {
+        do {
+            addToLine(parseNumber(state));
+            if (classOf(peek()) == WS)
+                skipWS();
+        } while (classOf(peek()) == NUMBER);
+    }
+
+    /**
+     * parses SQZ, DIF or DUP token starting with <code>c</code>.
+     */
+    private int parseToken(int c) {
+        int lead = LEAD[c];
+        int v = (lead < 0) ? -lead : lead;
+        pos++;
+        int d;
+        while ((d = peek() - '0') >= 0 && d <= 9) {
+            v = v * 10 + d;
+            pos++;
+        }
+        return (lead < 0) ? -v : v;
+    }
+
+    /**
+     * parses number token (x-check, PAC or AFFN value).
+     */
+    private double parseNumber(ASDFParseState state) throws JCAMPException {
+        int tokenStart = pos;
+        boolean negative = false;
+        int c = peek();
+        if (c == '+' || c == '-') {
+            negative = (c == '-');
+            pos++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = 0;
+        boolean exact = true;
+        int d;
+        while ((d = peek() - '0') >= 0 && d <= 9) {
+            if (mantissa < (1L << 53) / 10)
+                mantissa = mantissa * 10 + d;
+            else
+                exact = false;
+            digits++;
+            pos++;
+        }
+        if (peek() == '.') {
+            pos++;
+            int fractionDigits = 0;
+            while ((d = peek() - '0') >= 0 && d <= 9) {
+                if (mantissa < (1L << 53) / 10) {
+                    mantissa = mantissa * 10 + d;
+                    fraction++;
+                } else
+                    exact = false;
+                fractionDigits++;
+                pos++;
+            }
+            if (fractionDigits == 0)
+                fail(state, "bad number");
+        } else if (digits == 0)
+            fail(state, "bad number");
+        if (exact && fraction < POW10.length) {
+            // exact mantissa and power of ten: division is correctly rounded
+            double v = mantissa / POW10[fraction];
+            return negative ? -v : v;
+        }
+        return Double.parseDouble(text.subSequence(tokenStart, pos).toString());
+    }
+
+    private void skipWS() {
+        while (classOf(peek()) == WS)
+            pos++;
+    }
+
+    /**
+     * gets current char, skipping line comments.
+     *
+     * @return char or EOF
+     */
+    private int peek() {
+        if (pos < end) {
+            char c = text.charAt(pos);
+            if (c == '$' && pos + 1 < end && text.charAt(pos + 1) == '$') {
+                // eat chars till linefeed
+                while (pos < end && !isLineBreak(text.charAt(pos)))
+                    pos++;
+                return peek();
+            }
+            return c;
+        }
+        if (pos == end && terminated)
+            return '\n';
+        return EOF;
+    }
+
+    private static byte classOf(int c) {
+        return (c >= 0 && c < 128) ? CLASS[c] : OTHER;
+    }
+
+    private void addToLine(double v) {
+        if (lineSize == line.length)
+            line = Arrays.copyOf(line, lineSize * 2);
+        line[lineSize++] = v;
+    }
+
+    private void add(double v) {
+        if (size == y.length)
+            y = Arrays.copyOf(y, size + (size >> 1) + 16);
+        y[size++] = v;
+    }
+
+    private void fail(ASDFParseState state, String msg) throws JCAMPException {
+        StringBuilder tmp = new StringBuilder("ASDF parsing failed in line ");
+        tmp.append(state.getCurrentLineNumber()).append(": ").append(msg);
+        int c = peek();
+        if (c >= 0)
+            tmp.append(" at '").append((char) c).append('\'');
+        throw new JCAMPException(tmp.toString());
+    }
+
+    /**
+     * y values and x-check of the lines of a chunk.
+     */
+    private static final class Chunk {
+        double[] values;
+        int size;
+        // start of each line within values, followed by end of last line
+        int[] lineStarts = new int[64];
+        double[] xChecks = new double[64];
+        boolean[] inDIF = new boolean[64];
+        int lines;
+        // true if a line does not start with a number, i.e. the data ends
+        boolean stopped;
+
+        Chunk(int capacity) {
+            values = new double[Math.max(capacity, 16)];
+        }
+
+        void addLine(double xCheck, double[] line, int lineSize, boolean lineInDIF) {
+            if (lines + 1 == lineStarts.length) {
+                int n = lineStarts.length * 2;
+                lineStarts = Arrays.copyOf(lineStarts, n);
+                xChecks = Arrays.copyOf(xChecks, n);
+                inDIF = Arrays.copyOf(inDIF, n);
+            }
+            if (size + lineSize > values.length)
+                values = Arrays.copyOf(values, Math.max(size + lineSize, size + (size >> 1)));
+            System.arraycopy(line, 0, values, size, lineSize);
+            lineStarts[lines] = size;
+            xChecks[lines] = xCheck;
+            inDIF[lines] = lineInDIF;
+            size += lineSize;
+            lines++;
+            lineStarts[lines] = size;
+        }
+    }
+
+    /**
+     * scans a range of chunks, splitting the range until single chunks remain.
+     * a chunk that cannot be scanned is left null.
+     */
+    private static final class ChunkTask
+        extends RecursiveAction {
+        private static final long serialVersionUID = -6732993573425479361L;
+        private final ASDFScanner[] scanners;
+        private final Chunk[] chunks;
+        private final int from;
+        private final int to;
+
+        ChunkTask(ASDFScanner[] scanners, Chunk[] chunks, int from, int to) {
+            this.scanners = scanners;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                try {
+                    chunks[from] = scanners[from].scanChunk();
+                } catch (JCAMPException e) {
+                    // decoded again in a single pass for the error message
+                    chunks[from] = null;
+                } catch (RuntimeException e) {
+                    chunks[from] = null;
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ChunkTask(scanners, chunks, from, mid), new ChunkTask(scanners, chunks, mid, to));
+        }
+    }
+}
@@ -8,11 +8,14 @@ public class BlockIterator implements IStringIterator {
     private int start = 0;
     private int end = 0;
     private int depth = 0;
-    private String jcamp;
-    private LabelIterator labelIter = null;
+    private CharSequence jcamp;
+    // search offset for the next label
+    private int labelOffset = 0;
     public BlockIterator(String jcamp) {
+        this((CharSequence) jcamp);
+    }
+    public BlockIterator(CharSequence jcamp) {
         this.jcamp = jcamp;
-        this.labelIter = new LabelIterator(jcamp);
         nextBlock();
     }
     public int getOffset() {
@@ -27,34 +30,45 @@ public class BlockIterator implements IStringIterator {
     }
     public String next() {
         if (jcamp != null && start < jcamp.length() && start <= end) {
-            String block = jcamp.substring(start, end);
-            nextBlock();
-            return block;
+            int blockStart = start;
+            return jcamp.subSequence(blockStart, nextEnd()).toString();
         } else
             return null;
     }
+    /**
+     * skips the current block without copying it.
+     * 
+     * @return end offset of the current block
+     */
+    int nextEnd() {
+        if (jcamp != null && start < jcamp.length() && start <= end) {
+            int blockEnd = end;
+            nextBlock();
+            return blockEnd;
+        } else
+            return -1;
+    }
     private void nextBlock() {
         while (true) {
-            if (!labelIter.hasNext()) {
+            int offset = LabelScanner.findLabelAtLineStart(jcamp, labelOffset);
+            if (offset < 0) {
                 start = end = jcamp.length();
                 return;
             }
-            int offset = labelIter.getOffset();
-            String label = labelIter.next();
-            label = Utils.normalizeLabel(label);
-            if (label.equals("##TITLE=")) {
+            labelOffset = LabelScanner.labelEnd(jcamp, offset) + 1;
+            if (LabelScanner.labelEquals(jcamp, offset, "TITLE")) {
                 if (depth == 1) {
                     start = offset;
                 }
                 depth++;
-            } else if (label.equals("##END=")) {
+            } else if (LabelScanner.labelEquals(jcamp, offset, "END")) {
                 depth--;
                 if (depth < 1) {
                     start = end = jcamp.length();
                     return;
                 }
                 if (depth == 1) {
-                    end = labelIter.getOffset() - 1;
+                    end = LabelScanner.findLabelAtLineStart(jcamp, labelOffset) - 1;
                     return;
                 }
             }
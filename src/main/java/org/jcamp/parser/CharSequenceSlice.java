@@ -0,0 +1,81 @@
+package org.jcamp.parser;
+
+/**
+ * read-only view of a part of a character sequence.
+ * 
+ * Used for blocks and data records within a JCAMP string: unlike
+ * <code>String.substring()</code>, creating a slice does not copy the text.
+ */
+final class CharSequenceSlice implements CharSequence {
+  private final CharSequence text;
+  private final int offset;
+  private final int length;
+
+  /**
+   * CharSequenceSlice constructor.
+   * 
+   * @param text underlying sequence
+   * @param offset start of slice within <code>text</code>
+   * @param length length of slice
+   */
+  private CharSequenceSlice(CharSequence text, int offset, int length) {
+    super();
+    this.text = text;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /**
+   * gets part of <code>text</code> without copying it.
+   * 
+   * @param text java.lang.CharSequence
+   * @param start start offset
+   * @param end end offset
+   * @return java.lang.CharSequence
+   */
+  static CharSequence of(CharSequence text, int start, int end) {
+    if (start < 0 || end > text.length() || start > end)
+      throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + text.length());
+    if (start == 0 && end == text.length())
+      return text;
+    if (text instanceof String)
+      return new CharSequenceSlice(text, start, end - start);
+    // slices and other views create views themselves
+    return text.subSequence(start, end);
+  }
+
+  /**
+   * @see java.lang.CharSequence
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * @see java.lang.CharSequence
+   */
+  public char charAt(int index) {
+    if (index < 0 || index >= length)
+      throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+    return text.charAt(offset + index);
+  }
+
+  /**
+   * @see java.lang.CharSequence
+   */
+  public CharSequence subSequence(int start, int end) {
+    if (start < 0 || end > length || start > end)
+      throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length);
+    return new CharSequenceSlice(text, offset + start, end - start);
+  }
+
+  /**
+   * copies slice into a string.
+   * 
+   * @return java.lang.String
+   */
+  @Override
+  public String toString() {
+    return text.subSequence(offset, offset + length).toString();
+  }
+}
@@ -1,6 +1,5 @@
 package org.jcamp.parser;
 
-import org.jcamp.spectrum.ArrayData;
 import org.jcamp.spectrum.Assignment;
 import org.jcamp.spectrum.Chromatogram;
 import org.jcamp.spectrum.EquidistantData;
@@ -55,7 +54,7 @@ public class ChromatogramJCAMPReader
       nPoints = intensities.length;
     }
     IOrderedDataArray1D x = new EquidistantData(firstX, lastX, nPoints, xUnit);
-    IDataArray1D y = new ArrayData(intensities, yUnit);
+    IDataArray1D y = createYData(block, intensities, yFactor, yUnit);
     spectrum = new Chromatogram(x, y, true);
     return spectrum;
   }
@@ -89,7 +88,7 @@ public class ChromatogramJCAMPReader
     }
     double[][] xy = peakTableToPeakSpectrum(peaks);
     IOrderedDataArray1D x = new OrderedArrayData(xy[0], xUnit);
-    IDataArray1D y = new ArrayData(xy[1], yUnit);
+    IDataArray1D y = createYData(block, xy[1], yFactor, yUnit);
     spectrum = new Chromatogram(x, y, false);
     spectrum.setPeakTable(peaks);
     if (tables.length > 1) {
@@ -8,7 +8,9 @@ import java.util.TreeSet;
 
 import org.jcamp.math.IArray2D;
 import org.jcamp.spectrum.Assignment;
+import org.jcamp.spectrum.CompactArrayData;
 import org.jcamp.spectrum.IAssignmentTarget;
+import org.jcamp.spectrum.IDataArray1D;
 import org.jcamp.spectrum.Multiplicity;
 import org.jcamp.spectrum.Pattern;
 import org.jcamp.spectrum.Peak1D;
@@ -141,7 +143,7 @@ abstract class CommonSpectrumJCAMPReader
       block.getErrorHandler().fatal("data form missmatch");
 
     double[] y =
-	block.getASDFDecoder().decode(ldrXYData, firstX, lastX, xFactor, nPoints);
+	block.decodeASDF(ldrXYData, firstX, lastX, xFactor, nPoints);
     int n = y.length;
     double[] yValues = new double[n];
     for (int i = 0; i < n; i++)
@@ -242,28 +244,16 @@ abstract class CommonSpectrumJCAMPReader
     }
     DatatableTokenizer tokenizer = new DatatableTokenizer(ldrPeaktable);
     if (tokenizer.getType().equals(DataType.XY)) {
-      int i = 0;
+      double[][] columns = tokenizer.readColumns();
       Peak1D[] peaks = new Peak1D[nPoints];
-      while (tokenizer.hasMoreGroups()) {
-	DataGroup group = tokenizer.nextGroup();
-	double x = xFactor * ((Double) group.getValue(0)).doubleValue();
-	double y = yFactor * ((Double) group.getValue(1)).doubleValue();
-	peaks[i] = new Peak1D(x, y);
-	i++;
-      }
+      for (int i = 0; i < columns[0].length; i++)
+	peaks[i] = new Peak1D(xFactor * columns[0][i], yFactor * columns[1][i]);
       return new Object[] { peaks };
     } else if (tokenizer.getType().equals(DataType.XYW)) {
-      int i = 0;
+      double[][] columns = tokenizer.readColumns();
       Peak1D[] peaks = new Peak1D[nPoints];
-      while (tokenizer.hasMoreGroups()) {
-
-	DataGroup group = tokenizer.nextGroup();
-	double x = xFactor * ((Double) group.getValue(0)).doubleValue();
-	double y = yFactor * ((Double) group.getValue(1)).doubleValue();
-	double w = ((Double) group.getValue(2)).doubleValue();
-	peaks[i] = new Peak1D(x, y, w);
-	i++;
-      }
+      for (int i = 0; i < columns[0].length; i++)
+	peaks[i] = new Peak1D(xFactor * columns[0][i], yFactor * columns[1][i], columns[2][i]);
       return new Object[] { peaks };
     } else if (tokenizer.getType().equals(DataType.XYM)) {
       int i = 0;
@@ -426,7 +416,7 @@ abstract class CommonSpectrumJCAMPReader
       return null;
     }
     double[] y =
-	block.getASDFDecoder().decode(ldrXYData, firstX, lastX, xFactor, nPoints);
+	block.decodeASDF(ldrXYData, firstX, lastX, xFactor, nPoints);
     int n = y.length;
     double[] yValues = new double[n];
     for (int i = 0; i < n; i++)
@@ -434,6 +424,19 @@ abstract class CommonSpectrumJCAMPReader
     return yValues;
 
   }
+  /**
+   * creates y data array in the storage selected for the block.
+   * 
+   * @return IDataArray1D
+   * @param block JCAMPBlock
+   * @param yValues double[] y values, including ##YFACTOR=
+   * @param yFactor double factor applied to y values (from ##YFACTOR=)
+   * @param yUnit Unit
+   * @see JCAMPReader#withStorage(int)
+   */
+  protected IDataArray1D createYData(JCAMPBlock block, double[] yValues, double yFactor, Unit yUnit) {
+    return CompactArrayData.create(yValues, yFactor, yUnit, block.getStorage());
+  }
   /**
    * gets ##XYPOINTS= content
    * 
@@ -470,21 +473,36 @@ abstract class CommonSpectrumJCAMPReader
       return null;
     }
 
-    int i = 0;
     AFFNTokenizer tokenizer = new AFFNTokenizer(ldrXYPoints);
-    TreeSet data = new TreeSet();
-    while (tokenizer.hasMoreGroups()) {
-      AFFNGroup group = tokenizer.nextGroup();
-      data.add(new XYPair(xFactor * group.getValue(0), yFactor * group.getValue(1)));
+    double[][] columns = tokenizer.readColumns();
+    double[] x = columns[0];
+    double[] y = columns[1];
+    int n = x.length;
+    boolean sorted = true;
+    for (int i = 0; i < n; i++) {
+      x[i] = xFactor * x[i];
+      y[i] = yFactor * y[i];
+      if (i > 0 && !(x[i] > x[i - 1]))
+	sorted = false;
     }
-    if (data.size() != nPoints)
-      block.getErrorHandler().error("bad ##NPOINTS= or duplicate X values");
-    double[][] xy = new double[2][data.size()];
-    for (Iterator it = data.iterator(); it.hasNext();) {
-      XYPair p = (XYPair) it.next();
-      xy[0][i] = p.x;
-      xy[1][i] = p.y;
+    double[][] xy;
+    if (sorted) {
+      // common case, no sorting and no duplicates
+      xy = new double[][] { x, y };
+    } else {
+      TreeSet data = new TreeSet();
+      for (int i = 0; i < n; i++)
+	data.add(new XYPair(x[i], y[i]));
+      xy = new double[2][data.size()];
+      int i = 0;
+      for (Iterator it = data.iterator(); it.hasNext(); i++) {
+	XYPair p = (XYPair) it.next();
+	xy[0][i] = p.x;
+	xy[1][i] = p.y;
+      }
     }
+    if (xy[0].length != nPoints)
+      block.getErrorHandler().error("bad ##NPOINTS= or duplicate X values");
     return xy;
   }
   /**
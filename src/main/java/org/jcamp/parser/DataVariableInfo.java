@@ -2,38 +2,12 @@ package org.jcamp.parser;
 
 import java.util.Vector;
 
-import org.apache.regexp.RE;
-import org.apache.regexp.RECompiler;
-import org.apache.regexp.REProgram;
-import org.apache.regexp.RESyntaxException;
-
 /**
  * helper class for analyzing the type of a data block.
  * 
  * @author Thomas Weber
  */
 public class DataVariableInfo {
-  private final static String INCR_RE =
-      "[:space:]*\\(([:alpha:][:digit:]*)\\+\\+\\(([:alpha:][:digit:]*)\\.\\.\\2\\)\\)[:space:]*";
-  private final static String LIST_RE = "[:space:]*\\((([:alpha:][:digit:]*){2,})(\\.\\.\\1)?\\)[:space:]*";
-  private final static String VAR_RE = "[:alpha:][:digit:]*";
-  private final static REProgram INCR_REPRG;
-  private final static REProgram LIST_REPRG;
-  private final static REProgram VAR_REPRG;
-  static {
-    try {
-      RECompiler compiler = new RECompiler();
-      INCR_REPRG = compiler.compile(INCR_RE);
-      LIST_REPRG = compiler.compile(LIST_RE);
-      VAR_REPRG = compiler.compile(VAR_RE);
-    } catch (RESyntaxException e) {
-      throw new Error("bad RE in DataVariableInfo");
-    }
-  }
-  private RE incrRE = new RE(INCR_REPRG);
-  private RE listRE = new RE(LIST_REPRG);
-  private RE varRE = new RE(VAR_REPRG);
-
   private String[] symbols;
   private boolean incremental;
   /**
@@ -44,29 +18,18 @@ public class DataVariableInfo {
   public DataVariableInfo(JCAMPDataRecord xyDataLDR) throws JCAMPException {
     String key = xyDataLDR.getKey();
     if (xyDataLDR.isData()) {
-      String xyData = xyDataLDR.getContent();
-      String varType;
-      int lf = xyData.indexOf("\r\n");
-      if (lf < 0) {
-	lf = xyData.indexOf("\n"); // non-standard Unix
-	if (lf < 0) {
-	  lf = xyData.indexOf("\r"); // non-standard Mac
-	  if (lf < 0)
-	    // confused???
-	    throw new JCAMPException("corrupt ##" + key + "=");
-	}
-	varType = xyData.substring(0, lf);
-      } else {
-	varType = xyData.substring(0, lf);
-      }
-      if (incrRE.match(varType)) {
-	symbols = new String[] { incrRE.getParen(1), incrRE.getParen(2)};
-	incremental = true;
-      } else if (listRE.match(varType)) {
-	String varlist = listRE.getParen(1);
-	analyzeVarList(varlist);
-	incremental = false;
-      } else
+      // only the first content line is needed, avoid copying the whole data table
+      CharSequence text = xyDataLDR.getText();
+      int end = xyDataLDR.getContentEnd();
+      int start = xyDataLDR.getContentStart(end);
+      int lf = start;
+      while (lf < end && text.charAt(lf) != '\n' && text.charAt(lf) != '\r')
+	lf++;
+      if (lf == end)
+	// confused???
+	throw new JCAMPException("corrupt ##" + key + "=");
+      String varType = Utils.removeComments(text.subSequence(start, lf).toString());
+      if (!analyze(varType))
 	throw new JCAMPException("bad ##XYDATA= variable descriptor: \"" + varType + "\"");
     } else
       throw new JCAMPException("not a data LDR: \"##" + key + "\"");
@@ -78,15 +41,73 @@ public class DataVariableInfo {
    */
   public DataVariableInfo(String type) throws JCAMPException {
     super();
-    if (incrRE.match(type)) {
-      symbols = new String[] { incrRE.getParen(1), incrRE.getParen(2)};
+    if (!analyze(type))
+      throw new JCAMPException("bad variable descriptor: \"" + type + "\"");
+  }
+  /**
+   * analyze type indicator, finds the first variable list of the form 
+   * <code>(X++(Y..Y))</code> (incremental) or otherwise <code>(XY..XY)</code> or <code>(XYW)</code>.
+   * 
+   * @return boolean false if no variable list was found
+   * @param type java.lang.String
+   */
+  private boolean analyze(String type) {
+    int n = type.length();
+    // (X++(Y..Y))
+    for (int i = type.indexOf('('); i >= 0; i = type.indexOf('(', i + 1)) {
+      int x0 = i + 1;
+      int x1 = symbolEnd(type, x0);
+      if (x1 == x0 || !type.startsWith("++(", x1))
+	continue;
+      int y0 = x1 + 3;
+      int y1 = symbolEnd(type, y0);
+      if (y1 == y0 || !type.startsWith("..", y1))
+	continue;
+      String y = type.substring(y0, y1);
+      int close = y1 + 2 + y.length();
+      if (!type.startsWith(y, y1 + 2) || !type.startsWith("))", close))
+	continue;
+      symbols = new String[] { type.substring(x0, x1), y };
       incremental = true;
-    } else if (listRE.match(type)) {
-      String varlist = listRE.getParen(1);
-      analyzeVarList(varlist);
+      return true;
+    }
+    // (XYW) or (XY..XY), at least two symbols
+    for (int i = type.indexOf('('); i >= 0; i = type.indexOf('(', i + 1)) {
+      int v0 = i + 1;
+      int v1 = v0;
+      int numSymbols = 0;
+      while (v1 < n) {
+	int e = symbolEnd(type, v1);
+	if (e == v1)
+	  break;
+	numSymbols++;
+	v1 = e;
+      }
+      if (numSymbols < 2)
+	continue;
+      int len = v1 - v0;
+      if (!(type.startsWith("..", v1) && type.regionMatches(v1 + 2, type, v0, len) && type.startsWith(")", v1 + 2 + len))
+	  && !type.startsWith(")", v1))
+	continue;
+      analyzeVarList(type.substring(v0, v1));
       incremental = false;
-    } else
-      throw new JCAMPException("bad variable descriptor: \"" + type + "\"");
+      return true;
+    }
+    return false;
+  }
+  /**
+   * gets end of a variable symbol (a letter followed by digits) starting at <code>start</code>.
+   * 
+   * @return int <code>start</code> if there is no symbol
+   */
+  private static int symbolEnd(String type, int start) {
+    int n = type.length();
+    if (start >= n || !Character.isLetter(type.charAt(start)))
+      return start;
+    int i = start + 1;
+    while (i < n && Character.isDigit(type.charAt(i)))
+      i++;
+    return i;
   }
   /**
    * parse variable names from list and store them into <code>symbols</code>
@@ -97,10 +118,10 @@ public class DataVariableInfo {
   private void analyzeVarList(String varlist) {
     Vector tmp = new Vector();
     int pos = 0;
-    while (varRE.match(varlist, pos)) {
-      String symbol = varlist.substring(varRE.getParenStart(0), varRE.getParenEnd(0));
-      tmp.addElement(symbol);
-      pos += varRE.getParenLength(0);
+    int end;
+    while ((end = symbolEnd(varlist, pos)) > pos) {
+      tmp.addElement(varlist.substring(pos, end));
+      pos = end;
     }
     symbols = new String[tmp.size()];
     for (int i = 0; i < symbols.length; i++)
@@ -15,6 +15,8 @@ public class DatatableTokenizer
   private final String[] varSymbols;
   private int pos;
   private int length;
+  // cursor for numeric XY and XYW tables, null if data is parsed from normalized string
+  private AFFNCursor cursor;
   
   /**
    * AFFNTokenizer constructor comment.
@@ -26,6 +28,14 @@ public class DatatableTokenizer
       this.varSymbols = symbols;
     else
       this.varSymbols = this.type.getSymbols();
+    if (isNumeric(type)) {
+      try {
+	this.cursor = new AFFNCursor(data, 0, data.length(), varSymbols.length, AFFNCursor.DATATABLE, false);
+	return;
+      } catch (JCAMPException e) {
+	// quoted strings or bad data, handled below
+      }
+    }
     this.data = normalizeData(varSymbols.length, data);
     this.length = this.data.length();
   }
@@ -40,6 +50,15 @@ public class DatatableTokenizer
       this.varSymbols = varInfo.getSymbols();
     else
       this.varSymbols = this.type.getSymbols();
+    if (isNumeric(type)) {
+      try {
+	// skips variable declaration
+	this.cursor = AFFNCursor.forDataRecord(ldr, varSymbols.length, AFFNCursor.DATATABLE);
+	return;
+      } catch (JCAMPException e) {
+	// quoted strings or bad data, handled below
+      }
+    }
     String ldrData = ldr.getContent();
     LineTokenizer lt = new LineTokenizer(ldrData);
     lt.nextLine(); // skip variable declaration
@@ -94,6 +113,13 @@ public class DatatableTokenizer
     }
     return dataType;
   }
+  /**
+   * checks if data of type contains numbers only.
+   * 
+   */
+  private static boolean isNumeric(DataType type) {
+    return DataType.XY.equals(type) || DataType.XYW.equals(type);
+  }
   /**
    * Insert the method's description here.
    * 
@@ -116,6 +142,8 @@ public class DatatableTokenizer
    * @return boolean
    */
   public boolean hasMoreGroups() {
+    if (cursor != null)
+      return cursor.hasMorePositions();
     if (pos < length)
       return true;
     return false;
@@ -126,6 +154,8 @@ public class DatatableTokenizer
    * @return double
    */
   private Double nextDouble(char delimiter) throws JCAMPException {
+    if (cursor != null)
+      return new Double(nextCursorDouble(delimiter));
     Double x = null;
     String s = nextString(delimiter);
     try {
@@ -135,6 +165,20 @@ public class DatatableTokenizer
     }
     return x;
   }
+  /**
+   * parse next double from cursor.
+   * 
+   * @return double
+   */
+  private double nextCursorDouble(char delimiter) throws JCAMPException {
+    if (!cursor.hasNext(delimiter))
+      throw new JCAMPException("missing data");
+    try {
+      return cursor.next(delimiter);
+    } catch (NumberFormatException e) {
+      throw new JCAMPException("bad number format");
+    }
+  }
   /**
    * gets next data group.
    * 
@@ -153,7 +197,7 @@ public class DatatableTokenizer
    * @return com.creon.chem.jcamp.DataGroup
    */
   public DataGroup nextGroup() throws JCAMPException {
-    if (pos >= length)
+    if (cursor != null ? !cursor.hasMorePositions() : pos >= length)
       throw new JCAMPException("parsed beyond end of data block");
     if (type.equals(DataType.XY))
       return nextXYGroup();
@@ -362,6 +406,50 @@ public class DatatableTokenizer
     w = nextDouble(';');
     return new DataGroup(x, y, w);
   }
+  /**
+   * reads all remaining data groups of numeric tables (XY or XYW) into primitive arrays,
+   * one per variable, without creating group objects.
+   * 
+   * @return double[][] values by variable index
+   * @throws JCAMPException on bad data or if table is not numeric
+   */
+  public double[][] readColumns() throws JCAMPException {
+    int n = varSymbols.length;
+    if (cursor != null) {
+      double[][] columns;
+      try {
+	columns = cursor.readColumns();
+      } catch (NumberFormatException e) {
+	throw new JCAMPException("bad number format");
+      }
+      if (hasMoreGroups())
+	nextGroup();
+      return columns;
+    }
+    if (!isNumeric(type))
+      throw new JCAMPException("data table is not numeric");
+    double[][] columns = new double[n][16];
+    int rows = 0;
+    while (hasMoreGroups()) {
+      DataGroup group = nextGroup();
+      if (rows == columns[0].length) {
+	for (int i = 0; i < n; i++) {
+	  double[] tmp = new double[rows * 2];
+	  System.arraycopy(columns[i], 0, tmp, 0, rows);
+	  columns[i] = tmp;
+	}
+      }
+      for (int i = 0; i < n; i++)
+	columns[i][rows] = ((Double) group.getValue(i)).doubleValue();
+      rows++;
+    }
+    for (int i = 0; i < n; i++) {
+      double[] tmp = new double[rows];
+      System.arraycopy(columns[i], 0, tmp, 0, rows);
+      columns[i] = tmp;
+    }
+    return columns;
+  }
   /**
    * normalize data block in standard form:
    * values are separated by ',', groups are separated by ';'
@@ -25,6 +25,8 @@ import org.jcamp.math.IArray1D;
 import org.jcamp.math.IArray2D;
 import org.jcamp.spectrum.ArrayData;
 import org.jcamp.spectrum.Assignment;
+import org.jcamp.spectrum.CompactArrayData;
+import org.jcamp.spectrum.DirectArrayData;
 import org.jcamp.spectrum.EquidistantData;
 import org.jcamp.spectrum.Fluorescence2DSpectrum;
 import org.jcamp.spectrum.FluorescenceSpectrum;
@@ -77,12 +79,12 @@ public class FluorescenceJCAMPReader
       if (intensities.length != nPoints)
 	throw new JCAMPException("incorrect ##NPOINTS= or bad ##XYDATA=");
       IOrderedDataArray1D x = new EquidistantData(firstX, lastX, nPoints, xUnit);
-      IDataArray1D y = new ArrayData(intensities, yUnit);
+      IDataArray1D y = createYData(block, intensities, yFactor, yUnit);
       spectrum = new FluorescenceSpectrum(x, y, true);
     } else if (block.getDataRecord("XYPOINTS") != null) {
       double xy[][] = getXYPoints(block, nPoints, xFactor, yFactor);
       IOrderedDataArray1D x = new OrderedArrayData(xy[0], xUnit);
-      IDataArray1D y = new ArrayData(xy[1], yUnit);
+      IDataArray1D y = createYData(block, xy[1], yFactor, yUnit);
       spectrum = new FluorescenceSpectrum(x, y, false);
     } else
       throw new JCAMPException("missing data: ##XYDATA= or ##XYPOINTS= required.");
@@ -178,18 +180,25 @@ public class FluorescenceJCAMPReader
 
     IOrderedDataArray1D x;
     IOrderedDataArray1D y;
-    double[] intensities;
+    double[] intensities = null;
+    // off-heap storage: pages are copied directly into the direct buffers
+    DirectArrayData direct = null;
+    // pages are decoded in parallel if the block has an executor
+    IArray2D[] pageData = ntuple.getXYData();
     if (excitationIsX) {
       x = new EquidistantData(xFirst, xLast, xDim, excitationUnit);
       x.setLabel("Excitation [" + excitationUnit + "]");
       y = new EquidistantData(mFirst, mLast, mDim, emissionUnit);
       y.setLabel("Emission [" + emissionUnit + "]");
-      intensities = new double[x.getLength() * y.getLength()];
+      if (block.getStorage() == CompactArrayData.STORAGE_DIRECT)
+	direct = new DirectArrayData((long) x.getLength() * y.getLength(), intensityUnit);
+      else
+	intensities = new double[x.getLength() * y.getLength()];
       if (nPages != emissionDim.intValue())
     	  block.getErrorHandler().warn("number of pages != emission dimension, possible missing values");
       for (int i = 0; i < nPages; i++) {
 	JCAMPNTuplePage page = block.getNTuple().getPage(i);
-	IArray2D data = page.getXYData();
+	IArray2D data = pageData[i];
 	String emissionStr = page.getPageVariableValue(vars[emissionIndex].getSymbol());
 	int index;
 	if (emissionStr == null) {
@@ -201,20 +210,27 @@ public class FluorescenceJCAMPReader
 	  index *= x.getLength();
 	}
 	IArray1D iArr = data.getYArray();
-	for (int j = 0; j < x.getLength(); j++)
-	  intensities[index + j] = iArr.pointAt(j);
+	if (direct != null) {
+	  direct.setPointsAt(index, iArr, x.getLength());
+	} else {
+	  for (int j = 0; j < x.getLength(); j++)
+	    intensities[index + j] = iArr.pointAt(j);
+	}
       }
     } else {
       x = new EquidistantData(mFirst, mLast, mDim, emissionUnit);
       x.setLabel("Emission [" + emissionUnit + "]");
       y = new EquidistantData(xFirst, xLast, xDim, excitationUnit);
       y.setLabel("Excitation [" + excitationUnit + "]");
-      intensities = new double[x.getLength() * y.getLength()];
+      if (block.getStorage() == CompactArrayData.STORAGE_DIRECT)
+	direct = new DirectArrayData((long) x.getLength() * y.getLength(), intensityUnit);
+      else
+	intensities = new double[x.getLength() * y.getLength()];
       if (nPages != excitationDim.intValue())
     	  block.getErrorHandler().warn("number of pages != excitation dimension, possible missing values");
       for (int i = 0; i < nPages; i++) {
 	JCAMPNTuplePage page = block.getNTuple().getPage(i);
-	IArray2D data = page.getXYData();
+	IArray2D data = pageData[i];
 	int index;
 	String excitationStr = page.getPageVariableValue(vars[excitationIndex].getSymbol());
 	if (excitationStr == null) {
@@ -226,11 +242,21 @@ public class FluorescenceJCAMPReader
 	  index *= x.getLength();
 	}
 	IArray1D iArr = data.getYArray();
-	for (int j = 0; j < x.getLength(); j++)
-	  intensities[index + j] = iArr.pointAt(j);
+	if (direct != null) {
+	  direct.setPointsAt(index, iArr, x.getLength());
+	} else {
+	  for (int j = 0; j < x.getLength(); j++)
+	    intensities[index + j] = iArr.pointAt(j);
+	}
       }
     }
-    spectrum = new Fluorescence2DSpectrum(x, y, new ArrayData(intensities, intensityUnit));
+    IDataArray1D z;
+    if (direct != null) {
+      direct.calcRange();
+      z = direct;
+    } else
+      z = new ArrayData(intensities, intensityUnit);
+    spectrum = new Fluorescence2DSpectrum(x, y, z);
 
     setNotes(block, spectrum);
     return spectrum;
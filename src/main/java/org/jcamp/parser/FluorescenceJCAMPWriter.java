@@ -1,5 +1,6 @@
 package org.jcamp.parser;
 
+import java.io.IOException;
 import java.util.Iterator;
 
 import org.jcamp.spectrum.Assignment;
@@ -18,7 +19,7 @@ import org.jcamp.units.Unit;
  * @author Thomas Weber
  */
 public class FluorescenceJCAMPWriter
-  implements ISpectrumJCAMPWriter {
+  implements ISpectrumJCAMPStreamWriter {
   
   private final static String CRLF = "\r\n";
 
@@ -30,14 +31,13 @@ public class FluorescenceJCAMPWriter
   }
 
   /**
-   * build assignment table
+   * write assignment table
    * 
-   * @return java.lang.String
    * @param block int  block number (0: no xref, main block)
    * @param uv FluorescenceSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildAssignmentTable(int block, FluorescenceSpectrum fl) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writeAssignmentTable(int block, FluorescenceSpectrum fl, JCAMPOutput jcamp) throws IOException {
     Assignment[] assigns = fl.getAssignments();
     String title = fl.getTitle();
     int n = assigns.length;
@@ -59,17 +59,15 @@ public class FluorescenceJCAMPWriter
 	  CRLF);
     }
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
 
   /**
-   * build full spectrum data block.
+   * write full spectrum data block.
    * 
-   * @return java.lang.String
    * @param uv FluorescenceSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildFSData(int block, FluorescenceSpectrum fl) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writeFSData(int block, FluorescenceSpectrum fl, JCAMPOutput jcamp) throws IOException {
     int n = fl.getXData().getLength();
     double x0 = fl.getXData().pointAt(0);
     double x1 = fl.getXData().pointAt(n - 1);
@@ -98,19 +96,17 @@ public class FluorescenceJCAMPWriter
     jcamp.append("##LASTY=").append(y1).append(CRLF);
     jcamp.append("##YFACTOR=").append(yf).append(CRLF);
     jcamp.append("##XYDATA=(X++(Y..Y))").append(CRLF);
-    jcamp.append(ASDFEncoder.encode(Math.round(x0 * xf), Math.round(x1 * xf), y));
+    ASDFEncoder.encode(Math.round(x0 * xf), Math.round(x1 * xf), y, jcamp);
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
 
   /**
-   * build a peak table.
+   * write a peak table.
    * 
-   * @return java.lang.String
    * @param uv FluorescenceSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildPeakTable(int block, FluorescenceSpectrum fl) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writePeakTable(int block, FluorescenceSpectrum fl, JCAMPOutput jcamp) throws IOException {
     String title = fl.getTitle();
     jcamp.append("##TITLE=").append(title != null ? title : "").append(CRLF);
     jcamp.append("##JCAMP-DX=4.24").append(CRLF);
@@ -145,7 +141,6 @@ public class FluorescenceJCAMPWriter
       }
     }
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
 
   /**
@@ -217,11 +212,11 @@ public class FluorescenceJCAMPWriter
   /**
    * writes spectrum as compound JCAMP.
    */
-  public String toJCAMP(Spectrum spectrum) throws JCAMPException {
+  public void write(Spectrum spectrum, Appendable out) throws JCAMPException, IOException {
     if (!(spectrum instanceof FluorescenceSpectrum))
       throw new JCAMPException("JCAMP adapter missmatch");
     FluorescenceSpectrum uv = (FluorescenceSpectrum) spectrum;
-    StringBuilder jcamp = new StringBuilder();
+    JCAMPOutput jcamp = JCAMPOutput.wrap(out);
     String title = uv.getTitle();
     // main data
     int nDataBlocks = 1;
@@ -241,46 +236,56 @@ public class FluorescenceJCAMPWriter
       linked = true;
     }
     if (uv.isFullSpectrum()) {
-      jcamp.append(buildFSData(linked ? block : 0, uv));
+      writeFSData(linked ? block : 0, uv, jcamp);
       block++;
       if (uv.hasAssignments()) {
-	jcamp.append(buildAssignmentTable(linked ? block : 0, uv));
+	writeAssignmentTable(linked ? block : 0, uv, jcamp);
 	block++;
       }
       if (uv.hasPeakTable()) {
-	jcamp.append(buildPeakTable(linked ? block : 0, uv));
+	writePeakTable(linked ? block : 0, uv, jcamp);
 	block++;
       }
     } else { // peak spectrum
-      jcamp.append(buildPeakTable(linked ? block : 0, uv));
+      writePeakTable(linked ? block : 0, uv, jcamp);
     block++;
     if (uv.hasAssignments()) {
-      jcamp.append(buildAssignmentTable(linked ? block : 0, uv));
+      writeAssignmentTable(linked ? block : 0, uv, jcamp);
       block++;
     }
     }
     if (linked)
       jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
 
   /**
    * writes spectrum as simple JCAMP.
    */
-  public String toSimpleJCAMP(Spectrum spectrum) throws JCAMPException {
+  public void writeSimple(Spectrum spectrum, Appendable out) throws JCAMPException, IOException {
     if (!(spectrum instanceof FluorescenceSpectrum))
       throw new JCAMPException("JCAMP adapter missmatch");
     FluorescenceSpectrum uv = (FluorescenceSpectrum) spectrum;
-    StringBuilder jcamp = new StringBuilder();
+    JCAMPOutput jcamp = JCAMPOutput.wrap(out);
     if (uv.isFullSpectrum()) {
-      jcamp.append(buildFSData(0, uv));
+      writeFSData(0, uv, jcamp);
     } else { // peak spectrum
       if (uv.hasAssignments()) {
-	jcamp.append(buildAssignmentTable(0, uv));
+	writeAssignmentTable(0, uv, jcamp);
       } else {
-	jcamp.append(buildPeakTable(0, uv));
+	writePeakTable(0, uv, jcamp);
       }
     }
-    return jcamp.toString();
   }
-}
\ No newline at end of file
+  /**
+   * writes spectrum as compound JCAMP.
+   */
+  public String toJCAMP(Spectrum spectrum) throws JCAMPException {
+    return JCAMPOutput.toString(this, spectrum, false);
+  }
+  /**
+   * writes spectrum as simple JCAMP.
+   */
+  public String toSimpleJCAMP(Spectrum spectrum) throws JCAMPException {
+    return JCAMPOutput.toString(this, spectrum, true);
+  }
+}
@@ -0,0 +1,33 @@
+package org.jcamp.parser;
+
+import java.nio.file.Path;
+
+import org.jcamp.spectrum.Spectrum;
+
+/**
+ * receives the results of a JCAMPBatchReader.
+ * methods are called from the worker threads, implementations must be thread-safe.
+ */
+public interface IBatchListener {
+  /**
+   * called for each file parsed successfully.
+   *
+   * @param file JCAMP-DX file
+   * @param spectrum Spectrum
+   */
+  void spectrumRead(Path file, Spectrum spectrum);
+  /**
+   * called for each file that cannot be read or parsed.
+   *
+   * @param file JCAMP-DX file
+   * @param e IOException, JCAMPException or unchecked exception thrown while parsing
+   */
+  void readFailed(Path file, Exception e);
+  /**
+   * called for each warning while parsing a file.
+   *
+   * @param file JCAMP-DX file
+   * @param msg java.lang.String
+   */
+  void warn(Path file, String msg);
+}
@@ -0,0 +1,18 @@
+package org.jcamp.parser;
+
+import org.jcamp.math.IArray2D;
+
+/**
+ * receives the decoded pages of a NTUPLE, see {@link JCAMPNTuple#decodePages(java.util.concurrent.ExecutorService, INTuplePageHandler)}.
+ * pages decoded in parallel are passed from several threads, each page once.
+ */
+public interface INTuplePageHandler {
+  /**
+   * called for each decoded page. the page data is not kept by the NTUPLE.
+   *
+   * @param index int page index
+   * @param data IArray2D decoded page
+   * @throws JCAMPException to stop decoding
+   */
+  void pageDecoded(int index, IArray2D data) throws JCAMPException;
+}
@@ -1,6 +1,5 @@
 package org.jcamp.parser;
 
-import org.jcamp.spectrum.ArrayData;
 import org.jcamp.spectrum.Assignment;
 import org.jcamp.spectrum.EquidistantData;
 import org.jcamp.spectrum.IDataArray1D;
@@ -70,12 +69,12 @@ public class IRJCAMPReader
       if (intensities.length != nPoints)
 	throw new JCAMPException("incorrect ##NPOINTS= or bad ##XYDATA=");
       IOrderedDataArray1D x = new EquidistantData(firstX, lastX, nPoints, xUnit);
-      IDataArray1D y = new ArrayData(intensities, yUnit);
+      IDataArray1D y = createYData(block, intensities, yFactor, yUnit);
       spectrum = new IRSpectrum(x, y, true);
     } else if (block.getDataRecord("XYPOINTS") != null) {
       double xy[][] = getXYPoints(block, nPoints, xFactor, yFactor);
       IOrderedDataArray1D x = new OrderedArrayData(xy[0], xUnit);
-      IDataArray1D y = new ArrayData(xy[1], yUnit);
+      IDataArray1D y = createYData(block, xy[1], yFactor, yUnit);
       spectrum = new IRSpectrum(x, y, false);
     } else
       throw new JCAMPException("missing data: ##XYDATA= or ##XYPOINTS= required.");
@@ -112,7 +111,7 @@ public class IRJCAMPReader
     }
     double[][] xy = peakTableToPeakSpectrum(peaks);
     IOrderedDataArray1D x = new OrderedArrayData(xy[0], xUnit);
-    IDataArray1D y = new ArrayData(xy[1], yUnit);
+    IDataArray1D y = createYData(block, xy[1], yFactor, yUnit);
     spectrum = new IRSpectrum(x, y, false);
     spectrum.setPeakTable(peaks);
     if (tables.length > 1) {
@@ -1,5 +1,6 @@
 package org.jcamp.parser;
 
+import java.io.IOException;
 import java.util.Iterator;
 
 import org.jcamp.spectrum.Assignment;
@@ -18,7 +19,7 @@ import org.jcamp.units.Unit;
  */
 public class IRJCAMPWriter
   extends CommonSpectrumJCAMPWriter
-  implements ISpectrumJCAMPWriter {
+  implements ISpectrumJCAMPStreamWriter {
   
   private final static String CRLF = "\r\n";
   
@@ -29,14 +30,13 @@ public class IRJCAMPWriter
     super();
   }
   /**
-   * build assignment table
+   * write assignment table
    * 
-   * @return java.lang.String
    * @param block int  block number (0: no xref, main block)
    * @param ir IRSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildAssignmentTable(int block, IRSpectrum ir) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writeAssignmentTable(int block, IRSpectrum ir, JCAMPOutput jcamp) throws IOException {
     Assignment[] assigns = ir.getAssignments();
     String title = ir.getTitle();
     int n = assigns.length;
@@ -58,16 +58,14 @@ public class IRJCAMPWriter
 	  CRLF);
     }
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
-   * build full spectrum data block.
+   * write full spectrum data block.
    * 
-   * @return java.lang.String
    * @param ir IRSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildFSData(int block, IRSpectrum ir) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writeFSData(int block, IRSpectrum ir, JCAMPOutput jcamp) throws IOException {
     int n = ir.getXData().getLength();
     double x0 = ir.getXData().pointAt(0);
     double x1 = ir.getXData().pointAt(n - 1);
@@ -96,18 +94,16 @@ public class IRJCAMPWriter
     jcamp.append("##LASTY=").append(y1).append(CRLF);
     jcamp.append("##YFACTOR=").append(yf).append(CRLF);
     jcamp.append("##XYDATA=(X++(Y..Y))").append(CRLF);
-    jcamp.append(ASDFEncoder.encode(Math.round(x0 * xf), Math.round(x1 * xf), y));
+    ASDFEncoder.encode(Math.round(x0 * xf), Math.round(x1 * xf), y, jcamp);
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
-   * build a peak table.
+   * write a peak table.
    * 
-   * @return java.lang.String
    * @param ir IRSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildPeakTable(int block, IRSpectrum ir) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writePeakTable(int block, IRSpectrum ir, JCAMPOutput jcamp) throws IOException {
     String title = ir.getTitle();
     jcamp.append("##TITLE=").append(title != null ? title : "").append(CRLF);
     jcamp.append("##JCAMP-DX=4.24").append(CRLF);
@@ -142,7 +138,6 @@ public class IRJCAMPWriter
       }
     }
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
    * gets spectrum notes in JCAMP form.
@@ -211,11 +206,11 @@ public class IRJCAMPWriter
   /**
    * writes spectrum as compound JCAMP.
    */
-  public String toJCAMP(Spectrum spectrum) throws JCAMPException {
+  public void write(Spectrum spectrum, Appendable out) throws JCAMPException, IOException {
     if (!(spectrum instanceof IRSpectrum))
       throw new JCAMPException("JCAMP adapter missmatch");
     IRSpectrum ir = (IRSpectrum) spectrum;
-    StringBuilder jcamp = new StringBuilder();
+    JCAMPOutput jcamp = JCAMPOutput.wrap(out);
     String title = ir.getTitle();
     // main data
     int nDataBlocks = 1;
@@ -236,45 +231,55 @@ public class IRJCAMPWriter
       linked = true;
     }
     if (ir.isFullSpectrum()) {
-      jcamp.append(buildFSData(linked ? block : 0, ir));
+      writeFSData(linked ? block : 0, ir, jcamp);
       block++;
       if (ir.hasAssignments()) {
-	jcamp.append(buildAssignmentTable(linked ? block : 0, ir));
+	writeAssignmentTable(linked ? block : 0, ir, jcamp);
 	block++;
       }
       if (ir.hasPeakTable()) {
-	jcamp.append(buildPeakTable(linked ? block : 0, ir));
+	writePeakTable(linked ? block : 0, ir, jcamp);
 	block++;
       }
     } else { // peak spectrum
-      jcamp.append(buildPeakTable(linked ? block : 0, ir));
+      writePeakTable(linked ? block : 0, ir, jcamp);
     block++;
     if (ir.hasAssignments()) {
-      jcamp.append(buildAssignmentTable(linked ? block : 0, ir));
+      writeAssignmentTable(linked ? block : 0, ir, jcamp);
       block++;
     }
     }
     if (linked)
       jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
    * writes spectrum as simple JCAMP 
    */
-  public String toSimpleJCAMP(Spectrum spectrum) throws JCAMPException {
+  public void writeSimple(Spectrum spectrum, Appendable out) throws JCAMPException, IOException {
     if (!(spectrum instanceof IRSpectrum))
       throw new JCAMPException("JCAMP adapter missmatch");
     IRSpectrum ir = (IRSpectrum) spectrum;
-    StringBuilder jcamp = new StringBuilder();
+    JCAMPOutput jcamp = JCAMPOutput.wrap(out);
     // main data
     if (ir.isFullSpectrum()) {
-      jcamp.append(buildFSData(0, ir));
+      writeFSData(0, ir, jcamp);
     } else { // peak spectrum
       if (ir.hasAssignments()) {
-	jcamp.append(buildAssignmentTable(0, ir));
+	writeAssignmentTable(0, ir, jcamp);
       } else
-	jcamp.append(buildPeakTable(0, ir));
+	writePeakTable(0, ir, jcamp);
     }
-    return jcamp.toString();
+  }
+  /**
+   * writes spectrum as compound JCAMP.
+   */
+  public String toJCAMP(Spectrum spectrum) throws JCAMPException {
+    return JCAMPOutput.toString(this, spectrum, false);
+  }
+  /**
+   * writes spectrum as simple JCAMP.
+   */
+  public String toSimpleJCAMP(Spectrum spectrum) throws JCAMPException {
+    return JCAMPOutput.toString(this, spectrum, true);
   }
 }
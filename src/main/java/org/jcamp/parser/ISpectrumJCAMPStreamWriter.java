@@ -0,0 +1,31 @@
+package org.jcamp.parser;
+
+import java.io.IOException;
+
+import org.jcamp.spectrum.Spectrum;
+
+/**
+ * writer for spectrums as JCAMP that appends the JCAMP text to a target,
+ * without building the whole JCAMP string first.
+ */
+public interface ISpectrumJCAMPStreamWriter
+  extends ISpectrumJCAMPWriter {
+  /**
+   * writes spectrum as compound JCAMP.
+   *
+   * @param spectrum Spectrum
+   * @param out target, e.g. a Writer or StringBuilder
+   * @throws JCAMPException if the spectrum cannot be written
+   * @throws IOException if the target fails
+   */
+  void write(Spectrum spectrum, Appendable out) throws JCAMPException, IOException;
+  /**
+   * writes spectrum as simple JCAMP.
+   *
+   * @param spectrum Spectrum
+   * @param out target, e.g. a Writer or StringBuilder
+   * @throws JCAMPException if the spectrum cannot be written
+   * @throws IOException if the target fails
+   */
+  void writeSimple(Spectrum spectrum, Appendable out) throws JCAMPException, IOException;
+}
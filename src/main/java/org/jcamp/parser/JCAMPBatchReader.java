@@ -0,0 +1,390 @@
+package org.jcamp.parser;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jcamp.spectrum.Spectrum;
+import org.jcamp.spectrum.Spectrum1D;
+import org.jcamp.spectrum.Spectrum2D;
+
+/**
+ * parses many JCAMP-DX files with a pool of worker threads.
+ *
+ * files are submitted to the executor while at most <code>maxPending</code> files
+ * are queued or being parsed, the submitting thread blocks otherwise.
+ * each file is parsed with its own error handler, which reports warnings to the
+ * listener and delegates to the error handler of the reader. errors of one file are
+ * reported by {@link IBatchListener#readFailed(Path, Exception)} and do not stop the batch.
+ * a stack overflow while parsing a file is reported as JCAMPException. other errors
+ * of the parser, e.g. out of memory, count the file as failed and, like exceptions of the
+ * listener, are rethrown when all files have been parsed.
+ *
+ * any ExecutorService can be used, e.g. a fixed thread pool or, with Java 21,
+ * <code>Executors.newVirtualThreadPerTaskExecutor()</code>. the executor is not shut down
+ * by the batch reader. without executor the files are parsed in the calling thread.
+ */
+public class JCAMPBatchReader {
+
+  /** default for the maximum number of pending files per processor */
+  public final static int DEFAULT_PENDING_PER_PROCESSOR = 4;
+
+  private final JCAMPReader reader;
+
+  private final ExecutorService executor;
+
+  private final int maxPending;
+
+  private final AtomicLong filesRead = new AtomicLong();
+
+  private final AtomicLong filesFailed = new AtomicLong();
+
+  private final AtomicLong bytesRead = new AtomicLong();
+
+  private final AtomicLong pointsRead = new AtomicLong();
+
+  private final AtomicLong elapsedNanos = new AtomicLong();
+
+  /**
+   * JCAMPBatchReader constructor.
+   *
+   * @param reader JCAMPReader used for all files
+   * @param executor ExecutorService of the workers or null
+   */
+  public JCAMPBatchReader(JCAMPReader reader, ExecutorService executor) {
+    this(reader, executor, DEFAULT_PENDING_PER_PROCESSOR * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * JCAMPBatchReader constructor.
+   *
+   * @param reader JCAMPReader used for all files
+   * @param executor ExecutorService of the workers or null
+   * @param maxPending maximum number of files queued or being parsed
+   */
+  public JCAMPBatchReader(JCAMPReader reader, ExecutorService executor, int maxPending) {
+    super();
+    if (maxPending < 1)
+      throw new IllegalArgumentException("maxPending < 1");
+    this.reader = reader;
+    this.executor = executor;
+    this.maxPending = maxPending;
+  }
+
+  /**
+   * parses all files, returns after the listener has been called for each file.
+   *
+   * @param files Iterable of java.nio.file.Path
+   * @param listener IBatchListener
+   * @throws InterruptedException if interrupted while waiting for the workers
+   */
+  public void read(Iterable<Path> files, IBatchListener listener) throws InterruptedException {
+    Batch batch = new Batch(listener);
+    try {
+      for (Iterator<Path> it = files.iterator(); it.hasNext();)
+	batch.submit(it.next());
+    } finally {
+      batch.finish();
+    }
+  }
+
+  /**
+   * parses all files within directory <code>dir</code> and its subdirectories whose name matches
+   * the glob pattern <code>glob</code>, e.g. <code>*.{jdx,dx}</code>.
+   * files are submitted while the directory tree is walked. files and directories
+   * that cannot be accessed are reported by {@link IBatchListener#readFailed(Path, Exception)}.
+   *
+   * @param dir java.nio.file.Path
+   * @param glob file name pattern, see {@link java.nio.file.FileSystem#getPathMatcher(String)}
+   * @param listener IBatchListener
+   * @throws IOException if the directory tree cannot be walked
+   * @throws InterruptedException if interrupted while waiting for the workers
+   */
+  public void readDirectory(Path dir, String glob, IBatchListener listener) throws IOException, InterruptedException {
+    final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+    final Batch batch = new Batch(listener);
+    try {
+      Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+	@Override
+	public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+	  if (!attrs.isRegularFile() || !matcher.matches(file.getFileName()))
+	    return FileVisitResult.CONTINUE;
+	  try {
+	    batch.submit(file);
+	  } catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    return FileVisitResult.TERMINATE;
+	  }
+	  return FileVisitResult.CONTINUE;
+	}
+
+	@Override
+	public FileVisitResult visitFileFailed(Path file, IOException e) {
+	  filesFailed.incrementAndGet();
+	  batch.notifyFailed(file, e);
+	  return FileVisitResult.CONTINUE;
+	}
+
+	@Override
+	public FileVisitResult postVisitDirectory(Path subdir, IOException e) {
+	  // directory could not be listed completely
+	  if (e != null) {
+	    filesFailed.incrementAndGet();
+	    batch.notifyFailed(subdir, e);
+	  }
+	  return FileVisitResult.CONTINUE;
+	}
+      });
+    } finally {
+      batch.finish();
+    }
+  }
+
+  /**
+   * gets number of files parsed successfully.
+   *
+   * @return long
+   */
+  public long getFilesRead() {
+    return filesRead.get();
+  }
+
+  /**
+   * gets number of files that failed.
+   *
+   * @return long
+   */
+  public long getFilesFailed() {
+    return filesFailed.get();
+  }
+
+  /**
+   * gets size of all files parsed successfully.
+   *
+   * @return long number of bytes
+   */
+  public long getBytesRead() {
+    return bytesRead.get();
+  }
+
+  /**
+   * gets number of data points of all spectra read.
+   * for 1D spectra the x dimension is counted, for 2D spectra the number of z values.
+   *
+   * @return long
+   */
+  public long getPointsRead() {
+    return pointsRead.get();
+  }
+
+  /**
+   * gets time spent in <code>read</code> and <code>readDirectory</code>.
+   *
+   * @return long nanoseconds
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos.get();
+  }
+
+  /**
+   * gets files per second parsed successfully.
+   *
+   * @return double
+   */
+  public double getFilesPerSecond() {
+    return perSecond(filesRead.get());
+  }
+
+  /**
+   * gets megabytes (2^20 bytes) per second parsed successfully.
+   *
+   * @return double
+   */
+  public double getMegabytesPerSecond() {
+    return perSecond(bytesRead.get()) / (1024.0 * 1024.0);
+  }
+
+  /**
+   * gets data points per second.
+   *
+   * @return double
+   */
+  public double getPointsPerSecond() {
+    return perSecond(pointsRead.get());
+  }
+
+  /**
+   * resets all counters.
+   */
+  public void resetStatistics() {
+    filesRead.set(0);
+    filesFailed.set(0);
+    bytesRead.set(0);
+    pointsRead.set(0);
+    elapsedNanos.set(0);
+  }
+
+  private double perSecond(long count) {
+    long nanos = elapsedNanos.get();
+    if (nanos <= 0)
+      return 0.0;
+    return count * 1e9 / nanos;
+  }
+
+  /**
+   * gets number of data points of a spectrum.
+   *
+   * @return long
+   */
+  private static long countPoints(Spectrum spectrum) {
+    if (spectrum instanceof Spectrum1D)
+      return ((Spectrum1D) spectrum).getXData().getLength();
+    if (spectrum instanceof Spectrum2D)
+      return ((Spectrum2D) spectrum).getZData().getLength();
+    return 0;
+  }
+
+  /**
+   * state of a single <code>read</code> call.
+   */
+  private class Batch {
+    private final IBatchListener listener;
+
+    private final Semaphore pending = new Semaphore(maxPending);
+
+    // first exception thrown by the listener or error of the parser, rethrown when the batch is finished
+    private final AtomicReference batchError = new AtomicReference();
+
+    private final long start = System.nanoTime();
+
+    Batch(IBatchListener listener) {
+      this.listener = listener;
+    }
+
+    void submit(final Path file) throws InterruptedException {
+      if (executor == null) {
+	parse(file);
+	return;
+      }
+      pending.acquire();
+      try {
+	executor.execute(new Runnable() {
+	  public void run() {
+	    try {
+	      parse(file);
+	    } finally {
+	      pending.release();
+	    }
+	  }
+	});
+      } catch (RejectedExecutionException e) {
+	pending.release();
+	throw e;
+      }
+    }
+
+    void parse(Path file) {
+      Spectrum spectrum;
+      long size;
+      try {
+	size = Files.size(file);
+	JCAMPReader fileReader = reader.withErrorHandler(new FileErrorHandler(file, reader.getErrorHandler(), listener));
+	spectrum = fileReader.createSpectrum(file);
+      } catch (Exception e) {
+	filesFailed.incrementAndGet();
+	notifyFailed(file, e);
+	return;
+      } catch (StackOverflowError e) {
+	// deeply nested input, the thread is still usable
+	filesFailed.incrementAndGet();
+	notifyFailed(file, new JCAMPException("stack overflow while parsing " + file));
+	return;
+      } catch (Error e) {
+	filesFailed.incrementAndGet();
+	batchError.compareAndSet(null, e);
+	return;
+      }
+      filesRead.incrementAndGet();
+      bytesRead.addAndGet(size);
+      pointsRead.addAndGet(countPoints(spectrum));
+      try {
+	listener.spectrumRead(file, spectrum);
+      } catch (RuntimeException e) {
+	batchError.compareAndSet(null, e);
+      } catch (Error e) {
+	batchError.compareAndSet(null, e);
+      }
+    }
+
+    private void notifyFailed(Path file, Exception e) {
+      try {
+	listener.readFailed(file, e);
+      } catch (RuntimeException ex) {
+	batchError.compareAndSet(null, ex);
+      } catch (Error ex) {
+	batchError.compareAndSet(null, ex);
+      }
+    }
+
+    /**
+     * waits for all workers of this batch.
+     */
+    void finish() throws InterruptedException {
+      try {
+	if (executor != null) {
+	  pending.acquire(maxPending);
+	  pending.release(maxPending);
+	}
+      } finally {
+	elapsedNanos.addAndGet(System.nanoTime() - start);
+      }
+      Throwable t = (Throwable) batchError.get();
+      if (t instanceof RuntimeException)
+	throw (RuntimeException) t;
+      if (t instanceof Error)
+	throw (Error) t;
+    }
+  }
+
+  /**
+   * error handler of a single file, reports warnings to the listener.
+   */
+  private static class FileErrorHandler
+    implements IErrorHandler {
+    private final Path file;
+
+    private final IErrorHandler handler;
+
+    private final IBatchListener listener;
+
+    FileErrorHandler(Path file, IErrorHandler handler, IBatchListener listener) {
+      this.file = file;
+      this.handler = handler;
+      this.listener = listener;
+    }
+
+    public void error(String msg) throws JCAMPException {
+      handler.error(msg);
+    }
+
+    public void fatal(String msg) throws JCAMPException {
+      handler.fatal(msg);
+    }
+
+    public void warn(String msg) throws JCAMPException {
+      listener.warn(file, msg);
+      handler.warn(msg);
+    }
+  }
+}
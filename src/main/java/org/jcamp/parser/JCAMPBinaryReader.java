@@ -0,0 +1,539 @@
+package org.jcamp.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.jcamp.math.IArray1D;
+import org.jcamp.math.LinearGrid1D;
+import org.jcamp.math.Range1D;
+import org.jcamp.spectrum.Chromatogram;
+import org.jcamp.spectrum.CompactArrayData;
+import org.jcamp.spectrum.DirectArrayData;
+import org.jcamp.spectrum.EquidistantData;
+import org.jcamp.spectrum.Fluorescence2DSpectrum;
+import org.jcamp.spectrum.FluorescenceSpectrum;
+import org.jcamp.spectrum.IDataArray1D;
+import org.jcamp.spectrum.IOrderedDataArray1D;
+import org.jcamp.spectrum.IRSpectrum;
+import org.jcamp.spectrum.MassSpectrum;
+import org.jcamp.spectrum.NMRSpectrum;
+import org.jcamp.spectrum.OrderedArrayData;
+import org.jcamp.spectrum.Peak1D;
+import org.jcamp.spectrum.RamanSpectrum;
+import org.jcamp.spectrum.Spectrum;
+import org.jcamp.spectrum.Spectrum1D;
+import org.jcamp.spectrum.Spectrum2D;
+import org.jcamp.spectrum.UVSpectrum;
+import org.jcamp.spectrum.notes.BadContentException;
+import org.jcamp.spectrum.notes.NoteDescriptor;
+import org.jcamp.units.CommonUnit;
+import org.jcamp.units.Unit;
+
+/**
+ * reader for spectra in the binary sidecar format written by {@link JCAMPBinaryWriter},
+ * usually stored as <code>.jdxb</code> file next to the JCAMP-DX file.
+ *
+ * the file is memory mapped, the data columns are copied into the data arrays
+ * without parsing. all numbers are little-endian:
+ * <pre>
+ * int    magic 'JDXB'
+ * int    format version
+ * int    spectrum type
+ * int    flags, 1 for full spectrum, 2 if parsed by a validating reader
+ * long   offset of the data columns, a multiple of 8
+ * string mode of the reader that parsed the JCAMP-DX file, null if unknown
+ * ...    NMR only: nucleus, frequency, reference, mode, solvent, solvent reference
+ * int    number of notes, each with key, name, flags (unique, predefined), value tag and value
+ * int    number of data arrays (x, y and for 2D spectra z), each with kind,
+ *        unit identifier, label, length, full view range, range of the array,
+ *        factor of scaled values or NaN, equidistant arrays with start, end and step
+ * int    number of peaks or -1, each with two positions, height and range
+ * double data columns of the arrays not equidistant, in order
+ * </pre>
+ * strings are stored as int length of the UTF-8 bytes, -1 for null, followed by the bytes.
+ * pattern tables and assignments are not stored.
+ */
+public class JCAMPBinaryReader {
+
+  /** file name extension of sidecar files */
+  public final static String EXTENSION = ".jdxb";
+
+  final static int MAGIC = 'J' | 'D' << 8 | 'X' << 16 | 'B' << 24;
+
+  final static int VERSION = 3;
+
+  final static int HEADER_SIZE = 24;
+
+  final static int FLAG_FULL_SPECTRUM = 1;
+
+  final static int FLAG_VALIDATING = 2;
+
+  final static byte NOTE_UNIQUE = 1;
+
+  final static byte NOTE_PREDEFINED = 2;
+
+  final static int TYPE_IR = 1;
+
+  final static int TYPE_UV = 2;
+
+  final static int TYPE_RAMAN = 3;
+
+  final static int TYPE_FLUORESCENCE = 4;
+
+  final static int TYPE_MS = 5;
+
+  final static int TYPE_NMR = 6;
+
+  final static int TYPE_CHROMATOGRAM = 7;
+
+  final static int TYPE_FLUORESCENCE_2D = 8;
+
+  final static byte ARRAY_COLUMN = 0;
+
+  final static byte ARRAY_EQUIDISTANT = 1;
+
+  final static byte VALUE_STRING = 'S';
+
+  final static byte VALUE_DOUBLE = 'D';
+
+  final static byte VALUE_INTEGER = 'I';
+
+  final static byte VALUE_PARSED = 'P';
+
+  private final static JCAMPBinaryReader theInstance = new JCAMPBinaryReader();
+
+  /**
+   * JCAMPBinaryReader constructor.
+   */
+  private JCAMPBinaryReader() {
+    super();
+  }
+
+  /**
+   * gets the reader instance.
+   *
+   * @return JCAMPBinaryReader
+   */
+  public static JCAMPBinaryReader getInstance() {
+    return theInstance;
+  }
+
+  /**
+   * gets spectrum type of the binary format, -1 if the spectrum class is not supported.
+   * only the classes created by JCAMPReader are supported, except FID and GC/MS spectra.
+   *
+   * @return int
+   * @param spectrum Spectrum
+   */
+  static int typeOf(Spectrum spectrum) {
+    Class c = spectrum.getClass();
+    if (c == IRSpectrum.class)
+      return TYPE_IR;
+    if (c == UVSpectrum.class)
+      return TYPE_UV;
+    if (c == RamanSpectrum.class)
+      return TYPE_RAMAN;
+    if (c == FluorescenceSpectrum.class)
+      return TYPE_FLUORESCENCE;
+    if (c == MassSpectrum.class)
+      return TYPE_MS;
+    if (c == NMRSpectrum.class)
+      return TYPE_NMR;
+    if (c == Chromatogram.class)
+      return TYPE_CHROMATOGRAM;
+    if (c == Fluorescence2DSpectrum.class)
+      return TYPE_FLUORESCENCE_2D;
+    return -1;
+  }
+
+  /**
+   * gets path of the sidecar file of a JCAMP-DX file, i.e. the file name with
+   * extension {@link #EXTENSION} instead of the JCAMP-DX extension.
+   *
+   * @return Path
+   * @param jcamp JCAMP-DX file
+   */
+  public static Path getSidecarPath(Path jcamp) {
+    String name = jcamp.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    if (dot > 0)
+      name = name.substring(0, dot);
+    return jcamp.resolveSibling(name + EXTENSION);
+  }
+
+  /**
+   * creates spectrum of a JCAMP-DX file from its sidecar file, if the sidecar
+   * is not older than the JCAMP-DX file. otherwise the JCAMP-DX file is parsed
+   * by <code>reader</code> and the sidecar is written, if the spectrum type is supported.
+   * y values (z values of 2D spectra) read from the sidecar are stored as selected by
+   * {@link JCAMPReader#withStorage(int)}, scaled storage needs a sidecar written from scaled values.
+   * a sidecar written for a reader with another mode or validation is replaced, since
+   * NMR x values depend on the mode and validating readers reject some files.
+   * a sidecar that cannot be written, e.g. in a read-only directory, is skipped.
+   *
+   * @return Spectrum
+   * @param reader JCAMPReader for the JCAMP-DX file
+   * @param jcamp JCAMP-DX file
+   * @throws IOException if the JCAMP-DX file cannot be read
+   * @throws JCAMPException if the JCAMP-DX file cannot be parsed
+   */
+  public Spectrum createSpectrum(JCAMPReader reader, Path jcamp) throws IOException, JCAMPException {
+    Path sidecar = getSidecarPath(jcamp);
+    if (Files.isRegularFile(sidecar)
+	&& Files.getLastModifiedTime(sidecar).compareTo(Files.getLastModifiedTime(jcamp)) >= 0) {
+      try {
+	return createSpectrum(sidecar, false, reader.getStorage(), reader);
+      } catch (JCAMPException e) {
+	// damaged, other format version or reader settings, the sidecar is written again
+      }
+    }
+    Spectrum spectrum = reader.createSpectrum(jcamp);
+    if (typeOf(spectrum) >= 0) {
+      try {
+	JCAMPBinaryWriter.getInstance().write(spectrum, sidecar, reader);
+      } catch (IOException e) {
+	// sidecars are optional
+      }
+    }
+    return spectrum;
+  }
+
+  /**
+   * creates spectrum from binary file.
+   *
+   * @return Spectrum
+   * @param path binary file
+   * @throws IOException if the file cannot be mapped
+   * @throws JCAMPException if the file is not in the binary format
+   */
+  public Spectrum createSpectrum(Path path) throws IOException, JCAMPException {
+    return createSpectrum(path, false);
+  }
+
+  /**
+   * creates spectrum from binary file. if <code>direct</code> is true, the y values
+   * (z values of 2D spectra) are not copied but stay in the memory mapped file,
+   * see {@link DirectArrayData}. the file must then not be changed while the spectrum is used.
+   *
+   * @return Spectrum
+   * @param path binary file
+   * @param direct true to keep y values in the memory mapped file
+   * @throws IOException if the file cannot be mapped
+   * @throws JCAMPException if the file is not in the binary format
+   */
+  public Spectrum createSpectrum(Path path, boolean direct) throws IOException, JCAMPException {
+    return createSpectrum(path, direct, CompactArrayData.STORAGE_DOUBLE, null);
+  }
+
+  /**
+   * creates spectrum from binary file.
+   *
+   * @return Spectrum
+   * @param path binary file
+   * @param direct true to keep y values in the memory mapped file
+   * @param storage storage of the y values if not direct, see {@link CompactArrayData#create(double[], double, Unit, int)}
+   * @param reader JCAMPReader whose mode and validation the file must have been written for, null for any
+   * @throws IOException if the file cannot be mapped
+   * @throws JCAMPException if the file is not in the binary format or written for other reader settings
+   */
+  private Spectrum createSpectrum(Path path, boolean direct, int storage, JCAMPReader reader)
+      throws IOException, JCAMPException {
+    MappedByteBuffer mapped;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      return createSpectrum(mapped, direct, storage, reader);
+    } catch (RuntimeException e) {
+      // buffer underflow or bad values of a damaged file
+      throw new JCAMPException("bad binary spectrum " + path + ": " + e);
+    }
+  }
+
+  /**
+   * creates spectrum from buffer.
+   *
+   * @return Spectrum
+   * @param buffer ByteBuffer positioned at the start of the binary spectrum
+   * @param direct true to keep y values in the buffer
+   * @param storage storage of the y values if not direct
+   * @param reader JCAMPReader whose mode and validation the buffer must have been written for, null for any
+   */
+  private Spectrum createSpectrum(ByteBuffer buffer, boolean direct, int storage, JCAMPReader reader)
+      throws JCAMPException {
+    ByteBuffer in = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC)
+      throw new JCAMPException("not a binary spectrum");
+    int version = in.getInt();
+    if (version != VERSION)
+      throw new JCAMPException("unsupported binary spectrum version " + version);
+    int type = in.getInt();
+    int flags = in.getInt();
+    boolean fullSpectrum = (flags & FLAG_FULL_SPECTRUM) != 0;
+    long dataOffset = in.getLong();
+    String readerMode = getString(in);
+    if (reader != null
+	&& (readerMode == null || !readerMode.equals(reader.getMode())
+	    || ((flags & FLAG_VALIDATING) != 0) != reader.isValidating()))
+      throw new JCAMPException("binary spectrum written for other reader settings");
+    String nucleus = null;
+    double frequency = 0;
+    double reference = 0;
+    String mode = null;
+    String solvent = null;
+    double solventReference = 0;
+    if (type == TYPE_NMR) {
+      nucleus = getString(in);
+      frequency = in.getDouble();
+      reference = in.getDouble();
+      mode = getString(in);
+      if (JCAMPReader.STRICT.equals(mode))
+	mode = JCAMPReader.STRICT;
+      else if (JCAMPReader.RELAXED.equals(mode))
+	mode = JCAMPReader.RELAXED;
+      solvent = getString(in);
+      solventReference = in.getDouble();
+    }
+    int nNotes = in.getInt();
+    NoteDescriptor[] descriptors = new NoteDescriptor[nNotes];
+    Object[] values = new Object[nNotes];
+    for (int i = 0; i < nNotes; i++) {
+      descriptors[i] = getDescriptor(in);
+      values[i] = getValue(in, descriptors[i]);
+    }
+    int nArrays = in.getInt();
+    Object[] arrays = new Object[nArrays];
+    Range1D.Double[] views = new Range1D.Double[nArrays];
+    Range1D.Double[] ranges = new Range1D.Double[nArrays];
+    int column = (int) dataOffset;
+    for (int i = 0; i < nArrays; i++) {
+      byte kind = in.get();
+      Unit unit = getUnit(getString(in));
+      String label = getString(in);
+      int length = in.getInt();
+      views[i] = new Range1D.Double(in.getDouble(), in.getDouble());
+      ranges[i] = new Range1D.Double(in.getDouble(), in.getDouble());
+      double factor = in.getDouble();
+      if (kind == ARRAY_EQUIDISTANT) {
+	double start = in.getDouble();
+	double end = in.getDouble();
+	double step = in.getDouble();
+	EquidistantData data = new EquidistantData(new LinearGrid1D(start, end, step, length), unit);
+	data.setLabel(label);
+	arrays[i] = data;
+      } else {
+	ByteBuffer columnBuffer = in.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+	columnBuffer.limit(column + 8 * length);
+	columnBuffer.position(column);
+	column += 8 * length;
+	arrays[i] = new Object[] { columnBuffer.asDoubleBuffer(), unit, label, new Double(factor) };
+      }
+    }
+    int nPeaks = in.getInt();
+    Peak1D[] peaks = null;
+    if (nPeaks >= 0) {
+      peaks = new Peak1D[nPeaks];
+      for (int i = 0; i < nPeaks; i++) {
+	double x0 = in.getDouble();
+	double x1 = in.getDouble();
+	double height = in.getDouble();
+	double min = in.getDouble();
+	double max = in.getDouble();
+	Peak1D peak = new Peak1D(x0, height);
+	peak.setPosition(new double[] { x0, x1 });
+	peak.setRange(new Range1D.Double(min, max));
+	peaks[i] = peak;
+      }
+    }
+    Spectrum spectrum;
+    switch (type) {
+      case TYPE_IR :
+	spectrum = new IRSpectrum(getOrdered(arrays[0]), getData(arrays[1], direct, storage), fullSpectrum);
+	break;
+      case TYPE_UV :
+	spectrum = new UVSpectrum(getOrdered(arrays[0]), getData(arrays[1], direct, storage), fullSpectrum);
+	break;
+      case TYPE_RAMAN :
+	spectrum = new RamanSpectrum(getOrdered(arrays[0]), getData(arrays[1], direct, storage), fullSpectrum);
+	break;
+      case TYPE_FLUORESCENCE :
+	spectrum = new FluorescenceSpectrum(getOrdered(arrays[0]), getData(arrays[1], direct, storage), fullSpectrum);
+	break;
+      case TYPE_MS :
+	spectrum = new MassSpectrum(getOrdered(arrays[0]), getData(arrays[1], direct, storage), fullSpectrum);
+	break;
+      case TYPE_CHROMATOGRAM :
+	spectrum = new Chromatogram(getOrdered(arrays[0]), getData(arrays[1], direct, storage), fullSpectrum);
+	break;
+      case TYPE_NMR :
+	// data is stored in ppm and percent, so it is not converted again
+	NMRSpectrum nmr = new NMRSpectrum(getOrdered(arrays[0]), getData(arrays[1], direct, storage), nucleus, frequency,
+	    reference, fullSpectrum, mode);
+	nmr.setSolvent(solvent);
+	nmr.setSolventReference(solventReference);
+	spectrum = nmr;
+	break;
+      case TYPE_FLUORESCENCE_2D :
+	spectrum = new Fluorescence2DSpectrum(getOrdered(arrays[0]), getOrdered(arrays[1]), getData(arrays[2], direct, storage));
+	break;
+      default :
+	throw new JCAMPException("unsupported binary spectrum type " + type);
+    }
+    IArray1D[] data;
+    if (spectrum instanceof Spectrum1D) {
+      Spectrum1D spectrum1D = (Spectrum1D) spectrum;
+      spectrum1D.setXFullViewRange(views[0]);
+      spectrum1D.setYFullViewRange(views[1]);
+      if (peaks != null)
+	spectrum1D.setPeakTable(peaks);
+      data = new IArray1D[] { spectrum1D.getXData(), spectrum1D.getYData() };
+    } else {
+      Spectrum2D spectrum2D = (Spectrum2D) spectrum;
+      spectrum2D.setXFullViewRange(views[0]);
+      spectrum2D.setYFullViewRange(views[1]);
+      spectrum2D.setZFullViewRange(views[2]);
+      data = new IArray1D[] { spectrum2D.getXData(), spectrum2D.getYData(), spectrum2D.getZData() };
+    }
+    // the spectrum constructors adjust the cached range of the arrays like the
+    // JCAMP-DX readers do, the stored range is the one of the written arrays
+    for (int i = 0; i < nArrays; i++) {
+      if (!(data[i] instanceof EquidistantData))
+	data[i].getRange1D().set(ranges[i].getXMin(), ranges[i].getXMax());
+    }
+    for (int i = 0; i < nNotes; i++)
+      spectrum.setNote(descriptors[i], values[i]);
+    return spectrum;
+  }
+
+  /**
+   * creates ordered data array of a stored array.
+   *
+   * @return IOrderedDataArray1D
+   * @param array EquidistantData or column values, unit and label
+   */
+  private static IOrderedDataArray1D getOrdered(Object array) {
+    if (array instanceof EquidistantData)
+      return (EquidistantData) array;
+    Object[] column = (Object[]) array;
+    OrderedArrayData data = new OrderedArrayData(getValues((DoubleBuffer) column[0]), (Unit) column[1]);
+    data.setLabel((String) column[2]);
+    return data;
+  }
+
+  /**
+   * creates data array of a stored array.
+   *
+   * @return IDataArray1D
+   * @param array column values, unit, label and factor of scaled values
+   * @param direct true to keep the values in the column buffer
+   * @param storage storage of the values if not direct
+   */
+  private static IDataArray1D getData(Object array, boolean direct, int storage) {
+    Object[] column = (Object[]) array;
+    IDataArray1D data;
+    if (direct)
+      data = new DirectArrayData((DoubleBuffer) column[0], (Unit) column[1]);
+    else
+      data = CompactArrayData.create(getValues((DoubleBuffer) column[0]), ((Double) column[3]).doubleValue(),
+	  (Unit) column[1], storage);
+    data.setLabel((String) column[2]);
+    return data;
+  }
+
+  /**
+   * copies values of column buffer.
+   *
+   * @return double[]
+   * @param buffer DoubleBuffer
+   */
+  private static double[] getValues(DoubleBuffer buffer) {
+    double[] values = new double[buffer.remaining()];
+    buffer.duplicate().get(values);
+    return values;
+  }
+
+  /**
+   * gets unit of identifier. units without identifier are read as generic unit,
+   * like missing units in JCAMP-DX files.
+   *
+   * @return Unit
+   * @param identifier String
+   */
+  private static Unit getUnit(String identifier) {
+    if (identifier == null || identifier.length() == 0)
+      return CommonUnit.generic;
+    return Unit.getUnitFromString(identifier);
+  }
+
+  /**
+   * reads note descriptor, predefined descriptors are found by key.
+   * other descriptors are created again, even if they share the key of a predefined one.
+   *
+   * @return NoteDescriptor
+   * @param in ByteBuffer
+   */
+  private static NoteDescriptor getDescriptor(ByteBuffer in) {
+    String key = getString(in);
+    String name = getString(in);
+    byte flags = in.get();
+    NoteDescriptor descr = null;
+    if ((flags & NOTE_PREDEFINED) != 0)
+      descr = NoteDescriptor.findByKey(key);
+    if (descr == null) {
+      descr = new NoteDescriptor(key, name);
+      descr.setUnique((flags & NOTE_UNIQUE) != 0);
+    }
+    return descr;
+  }
+
+  /**
+   * reads note value.
+   *
+   * @return Object
+   * @param in ByteBuffer
+   * @param descr NoteDescriptor of the note
+   */
+  private static Object getValue(ByteBuffer in, NoteDescriptor descr) throws JCAMPException {
+    byte tag = in.get();
+    switch (tag) {
+      case VALUE_STRING :
+	return getString(in);
+      case VALUE_DOUBLE :
+	return new Double(in.getDouble());
+      case VALUE_INTEGER :
+	return new Integer(in.getInt());
+      case VALUE_PARSED :
+	String content = getString(in);
+	try {
+	  return descr.getNoteContentParser().parseContent(content, descr.getNoteContentClass());
+	} catch (BadContentException e) {
+	  throw new JCAMPException("bad " + descr.getName() + " note: " + e.getMessage());
+	}
+      default :
+	throw new JCAMPException("bad note value tag " + tag);
+    }
+  }
+
+  /**
+   * reads string.
+   *
+   * @return String
+   * @param in ByteBuffer
+   */
+  private static String getString(ByteBuffer in) {
+    int length = in.getInt();
+    if (length < 0)
+      return null;
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,342 @@
+package org.jcamp.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+import org.jcamp.math.IArray1D;
+import org.jcamp.math.LinearGrid1D;
+import org.jcamp.math.Range1D;
+import org.jcamp.spectrum.CompactArrayData;
+import org.jcamp.spectrum.IDataArray1D;
+import org.jcamp.spectrum.IEquidistant;
+import org.jcamp.spectrum.IOrderedDataArray1D;
+import org.jcamp.spectrum.NMRSpectrum;
+import org.jcamp.spectrum.Peak1D;
+import org.jcamp.spectrum.ScaledIntArrayData;
+import org.jcamp.spectrum.ScaledShortArrayData;
+import org.jcamp.spectrum.Spectrum;
+import org.jcamp.spectrum.Spectrum1D;
+import org.jcamp.spectrum.Spectrum2D;
+import org.jcamp.spectrum.notes.Note;
+import org.jcamp.spectrum.notes.NoteDescriptor;
+import org.jcamp.units.IMeasurable;
+
+/**
+ * writer for spectra in the binary sidecar format, see {@link JCAMPBinaryReader}.
+ */
+public class JCAMPBinaryWriter {
+
+  // number of doubles written to the file at once
+  private final static int COLUMN_CHUNK = 8192;
+
+  private final static JCAMPBinaryWriter theInstance = new JCAMPBinaryWriter();
+
+  /**
+   * JCAMPBinaryWriter constructor.
+   */
+  private JCAMPBinaryWriter() {
+    super();
+  }
+
+  /**
+   * gets the writer instance.
+   *
+   * @return JCAMPBinaryWriter
+   */
+  public static JCAMPBinaryWriter getInstance() {
+    return theInstance;
+  }
+
+  /**
+   * checks if spectrum can be written in the binary format.
+   *
+   * @return boolean
+   * @param spectrum Spectrum
+   */
+  public boolean isSupported(Spectrum spectrum) {
+    return JCAMPBinaryReader.typeOf(spectrum) >= 0;
+  }
+
+  /**
+   * writes spectrum to binary file. the file is written to a new temporary
+   * file in the same directory first and then moved to <code>path</code>, so readers
+   * never see a partial file.
+   *
+   * @param spectrum Spectrum
+   * @param path binary file
+   * @throws IOException if the file cannot be written
+   * @throws JCAMPException if the spectrum type is not supported
+   */
+  public void write(Spectrum spectrum, Path path) throws IOException, JCAMPException {
+    write(spectrum, path, null);
+  }
+
+  /**
+   * writes spectrum to binary file, see {@link #write(Spectrum, Path)}. the mode and
+   * validation of <code>reader</code> are stored, so sidecars written for other reader
+   * settings are detected by {@link JCAMPBinaryReader#createSpectrum(JCAMPReader, Path)}.
+   *
+   * @param spectrum Spectrum
+   * @param path binary file
+   * @param reader JCAMPReader that parsed the spectrum, null if unknown
+   * @throws IOException if the file cannot be written
+   * @throws JCAMPException if the spectrum type is not supported
+   */
+  public void write(Spectrum spectrum, Path path, JCAMPReader reader) throws IOException, JCAMPException {
+    int type = JCAMPBinaryReader.typeOf(spectrum);
+    if (type < 0)
+      throw new JCAMPException("binary format not supported for " + spectrum.getClass().getName());
+    IArray1D[] arrays;
+    Range1D.Double[] views;
+    Peak1D[] peaks = null;
+    if (spectrum instanceof Spectrum1D) {
+      Spectrum1D spectrum1D = (Spectrum1D) spectrum;
+      arrays = new IArray1D[] { spectrum1D.getXData(), spectrum1D.getYData() };
+      views = new Range1D.Double[] { spectrum1D.getXFullViewRange(), spectrum1D.getYFullViewRange() };
+      peaks = spectrum1D.getPeakTable();
+    } else {
+      Spectrum2D spectrum2D = (Spectrum2D) spectrum;
+      arrays = new IArray1D[] { spectrum2D.getXData(), spectrum2D.getYData(), spectrum2D.getZData() };
+      views = new Range1D.Double[] { spectrum2D.getXFullViewRange(), spectrum2D.getYFullViewRange(),
+	  spectrum2D.getZFullViewRange() };
+    }
+    Metadata meta = new Metadata();
+    meta.putInt(JCAMPBinaryReader.MAGIC);
+    meta.putInt(JCAMPBinaryReader.VERSION);
+    meta.putInt(type);
+    int flags = spectrum.isFullSpectrum() ? JCAMPBinaryReader.FLAG_FULL_SPECTRUM : 0;
+    if (reader != null && reader.isValidating())
+      flags |= JCAMPBinaryReader.FLAG_VALIDATING;
+    meta.putInt(flags);
+    // data offset, set below
+    meta.putLong(0);
+    meta.putString(reader != null ? reader.getMode() : null);
+    if (type == JCAMPBinaryReader.TYPE_NMR) {
+      NMRSpectrum nmr = (NMRSpectrum) spectrum;
+      meta.putString(nmr.getNucleus());
+      meta.putDouble(nmr.getFrequency());
+      meta.putDouble(nmr.getReference());
+      meta.putString(nmr.getMode());
+      meta.putString(nmr.getSolvent());
+      meta.putDouble(nmr.getSolventReference());
+    }
+    putNotes(meta, spectrum);
+    meta.putInt(arrays.length);
+    for (int i = 0; i < arrays.length; i++) {
+      IArray1D data = arrays[i];
+      boolean equidistant = data instanceof IEquidistant;
+      meta.put(equidistant ? JCAMPBinaryReader.ARRAY_EQUIDISTANT : JCAMPBinaryReader.ARRAY_COLUMN);
+      meta.putString(((IMeasurable) data).getUnit().getIdentifier());
+      meta.putString(getLabel(data));
+      meta.putInt(data.getLength());
+      meta.putDouble(views[i].getXMin());
+      meta.putDouble(views[i].getXMax());
+      // range of the array, it differs from the values after adjustFullViewRange()
+      Range1D.Double range = data.getRange1D();
+      meta.putDouble(range.getXMin());
+      meta.putDouble(range.getXMax());
+      meta.putDouble(getScaleFactor(data));
+      if (equidistant) {
+	LinearGrid1D grid = ((IEquidistant) data).getDataGrid();
+	meta.putDouble(grid.getStart());
+	meta.putDouble(grid.getEnd());
+	meta.putDouble(grid.getStep());
+      }
+    }
+    if (peaks == null) {
+      meta.putInt(-1);
+    } else {
+      meta.putInt(peaks.length);
+      for (int i = 0; i < peaks.length; i++) {
+	double[] position = peaks[i].getPosition();
+	meta.putDouble(position[0]);
+	meta.putDouble(position[1]);
+	meta.putDouble(peaks[i].getHeight());
+	meta.putDouble(peaks[i].getRange().getXMin());
+	meta.putDouble(peaks[i].getRange().getXMax());
+      }
+    }
+    // columns start 8 byte aligned
+    while (meta.buffer.position() % 8 != 0)
+      meta.put((byte) 0);
+    ByteBuffer header = meta.buffer;
+    header.putLong(16, header.position());
+    header.flip();
+
+    Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+    boolean moved = false;
+    try {
+      writeFile(tmp, header, arrays);
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      moved = true;
+    } finally {
+      if (!moved)
+	Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * writes header and data columns to file.
+   *
+   * @param file Path
+   * @param header ByteBuffer
+   * @param arrays IArray1D[]
+   * @throws IOException if the file cannot be written
+   */
+  private static void writeFile(Path file, ByteBuffer header, IArray1D[] arrays) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      writeFully(channel, header);
+      ByteBuffer chunk = ByteBuffer.allocateDirect(8 * COLUMN_CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+      DoubleBuffer doubles = chunk.asDoubleBuffer();
+      double[] values = new double[COLUMN_CHUNK];
+      for (int i = 0; i < arrays.length; i++) {
+	IArray1D data = arrays[i];
+	if (data instanceof IEquidistant)
+	  continue;
+	int n = data.getLength();
+	for (int j = 0; j < n; j += COLUMN_CHUNK) {
+	  int m = Math.min(COLUMN_CHUNK, n - j);
+	  data.copyTo(values, 0, j, j + m);
+	  doubles.clear();
+	  doubles.put(values, 0, m);
+	  chunk.clear();
+	  chunk.limit(8 * m);
+	  writeFully(channel, chunk);
+	}
+      }
+    }
+  }
+
+  /**
+   * writes notes. Double, Integer and String values are stored as such,
+   * other values as string parsed by the note content parser.
+   *
+   * @param meta Metadata
+   * @param spectrum Spectrum
+   */
+  private static void putNotes(Metadata meta, Spectrum spectrum) {
+    int count = 0;
+    for (Iterator it = spectrum.getNotes().iterator(); it.hasNext();) {
+      if (((Note) it.next()).getValue() != null)
+	count++;
+    }
+    meta.putInt(count);
+    for (Iterator it = spectrum.getNotes().iterator(); it.hasNext();) {
+      Note note = (Note) it.next();
+      Object value = note.getValue();
+      if (value == null)
+	continue;
+      NoteDescriptor descr = note.getDescriptor();
+      meta.putString(descr.getKey());
+      meta.putString(descr.getName());
+      byte flags = 0;
+      if (descr.isUnique())
+	flags |= JCAMPBinaryReader.NOTE_UNIQUE;
+      if (NoteDescriptor.findByKey(descr.getKey()) == descr)
+	flags |= JCAMPBinaryReader.NOTE_PREDEFINED;
+      meta.put(flags);
+      if (value instanceof String) {
+	meta.put(JCAMPBinaryReader.VALUE_STRING);
+	meta.putString((String) value);
+      } else if (value instanceof Double) {
+	meta.put(JCAMPBinaryReader.VALUE_DOUBLE);
+	meta.putDouble(((Double) value).doubleValue());
+      } else if (value instanceof Integer) {
+	meta.put(JCAMPBinaryReader.VALUE_INTEGER);
+	meta.putInt(((Integer) value).intValue());
+      } else {
+	meta.put(JCAMPBinaryReader.VALUE_PARSED);
+	meta.putString(value.toString());
+      }
+    }
+  }
+
+  /**
+   * gets label of data array.
+   *
+   * @return String
+   * @param data IArray1D
+   */
+  private static String getLabel(IArray1D data) {
+    if (data instanceof IDataArray1D)
+      return ((IDataArray1D) data).getLabel();
+    if (data instanceof IOrderedDataArray1D)
+      return ((IOrderedDataArray1D) data).getLabel();
+    return null;
+  }
+
+  /**
+   * gets factor of values stored as multiples of a factor, NaN otherwise.
+   *
+   * @return double
+   * @param data IArray1D
+   */
+  private static double getScaleFactor(IArray1D data) {
+    if ((data instanceof ScaledShortArrayData || data instanceof ScaledIntArrayData)
+	&& ((CompactArrayData) data).getOffset() == 0)
+      return ((CompactArrayData) data).getFactor();
+    return Double.NaN;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining())
+      channel.write(buffer);
+  }
+
+  /**
+   * growing little-endian buffer of the header and metadata.
+   */
+  private static class Metadata {
+    ByteBuffer buffer = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+
+    private void ensure(int n) {
+      if (buffer.remaining() < n) {
+	ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + n))
+	    .order(ByteOrder.LITTLE_ENDIAN);
+	buffer.flip();
+	larger.put(buffer);
+	buffer = larger;
+      }
+    }
+
+    void put(byte b) {
+      ensure(1);
+      buffer.put(b);
+    }
+
+    void putInt(int i) {
+      ensure(4);
+      buffer.putInt(i);
+    }
+
+    void putLong(long l) {
+      ensure(8);
+      buffer.putLong(l);
+    }
+
+    void putDouble(double d) {
+      ensure(8);
+      buffer.putDouble(d);
+    }
+
+    void putString(String s) {
+      if (s == null) {
+	putInt(-1);
+	return;
+      }
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      putInt(bytes.length);
+      ensure(bytes.length);
+      buffer.put(bytes);
+    }
+  }
+}
@@ -32,7 +32,10 @@ import java.util.Hashtable;
 import java.util.List;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
+import org.jcamp.spectrum.CompactArrayData;
 import org.jcamp.spectrum.ISpectrumIdentifier;
 
 /**
@@ -86,12 +89,12 @@ public class JCAMPBlock {
   private final static String CRLF = "\r\n";
   private final int start;
   private final int end;
-  private final String jcamp;
+  private final CharSequence jcamp;
   private final JCAMPBlock parent;
   private int numDataRecords;
   private Type type;
   private int spectrumID;
-  private String data;
+  private CharSequence data;
   private Hashtable childBlocks = new Hashtable(10);
   // hashtable containing all data records (or list of data records for multiple records with same key)
   private Hashtable dataRecords = new Hashtable(50);
@@ -102,21 +105,26 @@ public class JCAMPBlock {
   private JCAMPNTuple ntuple;
   private JCAMPVariable[] vars = null;
   private boolean isValidating=true;
+  // executor for decoding NTUPLE pages, null for decoding in calling thread
+  private ExecutorService executor = null;
+  // storage of y values, -1 to inherit from parent block
+  private int storage = -1;
+  // lazy mode: records, child blocks, ntuple and variables are created on first access
+  private final boolean lazy;
+  // lazy mode: offsets of data records within data, null after all records are created
+  private int[] ldrStarts;
+  private int[] ldrEnds;
+  // lazy mode: offsets of child blocks within jcamp, null after blocks are created
+  private int[] blockStarts;
+  private int[] blockEnds;
+  private int numBlockOffsets;
+  private boolean variablesInitialized = false;
 
   /**
    * create JCAMPBlock from substring.
    */
   public JCAMPBlock(JCAMPBlock parent, String jcamp, int start, int end) throws JCAMPException {
-    super();
-    this.jcamp = jcamp;
-    this.start = start;
-    this.end = end;
-    this.parent = parent;
-    initBlocks();
-    initLDRs();
-    analyzeBlockType();
-    initNTuple();
-    initVariables();
+    this(parent, jcamp, start, end, DEFAULT_ERROR_HANDLER);
   }
 
   /**
@@ -124,17 +132,42 @@ public class JCAMPBlock {
    */
   public JCAMPBlock(JCAMPBlock parent, String jcamp, int start, int end, IErrorHandler errorHandler)
       throws JCAMPException {
+    this(parent, (CharSequence) jcamp, start, end, errorHandler);
+  }
+
+  /**
+   * create JCAMPBlock from part of a character sequence, e.g. a memory mapped file.
+   * child blocks and data records refer to <code>jcamp</code> by offsets.
+   */
+  public JCAMPBlock(JCAMPBlock parent, CharSequence jcamp, int start, int end, IErrorHandler errorHandler)
+      throws JCAMPException {
+    this(parent, jcamp, start, end, errorHandler, false);
+  }
+
+  /**
+   * create JCAMPBlock from part of a character sequence.
+   * in lazy mode only the offsets of data records and child blocks are indexed, 
+   * data records, child blocks, ntuple and variables are created on first access.
+   * parsing errors found then are thrown as <code>IllegalStateException</code>
+   * with the <code>JCAMPException</code> as cause.
+   * 
+   * @param lazy create content on demand
+   */
+  public JCAMPBlock(JCAMPBlock parent, CharSequence jcamp, int start, int end, IErrorHandler errorHandler, boolean lazy)
+      throws JCAMPException {
     super();
     this.jcamp = jcamp;
     this.start = start;
     this.end = end;
     this.parent = parent;
     this.errorHandler = errorHandler;
+    this.lazy = lazy;
     initBlocks();
     initLDRs();
     analyzeBlockType();
     initNTuple();
-    initVariables();
+    if (!lazy)
+      initVariables();
   }
 
   /**
@@ -167,6 +200,23 @@ public class JCAMPBlock {
     this(jcamp, 0, jcamp.length(), errorHandler);
   }
 
+  /**
+   * create JCAMPBlock from character sequence
+   * @param jcamp java.lang.CharSequence
+   */
+  public JCAMPBlock(CharSequence jcamp, IErrorHandler errorHandler) throws JCAMPException {
+    this(null, jcamp, 0, jcamp.length(), errorHandler);
+  }
+
+  /**
+   * create JCAMPBlock from character sequence
+   * @param jcamp java.lang.CharSequence
+   * @param lazy create data records and child blocks on demand
+   */
+  public JCAMPBlock(CharSequence jcamp, IErrorHandler errorHandler, boolean lazy) throws JCAMPException {
+    this(null, jcamp, 0, jcamp.length(), errorHandler, lazy);
+  }
+
   /**
    * analyze data records for type of block.
    */
@@ -232,7 +282,7 @@ public class JCAMPBlock {
    * @return java.lang.String
    */
   public String asSimpleJCAMP() {
-    return this.data;
+    return this.data.toString();
   }
 
   /**
@@ -246,11 +296,11 @@ public class JCAMPBlock {
     JCAMPDataRecord oldLDR = getDataRecord(key);
     if (oldLDR == null) {
       errorHandler.error("LDR \"##" + key + "=\" not found in block");
-      return new JCAMPBlock(this.getJCAMP());
+      return new JCAMPBlock(null, this.getJCAMP(), 0, this.jcamp.length(), DEFAULT_ERROR_HANDLER, lazy);
     }
     StringBuilder newJCAMP = new StringBuilder();
     if (oldLDR.getStart() > 0) {
-      newJCAMP.append(this.jcamp.substring(0, oldLDR.getStart() - 1));
+      newJCAMP.append(this.jcamp, 0, oldLDR.getStart() - 1);
       if (newJCAMP.charAt(newJCAMP.length() - 1) != '\n')
 	newJCAMP.append(CRLF);
     }
@@ -258,8 +308,8 @@ public class JCAMPBlock {
     if (newJCAMP.charAt(newJCAMP.length() - 1) != '\n')
       newJCAMP.append(CRLF);
     if (oldLDR.getEnd() < this.jcamp.length() - 1)
-      newJCAMP.append(this.jcamp.substring(oldLDR.getEnd() + 1));
-    return new JCAMPBlock(newJCAMP.toString());
+      newJCAMP.append(this.jcamp, oldLDR.getEnd() + 1, this.jcamp.length());
+    return new JCAMPBlock(null, newJCAMP.toString(), 0, newJCAMP.length(), DEFAULT_ERROR_HANDLER, lazy);
   }
 
   /**
@@ -268,6 +318,8 @@ public class JCAMPBlock {
    * @return com.labcontrol.jcamp.reader.JCAMPDataRecord[]
    */
   public JCAMPDataRecord[] getAllDataRecords() {
+    if (lazy)
+      materializeAllDataRecords();
     return ldrs;
   }
 
@@ -280,12 +332,28 @@ public class JCAMPBlock {
     return asdfDecoder;
   }
 
+  /**
+   * decodes ASDF data LDR with the decoder of this block.
+   * large data is decoded in parallel if the executor is a fork-join pool.
+   * 
+   * @return double[] y values
+   * @see ASDFDecoder#decode(JCAMPDataRecord, double, double, double, int, ForkJoinPool)
+   */
+  double[] decodeASDF(JCAMPDataRecord ldr, double firstX, double lastX, double xFactor, int nPoints)
+    throws JCAMPException {
+    ExecutorService pool = getExecutor();
+    return asdfDecoder.decode(ldr, firstX, lastX, xFactor, nPoints,
+	(pool instanceof ForkJoinPool) ? (ForkJoinPool) pool : null);
+  }
+
   /**
    * gets block by block ID.
    * @return JCAMPBlock
    * @param id int
    */
   public JCAMPBlock getBlock(int id) {
+    if (lazy)
+      materializeBlocks();
     return (JCAMPBlock) this.childBlocks.get(new Integer(id));
   }
 
@@ -294,6 +362,8 @@ public class JCAMPBlock {
    * @return java.util.Enumeration
    */
   public Enumeration getBlocks() {
+    if (lazy)
+      materializeBlocks();
     return this.childBlocks.elements();
   }
 
@@ -304,6 +374,8 @@ public class JCAMPBlock {
    * @param index int
    */
   public JCAMPDataRecord getDataRecord(int index) {
+    if (lazy)
+      return materializeDataRecord(index);
     return ldrs[index];
   }
 
@@ -313,6 +385,8 @@ public class JCAMPBlock {
    * @param key java.lang.String
    */
   public JCAMPDataRecord getDataRecord(String key) {
+    if (lazy)
+      return materializeDataRecords(key);
     return (JCAMPDataRecord) dataRecords.get(key);
   }
 
@@ -321,6 +395,8 @@ public class JCAMPBlock {
    * @return java.util.Enumeration
    */
   public Enumeration getDataRecords() {
+    if (lazy)
+      materializeAllDataRecords();
     return this.dataRecords.elements();
   }
 
@@ -333,12 +409,35 @@ public class JCAMPBlock {
     return errorHandler;
   }
 
+  /**
+   * gets executor for decoding NTUPLE pages, inherited from parent block if not set.
+   * 
+   * @return ExecutorService or null
+   */
+  public ExecutorService getExecutor() {
+    if (executor == null && parent != null)
+      return parent.getExecutor();
+    return executor;
+  }
+
+  /**
+   * gets storage of the y values of spectra, inherited from parent block if not set.
+   * 
+   * @return int
+   * @see CompactArrayData#create(double[], double, org.jcamp.units.Unit, int)
+   */
+  public int getStorage() {
+    if (storage < 0)
+      return parent != null ? parent.getStorage() : CompactArrayData.STORAGE_DOUBLE;
+    return storage;
+  }
+
   /**
    * gets block ID.
    * @return int
    */
   public int getID() {
-    JCAMPDataRecord ldr = (JCAMPDataRecord) this.dataRecords.get("BLOCKID");
+    JCAMPDataRecord ldr = getDataRecord("BLOCKID");
     if (ldr == null)
       return -1;
     String blockID = ldr.getValue();
@@ -348,11 +447,12 @@ public class JCAMPBlock {
 
   /**
    * gets JCAMP string containing block.
+   * for blocks created from other character sequences, this copies the sequence into a string.
    * 
    * @return java.lang.String
    */
   public String getJCAMP() {
-    return this.jcamp;
+    return this.jcamp.toString();
   }
 
   /**
@@ -361,6 +461,8 @@ public class JCAMPBlock {
    * @return com.labcontrol.jcamp.reader.JCAMPNTuple
    */
   public JCAMPNTuple getNTuple() {
+    if (lazy)
+      return materializeNTuple();
     return this.ntuple;
   }
 
@@ -423,8 +525,10 @@ public class JCAMPBlock {
    */
   public JCAMPVariable getVariable(String symbol) {
     if (isNTupleBlock())
-      return ntuple.getVariable(symbol);
+      return getNTuple().getVariable(symbol);
     else {
+      if (lazy)
+	materializeVariables();
       symbol = symbol.toUpperCase();
       for (int i = 0; i < vars.length; i++) {
 	if (symbol.equals(vars[i].getSymbol()))
@@ -441,51 +545,136 @@ public class JCAMPBlock {
    */
   public JCAMPVariable[] getVariables() {
     if (isNTupleBlock())
-      return ntuple.getVariables();
-    else
+      return getNTuple().getVariables();
+    else {
+      if (lazy)
+	materializeVariables();
       return vars;
+    }
   }
 
   /**
    * find child blocks within <code>start</code> and <code>end</code> of <code>jcamp</code> string.
-   * collects remaining labels in string <code>data</code>
+   * collects remaining labels in <code>data</code>, a view on the parts of <code>jcamp</code>
+   * outside of the child blocks.
    */
   private void initBlocks() throws JCAMPException {
     int id = 0;
-    StringBuilder tmp = new StringBuilder();
-    BlockIterator blockIter = new BlockIterator(jcamp.substring(this.start, this.end));
+    int[] partStarts = new int[8];
+    int[] partEnds = new int[8];
+    int numParts = 0;
+    BlockIterator blockIter = new BlockIterator(CharSequenceSlice.of(jcamp, this.start, this.end));
     int o0 = start;
     int o1;
     while (blockIter.hasNext()) {
       int offset = blockIter.getOffset();
       o1 = this.start + offset - 1;
-      tmp.append(jcamp.substring(o0, o1));
-      String block = blockIter.next();
-      o0 = this.start + offset + block.length();
+      if (o1 > o0) {
+	if (numParts == partStarts.length) {
+	  partStarts = Arrays.copyOf(partStarts, numParts * 2);
+	  partEnds = Arrays.copyOf(partEnds, numParts * 2);
+	}
+	partStarts[numParts] = o0;
+	partEnds[numParts] = o1;
+	numParts++;
+      }
+      o0 = this.start + blockIter.nextEnd();
       o1++;
-      JCAMPBlock jcampBlock = new JCAMPBlock(this, jcamp, o1, o0);
-      int blockID = jcampBlock.getID();
-      if (blockID < 0) {
-	id--;
-      } else
-	id = blockID;
-      childBlocks.put(new Integer(id), jcampBlock);
+      if (lazy) {
+	if (blockStarts == null) {
+	  blockStarts = new int[8];
+	  blockEnds = new int[8];
+	} else if (numBlockOffsets == blockStarts.length) {
+	  blockStarts = Arrays.copyOf(blockStarts, numBlockOffsets * 2);
+	  blockEnds = Arrays.copyOf(blockEnds, numBlockOffsets * 2);
+	}
+	blockStarts[numBlockOffsets] = o1;
+	blockEnds[numBlockOffsets] = o0;
+	numBlockOffsets++;
+	continue;
+      }
+      id = addBlock(new JCAMPBlock(this, jcamp, o1, o0, DEFAULT_ERROR_HANDLER), id);
+    }
+    if (numParts == 0) {
+      // simple block: no copy of the block text
+      this.data = CharSequenceSlice.of(jcamp, o0, this.end);
+      return;
     }
-    tmp.append(jcamp.substring(o0, this.end));
-    this.data = tmp.toString();
+    if (this.end > o0) {
+      if (numParts == partStarts.length) {
+	partStarts = Arrays.copyOf(partStarts, numParts + 1);
+	partEnds = Arrays.copyOf(partEnds, numParts + 1);
+      }
+      partStarts[numParts] = o0;
+      partEnds[numParts] = this.end;
+      numParts++;
+    }
+    this.data = new JoinedCharSequence(jcamp, partStarts, partEnds, numParts);
+  }
+
+  /**
+   * adds child block, blocks without ##BLOCK_ID= get negative ids.
+   * @return int id of block
+   * @param block child block
+   * @param lastID id of previous block
+   */
+  private int addBlock(JCAMPBlock block, int lastID) {
+    int id = block.getID();
+    if (id < 0)
+      id = lastID - 1;
+    childBlocks.put(new Integer(id), block);
+    return id;
   }
 
   /**
-   * iterator over all data records and store them into the hashtable <code>dataRecords</code>
+   * lazy mode: create child blocks from offsets recorded by <code>initBlocks()</code>.
+   * child blocks are lazy, too.
+   */
+  private synchronized void materializeBlocks() {
+    if (blockStarts == null)
+      return;
+    int id = 0;
+    try {
+      for (int i = 0; i < numBlockOffsets; i++)
+	id = addBlock(new JCAMPBlock(this, jcamp, blockStarts[i], blockEnds[i], DEFAULT_ERROR_HANDLER, true), id);
+    } catch (JCAMPException e) {
+      throw new IllegalStateException("bad child block: " + e.getMessage(), e);
+    }
+    blockStarts = null;
+    blockEnds = null;
+  }
+
+  /**
+   * iterator over all data records and store them into the hashtable <code>dataRecords</code>.
+   * in lazy mode only the offsets of the data records are stored.
    */
   private void initLDRs() {
-    IStringIterator ldrIter = new LDRIterator(data);
+    LDRIterator ldrIter = new LDRIterator(data);
+    if (lazy) {
+      int n = 0;
+      int[] starts = new int[64];
+      int[] ends = new int[64];
+      while (ldrIter.hasNext()) {
+	if (n == starts.length) {
+	  starts = Arrays.copyOf(starts, n * 2);
+	  ends = Arrays.copyOf(ends, n * 2);
+	}
+	starts[n] = ldrIter.getOffset();
+	ends[n] = ldrIter.nextEnd();
+	n++;
+      }
+      this.numDataRecords = n;
+      this.ldrs = new JCAMPDataRecord[n];
+      this.ldrStarts = starts;
+      this.ldrEnds = ends;
+      return;
+    }
     int blockIndex = 0;
     ArrayList tmp = new ArrayList();
     while (ldrIter.hasNext()) {
       int offset = ldrIter.getOffset();
-      String ldr = ldrIter.next();
-      JCAMPDataRecord dataRecord = new JCAMPDataRecord(this.data, offset, offset + ldr.length(), blockIndex);
+      int ldrEnd = ldrIter.nextEnd();
+      JCAMPDataRecord dataRecord = new JCAMPDataRecord(this.data, offset, ldrEnd, blockIndex);
       JCAMPDataRecord ldrList = (JCAMPDataRecord) this.dataRecords.get(dataRecord.getKey());
       if (ldrList == null) {
 	this.dataRecords.put(dataRecord.getKey(), dataRecord);
@@ -501,6 +690,114 @@ public class JCAMPBlock {
       this.ldrs[i] = (JCAMPDataRecord) tmp.get(i);
   }
 
+  /**
+   * lazy mode: gets data records by normalized key, creating all records with this key.
+   * @return JCAMPDataRecord first record with key
+   * @param key java.lang.String
+   */
+  private synchronized JCAMPDataRecord materializeDataRecords(String key) {
+    JCAMPDataRecord ldr = (JCAMPDataRecord) dataRecords.get(key);
+    if (ldr != null || ldrStarts == null)
+      return ldr;
+    for (int i = 0; i < numDataRecords; i++) {
+      if (ldrs[i] == null && LabelScanner.labelEquals(data, ldrStarts[i], key))
+	return materializeDataRecords(i);
+    }
+    return null;
+  }
+
+  /**
+   * lazy mode: gets data record by index, creating all records with the same key.
+   * @return JCAMPDataRecord
+   * @param index int
+   */
+  private synchronized JCAMPDataRecord materializeDataRecord(int index) {
+    if (ldrs[index] == null) {
+      // the records of a key are created from its first occurrence,
+      // so the first record is in dataRecords and heads the list
+      int pos = ldrStarts[index];
+      while (pos < ldrEnds[index] && data.charAt(pos) != '=')
+	pos++;
+      String key = Utils.normalizeLabel(data.subSequence(ldrStarts[index] + 2, pos).toString());
+      int first = index;
+      for (int i = 0; i < index; i++) {
+	if (ldrs[i] == null && LabelScanner.labelEquals(data, ldrStarts[i], key)) {
+	  first = i;
+	  break;
+	}
+      }
+      materializeDataRecords(first);
+    }
+    return ldrs[index];
+  }
+
+  /**
+   * lazy mode: create all data records.
+   */
+  private synchronized void materializeAllDataRecords() {
+    if (ldrStarts == null)
+      return;
+    for (int i = 0; i < numDataRecords; i++) {
+      if (ldrs[i] == null)
+	materializeDataRecords(i);
+    }
+    // same insertion order as eager mode
+    dataRecords.clear();
+    for (int i = 0; i < numDataRecords; i++) {
+      if (!ldrs[i].listIterator().hasPrevious())
+	dataRecords.put(ldrs[i].getKey(), ldrs[i]);
+    }
+    ldrStarts = null;
+    ldrEnds = null;
+  }
+
+  /**
+   * lazy mode: create data record at index <code>first</code> and all following
+   * records with the same key. <code>first</code> has to be the first record with the key.
+   * @return JCAMPDataRecord the record at <code>first</code>
+   * @param first index of the first record with the key
+   */
+  private JCAMPDataRecord materializeDataRecords(int first) {
+    JCAMPDataRecord ldr = new JCAMPDataRecord(this.data, ldrStarts[first], ldrEnds[first], first);
+    ldrs[first] = ldr;
+    String key = ldr.getKey();
+    for (int i = first + 1; i < numDataRecords; i++) {
+      if (ldrs[i] == null && LabelScanner.labelEquals(data, ldrStarts[i], key)) {
+	ldrs[i] = new JCAMPDataRecord(ldr.listIterator(), this.data, ldrStarts[i], ldrEnds[i], i);
+      }
+    }
+    this.dataRecords.put(key, ldr);
+    return ldr;
+  }
+
+  /**
+   * lazy mode: create ntuple on first access.
+   * @return JCAMPNTuple
+   */
+  private synchronized JCAMPNTuple materializeNTuple() {
+    if (this.ntuple == null && this.ntupleBlock) {
+      try {
+	createNTuple();
+      } catch (JCAMPException e) {
+	throw new IllegalStateException("bad ntuple: " + e.getMessage(), e);
+      }
+    }
+    return this.ntuple;
+  }
+
+  /**
+   * lazy mode: find variable definitions on first access.
+   */
+  private synchronized void materializeVariables() {
+    if (variablesInitialized)
+      return;
+    try {
+      initVariables();
+    } catch (JCAMPException e) {
+      throw new IllegalStateException("bad variable definitions: " + e.getMessage(), e);
+    }
+  }
+
   /**
    * initialize JCAMPNTuplePages.
    * TODO: handle multiple NTUPLES blocks?
@@ -525,12 +822,21 @@ public class JCAMPBlock {
       if (!this.ntupleBlock)
 	return;
     }
+    this.ntupleBlock = true;
+    if (!lazy)
+      createNTuple();
+  }
+
+  /**
+   * create ntuple from ##NTUPLES= to ##END NTUPLES=.
+   */
+  private void createNTuple() throws JCAMPException {
+    JCAMPDataRecord startNTupleLDR = getDataRecord("NTUPLES");
     JCAMPDataRecord endNTupleLDR = getDataRecord("ENDNTUPLES");
     if (endNTupleLDR == null) {
       errorHandler.error("missing ##END NTUPLES=");
     }
     this.ntuple = new JCAMPNTuple(this, startNTupleLDR, endNTupleLDR);
-    this.ntupleBlock = true;
   }
 
   /**
@@ -540,12 +846,7 @@ public class JCAMPBlock {
    * @return		the parsed double
    */
   private Double parseDouble(String s) {
-    try {
-      return new Double(s);
-    }
-    catch (NumberFormatException e) {
-      return new Double(s.replace(",", "."));
-    }
+    return new Double(AFFNCursor.parseDouble(s));
   }
 
   /**
@@ -554,6 +855,7 @@ public class JCAMPBlock {
    * @exception com.creon.chem.jcamp.JCAMPException parsing errors.
    */
   private void initVariables() throws JCAMPException {
+    variablesInitialized = true;
     if (isStructureBlock()) // JCAMP CS has no variables
       return;
     if (isNTupleBlock()) // NTUPLEs are already initialized
@@ -638,6 +940,15 @@ public class JCAMPBlock {
     return this.type.equals(Type.LINK);
   }
 
+  /**
+   * indicates a block that creates data records and child blocks on demand.
+   *
+   * @return boolean
+   */
+  public boolean isLazy() {
+    return this.lazy;
+  }
+
   /**
    * indicates a block containing ntuples.
    * 
@@ -686,7 +997,7 @@ public class JCAMPBlock {
     try {
       JCAMPBlock block = new JCAMPBlock(jcamp);
       System.out.println("Block Data:\n" + block.data);
-      System.out.println("Child Blocks: " + block.childBlocks.size());
+      System.out.println("Child Blocks: " + block.numBlocks());
     } catch (JCAMPException e) {
       e.printStackTrace();
     }
@@ -697,6 +1008,8 @@ public class JCAMPBlock {
    * @return int
    */
   public int numBlocks() {
+    if (lazy)
+      materializeBlocks();
     return childBlocks.size();
   }
 
@@ -713,6 +1026,8 @@ public class JCAMPBlock {
    * @return int
    */
   public int numVariables() {
+    if (lazy)
+      materializeVariables();
     return vars.length;
   }
 
@@ -734,6 +1049,27 @@ public class JCAMPBlock {
     errorHandler = newErrorHandler;
   }
 
+  /**
+   * sets executor for decoding NTUPLE pages in parallel.
+   * a fork-join pool also decodes large ASDF data in parallel chunks.
+   * 
+   * @param newExecutor executor service or fork-join pool, null to decode in calling thread
+   * @see JCAMPNTuple#getXYData()
+   */
+  public void setExecutor(ExecutorService newExecutor) {
+    executor = newExecutor;
+  }
+
+  /**
+   * sets storage of the y values of spectra.
+   * 
+   * @param newStorage {@link CompactArrayData#STORAGE_DOUBLE}, {@link CompactArrayData#STORAGE_FLOAT}
+   *        {@link CompactArrayData#STORAGE_SCALED} or {@link CompactArrayData#STORAGE_DIRECT}
+   */
+  public void setStorage(int newStorage) {
+    storage = newStorage;
+  }
+
   /**
    * sets spectrum identifier.
    * @param newSpectrumID int
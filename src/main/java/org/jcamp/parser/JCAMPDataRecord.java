@@ -2,11 +2,6 @@ package org.jcamp.parser;
 
 import java.util.ListIterator;
 
-import org.apache.regexp.RE;
-import org.apache.regexp.RECompiler;
-import org.apache.regexp.REProgram;
-import org.apache.regexp.RESyntaxException;
-
 /**
  * class for reading JCAMP Labeled Data Records (LDR)s.
  * JCAMPDataRecord objects are constructed by the containing JCAMPBlock class
@@ -15,21 +10,6 @@ import org.apache.regexp.RESyntaxException;
  * @see JCAMPBlock
  */
 public class JCAMPDataRecord {
-  private final static String XYDATA_RE = "^([:alpha:][:digit:]*)([:alpha:][:digit:]*)DATA$";
-  private final static String XYPOINTS_RE = "^([:alpha:][:digit:]*)([:alpha:][:digit:]*)POINTS$";
-  private final static REProgram XYDATA_REPRG;
-  private final static REProgram XYPOINTS_REPRG;
-  static {
-    try {
-      RECompiler compiler = new RECompiler();
-      XYDATA_REPRG = compiler.compile(XYDATA_RE);
-      XYPOINTS_REPRG = compiler.compile(XYPOINTS_RE);
-    } catch (RESyntaxException e) {
-      throw new Error("bad RE in DataVariableInfo");
-    }
-  }
-  private RE xyDataRE = new RE(XYDATA_REPRG);
-  private RE xyPointsRE = new RE(XYPOINTS_REPRG);
   // flag if data LDR
   private boolean isData = false;
   // normalized key	
@@ -38,7 +18,7 @@ public class JCAMPDataRecord {
   private String value;
   private String content;
   // containing JCAMP string	
-  private String jcamp;
+  private CharSequence jcamp;
   // start offset	
   private int start;
   // offset of '=' (end of key)	
@@ -136,7 +116,7 @@ public class JCAMPDataRecord {
   /**
    * JCAMPLabel constructor comment.
    */
-  JCAMPDataRecord(String jcamp, int start, int end, int blockIndex) {
+  JCAMPDataRecord(CharSequence jcamp, int start, int end, int blockIndex) {
     super();
     this.jcamp = jcamp;
     this.start = start;
@@ -145,21 +125,45 @@ public class JCAMPDataRecord {
     this.prev = null;
     this.index = 0;
     this.blockIndex = blockIndex;
-    String label = jcamp.substring(start, end);
-    this.equalSignPos = label.indexOf('=');
-    this.key = Utils.normalizeLabel(label.substring(2, equalSignPos));
+    // only the label is copied, the value is extracted on demand
+    int pos = start;
+    while (pos < end && jcamp.charAt(pos) != '=')
+      pos++;
+    this.equalSignPos = pos - start;
+    this.key = Utils.normalizeLabel(jcamp.subSequence(start + 2, start + equalSignPos).toString());
     //	this.value = label.substring(equalSignPos+1);
-    if (xyDataRE.match(this.key)
-	|| xyPointsRE.match(this.key)
+    if (isVariablePairKey(this.key, "DATA")
+	|| isVariablePairKey(this.key, "POINTS")
 	|| this.key.equals("DATATABLE")
 	|| this.key.equals("PEAKTABLE")
 	|| this.key.equals("PEAKASSIGNMENTS"))
       this.isData = true;
   }
+  /**
+   * checks for keys like XYDATA or R1I2POINTS, i.e. two variable symbols
+   * (a letter followed by digits) followed by <code>suffix</code>.
+   * @return boolean
+   * @param key normalized key
+   * @param suffix java.lang.String
+   */
+  private static boolean isVariablePairKey(String key, String suffix) {
+    int n = key.length() - suffix.length();
+    if (n < 2 || !key.endsWith(suffix) || !Character.isLetter(key.charAt(0)))
+      return false;
+    int letters = 0;
+    for (int i = 0; i < n; i++) {
+      char c = key.charAt(i);
+      if (Character.isLetter(c))
+	letters++;
+      else if (!Character.isDigit(c))
+	return false;
+    }
+    return letters == 2;
+  }
   /**
    * JCAMPLabel constructor comment.
    */
-  JCAMPDataRecord(ListIterator list, String jcamp, int start, int end, int blockIndex) {
+  JCAMPDataRecord(ListIterator list, CharSequence jcamp, int start, int end, int blockIndex) {
     this(jcamp, start, end, blockIndex);
     list.add(this);
   }
@@ -225,7 +229,7 @@ public class JCAMPDataRecord {
    * @return java.lang.String
    */
   public String getOriginalKey() {
-    return jcamp.substring(start + 2, start + equalSignPos);
+    return jcamp.subSequence(start + 2, start + equalSignPos).toString();
   }
   /**
    * gets start position within JCAMP string.
@@ -234,13 +238,85 @@ public class JCAMPDataRecord {
   public int getStart() {
     return start;
   }
+  /**
+   * gets character sequence containing the LDR.
+   * @return java.lang.CharSequence
+   */
+  CharSequence getText() {
+    return jcamp;
+  }
+  /**
+   * gets start position of the value (after '=') within JCAMP string.
+   * @return int
+   */
+  int getValueStart() {
+    return start + equalSignPos + 1;
+  }
+  /**
+   * gets end position of the content within JCAMP string,
+   * i.e. without trailing white space and comments.
+   * @return int
+   */
+  int getContentEnd() {
+    int s = getValueStart();
+    int e = end;
+    while (true) {
+      while (e > s && jcamp.charAt(e - 1) <= ' ')
+	e--;
+      int lineStart = e;
+      while (lineStart > s && !isLineBreak(jcamp.charAt(lineStart - 1)))
+	lineStart--;
+      int comment = findComment(lineStart, e);
+      if (comment < 0)
+	return e;
+      e = comment;
+    }
+  }
+  /**
+   * gets start position of the content within JCAMP string,
+   * i.e. without leading white space and comments.
+   * @param contentEnd end of content, see {@link #getContentEnd()}
+   * @return int
+   */
+  int getContentStart(int contentEnd) {
+    int s = getValueStart();
+    while (s < contentEnd) {
+      char c = jcamp.charAt(s);
+      if (c <= ' ')
+	s++;
+      else if (c == '$' && s + 1 < contentEnd && jcamp.charAt(s + 1) == '$') {
+	while (s < contentEnd && !isLineBreak(jcamp.charAt(s)))
+	  s++;
+      } else
+	break;
+    }
+    return s;
+  }
+  /**
+   * finds start of a line comment between <code>from</code> and <code>to</code>.
+   * @return position of "$$" or -1
+   */
+  private int findComment(int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (jcamp.charAt(i) == '$') {
+	if (i + 1 < to && jcamp.charAt(i + 1) == '$')
+	  return i;
+	// '$' followed by another char is kept as it is
+	i++;
+      }
+    }
+    return -1;
+  }
+  private static boolean isLineBreak(char c) {
+    return c == '\n' || c == '\r';
+  }
   /**
    * gets content of LDR.
    * @return java.lang.String
    */
   public java.lang.String getValue() {
     if (value == null) {
-      value = jcamp.substring(start + equalSignPos + 1, end);
+      value = jcamp.subSequence(start + equalSignPos + 1, end).toString();
     }
     return value;
   }
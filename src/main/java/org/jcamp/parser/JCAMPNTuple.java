@@ -1,6 +1,17 @@
 package org.jcamp.parser;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jcamp.math.IArray2D;
 
 /**
  * class for reading a NTUPLE table.
@@ -85,6 +96,156 @@ public class JCAMPNTuple {
   public JCAMPNTuplePage[] getPages() {
     return this.pages;
   }
+  /**
+   * gets data of all pages, see {@link JCAMPNTuplePage#getXYData()}.
+   * pages are decoded in parallel if an executor is set for the containing block.
+   * 
+   * @return IArray2D[] data by page index
+   * @exception JCAMPException first error by page index
+   * @see JCAMPBlock#setExecutor(ExecutorService)
+   */
+  public IArray2D[] getXYData() throws JCAMPException {
+    return getXYData(containingBlock.getExecutor());
+  }
+  /**
+   * gets data of all pages, see {@link JCAMPNTuplePage#getXYData()}.
+   * pages are independent of each other and decoded in parallel by <code>executor</code>,
+   * the error handler of the block has to be thread-safe then.
+   * the calling thread decodes pages too, so it may be a thread of <code>executor</code>.
+   * 
+   * @return IArray2D[] data by page index
+   * @param executor executor service or fork-join pool, null to decode in calling thread
+   * @exception JCAMPException first error by page index
+   */
+  public IArray2D[] getXYData(ExecutorService executor) throws JCAMPException {
+    final IArray2D[] data = new IArray2D[numPages()];
+    decodePages(executor, new INTuplePageHandler() {
+      public void pageDecoded(int index, IArray2D page) {
+	data[index] = page;
+      }
+    });
+    return data;
+  }
+  /**
+   * decodes all pages and passes each to <code>handler</code>, without keeping them.
+   * pages are independent of each other and decoded in parallel by <code>executor</code>,
+   * the error handler of the block and <code>handler</code> have to be thread-safe then.
+   * the calling thread decodes pages too, so it may be a thread of <code>executor</code>.
+   * 
+   * @param executor executor service or fork-join pool, null to decode in calling thread
+   * @param handler INTuplePageHandler
+   * @exception JCAMPException first error by page index
+   */
+  public void decodePages(ExecutorService executor, INTuplePageHandler handler) throws JCAMPException {
+    int n = numPages();
+    if (executor == null || n < 2) {
+      for (int i = 0; i < n; i++)
+	handler.pageDecoded(i, pages[i].getXYData());
+      return;
+    }
+    // create records in calling thread in lazy mode
+    containingBlock.getAllDataRecords();
+    // few chunks per thread, pages of GC/MS runs are small
+    int workers = getParallelism(executor);
+    PageDecoder decoder = new PageDecoder(handler, n, Math.min(n, 4 * (workers + 1)));
+    int numHelpers = Math.min(workers, decoder.numChunks - 1);
+    List futures = new ArrayList(numHelpers);
+    try {
+      for (int t = 0; t < numHelpers; t++)
+	futures.add(executor.submit(decoder));
+    } catch (RejectedExecutionException e) {
+      // remaining chunks are decoded by the calling thread
+    }
+    // helpers that did not start yet find no chunks left
+    decoder.run();
+    try {
+      decoder.done.await();
+    } catch (InterruptedException e) {
+      decoder.failed = true;
+      cancel(futures);
+      Thread.currentThread().interrupt();
+      throw new JCAMPException("interrupted while decoding NTUPLE pages");
+    }
+    cancel(futures);
+    for (int t = 0; t < decoder.numChunks; t++) {
+      Throwable cause = decoder.errors[t];
+      if (cause == null)
+	continue;
+      if (cause instanceof JCAMPException)
+	throw (JCAMPException) cause;
+      if (cause instanceof RuntimeException)
+	throw (RuntimeException) cause;
+      if (cause instanceof Error)
+	throw (Error) cause;
+      throw new JCAMPException(String.valueOf(cause));
+    }
+  }
+  /**
+   * decodes chunks of pages until none are left, run by the calling thread and
+   * by tasks of the executor. chunks are taken in page order, so after an error
+   * only chunks behind it are skipped.
+   */
+  private class PageDecoder implements Runnable {
+    private final INTuplePageHandler handler;
+    private final int numPages;
+    private final int numChunks;
+    private final AtomicInteger nextChunk = new AtomicInteger();
+    private final CountDownLatch done;
+    private final Throwable[] errors;
+    private volatile boolean failed = false;
+
+    PageDecoder(INTuplePageHandler handler, int numPages, int numChunks) {
+      this.handler = handler;
+      this.numPages = numPages;
+      this.numChunks = numChunks;
+      this.done = new CountDownLatch(numChunks);
+      this.errors = new Throwable[numChunks];
+    }
+
+    public void run() {
+      int n = numPages;
+      int t;
+      while ((t = nextChunk.getAndIncrement()) < numChunks) {
+	try {
+	  if (!failed) {
+	    int last = (int) ((long) n * (t + 1) / numChunks);
+	    for (int i = (int) ((long) n * t / numChunks); i < last; i++)
+	      handler.pageDecoded(i, pages[i].getXYData());
+	  }
+	} catch (Throwable e) {
+	  errors[t] = e;
+	  failed = true;
+	} finally {
+	  done.countDown();
+	}
+      }
+    }
+  }
+  /**
+   * gets number of threads of <code>executor</code> available for decoding,
+   * at most the number of processors for unbounded pools.
+   * 
+   * @param executor java.util.concurrent.ExecutorService
+   * @return int
+   */
+  private static int getParallelism(ExecutorService executor) {
+    if (executor instanceof ForkJoinPool)
+      return ((ForkJoinPool) executor).getParallelism();
+    int processors = Runtime.getRuntime().availableProcessors();
+    if (executor instanceof ThreadPoolExecutor)
+      return Math.max(1, Math.min(((ThreadPoolExecutor) executor).getMaximumPoolSize(), processors));
+    return processors;
+  }
+  /**
+   * cancels pending tasks.
+   * 
+   * @param futures java.util.List
+   */
+  private static void cancel(List futures) {
+    for (int t = 0; t < futures.size(); t++)
+      ((Future) futures.get(t)).cancel(false);
+  }
+
   /**
    * gets the variable by symbol <code>symbol</code>.
    * @param String symbol
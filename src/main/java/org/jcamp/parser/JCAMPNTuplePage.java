@@ -221,7 +221,7 @@ public class JCAMPNTuplePage {
                     block.getErrorHandler().fatal("missing dimension for incremental variable " + xVar.getSymbol());
                 xDim = xVar.getDimension().intValue();
             }
-            double[] y = block.getASDFDecoder().decode(dataLDR, xFirst, xLast, xFactor, xDim);
+            double[] y = block.decodeASDF(dataLDR, xFirst, xLast, xFactor, xDim);
             int n = y.length;
             if (n != xDim)
                 block.getErrorHandler().error("data dimension missmatch");
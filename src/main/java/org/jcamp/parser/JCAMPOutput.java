@@ -0,0 +1,130 @@
+package org.jcamp.parser;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.jcamp.spectrum.Spectrum;
+
+/**
+ * Appendable used by the JCAMP writers.
+ * adds the StringBuilder style append methods for numbers, formatted like
+ * <code>StringBuilder</code>, so the output does not depend on the target.
+ */
+final class JCAMPOutput
+  implements Appendable {
+
+  private final Appendable out;
+
+  // not null if out is a StringBuilder, numbers are appended without temporary strings
+  private final StringBuilder sb;
+
+  // not null if out is a Writer, char arrays are written without temporary strings
+  private final Writer writer;
+
+  private JCAMPOutput(Appendable out) {
+    this.out = out;
+    this.sb = (out instanceof StringBuilder) ? (StringBuilder) out : null;
+    this.writer = (out instanceof Writer) ? (Writer) out : null;
+  }
+
+  /**
+   * wraps an Appendable, unless it already is a JCAMPOutput.
+   *
+   * @param out Appendable
+   * @return JCAMPOutput
+   */
+  static JCAMPOutput wrap(Appendable out) {
+    if (out instanceof JCAMPOutput)
+      return (JCAMPOutput) out;
+    return new JCAMPOutput(out);
+  }
+
+  /**
+   * writes spectrum into a string.
+   *
+   * @param writer ISpectrumJCAMPStreamWriter
+   * @param spectrum Spectrum
+   * @param simple true for simple JCAMP
+   * @return java.lang.String
+   * @throws JCAMPException
+   */
+  static String toString(ISpectrumJCAMPStreamWriter writer, Spectrum spectrum, boolean simple) throws JCAMPException {
+    StringBuilder jcamp = new StringBuilder();
+    try {
+      if (simple)
+	writer.writeSimple(spectrum, jcamp);
+      else
+	writer.write(spectrum, jcamp);
+    } catch (IOException e) {
+      // cannot happen with a StringBuilder
+      throw new JCAMPException(e.getMessage());
+    }
+    return jcamp.toString();
+  }
+
+  public JCAMPOutput append(CharSequence csq) throws IOException {
+    out.append(csq);
+    return this;
+  }
+
+  public JCAMPOutput append(CharSequence csq, int start, int end) throws IOException {
+    out.append(csq, start, end);
+    return this;
+  }
+
+  public JCAMPOutput append(char c) throws IOException {
+    out.append(c);
+    return this;
+  }
+
+  public JCAMPOutput append(char[] str) throws IOException {
+    return append(str, 0, str.length);
+  }
+
+  public JCAMPOutput append(char[] str, int offset, int len) throws IOException {
+    if (sb != null)
+      sb.append(str, offset, len);
+    else if (writer != null)
+      writer.write(str, offset, len);
+    else
+      out.append(new String(str, offset, len));
+    return this;
+  }
+
+  public JCAMPOutput append(int i) throws IOException {
+    if (sb != null)
+      sb.append(i);
+    else
+      out.append(Integer.toString(i));
+    return this;
+  }
+
+  public JCAMPOutput append(long l) throws IOException {
+    if (sb != null)
+      sb.append(l);
+    else
+      out.append(Long.toString(l));
+    return this;
+  }
+
+  public JCAMPOutput append(float f) throws IOException {
+    if (sb != null)
+      sb.append(f);
+    else
+      out.append(Float.toString(f));
+    return this;
+  }
+
+  public JCAMPOutput append(double d) throws IOException {
+    if (sb != null)
+      sb.append(d);
+    else
+      out.append(Double.toString(d));
+    return this;
+  }
+
+  public JCAMPOutput append(Object obj) throws IOException {
+    out.append(String.valueOf(obj));
+    return this;
+  }
+}
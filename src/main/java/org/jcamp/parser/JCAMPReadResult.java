@@ -0,0 +1,55 @@
+package org.jcamp.parser;
+
+/**
+ * details of a single {@link JCAMPReader} call besides the spectrum, filled by
+ * {@link JCAMPReader#createSpectrum(JCAMPBlock, JCAMPReadResult)} and its overloads.
+ * a result is used by one thread and does not outlive the caller's reference.
+ */
+public class JCAMPReadResult {
+  private JCAMPBlock rootblock = null;
+  private int idoffirstspectrum = -1;
+
+  /**
+   * JCAMPReadResult constructor.
+   */
+  public JCAMPReadResult() {
+    super();
+  }
+
+  /**
+   * gets root block of a compound JCAMP, to retrieve its other blocks.
+   * the spectrum created is read from the first spectrum block.
+   * 
+   * @return JCAMPBlock, null if the spectrum was not read from a compound JCAMP
+   */
+  public JCAMPBlock getRootblock() {
+    return rootblock;
+  }
+
+  /**
+   * gets id of the first full spectrum block of a compound JCAMP.
+   * 
+   * @return int, -1 if not available
+   */
+  public int getIdoffirstspectrum() {
+    return idoffirstspectrum;
+  }
+
+  /**
+   * sets root block.
+   * 
+   * @param rootblock JCAMPBlock
+   */
+  void setRootblock(JCAMPBlock rootblock) {
+    this.rootblock = rootblock;
+  }
+
+  /**
+   * sets id of the first full spectrum block.
+   * 
+   * @param id int
+   */
+  void setIdoffirstspectrum(int id) {
+    this.idoffirstspectrum = id;
+  }
+}
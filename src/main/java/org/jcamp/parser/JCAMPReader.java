@@ -21,25 +21,35 @@ package org.jcamp.parser;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.file.Path;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.concurrent.ExecutorService;
 
+import org.jcamp.spectrum.CompactArrayData;
 import org.jcamp.spectrum.ISpectrumIdentifier;
 import org.jcamp.spectrum.Spectrum;
 
 /**
  * reader for JCAMP-DX spectrum format.
  * 
+ * instances are configured at construction and can be shared between threads,
+ * use {@link #withLazy(boolean)} and {@link #withErrorHandler(IErrorHandler)}
+ * to derive readers with other settings.
+ * 
  * @author Thomas Weber
  */
 public class JCAMPReader {
-  private IErrorHandler errorHandler = new ErrorHandlerAdapter();
-  private static JCAMPReader theInstance = null;
-  private static Hashtable adapters = new Hashtable(20);
-  private static boolean isValidating=true;
-  private static String mode=JCAMPReader.STRICT;
-  private JCAMPBlock rootblock=null;
-  private int idoffirstspectrum=-1;
+  private final IErrorHandler errorHandler;
+  private final Hashtable adapters;
+  private final boolean isValidating;
+  private final String mode;
+  private final boolean isLazy;
+  private final ExecutorService executor;
+  private final int storage;
+  // result of the last createSpectrum() call of each thread for a compound JCAMP,
+  // see getRootblock(), replaced or removed by the next call of the thread
+  private final ThreadLocal lastResult = new ThreadLocal();
   /**
    *these are flags for initialising the reader as strict or relaxed.
    *Differences in behaviour are:
@@ -48,17 +58,29 @@ public class JCAMPReader {
    */
   public final static String STRICT="strict";
   public final static String RELAXED="relaxed";
-
+  /** size of the read buffer used by {@link #createSpectrum(Reader)} */
+  private final static int BUFFER_SIZE = 8192;
+  /** shared instances for the standard settings */
+  private final static JCAMPReader STRICT_VALIDATING = new JCAMPReader(true, STRICT);
+  private final static JCAMPReader STRICT_NONVALIDATING = new JCAMPReader(false, STRICT);
+  private final static JCAMPReader RELAXED_VALIDATING = new JCAMPReader(true, RELAXED);
+  private final static JCAMPReader RELAXED_NONVALIDATING = new JCAMPReader(false, RELAXED);
 
   /**
    * shk3: This method gives you the root block in order to retrieve other blocks in 
    * case of multi block files. If a JCAMP file contains several blocks (blocks means basically spectra
    * in JCAMP), the spectrum returned by create spectrum is the first subblock.
+   * Refers to the last spectrum created by the calling thread, the root block is kept
+   * for each thread until its next call. It is not kept for spectra created from a
+   * {@link Path}, as it holds the mapped file.
    * 
-   * @return The root block.
+   * @return The root block, null if the last spectrum was not read from a compound JCAMP.
+   * @deprecated use {@link #createSpectrum(JCAMPBlock, JCAMPReadResult)} and its overloads
    */
+  @Deprecated
   public JCAMPBlock getRootblock() {
-    return rootblock;
+    JCAMPReadResult result = (JCAMPReadResult) lastResult.get();
+    return result == null ? null : result.getRootblock();
   }
 
   /**
@@ -66,29 +88,67 @@ public class JCAMPReader {
    * block files. If a JCAMP file contains several blocks (blocks means basically spectra
    * in JCAMP), the spectrum returned by create spectrum is the first subblock. In order
    * to filter this out, you can get its id here.
+   * Refers to the last spectrum created by the calling thread.
    * 
-   * @return The id of the first child block.
+   * @return The id of the first child block, -1 if not available.
+   * @deprecated use {@link #createSpectrum(JCAMPBlock, JCAMPReadResult)} and its overloads
    */
+  @Deprecated
   public int getIdoffirstspectrum() {
-    return idoffirstspectrum;
+    JCAMPReadResult result = (JCAMPReadResult) lastResult.get();
+    return result == null ? -1 : result.getIdoffirstspectrum();
   }
 
   /**
-   * JCAMPReader constructor comment.
+   * JCAMPReader constructor.
    * @param isValidating should the parser be validating? often files are not strictly correct
+   * @param mode {@link #STRICT} or {@link #RELAXED}
    */
-  private JCAMPReader(boolean isValidating, String mode) {
-    super();
-    JCAMPReader.isValidating=isValidating;
-    JCAMPReader.mode=mode;
+  public JCAMPReader(boolean isValidating, String mode) {
+    this(isValidating, mode, false, new ErrorHandlerAdapter(), null, CompactArrayData.STORAGE_DOUBLE);
+  }
+
+  /**
+   * JCAMPReader constructor. gives a validating, strict reader.
+   */
+  public JCAMPReader() {
+    this(true, STRICT);
   }
 
+  /**
+   * JCAMPReader constructor.
+   */
+  private JCAMPReader(boolean isValidating, String mode, boolean lazy, IErrorHandler errorHandler, ExecutorService executor,
+      int storage) {
+    super();
+    this.isValidating = isValidating;
+    // NMR spectra compare the mode by identity
+    if (STRICT.equals(mode))
+      this.mode = STRICT;
+    else if (RELAXED.equals(mode))
+      this.mode = RELAXED;
+    else
+      this.mode = mode;
+    this.isLazy = lazy;
+    this.errorHandler = errorHandler;
+    this.executor = executor;
+    this.storage = storage;
+    this.adapters = createAdapters(this.mode);
+  }
 
   /**
-   * JCAMPReader constructor. gives a validating reader.
+   * JCAMPReader constructor, copies settings and shares adapters.
    */
-  private JCAMPReader() {
+  private JCAMPReader(JCAMPReader reader, boolean lazy, IErrorHandler errorHandler, ExecutorService executor,
+      int storage) {
     super();
+    this.isValidating = reader.isValidating;
+    this.mode = reader.mode;
+    this.isLazy = lazy;
+    this.errorHandler = errorHandler;
+    this.executor = executor;
+    this.storage = storage;
+    this.adapters = reader.adapters;
   }
 
   /**
@@ -98,10 +158,28 @@ public class JCAMPReader {
    * @param blockID int
    */
   public Spectrum createSpectrum(JCAMPBlock block) throws JCAMPException {
+    JCAMPReadResult result = new JCAMPReadResult();
+    Spectrum spectrum = createSpectrum(block, result);
+    if (result.getRootblock() != null)
+      lastResult.set(result);
+    return spectrum;
+  }
+
+  /**
+   * create spectrum from JCAMPBlock. the root block of a compound JCAMP and the id
+   * of its first spectrum block are returned in <code>result</code>.
+   * 
+   * @return Spectrum
+   * @param block JCAMPBlock
+   * @param result JCAMPReadResult filled by this call
+   */
+  public Spectrum createSpectrum(JCAMPBlock block, JCAMPReadResult result) throws JCAMPException {
+    IErrorHandler errorHandler = this.errorHandler;
+    lastResult.remove();
     if (block.isLinkBlock()) {
       errorHandler.warn("compound JCAMP encountered: using first spectrum block");
-      rootblock=block;
-      block = findFirstSpectrumBlock(block);
+      result.setRootblock(block);
+      block = findFirstSpectrumBlock(block, errorHandler, result);
     }
     ISpectrumJCAMPReader reader = findAdapter(block.getSpectrumID());
     if (reader == null)
@@ -128,17 +206,55 @@ public class JCAMPReader {
    * @throws JCAMPException The exception description.
    */
   public Spectrum createSpectrum(Reader reader) throws IOException, JCAMPException {
-    StringBuilder fileData = new StringBuilder();
-    char[] buf = new char[1024];
-    int numRead=0;
-    while ((numRead=reader.read(buf)) != -1) {
-      String readData = String.valueOf(buf, 0, numRead);
-      fileData.append(readData);
-      buf = new char[1024];
-    }
+    StringBuilder fileData = new StringBuilder(BUFFER_SIZE);
+    // single buffer, chars are appended directly without temporary strings
+    char[] buf = new char[BUFFER_SIZE];
+    int numRead;
+    while ((numRead=reader.read(buf)) != -1)
+      fileData.append(buf, 0, numRead);
     return createSpectrum(fileData.toString());
   }
 
+  /**
+   * Create spectrum from JCAMP-DX file. The file is memory mapped and parsed without
+   * copying it onto the heap, data records are read from the mapping on demand.
+   * Characters are read as ISO-8859-1.
+   * 
+   * @return Spectrum
+   * @param path JCAMP-DX file
+   * @throws IOException if file cannot be mapped
+   * @throws JCAMPException The exception description.
+   */
+  public Spectrum createSpectrum(Path path) throws IOException, JCAMPException {
+    JCAMPReadResult result = new JCAMPReadResult();
+    Spectrum spectrum = createSpectrum(path, result);
+    if (result.getIdoffirstspectrum() != -1) {
+      // the root block holds the mapping, only the id is kept
+      JCAMPReadResult last = new JCAMPReadResult();
+      last.setIdoffirstspectrum(result.getIdoffirstspectrum());
+      lastResult.set(last);
+    }
+    return spectrum;
+  }
+
+  /**
+   * Create spectrum from JCAMP-DX file, see {@link #createSpectrum(Path)}. The root block
+   * of a compound JCAMP and the id of its first spectrum block are returned in <code>result</code>.
+   * 
+   * @return Spectrum
+   * @param path JCAMP-DX file
+   * @param result JCAMPReadResult filled by this call
+   * @throws IOException if file cannot be mapped
+   * @throws JCAMPException The exception description.
+   */
+  public Spectrum createSpectrum(Path path, JCAMPReadResult result) throws IOException, JCAMPException {
+    JCAMPBlock block = new JCAMPBlock(MappedCharSequence.map(path), errorHandler, isLazy);
+    block.setValidating(isValidating);
+    block.setExecutor(executor);
+    block.setStorage(storage);
+    return createSpectrum(block, result);
+  }
+
   /**
    * create spectrum from JCAMP-DX string.
    * 
@@ -147,9 +263,34 @@ public class JCAMPReader {
    * @throws JCAMPException The exception description.
    */
   public Spectrum createSpectrum(String jcamp) throws JCAMPException {
-    JCAMPBlock block = new JCAMPBlock(jcamp, errorHandler);
-    block.setValidating(JCAMPReader.isValidating);
-    return createSpectrum(block);
+    return createSpectrum(createBlock(jcamp));
+  }
+
+  /**
+   * create spectrum from JCAMP-DX string. the root block of a compound JCAMP
+   * and the id of its first spectrum block are returned in <code>result</code>.
+   * 
+   * @return Spectrum
+   * @param jcamp JCAMP-DX source
+   * @param result JCAMPReadResult filled by this call
+   * @throws JCAMPException The exception description.
+   */
+  public Spectrum createSpectrum(String jcamp, JCAMPReadResult result) throws JCAMPException {
+    return createSpectrum(createBlock(jcamp), result);
+  }
+
+  /**
+   * creates root block of JCAMP-DX string with the settings of this reader.
+   * 
+   * @return JCAMPBlock
+   * @param jcamp JCAMP-DX source
+   */
+  private JCAMPBlock createBlock(String jcamp) throws JCAMPException {
+    JCAMPBlock block = new JCAMPBlock(jcamp, errorHandler, isLazy);
+    block.setValidating(isValidating);
+    block.setExecutor(executor);
+    block.setStorage(storage);
+    return block;
   }
 
   /**
@@ -170,7 +311,8 @@ public class JCAMPReader {
    * @return com.creon.chem.jcamp.JCAMPBlock
    * @param block com.creon.chem.jcamp.JCAMPBlock
    */
-  private JCAMPBlock findFirstSpectrumBlock(JCAMPBlock block) throws JCAMPException {
+  private JCAMPBlock findFirstSpectrumBlock(JCAMPBlock block, IErrorHandler errorHandler, JCAMPReadResult result)
+      throws JCAMPException {
     // first try, returning only full spectra
     Enumeration blocks = block.getBlocks();
     if (blocks != null) {
@@ -184,7 +326,7 @@ public class JCAMPReader {
 	String dataType = dataTypeLDR.getContent().toUpperCase();
 	if (dataType.endsWith("TABLE") || dataType.endsWith("ASSIGNMENTS"))
 	  continue;
-	idoffirstspectrum=b.getID();
+	result.setIdoffirstspectrum(b.getID());
 	return b;
       }
     }
@@ -212,37 +354,130 @@ public class JCAMPReader {
   }
 
   /**
-   * access method for JCAMPReader singleton instance. gives a validating instance
+   * checks if reader is validating.
+   * 
+   * @return boolean
+   */
+  public boolean isValidating() {
+    return isValidating;
+  }
+
+  /**
+   * gets mode, {@link #STRICT} or {@link #RELAXED}.
+   * 
+   * @return java.lang.String
+   */
+  public String getMode() {
+    return mode;
+  }
+
+  /**
+   * checks if blocks are created in lazy mode.
+   * 
+   * @return boolean
+   * @see #withLazy(boolean)
+   */
+  public boolean isLazy() {
+    return isLazy;
+  }
+
+  /**
+   * gets reader with same settings but lazy mode: blocks only index their data records
+   * and child blocks, these are created when accessed. useful if only few data records are used.
+   * 
+   * @param lazy create block content on demand
+   * @return JCAMPReader
+   */
+  public JCAMPReader withLazy(boolean lazy) {
+    return new JCAMPReader(this, lazy, errorHandler, executor, storage);
+  }
+
+  /**
+   * gets reader with same settings but other error handler.
+   * 
+   * @param newErrorHandler com.creon.chem.jcamp.IErrorHandler
+   * @return JCAMPReader
+   */
+  public JCAMPReader withErrorHandler(IErrorHandler newErrorHandler) {
+    return new JCAMPReader(this, isLazy, newErrorHandler, executor, storage);
+  }
+
+  /**
+   * gets executor for decoding NTUPLE pages, e.g. scans of GC/MS runs.
+   * 
+   * @return ExecutorService or null
+   * @see #withExecutor(ExecutorService)
+   */
+  public ExecutorService getExecutor() {
+    return executor;
+  }
+
+  /**
+   * gets reader with same settings that decodes NTUPLE pages in parallel by <code>newExecutor</code>.
+   * a fork-join pool also decodes large ASDF data in parallel chunks, see
+   * {@link ASDFDecoder#getParallelThreshold()}.
+   * the executor is not shut down by the reader, the error handler has to be thread-safe.
+   * 
+   * @param newExecutor executor service or fork-join pool, null to decode in calling thread
+   * @return JCAMPReader
+   */
+  public JCAMPReader withExecutor(ExecutorService newExecutor) {
+    return new JCAMPReader(this, isLazy, errorHandler, newExecutor, storage);
+  }
+
+  /**
+   * gets storage of the y values of spectra.
+   * 
+   * @return int
+   * @see #withStorage(int)
+   */
+  public int getStorage() {
+    return storage;
+  }
+
+  /**
+   * gets reader with same settings that stores the y values of spectra in <code>newStorage</code>,
+   * e.g. {@link CompactArrayData#STORAGE_SCALED} to keep large spectral libraries in less memory.
+   * 
+   * @param newStorage {@link CompactArrayData#STORAGE_DOUBLE}, {@link CompactArrayData#STORAGE_FLOAT}
+   *        {@link CompactArrayData#STORAGE_SCALED} or {@link CompactArrayData#STORAGE_DIRECT}
+   * @return JCAMPReader
+   */
+  public JCAMPReader withStorage(int newStorage) {
+    return new JCAMPReader(this, isLazy, errorHandler, executor, newStorage);
+  }
+
+  /**
+   * access method for shared JCAMPReader instance. gives a validating, strict instance
    * 
    * @return JCAMPReader
    */
   public static JCAMPReader getInstance() {
-    if (theInstance == null || JCAMPReader.isValidating!=true || JCAMPReader.mode!=JCAMPReader.STRICT) {
-      theInstance = new JCAMPReader(true, JCAMPReader.STRICT);
-      initAdapters();
-    }
-    return theInstance;
+    return STRICT_VALIDATING;
   }
 
   /**
-   * access method for JCAMPReader singleton instance.
+   * access method for shared JCAMPReader instances.
+   * instances for different settings are independent of each other.
    * 
    * @param isValidating should the parser be validating? often files are not strictly correct
+   * @param mode {@link #STRICT} or {@link #RELAXED}
    * @return JCAMPReader
    */
   public static JCAMPReader getInstance(boolean isValidating, String mode) {
-    if (theInstance == null || JCAMPReader.isValidating!=isValidating || JCAMPReader.mode!=mode) {
-      theInstance = new JCAMPReader(isValidating, mode);
-      initAdapters();
-    }
-    return theInstance;
+    if (STRICT.equals(mode))
+      return isValidating ? STRICT_VALIDATING : STRICT_NONVALIDATING;
+    if (RELAXED.equals(mode))
+      return isValidating ? RELAXED_VALIDATING : RELAXED_NONVALIDATING;
+    return new JCAMPReader(isValidating, mode);
   }
 
   /**
-   * initialize adapter map
+   * create adapter map, not modified afterwards.
    * 
    */
-  private static void initAdapters() {
+  private static Hashtable createAdapters(String mode) {
+    Hashtable adapters = new Hashtable(20);
     adapters.put(new Integer(ISpectrumIdentifier.NMR), new NMRJCAMPReader(mode));
     adapters.put(new Integer(ISpectrumIdentifier.IR), new IRJCAMPReader());
     adapters.put(new Integer(ISpectrumIdentifier.UV), new UVJCAMPReader());
@@ -250,14 +485,6 @@ public class JCAMPReader {
     adapters.put(new Integer(ISpectrumIdentifier.RAMAN), new RamanJCAMPReader());
     adapters.put(new Integer(ISpectrumIdentifier.CHROMATOGRAM), new ChromatogramJCAMPReader());
     adapters.put(new Integer(ISpectrumIdentifier.FLUORESCENCE), new FluorescenceJCAMPReader());
-  }
-
-  /**
-   * sets the error handler.
-   * 
-   * @param newErrorHandler com.creon.chem.jcamp.IErrorHandler
-   */
-  public void setErrorHandler(IErrorHandler newErrorHandler) {
-    errorHandler = newErrorHandler;
+    return adapters;
   }
 }
\ No newline at end of file
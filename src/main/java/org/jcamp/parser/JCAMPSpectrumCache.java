@@ -0,0 +1,436 @@
+package org.jcamp.parser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jcamp.math.IArray1D;
+import org.jcamp.spectrum.FloatArrayData;
+import org.jcamp.spectrum.GCMSSpectrum;
+import org.jcamp.spectrum.IEquidistant;
+import org.jcamp.spectrum.IMasterSpectrum;
+import org.jcamp.spectrum.MassSpectrum;
+import org.jcamp.spectrum.ScaledIntArrayData;
+import org.jcamp.spectrum.ScaledShortArrayData;
+import org.jcamp.spectrum.Spectrum;
+import org.jcamp.spectrum.Spectrum1D;
+import org.jcamp.spectrum.Spectrum2D;
+
+/**
+ * cache of decoded spectra in front of a JCAMPReader.
+ *
+ * files are cached by their absolute path, a file is read again if its
+ * modification time or size changed. JCAMP strings are cached by their SHA-256 hash.
+ * the cache is bounded by the size of the data arrays of the cached spectra,
+ * least recently used spectra are evicted first, see {@link #sizeOf(Spectrum)}.
+ *
+ * lookups can be made by many threads, a spectrum requested by several threads
+ * at the same time is read only once, the other threads wait for it.
+ * cached spectra are shared and must not be modified by the caller.
+ */
+public class JCAMPSpectrumCache {
+
+  /** estimated size of a spectrum without its data arrays */
+  public final static long SPECTRUM_OVERHEAD = 1024;
+
+  /** estimated size of an array object without its elements */
+  private final static long ARRAY_OVERHEAD = 16;
+
+  /** estimated size of a peak of a peak table */
+  private final static long PEAK_SIZE = 64;
+
+  private final JCAMPReader reader;
+
+  private final long maxBytes;
+
+  // key -> Entry, in access order, guarded by this
+  private final LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+
+  // key and version -> FutureTask of running loads, guarded by this
+  private final Hashtable loading = new Hashtable();
+
+  // size of all entries, guarded by this
+  private long bytes;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong loads = new AtomicLong();
+
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * JCAMPSpectrumCache constructor.
+   *
+   * @param reader JCAMPReader used to read spectra
+   * @param maxBytes maximum size of all cached spectra
+   */
+  public JCAMPSpectrumCache(JCAMPReader reader, long maxBytes) {
+    super();
+    if (maxBytes < 0)
+      throw new IllegalArgumentException("maxBytes < 0");
+    this.reader = reader;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * gets spectrum of JCAMP-DX file, reads it if it is not cached
+   * or if the file changed since it was cached.
+   *
+   * @return Spectrum
+   * @param path JCAMP-DX file
+   * @throws IOException if file cannot be read
+   * @throws JCAMPException if file cannot be parsed
+   */
+  public Spectrum getSpectrum(final Path path) throws IOException, JCAMPException {
+    Path file = path.toAbsolutePath().normalize();
+    BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+    String version = attrs.lastModifiedTime().toMillis() + ":" + attrs.size();
+    return get("file:" + file, version, new Callable() {
+      public Object call() throws IOException, JCAMPException {
+	return reader.createSpectrum(path);
+      }
+    });
+  }
+
+  /**
+   * gets spectrum of JCAMP-DX string, parses it if it is not cached.
+   *
+   * @return Spectrum
+   * @param jcamp JCAMP-DX source
+   * @throws JCAMPException if the string cannot be parsed
+   */
+  public Spectrum getSpectrum(final String jcamp) throws JCAMPException {
+    try {
+      return get("sha256:" + hash(jcamp), "", new Callable() {
+	public Object call() throws JCAMPException {
+	  return reader.createSpectrum(jcamp);
+	}
+      });
+    } catch (IOException e) {
+      // cannot happen, parsing a string does not read files
+      throw new JCAMPException(e.getMessage());
+    }
+  }
+
+  /**
+   * looks up spectrum, or loads it once for all threads requesting it.
+   *
+   * @return Spectrum
+   * @param key String
+   * @param version version of the source, entries of other versions are replaced
+   * @param loader Callable reading the spectrum
+   */
+  private Spectrum get(String key, String version, Callable loader) throws IOException, JCAMPException {
+    String loadKey = key + "@" + version;
+    FutureTask task;
+    boolean isLoader = false;
+    synchronized (this) {
+      Entry entry = (Entry) entries.get(key);
+      if (entry != null && entry.version.equals(version)) {
+	hits.incrementAndGet();
+	return entry.spectrum;
+      }
+      misses.incrementAndGet();
+      task = (FutureTask) loading.get(loadKey);
+      if (task == null) {
+	task = new FutureTask(loader);
+	loading.put(loadKey, task);
+	isLoader = true;
+      }
+    }
+    if (isLoader) {
+      loads.incrementAndGet();
+      task.run();
+      Spectrum spectrum = null;
+      try {
+	spectrum = (Spectrum) task.get();
+      } catch (Exception e) {
+	// reported below
+      }
+      synchronized (this) {
+	loading.remove(loadKey);
+	if (spectrum != null)
+	  put(key, new Entry(version, spectrum, sizeOf(spectrum)));
+      }
+    }
+    try {
+      return (Spectrum) task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new JCAMPException("interrupted while waiting for spectrum");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+	throw (IOException) cause;
+      if (cause instanceof JCAMPException)
+	throw (JCAMPException) cause;
+      if (cause instanceof RuntimeException)
+	throw (RuntimeException) cause;
+      if (cause instanceof Error)
+	throw (Error) cause;
+      throw new JCAMPException(String.valueOf(cause));
+    }
+  }
+
+  /**
+   * adds entry and evicts least recently used entries, must hold the lock.
+   * spectra larger than the cache are not added.
+   *
+   * @param key String
+   * @param entry Entry
+   */
+  private void put(String key, Entry entry) {
+    Entry old = (Entry) entries.remove(key);
+    if (old != null)
+      bytes -= old.size;
+    if (entry.size > maxBytes)
+      return;
+    entries.put(key, entry);
+    bytes += entry.size;
+    for (Iterator it = entries.values().iterator(); bytes > maxBytes && it.hasNext();) {
+      Entry eldest = (Entry) it.next();
+      it.remove();
+      bytes -= eldest.size;
+      evictions.incrementAndGet();
+    }
+  }
+
+  /**
+   * removes spectrum of file from cache.
+   *
+   * @param path JCAMP-DX file
+   */
+  public synchronized void invalidate(Path path) {
+    Entry old = (Entry) entries.remove("file:" + path.toAbsolutePath().normalize());
+    if (old != null)
+      bytes -= old.size;
+  }
+
+  /**
+   * removes all spectra from cache, statistics are kept.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    bytes = 0;
+  }
+
+  /**
+   * gets maximum size of all cached spectra.
+   *
+   * @return long number of bytes
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * gets size of all cached spectra.
+   *
+   * @return long number of bytes
+   */
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * gets number of cached spectra.
+   *
+   * @return int
+   */
+  public synchronized int getEntryCount() {
+    return entries.size();
+  }
+
+  /**
+   * gets number of lookups answered from the cache.
+   *
+   * @return long
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * gets number of lookups not answered from the cache,
+   * including lookups waiting for a spectrum loaded by another thread.
+   *
+   * @return long
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * gets number of spectra read by the reader.
+   *
+   * @return long
+   */
+  public long getLoadCount() {
+    return loads.get();
+  }
+
+  /**
+   * gets number of spectra evicted to stay within the maximum size.
+   *
+   * @return long
+   */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * gets ratio of hits to lookups.
+   *
+   * @return double
+   */
+  public double getHitRate() {
+    long h = hits.get();
+    long total = h + misses.get();
+    if (total == 0)
+      return 0.0;
+    return (double) h / total;
+  }
+
+  /**
+   * resets all counters.
+   */
+  public void resetStatistics() {
+    hits.set(0);
+    misses.set(0);
+    loads.set(0);
+    evictions.set(0);
+  }
+
+  /**
+   * estimates size of spectrum in memory, i.e. the elements of its data arrays
+   * and its peak table plus {@link #SPECTRUM_OVERHEAD}. equidistant data does not hold an array.
+   * the slave spectra of master spectra are included, lazy GC/MS spectra count the
+   * scans their scan cache can hold by the average size of the scans cached so far.
+   *
+   * @return long number of bytes
+   * @param spectrum Spectrum
+   */
+  public static long sizeOf(Spectrum spectrum) {
+    long size = SPECTRUM_OVERHEAD;
+    if (spectrum instanceof Spectrum1D) {
+      Spectrum1D spectrum1D = (Spectrum1D) spectrum;
+      size += sizeOf(spectrum1D.getXData());
+      size += sizeOf(spectrum1D.getYData());
+      if (spectrum1D.hasPeakTable())
+	size += ARRAY_OVERHEAD + PEAK_SIZE * spectrum1D.getPeakTable().length;
+    } else if (spectrum instanceof Spectrum2D) {
+      Spectrum2D spectrum2D = (Spectrum2D) spectrum;
+      size += sizeOf(spectrum2D.getXData());
+      size += sizeOf(spectrum2D.getYData());
+      size += sizeOf(spectrum2D.getZData());
+    }
+    if (spectrum instanceof GCMSSpectrum)
+      size += sizeOfScans((GCMSSpectrum) spectrum);
+    else if (spectrum instanceof IMasterSpectrum && spectrum instanceof Spectrum1D) {
+      IMasterSpectrum master = (IMasterSpectrum) spectrum;
+      int n = ((Spectrum1D) spectrum).getXData().getLength();
+      for (int i = 0; i < n; i++) {
+	Spectrum slave = master.getSlaveSpectrumFromXIndex(i);
+	if (slave != null)
+	  size += sizeOf(slave);
+      }
+    }
+    return size;
+  }
+
+  /**
+   * estimates size of the mass spectra of a GC/MS spectrum. lazy instances hold
+   * at most {@link GCMSSpectrum#getScanCacheSize()} scans, the first scan is decoded
+   * to estimate their size if none is cached yet.
+   *
+   * @return long number of bytes
+   * @param spectrum GCMSSpectrum
+   */
+  private static long sizeOfScans(GCMSSpectrum spectrum) {
+    int n = spectrum.getXData().getLength();
+    MassSpectrum[] scans = spectrum.getCachedMassSpectra();
+    if (!spectrum.isLazy()) {
+      long size = ARRAY_OVERHEAD + 4L * n;
+      for (int i = 0; i < scans.length; i++)
+	size += sizeOf(scans[i]);
+      return size;
+    }
+    if (n == 0)
+      return 0;
+    if (scans.length == 0)
+      scans = new MassSpectrum[] { spectrum.getMassSpectrum(0) };
+    long total = 0;
+    for (int i = 0; i < scans.length; i++)
+      total += sizeOf(scans[i]);
+    return total / scans.length * Math.min(n, spectrum.getScanCacheSize());
+  }
+
+  /**
+   * estimates size of data array in memory, compact arrays hold 2 or 4 bytes per value.
+   *
+   * @return long number of bytes
+   * @param data IArray1D
+   */
+  private static long sizeOf(IArray1D data) {
+    if (data == null || data instanceof IEquidistant)
+      return 0;
+    if (data instanceof ScaledShortArrayData)
+      return ARRAY_OVERHEAD + 2L * data.getLength();
+    if (data instanceof ScaledIntArrayData || data instanceof FloatArrayData)
+      return ARRAY_OVERHEAD + 4L * data.getLength();
+    return ARRAY_OVERHEAD + 8L * data.getLength();
+  }
+
+  /**
+   * SHA-256 hash of string as hex digits.
+   *
+   * @return String
+   * @param s String
+   */
+  private static String hash(String s) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform supports SHA-256
+      throw new IllegalStateException(e);
+    }
+    byte[] bytes = digest.digest(s.getBytes(StandardCharsets.UTF_8));
+    StringBuilder hex = new StringBuilder(2 * bytes.length);
+    for (int i = 0; i < bytes.length; i++) {
+      hex.append(Character.forDigit((bytes[i] >> 4) & 0xf, 16));
+      hex.append(Character.forDigit(bytes[i] & 0xf, 16));
+    }
+    return hex.toString();
+  }
+
+  /**
+   * cached spectrum.
+   */
+  private static class Entry {
+    final String version;
+
+    final Spectrum spectrum;
+
+    final long size;
+
+    Entry(String version, Spectrum spectrum, long size) {
+      this.version = version;
+      this.spectrum = spectrum;
+      this.size = size;
+    }
+  }
+}
@@ -1,5 +1,11 @@
 package org.jcamp.parser;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Hashtable;
 
 import org.jcamp.spectrum.FluorescenceSpectrum;
@@ -70,4 +76,69 @@ public class JCAMPWriter {
         else
             return adapter.toSimpleJCAMP(spectrum);
     }
+    /**
+     * writes spectrum as compound JCAMP to <code>out</code>.
+     * adapters implementing ISpectrumJCAMPStreamWriter append the blocks while they are
+     * created, the JCAMP string of the whole spectrum is not built.
+     * 
+     * @param spectrum Spectrum
+     * @param out Appendable, e.g. a Writer
+     * @throws JCAMPException if the spectrum cannot be written
+     * @throws IOException if the target fails
+     */
+    public void write(Spectrum spectrum, Appendable out) throws JCAMPException, IOException {
+        write(spectrum, out, false);
+    }
+    /**
+     * writes spectrum as simple JCAMP to <code>out</code>.
+     * 
+     * @param spectrum Spectrum
+     * @param out Appendable, e.g. a Writer
+     * @throws JCAMPException if the spectrum cannot be written
+     * @throws IOException if the target fails
+     */
+    public void writeSimple(Spectrum spectrum, Appendable out) throws JCAMPException, IOException {
+        write(spectrum, out, true);
+    }
+    /**
+     * writes spectrum as compound JCAMP to <code>out</code>.
+     * characters are written as ISO-8859-1, the stream is flushed but not closed.
+     * 
+     * @param spectrum Spectrum
+     * @param out OutputStream
+     * @throws JCAMPException if the spectrum cannot be written
+     * @throws IOException if the stream fails
+     */
+    public void writeTo(Spectrum spectrum, OutputStream out) throws JCAMPException, IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.ISO_8859_1));
+        write(spectrum, writer, false);
+        writer.flush();
+    }
+    /**
+     * writes spectrum as simple JCAMP to <code>out</code>.
+     * characters are written as ISO-8859-1, the stream is flushed but not closed.
+     * 
+     * @param spectrum Spectrum
+     * @param out OutputStream
+     * @throws JCAMPException if the spectrum cannot be written
+     * @throws IOException if the stream fails
+     */
+    public void writeSimpleTo(Spectrum spectrum, OutputStream out) throws JCAMPException, IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.ISO_8859_1));
+        write(spectrum, writer, true);
+        writer.flush();
+    }
+    private void write(Spectrum spectrum, Appendable out, boolean simple) throws JCAMPException, IOException {
+        ISpectrumJCAMPWriter adapter = findAdapter(spectrum);
+        if (adapter == null)
+            throw new JCAMPException("cannot write JCAMP for " + spectrum.getClass());
+        if (adapter instanceof ISpectrumJCAMPStreamWriter) {
+            ISpectrumJCAMPStreamWriter streamAdapter = (ISpectrumJCAMPStreamWriter) adapter;
+            if (simple)
+                streamAdapter.writeSimple(spectrum, out);
+            else
+                streamAdapter.write(spectrum, out);
+        } else
+            out.append(simple ? adapter.toSimpleJCAMP(spectrum) : adapter.toJCAMP(spectrum));
+    }
 }
@@ -0,0 +1,106 @@
+package org.jcamp.parser;
+
+import java.util.Arrays;
+
+/**
+ * read-only view joining several parts of a character sequence.
+ * 
+ * Used for the text of a block that contains child blocks: the block's own
+ * data records are read from the gaps between the child blocks without
+ * copying them into a new string.
+ */
+final class JoinedCharSequence implements CharSequence {
+  private final CharSequence text;
+  // start and end of the parts within text
+  private final int[] starts;
+  private final int[] ends;
+  // offset of the parts within this sequence, offsets[n] is the total length
+  private final int[] offsets;
+
+  /**
+   * JoinedCharSequence constructor.
+   * 
+   * @param text underlying sequence
+   * @param starts start offsets of the parts within <code>text</code>
+   * @param ends end offsets of the parts within <code>text</code>
+   * @param count number of parts
+   */
+  JoinedCharSequence(CharSequence text, int[] starts, int[] ends, int count) {
+    super();
+    this.text = text;
+    this.starts = Arrays.copyOf(starts, count);
+    this.ends = Arrays.copyOf(ends, count);
+    this.offsets = new int[count + 1];
+    for (int i = 0; i < count; i++)
+      offsets[i + 1] = offsets[i] + ends[i] - starts[i];
+  }
+
+  /**
+   * gets index of the part containing <code>index</code>.
+   */
+  private int partAt(int index) {
+    int part = Arrays.binarySearch(offsets, 0, starts.length, index);
+    if (part < 0)
+      part = -part - 2;
+    // skip empty parts
+    while (offsets[part + 1] <= index && part < starts.length - 1)
+      part++;
+    return part;
+  }
+
+  /**
+   * @see java.lang.CharSequence
+   */
+  public int length() {
+    return offsets[starts.length];
+  }
+
+  /**
+   * @see java.lang.CharSequence
+   */
+  public char charAt(int index) {
+    if (index < 0 || index >= length())
+      throw new IndexOutOfBoundsException("index: " + index + ", length: " + length());
+    int part = partAt(index);
+    return text.charAt(starts[part] + index - offsets[part]);
+  }
+
+  /**
+   * @see java.lang.CharSequence
+   */
+  public CharSequence subSequence(int start, int end) {
+    if (start < 0 || end > length() || start > end)
+      throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length());
+    if (start == end)
+      return "";
+    int first = partAt(start);
+    int last = partAt(end - 1);
+    if (first == last) {
+      int s = starts[first] + start - offsets[first];
+      return CharSequenceSlice.of(text, s, s + end - start);
+    }
+    int n = last - first + 1;
+    int[] s = new int[n];
+    int[] e = new int[n];
+    for (int i = 0; i < n; i++) {
+      s[i] = starts[first + i];
+      e[i] = ends[first + i];
+    }
+    s[0] += start - offsets[first];
+    e[n - 1] = starts[last] + end - offsets[last];
+    return new JoinedCharSequence(text, s, e, n);
+  }
+
+  /**
+   * copies joined parts into a string.
+   * 
+   * @return java.lang.String
+   */
+  @Override
+  public String toString() {
+    StringBuilder tmp = new StringBuilder(length());
+    for (int i = 0; i < starts.length; i++)
+      tmp.append(text, starts[i], ends[i]);
+    return tmp.toString();
+  }
+}
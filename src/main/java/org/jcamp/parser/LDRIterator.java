@@ -1,28 +1,13 @@
 package org.jcamp.parser;
 
-import org.apache.regexp.RE;
-import org.apache.regexp.RECompiler;
-import org.apache.regexp.REProgram;
-import org.apache.regexp.RESyntaxException;
 /**
  * Iterator returning LDRs.
  * @author Thomas Weber
  */
 public class LDRIterator implements IStringIterator {
-    private static String labelRegExp = "##[^=\\n\\r]*=";
-    private static RECompiler compiler = new RECompiler();
-    private REProgram labelProgram = null;
-    {
-        try {
-            labelProgram = compiler.compile(labelRegExp);
-        } catch (RESyntaxException e) {
-            e.printStackTrace();
-        }
-    }
-    private RE labelRE = new RE(labelProgram, RE.MATCH_CASEINDEPENDENT);
     private int start = 0;
     private int end = -1;
-    private String jcamp;
+    private CharSequence jcamp;
     /**
      * LDRIterator constructor comment.
      */
@@ -30,6 +15,9 @@ public class LDRIterator implements IStringIterator {
         super();
     }
     public LDRIterator(String jcamp) {
+        this((CharSequence) jcamp);
+    }
+    public LDRIterator(CharSequence jcamp) {
         this.jcamp = jcamp;
         firstLabel();
     }
@@ -38,9 +26,10 @@ public class LDRIterator implements IStringIterator {
             return;
         if (start >= jcamp.length())
             return;
-        if (labelRE.match(jcamp)) {
-            start = labelRE.getParenStart(0);
-            end = labelRE.getParenEnd(0);
+        int label = LabelScanner.findLabel(jcamp, 0);
+        if (label >= 0) {
+            start = label;
+            end = LabelScanner.labelEnd(jcamp, label);
             return;
         } else {
             start = jcamp.length();
@@ -71,19 +60,31 @@ public class LDRIterator implements IStringIterator {
      * @see com.creon.chem.jcamp.IStringIterator
      */
     public String next() {
-        String ldr = null;
+        if (jcamp != null && start < jcamp.length()) {
+            int ldrStart = start;
+            return jcamp.subSequence(ldrStart, nextEnd()).toString();
+        }
+        return null;
+    }
+    /**
+     * skips the current LDR without copying it.
+     * 
+     * @return end offset of the current LDR
+     */
+    int nextEnd() {
+        int ldrEnd = -1;
         //System.out.println(" start = " + start + " end = " + end);
         if (jcamp != null && start < jcamp.length()) {
-            if (labelRE.match(jcamp, end + 1)) {
-                ldr = jcamp.substring(start, labelRE.getParenStart(0) - 1);
-                start = labelRE.getParenStart(0);
-                end = labelRE.getParenEnd(0);
+            int label = LabelScanner.findLabel(jcamp, end + 1);
+            if (label >= 0) {
+                ldrEnd = label - 1;
+                start = label;
+                end = LabelScanner.labelEnd(jcamp, label);
             } else {
-                ldr = jcamp.substring(start);
+                ldrEnd = jcamp.length();
                 start = end = jcamp.length();
             }
         }
-        return ldr;
-
+        return ldrEnd;
     }
 }
@@ -1,46 +1,44 @@
 package org.jcamp.parser;
 
-import org.apache.regexp.RE;
-import org.apache.regexp.RECompiler;
-import org.apache.regexp.REProgram;
-import org.apache.regexp.RESyntaxException;
 /**
  * Iterator over JCAMP labels.
  * @author Thomas Weber
  */
 public class LabelIterator implements IStringIterator {
-	private static String labelRegExp = "^##[^=\\n\\r]*=";
-    private static RECompiler compiler = new RECompiler();
-    private REProgram labelProgram = null;
-    {
-        try {
-            labelProgram = compiler.compile(labelRegExp);
-        } catch (RESyntaxException e) {
-            e.printStackTrace();
-        }
-    }
-    //shk3: we need a multiline match, else only the first label is recognized
-    private RE labelRE = new RE(labelProgram, RE.MATCH_CASEINDEPENDENT | RE.MATCH_MULTILINE);
     private int offset = 0;
-    private String jcamp;
+    // start of next label at or after offset, -2 if not searched yet
+    private int match = -2;
+    private CharSequence jcamp;
     /**
     * LabelIterator constructor comment.
     */
     public LabelIterator(String jcamp) {
+        this((CharSequence) jcamp);
+    }
+    /**
+    * LabelIterator constructor comment.
+    */
+    public LabelIterator(CharSequence jcamp) {
         super();
         this.jcamp = jcamp;
     }
+    /**
+     * finds next label at the start of a line (multiline match of <code>^##[^=\n\r]*=</code>).
+     * 
+     * @return start of label or -1
+     */
+    private int findMatch() {
+        if (match == -2)
+            match = LabelScanner.findLabelAtLineStart(jcamp, offset);
+        return match;
+    }
     /**
      * @see com.creon.chem.jcamp.IStringIterator
      */
     public int getOffset() {
         if (jcamp == null)
             return -1;
-        if (labelRE.match(jcamp, offset))
-            return labelRE.getParenStart(0);
-        else
-            return -1;
-
+        return findMatch();
     }
     /**
      * @see com.creon.chem.jcamp.IStringIterator
@@ -48,7 +46,7 @@ public class LabelIterator implements IStringIterator {
     public boolean hasNext() {
         if (jcamp == null)
             return false;
-        return labelRE.match(jcamp, offset);
+        return findMatch() >= 0;
     }
     /**
      * @see com.creon.chem.jcamp.IStringIterator
@@ -56,15 +54,12 @@ public class LabelIterator implements IStringIterator {
     public String next() {
         if (jcamp == null)
             return null;
-        int startMatch = offset;
-        int endMatch = 0;
-        String match;
-        if (labelRE.match(jcamp, startMatch)) {
-            match = labelRE.getParen(0);
-            startMatch = labelRE.getParenStart(0);
-            endMatch = labelRE.getParenEnd(0);
+        int startMatch = findMatch();
+        if (startMatch >= 0) {
+            int endMatch = LabelScanner.labelEnd(jcamp, startMatch);
             offset = endMatch + 1;
-            return match;
+            match = -2;
+            return jcamp.subSequence(startMatch, endMatch).toString();
         } else
             return null;
     }
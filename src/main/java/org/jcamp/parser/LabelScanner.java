@@ -0,0 +1,142 @@
+package org.jcamp.parser;
+
+/**
+ * single pass scanner for JCAMP labels (<code>##label=</code>),
+ * replaces the regular expressions <code>##[^=\n\r]*=</code> and
+ * <code>^##[^=\n\r]*=</code> (multiline) used by the iterators.
+ */
+final class LabelScanner {
+
+    private LabelScanner() {
+    }
+
+    /**
+     * finds the next label starting at or after <code>from</code>.
+     *
+     * @param text JCAMP text
+     * @param from search start
+     * @return start of label or -1
+     */
+    static int findLabel(CharSequence text, int from) {
+        int n = text.length();
+        int p = Math.max(from, 0);
+        while (p + 1 < n) {
+            if (text.charAt(p) != '#') {
+                p++;
+            } else if (text.charAt(p + 1) != '#') {
+                p += 2;
+            } else {
+                int q = scanLabel(text, p);
+                if (q < n && text.charAt(q) == '=')
+                    return p;
+                if (q >= n)
+                    return -1;
+                // any label starting before the line break ends there, too
+                p = q + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * finds the next label at the start of a line, starting at or after <code>from</code>.
+     * like the multiline match of the regular expression package, only '\n' starts a new line.
+     *
+     * @param text JCAMP text
+     * @param from search start
+     * @return start of label or -1
+     */
+    static int findLabelAtLineStart(CharSequence text, int from) {
+        int n = text.length();
+        int p = Math.max(from, 0);
+        if (p > 0 && p <= n && text.charAt(p - 1) != '\n')
+            p = nextLineStart(text, p);
+        while (p >= 0 && p + 1 < n) {
+            if (text.charAt(p) == '#' && text.charAt(p + 1) == '#') {
+                int q = scanLabel(text, p);
+                if (q >= n)
+                    return -1;
+                if (text.charAt(q) == '=')
+                    return p;
+                p = nextLineStart(text, q);
+            } else
+                p = nextLineStart(text, p);
+        }
+        return -1;
+    }
+
+    /**
+     * gets end of label starting at <code>start</code>.
+     *
+     * @param text JCAMP text
+     * @param start label start, as returned by the find methods
+     * @return offset after '='
+     */
+    static int labelEnd(CharSequence text, int start) {
+        return scanLabel(text, start) + 1;
+    }
+
+    /**
+     * compares label starting at <code>start</code> with normalized key without
+     * creating the label string.
+     *
+     * @see Utils#normalizeLabel(String)
+     * @param text JCAMP text
+     * @param start label start
+     * @param key normalized key without "##" and "="
+     * @return boolean
+     */
+    static boolean labelEquals(CharSequence text, int start, String key) {
+        int k = 0;
+        int n = key.length();
+        int len = text.length();
+        for (int i = start + 2; i < len; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '=':
+                    return k == n;
+                case ' ':
+                case '_':
+                case '-':
+                case '/':
+                    break;
+                default:
+                    if (k == n || Character.toUpperCase(c) != key.charAt(k))
+                        return false;
+                    k++;
+            }
+        }
+        return k == n;
+    }
+
+    /**
+     * scans label chars after "##".
+     *
+     * @return position of '=' or line break, or length of text
+     */
+    private static int scanLabel(CharSequence text, int start) {
+        int n = text.length();
+        int q = start + 2;
+        while (q < n) {
+            char c = text.charAt(q);
+            if (c == '=' || c == '\n' || c == '\r')
+                break;
+            q++;
+        }
+        return q;
+    }
+
+    /**
+     * gets start of the line following position <code>pos</code>.
+     *
+     * @return offset or -1 if there is no further line
+     */
+    private static int nextLineStart(CharSequence text, int pos) {
+        int n = text.length();
+        for (int i = pos; i < n; i++) {
+            if (text.charAt(i) == '\n')
+                return i + 1;
+        }
+        return -1;
+    }
+}
@@ -1,5 +1,6 @@
 package org.jcamp.parser;
 
+import org.jcamp.math.IArray1D;
 import org.jcamp.math.IArray2D;
 import org.jcamp.math.IOrderedArray1D;
 import org.jcamp.spectrum.ArrayData;
@@ -7,6 +8,7 @@ import org.jcamp.spectrum.Assignment;
 import org.jcamp.spectrum.EquidistantData;
 import org.jcamp.spectrum.GCMSSpectrum;
 import org.jcamp.spectrum.IDataArray1D;
+import org.jcamp.spectrum.IMassSpectrumProvider;
 import org.jcamp.spectrum.IOrderedDataArray1D;
 import org.jcamp.spectrum.ISpectrumIdentifier;
 import org.jcamp.spectrum.MassSpectrum;
@@ -59,11 +61,11 @@ public class MSJCAMPReader
       if (intensities.length != nPoints)
 	throw new JCAMPException("incorrect ##NPOINTS= or bad ##XYDATA=");
       x = new EquidistantData(firstX, lastX, nPoints, xUnit);
-      y = new ArrayData(intensities, yUnit);
+      y = createYData(block, intensities, yFactor, yUnit);
     } else if (block.getDataRecord("XYPOINTS") != null) {
       double xy[][] = getXYPoints(block, nPoints, xFactor, yFactor);
       x = new OrderedArrayData(xy[0], xUnit);
-      y = new ArrayData(xy[1], yUnit);
+      y = createYData(block, xy[1], yFactor, yUnit);
     } else
       throw new JCAMPException("missing data: ##XYDATA= or ##XYPOINTS= required.");
     spectrum = new MassSpectrum(x, y, true);
@@ -72,6 +74,8 @@ public class MSJCAMPReader
 
   /**
    * NTUPLE mass spectra.
+   * for lazy blocks only retention times and total ion counts are read, the
+   * mass spectra are decoded on first access.
    * 
    * @return com.creon.chem.spectrum.GCMSSpectrum
    * @param block com.creon.chem.jcamp.JCAMPBlock
@@ -81,7 +85,6 @@ public class MSJCAMPReader
     String title = getTitle(block);
     JCAMPNTuple ntuple = block.getNTuple();
     int nPages = ntuple.numPages();
-    MassSpectrum[] ms = new MassSpectrum[nPages];
 
     double[] times = getRetentionTimes(ntuple);
     double[] tics = getTICs(ntuple);
@@ -91,25 +94,19 @@ public class MSJCAMPReader
     Unit yUnit = getYUnits(block);
     if (yUnit == null)
       yUnit = CommonUnit.relativeAbundance;
-    for (int i = 0; i < nPages; i++) {
-      JCAMPNTuplePage page = block.getNTuple().getPage(i);
-      IArray2D msxy = page.getXYData();
-      /*        double[][] msxy = getNTupleXYPoints(block, page);
-                    for (int j = 0; j < msxy[0].length; j++) {
-                        msxy[0][j] *= xFactor;
-                        msxy[1][j] *= yFactor;
-                    }
-       */
-      IOrderedDataArray1D x = new OrderedArrayData((IOrderedArray1D) msxy.getXArray(), xUnit);
-      IDataArray1D y = new ArrayData(msxy.getYArray(), yUnit);
-
-      ms[i] = new MassSpectrum(x, y, false);
-      if (Double.isNaN(times[i]))
-	ms[i].setTitle(title + "(mass spectrum [" + i + "]");
-      else
-	ms[i].setTitle(title + "(mass spectrum [" + i + "]: t=" + times[i] + ")");
-    }
     IOrderedDataArray1D x = new OrderedArrayData(times, CommonUnit.second);
+    if (block.isLazy()) {
+      if (tics == null)
+	tics = calcTICs(ntuple);
+      IDataArray1D y = new ArrayData(tics, CommonUnit.intensity);
+      NTupleScans scans = new NTupleScans(ntuple, title, times, xUnit, yUnit);
+      return new GCMSSpectrum(x, y, scans, GCMSSpectrum.DEFAULT_SCAN_CACHE_SIZE);
+    }
+    MassSpectrum[] ms = new MassSpectrum[nPages];
+    // pages are decoded in parallel if the block has an executor
+    IArray2D[] data = ntuple.getXYData();
+    for (int i = 0; i < nPages; i++)
+      ms[i] = createMassSpectrum(data[i], title, i, times[i], xUnit, yUnit);
     if (tics != null) {
       IDataArray1D y = new ArrayData(tics, CommonUnit.intensity);
       spectrum = new GCMSSpectrum(x, y, ms);
@@ -118,6 +115,91 @@ public class MSJCAMPReader
     return spectrum;
   }
 
+  /**
+   * creates mass spectrum of a GC/MS scan.
+   * 
+   * @return MassSpectrum
+   * @param msxy IArray2D decoded page
+   * @param title String title of the GC/MS block
+   * @param index int scan index
+   * @param time double retention time
+   */
+  private static MassSpectrum createMassSpectrum(IArray2D msxy, String title, int index, double time, Unit xUnit, Unit yUnit) {
+    /*        double[][] msxy = getNTupleXYPoints(block, page);
+                  for (int j = 0; j < msxy[0].length; j++) {
+                      msxy[0][j] *= xFactor;
+                      msxy[1][j] *= yFactor;
+                  }
+     */
+    IOrderedDataArray1D x = new OrderedArrayData((IOrderedArray1D) msxy.getXArray(), xUnit);
+    IDataArray1D y = new ArrayData(msxy.getYArray(), yUnit);
+
+    MassSpectrum ms = new MassSpectrum(x, y, false);
+    if (Double.isNaN(time))
+      ms.setTitle(title + "(mass spectrum [" + index + "]");
+    else
+      ms.setTitle(title + "(mass spectrum [" + index + "]: t=" + time + ")");
+    return ms;
+  }
+
+  /**
+   * calculates total ion counts page by page, without keeping the decoded pages.
+   * pages are decoded in parallel if the block has an executor.
+   * 
+   * @return double[]
+   */
+  private double[] calcTICs(JCAMPNTuple ntuple) throws JCAMPException {
+    final double[] tics = new double[ntuple.numPages()];
+    ntuple.decodePages(ntuple.getBlock().getExecutor(), new INTuplePageHandler() {
+      public void pageDecoded(int index, IArray2D data) {
+	IArray1D intensities = data.getYArray();
+	double tic = 0.0;
+	for (int j = 0; j < intensities.getLength(); j++)
+	  tic += intensities.pointAt(j);
+	tics[index] = tic;
+      }
+    });
+    return tics;
+  }
+
+  /**
+   * decodes the mass spectra of lazy GC/MS spectra from the NTUPLE pages.
+   */
+  private static class NTupleScans
+    implements IMassSpectrumProvider {
+
+    private final JCAMPNTuple ntuple;
+
+    private final String title;
+
+    private final double[] times;
+
+    private final Unit xUnit;
+
+    private final Unit yUnit;
+
+    NTupleScans(JCAMPNTuple ntuple, String title, double[] times, Unit xUnit, Unit yUnit) {
+      this.ntuple = ntuple;
+      this.title = title;
+      this.times = times;
+      this.xUnit = xUnit;
+      this.yUnit = yUnit;
+    }
+
+    public int getScanCount() {
+      return times.length;
+    }
+
+    public MassSpectrum createMassSpectrum(int index) {
+      try {
+	IArray2D msxy = ntuple.getPage(index).getXYData();
+	return MSJCAMPReader.createMassSpectrum(msxy, title, index, times[index], xUnit, yUnit);
+      } catch (JCAMPException e) {
+	throw new IllegalStateException("cannot decode mass spectrum [" + index + "]: " + e.getMessage(), e);
+      }
+    }
+  }
+
   /**
    * create mass spectrum peak spectrum from JCAMPBlock.
    * 
@@ -159,7 +241,7 @@ public class MSJCAMPReader
     Peak1D[] peaks = (Peak1D[]) tables[0];
     double[][] xy = peakTableToPeakSpectrum(peaks);
     IOrderedDataArray1D x = new OrderedArrayData(xy[0], xUnit);
-    IDataArray1D y = new ArrayData(xy[1], yUnit);
+    IDataArray1D y = createYData(block, xy[1], yFactor, yUnit);
     spectrum = new MassSpectrum(x, y, false);
     //shk3: removed this condition, since I see not reason for it
     //and it breaks reading files with more than 50 peaks.
@@ -1,5 +1,6 @@
 package org.jcamp.parser;
 
+import java.io.IOException;
 import java.util.Iterator;
 
 import org.jcamp.spectrum.ISpectrumIdentifier;
@@ -18,7 +19,7 @@ import org.jcamp.units.Unit;
  */
 public class MSJCAMPWriter
   extends CommonSpectrumJCAMPWriter
-  implements ISpectrumJCAMPWriter {
+  implements ISpectrumJCAMPStreamWriter {
   
   private final static String CRLF = "\r\n";
   
@@ -29,13 +30,12 @@ public class MSJCAMPWriter
     super();
   }
   /**
-   * build a peak table.
+   * write a peak table.
    * 
-   * @return java.lang.String
    * @param ms MassSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildPeakTable(int block, MassSpectrum ms) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writePeakTable(int block, MassSpectrum ms, JCAMPOutput jcamp) throws IOException {
     String title = ms.getTitle();
     jcamp.append("##TITLE=").append(title != null ? title : "").append(CRLF);
     jcamp.append("##JCAMP-DX=5.00").append(CRLF);
@@ -70,7 +70,6 @@ public class MSJCAMPWriter
       }
     }
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
    * gets spectrum notes in JCAMP form.
@@ -129,20 +128,31 @@ public class MSJCAMPWriter
   /**
    * writes spectrum as compound JCAMP.
    */
-  public String toJCAMP(Spectrum spectrum) throws JCAMPException {
+  public void write(Spectrum spectrum, Appendable out) throws JCAMPException, IOException {
     if (!(spectrum instanceof MassSpectrum))
       throw new JCAMPException("JCAMP adapter missmatch");
     MassSpectrum ms = (MassSpectrum) spectrum;
-    StringBuilder jcamp = new StringBuilder();
+    JCAMPOutput jcamp = JCAMPOutput.wrap(out);
     // mass spectra are always peak spectra
-    jcamp.append(buildPeakTable(0, ms));
-    return jcamp.toString();
+    writePeakTable(0, ms, jcamp);
   }
   /**
    * writes spectrum as simple JCAMP.
    */
-  public String toSimpleJCAMP(Spectrum spectrum) throws JCAMPException {
+  public void writeSimple(Spectrum spectrum, Appendable out) throws JCAMPException, IOException {
     // mass spectra are always simple JCAMPs
-    return toJCAMP(spectrum);
+    write(spectrum, out);
+  }
+  /**
+   * writes spectrum as compound JCAMP.
+   */
+  public String toJCAMP(Spectrum spectrum) throws JCAMPException {
+    return JCAMPOutput.toString(this, spectrum, false);
+  }
+  /**
+   * writes spectrum as simple JCAMP.
+   */
+  public String toSimpleJCAMP(Spectrum spectrum) throws JCAMPException {
+    return JCAMPOutput.toString(this, spectrum, true);
   }
 }
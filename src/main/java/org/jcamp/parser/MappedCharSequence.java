@@ -0,0 +1,98 @@
+package org.jcamp.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * read-only character sequence backed by a memory mapped JCAMP-DX file.
+ * 
+ * JCAMP-DX files are plain ASCII, so every byte is mapped to one char
+ * (ISO-8859-1). Sub sequences are views on the same mapping, i.e. blocks and
+ * data records can be created without copying the file onto the heap.
+ */
+final class MappedCharSequence implements CharSequence {
+  private final ByteBuffer buffer;
+  private final int offset;
+  private final int length;
+
+  /**
+   * MappedCharSequence constructor.
+   * 
+   * @param buffer mapped file
+   * @param offset start of sequence within buffer
+   * @param length length of sequence
+   */
+  private MappedCharSequence(ByteBuffer buffer, int offset, int length) {
+    super();
+    this.buffer = buffer;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /**
+   * maps file read-only into memory.
+   * 
+   * @param path java.nio.file.Path
+   * @return MappedCharSequence
+   * @throws IOException if the file cannot be mapped
+   */
+  static MappedCharSequence map(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      // offsets of blocks and data records are int based
+      if (size > Integer.MAX_VALUE)
+	throw new IOException("file too large for JCAMP-DX mapping (" + size + " bytes): " + path);
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      return new MappedCharSequence(buffer, 0, (int) size);
+    } finally {
+      // mapping stays valid after closing the channel
+      channel.close();
+    }
+  }
+
+  /**
+   * @see java.lang.CharSequence
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * @see java.lang.CharSequence
+   */
+  public char charAt(int index) {
+    if (index < 0 || index >= length)
+      throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+    return (char) (buffer.get(offset + index) & 0xff);
+  }
+
+  /**
+   * gets view of a part of the mapped file.
+   * 
+   * @see java.lang.CharSequence
+   */
+  public CharSequence subSequence(int start, int end) {
+    if (start < 0 || end > length || start > end)
+      throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length);
+    return new MappedCharSequence(buffer, offset + start, end - start);
+  }
+
+  /**
+   * copies sequence into a string.
+   * 
+   * @return java.lang.String
+   */
+  @Override
+  public String toString() {
+    byte[] bytes = new byte[length];
+    ByteBuffer view = buffer.duplicate();
+    view.position(offset);
+    view.get(bytes);
+    return new String(bytes, StandardCharsets.ISO_8859_1);
+  }
+}
@@ -22,7 +22,6 @@ package org.jcamp.parser;
 import java.util.StringTokenizer;
 
 import org.jcamp.math.IArray1D;
-import org.jcamp.spectrum.ArrayData;
 import org.jcamp.spectrum.Assignment;
 import org.jcamp.spectrum.EquidistantData;
 import org.jcamp.spectrum.IDataArray1D;
@@ -88,11 +87,11 @@ public class NMRJCAMPReader
 	if (intensities.length != nPoints)
 	  throw new JCAMPException("incorrect ##NPOINTS= or bad ##XYDATA=");
 	x = new EquidistantData(firstX, lastX, nPoints, xUnit);
-	y = new ArrayData(intensities, yUnit);
+	y = createYData(block, intensities, yFactor, yUnit);
       } else if (block.getDataRecord("XYPOINTS") != null) {
 	double xy[][] = getXYPoints(block, nPoints, xFactor, yFactor);
 	x = new OrderedArrayData(xy[0], xUnit);
-	y = new ArrayData(xy[1], yUnit);
+	y = createYData(block, xy[1], yFactor, yUnit);
       } else
 	throw new JCAMPException("missing data: ##XYDATA= or ##XYPOINTS= required.");
       spectrum = new NMRFIDSpectrum(x, y, nucleus, freq, reference);
@@ -145,8 +144,8 @@ public class NMRJCAMPReader
       IArray1D reals = page0.getXYData().getYArray();
       IArray1D imags = page1.getXYData().getYArray();
       IOrderedDataArray1D xData = new EquidistantData(firstX.doubleValue(), lastX.doubleValue(), nPoints, xUnit);
-      IDataArray1D rData = new ArrayData(reals, rUnit);
-      IDataArray1D iData = new ArrayData(imags, rUnit);
+      IDataArray1D rData = createYData(block, reals.toArray(), rFactor.doubleValue(), rUnit);
+      IDataArray1D iData = createYData(block, imags.toArray(), iFactor.doubleValue(), rUnit);
       spectrum = new NMRFIDSpectrum(xData, rData, iData, nucleus, freq, reference);
     }
     return spectrum;
@@ -187,11 +186,11 @@ public class NMRJCAMPReader
 	  nPoints=intensities.length;
 	}
 	x = new EquidistantData(firstX, lastX, nPoints, xUnit);
-	y = new ArrayData(intensities, yUnit);
+	y = createYData(block, intensities, yFactor, yUnit);
       } else if (block.getDataRecord("XYPOINTS") != null) {
 	double xy[][] = getXYPoints(block, nPoints, xFactor, yFactor);
 	x = new OrderedArrayData(xy[0], xUnit);
-	y = new ArrayData(xy[1], yUnit);
+	y = createYData(block, xy[1], yFactor, yUnit);
       } else
 	block.getErrorHandler().fatal("missing data: ##XYDATA= or ##XYPOINTS= required.");
 
@@ -242,7 +241,7 @@ public class NMRJCAMPReader
 	page = block.getNTuple().getPage(1);
       IArray1D reals = page.getXYData().getYArray();
       IOrderedDataArray1D xData = new EquidistantData(firstX.doubleValue(), lastX.doubleValue(), nPoints, xUnit);
-      IDataArray1D rData = new ArrayData(reals, rUnit);
+      IDataArray1D rData = createYData(block, reals.toArray(), rFactor.doubleValue(), rUnit);
       double reference = Double.NaN;
       try {
 	int refPoint = getShiftReferencePoint(block);
@@ -281,7 +280,7 @@ public class NMRJCAMPReader
     Peak1D[] peaks = (Peak1D[]) tables[0];
     double[][] xy = peakTableToPeakSpectrum(peaks);
     IOrderedDataArray1D x = new OrderedArrayData(xy[0], xUnit);
-    IDataArray1D y = new ArrayData(xy[1], yUnit);
+    IDataArray1D y = createYData(block, xy[1], yFactor, yUnit);
     try {
       refPoint = getShiftReferencePoint(block);
       reference = x.pointAt(refPoint);
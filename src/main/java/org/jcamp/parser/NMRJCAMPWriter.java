@@ -10,6 +10,7 @@ import org.jcamp.spectrum.notes.Note;
 import org.jcamp.spectrum.notes.NoteDescriptor;
 import org.jcamp.units.CommonUnit;
 
+import java.io.IOException;
 import java.util.Iterator;
 
 /**
@@ -18,7 +19,7 @@ import java.util.Iterator;
  * @author Thomas Weber
  */
 public class NMRJCAMPWriter
-  implements ISpectrumJCAMPWriter {
+  implements ISpectrumJCAMPStreamWriter {
   
   private final static String CRLF = "\r\n";
   
@@ -29,14 +30,13 @@ public class NMRJCAMPWriter
     super();
   }
   /**
-   * build assignment table
+   * write assignment table
    * 
-   * @return java.lang.String
    * @param block int  block number (0: no xref, main block)
    * @param nmr NMRSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildAssignmentTable(int block, NMRSpectrum nmr) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writeAssignmentTable(int block, NMRSpectrum nmr, JCAMPOutput jcamp) throws IOException {
     Assignment[] assigns = nmr.getAssignments();
     String title = nmr.getTitle();
     String origin = nmr.getOrigin();
@@ -74,16 +74,14 @@ public class NMRJCAMPWriter
 	  .append(CRLF);
     }
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
-   * build FID data block.
+   * write FID data block.
    * 
-   * @return java.lang.String
    * @param nmr NMRFIDSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildFIDData(int block, NMRFIDSpectrum nmr) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writeFIDData(int block, NMRFIDSpectrum nmr, JCAMPOutput jcamp) throws IOException {
     int n = nmr.getXData().getLength();
     double x0 = nmr.getXData().pointAt(0);
     double x1 = nmr.getXData().pointAt(n - 1);
@@ -123,22 +121,20 @@ public class NMRJCAMPWriter
     jcamp.append("##FACTOR=").append(xf).append(',').append(rf).append(',').append(imf).append(",1").append(CRLF);
     jcamp.append("##PAGE= N=1").append(CRLF);
     jcamp.append("##DATATABLE=(X++(R..R)), XYDATA").append(CRLF);
-    jcamp.append(ASDFEncoder.encode(x0 * xf, x1 * xf, r));
+    ASDFEncoder.encode(x0 * xf, x1 * xf, r, jcamp);
     jcamp.append("##PAGE= N=2").append(CRLF);
     jcamp.append("##DATATABLE=(X++(I..I)), XYDATA").append(CRLF);
-    jcamp.append(ASDFEncoder.encode(x0 * xf, x1 * xf, im));
+    ASDFEncoder.encode(x0 * xf, x1 * xf, im, jcamp);
     jcamp.append("##ENDNTUPLES=NMR FID").append(CRLF);
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
-   * build full spectrum data block.
+   * write full spectrum data block.
    * 
-   * @return java.lang.String
    * @param nmr NMRSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildFSData(int block, NMRSpectrum nmr) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writeFSData(int block, NMRSpectrum nmr, JCAMPOutput jcamp) throws IOException {
     int n = nmr.getXData().getLength();
     double x0 = nmr.getXData().pointAt(0);
     double x1 = nmr.getXData().pointAt(n - 1);
@@ -192,19 +188,17 @@ public class NMRJCAMPWriter
     jcamp.append("##LASTY=").append(y1).append(CRLF);
     jcamp.append("##YFACTOR=").append(yf).append(CRLF);
     jcamp.append("##XYDATA=(X++(Y..Y))").append(CRLF);
-    jcamp.append(ASDFEncoder.encode(Math.round(x0 * xf), Math.round(x1 * xf), y));
+    ASDFEncoder.encode(Math.round(x0 * xf), Math.round(x1 * xf), y, jcamp);
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
-   * build pattern table
+   * write pattern table
    * 
-   * @return java.lang.String
    * @param block int  block number (0: no xref, main block)
    * @param nmr NMRSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildPatternTable(int block, NMRSpectrum nmr) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writePatternTable(int block, NMRSpectrum nmr, JCAMPOutput jcamp) throws IOException {
     Pattern[] pattern = nmr.getPatternTable();
     String title = nmr.getTitle();
     int n = pattern.length;
@@ -231,16 +225,14 @@ public class NMRJCAMPWriter
       jcamp.append(x).append(',').append(y).append(',').append(pattern[i].getLabel()).append(CRLF);
     }
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
-   * build a peak table.
+   * write a peak table.
    * 
-   * @return java.lang.String
    * @param nmr NMRSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildPeakTable(int block, NMRSpectrum nmr) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writePeakTable(int block, NMRSpectrum nmr, JCAMPOutput jcamp) throws IOException {
     Peak1D[] peaks = nmr.getPeakTable();
     int n = peaks.length;
     String title = nmr.getTitle();
@@ -267,7 +259,6 @@ public class NMRJCAMPWriter
       jcamp.append(x).append(',').append(y).append(CRLF);
     }
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
    * gets spectrum notes in JCAMP form.
@@ -297,11 +288,11 @@ public class NMRJCAMPWriter
   /**
    * writes spectrum as compound JCAMP.
    */
-  public String toJCAMP(Spectrum spectrum) throws JCAMPException {
+  public void write(Spectrum spectrum, Appendable out) throws JCAMPException, IOException {
     if (!(spectrum instanceof NMRSpectrum))
       throw new JCAMPException("JCAMP adapter missmatch");
     NMRSpectrum nmr = (NMRSpectrum) spectrum;
-    StringBuilder jcamp = new StringBuilder();
+    JCAMPOutput jcamp = JCAMPOutput.wrap(out);
     String title = nmr.getTitle();
     // main data
     int nDataBlocks = 1;
@@ -326,66 +317,76 @@ public class NMRJCAMPWriter
     }
     if (nmr.isFullSpectrum()) {
       if (nmr.isFID()) {
-	jcamp.append(buildFIDData(linked ? block : 0, (NMRFIDSpectrum) nmr));
+	writeFIDData(linked ? block : 0, (NMRFIDSpectrum) nmr, jcamp);
 	block++;
       } else {
-	jcamp.append(buildFSData(linked ? block : 0, nmr));
+	writeFSData(linked ? block : 0, nmr, jcamp);
 	block++;
       }
       if (nmr.hasAssignments()) {
-	jcamp.append(buildAssignmentTable(linked ? block : 0, nmr));
+	writeAssignmentTable(linked ? block : 0, nmr, jcamp);
 	block++;
       } else {
 	if (nmr.hasPatternTable()) {
-	  jcamp.append(buildPatternTable(linked ? block : 0, nmr));
+	  writePatternTable(linked ? block : 0, nmr, jcamp);
 	  block++;
 	}
       }
       if (nmr.hasPeakTable()) {
-	jcamp.append(buildPeakTable(linked ? block : 0, nmr));
+	writePeakTable(linked ? block : 0, nmr, jcamp);
 	block++;
       }
     } else { // peak spectrum
-      jcamp.append(buildPeakTable(linked ? block : 0, nmr));
+      writePeakTable(linked ? block : 0, nmr, jcamp);
     block++;
     if (nmr.hasAssignments()) {
-      jcamp.append(buildAssignmentTable(linked ? block : 0, nmr));
+      writeAssignmentTable(linked ? block : 0, nmr, jcamp);
       block++;
     } else {
       if (nmr.hasPatternTable()) {
-	jcamp.append(buildPatternTable(linked ? block : 0, nmr));
+	writePatternTable(linked ? block : 0, nmr, jcamp);
 	block++;
       }
     }
     }
     if (linked)
       jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
    * writes spectrum as simple JCAMP with possible information loss.
    */
-  public String toSimpleJCAMP(Spectrum spectrum) throws JCAMPException {
+  public void writeSimple(Spectrum spectrum, Appendable out) throws JCAMPException, IOException {
     if (!(spectrum instanceof NMRSpectrum))
       throw new JCAMPException("JCAMP adapter missmatch");
     NMRSpectrum nmr = (NMRSpectrum) spectrum;
-    StringBuilder jcamp = new StringBuilder();
+    JCAMPOutput jcamp = JCAMPOutput.wrap(out);
     // main data
     if (nmr.isFullSpectrum()) {
       if (nmr.isFID()) {
-	jcamp.append(buildFIDData(0, (NMRFIDSpectrum) nmr));
+	writeFIDData(0, (NMRFIDSpectrum) nmr, jcamp);
       } else {
-	jcamp.append(buildFSData(0, nmr));
+	writeFSData(0, nmr, jcamp);
       }
     } else {
       if (nmr.hasAssignments()) {
-	jcamp.append(buildAssignmentTable(0, nmr));
+	writeAssignmentTable(0, nmr, jcamp);
       } else if (nmr.hasPatternTable()) {
-	jcamp.append(buildPatternTable(0, nmr));
+	writePatternTable(0, nmr, jcamp);
       } else if (nmr.hasPeakTable()) {
-	jcamp.append(buildPeakTable(0, nmr));
+	writePeakTable(0, nmr, jcamp);
       }
     }
-    return jcamp.toString();
+  }
+  /**
+   * writes spectrum as compound JCAMP.
+   */
+  public String toJCAMP(Spectrum spectrum) throws JCAMPException {
+    return JCAMPOutput.toString(this, spectrum, false);
+  }
+  /**
+   * writes spectrum as simple JCAMP.
+   */
+  public String toSimpleJCAMP(Spectrum spectrum) throws JCAMPException {
+    return JCAMPOutput.toString(this, spectrum, true);
   }
 }
@@ -1,5 +1,6 @@
 package org.jcamp.parser;
 
+import java.io.IOException;
 import java.util.Iterator;
 
 import org.jcamp.spectrum.Assignment;
@@ -19,7 +20,7 @@ import org.jcamp.units.Unit;
  */
 public class RamanJCAMPWriter
   extends CommonSpectrumJCAMPWriter
-  implements ISpectrumJCAMPWriter {
+  implements ISpectrumJCAMPStreamWriter {
   
   private final static String CRLF = "\r\n";
   
@@ -30,14 +31,13 @@ public class RamanJCAMPWriter
     super();
   }
   /**
-   * build assignment table
+   * write assignment table
    * 
-   * @return java.lang.String
    * @param block int  block number (0: no xref, main block)
    * @param raman RamanSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildAssignmentTable(int block, RamanSpectrum raman) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writeAssignmentTable(int block, RamanSpectrum raman, JCAMPOutput jcamp) throws IOException {
     Assignment[] assigns = raman.getAssignments();
     String title = raman.getTitle();
     int n = assigns.length;
@@ -59,16 +59,14 @@ public class RamanJCAMPWriter
 	  CRLF);
     }
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
-   * build full spectrum data block.
+   * write full spectrum data block.
    * 
-   * @return java.lang.String
    * @param raman RamanSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildFSData(int block, RamanSpectrum raman) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writeFSData(int block, RamanSpectrum raman, JCAMPOutput jcamp) throws IOException {
     int n = raman.getXData().getLength();
     double x0 = raman.getXData().pointAt(0);
     double x1 = raman.getXData().pointAt(n - 1);
@@ -97,18 +95,16 @@ public class RamanJCAMPWriter
     jcamp.append("##LASTY=").append(y1).append(CRLF);
     jcamp.append("##YFACTOR=").append(yf).append(CRLF);
     jcamp.append("##XYDATA=(X++(Y..Y))").append(CRLF);
-    jcamp.append(ASDFEncoder.encode(Math.round(x0 * xf), Math.round(x1 * xf), y));
+    ASDFEncoder.encode(Math.round(x0 * xf), Math.round(x1 * xf), y, jcamp);
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
-   * build a peak table.
+   * write a peak table.
    * 
-   * @return java.lang.String
    * @param raman RamanSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildPeakTable(int block, RamanSpectrum raman) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writePeakTable(int block, RamanSpectrum raman, JCAMPOutput jcamp) throws IOException {
     String title = raman.getTitle();
     jcamp.append("##TITLE=").append(title != null ? title : "").append(CRLF);
     jcamp.append("##JCAMP-DX=4.24").append(CRLF);
@@ -143,7 +139,6 @@ public class RamanJCAMPWriter
       }
     }
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
    * gets spectrum notes in JCAMP form.
@@ -212,11 +207,11 @@ public class RamanJCAMPWriter
   /**
    * writes spectrum as compound JCAMP.
    */
-  public String toJCAMP(Spectrum spectrum) throws JCAMPException {
+  public void write(Spectrum spectrum, Appendable out) throws JCAMPException, IOException {
     if (!(spectrum instanceof RamanSpectrum))
       throw new JCAMPException("JCAMP adapter missmatch");
     RamanSpectrum raman = (RamanSpectrum) spectrum;
-    StringBuilder jcamp = new StringBuilder();
+    JCAMPOutput jcamp = JCAMPOutput.wrap(out);
     String title = raman.getTitle();
     // main data
     int nDataBlocks = 1;
@@ -237,46 +232,56 @@ public class RamanJCAMPWriter
       linked = true;
     }
     if (raman.isFullSpectrum()) {
-      jcamp.append(buildFSData(linked ? block : 0, raman));
+      writeFSData(linked ? block : 0, raman, jcamp);
       block++;
       if (raman.hasAssignments()) {
-	jcamp.append(buildAssignmentTable(linked ? block : 0, raman));
+	writeAssignmentTable(linked ? block : 0, raman, jcamp);
 	block++;
       }
       if (raman.hasPeakTable()) {
-	jcamp.append(buildPeakTable(linked ? block : 0, raman));
+	writePeakTable(linked ? block : 0, raman, jcamp);
 	block++;
       }
     } else { // peak spectrum
-      jcamp.append(buildPeakTable(linked ? block : 0, raman));
+      writePeakTable(linked ? block : 0, raman, jcamp);
     block++;
     if (raman.hasAssignments()) {
-      jcamp.append(buildAssignmentTable(linked ? block : 0, raman));
+      writeAssignmentTable(linked ? block : 0, raman, jcamp);
       block++;
     }
     }
     if (linked)
       jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
    * writes spectrum as simple JCAMP.
    */
-  public String toSimpleJCAMP(Spectrum spectrum) throws JCAMPException {
+  public void writeSimple(Spectrum spectrum, Appendable out) throws JCAMPException, IOException {
     if (!(spectrum instanceof RamanSpectrum))
       throw new JCAMPException("JCAMP adapter missmatch");
     RamanSpectrum raman = (RamanSpectrum) spectrum;
-    StringBuilder jcamp = new StringBuilder();
+    JCAMPOutput jcamp = JCAMPOutput.wrap(out);
     // main data
     if (raman.isFullSpectrum()) {
-      jcamp.append(buildFSData(0, raman));
+      writeFSData(0, raman, jcamp);
     } else { // peak spectrum
       if (raman.hasAssignments()) {
-	jcamp.append(buildAssignmentTable(0, raman));
+	writeAssignmentTable(0, raman, jcamp);
       } else {
-	jcamp.append(buildPeakTable(0, raman));
+	writePeakTable(0, raman, jcamp);
       }
     }
-    return jcamp.toString();
+  }
+  /**
+   * writes spectrum as compound JCAMP.
+   */
+  public String toJCAMP(Spectrum spectrum) throws JCAMPException {
+    return JCAMPOutput.toString(this, spectrum, false);
+  }
+  /**
+   * writes spectrum as simple JCAMP.
+   */
+  public String toSimpleJCAMP(Spectrum spectrum) throws JCAMPException {
+    return JCAMPOutput.toString(this, spectrum, true);
   }
 }
@@ -1,5 +1,6 @@
 package org.jcamp.parser;
 
+import java.io.IOException;
 import java.util.Iterator;
 
 import org.jcamp.spectrum.Assignment;
@@ -19,7 +20,7 @@ import org.jcamp.units.Unit;
  */
 public class UVJCAMPWriter
   extends CommonSpectrumJCAMPWriter
-  implements ISpectrumJCAMPWriter {
+  implements ISpectrumJCAMPStreamWriter {
   
   private final static String CRLF = "\r\n";
   
@@ -30,14 +31,13 @@ public class UVJCAMPWriter
     super();
   }
   /**
-   * build assignment table
+   * write assignment table
    * 
-   * @return java.lang.String
    * @param block int  block number (0: no xref, main block)
    * @param uv UVSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildAssignmentTable(int block, UVSpectrum uv) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writeAssignmentTable(int block, UVSpectrum uv, JCAMPOutput jcamp) throws IOException {
     Assignment[] assigns = uv.getAssignments();
     String title = uv.getTitle();
     int n = assigns.length;
@@ -59,16 +59,14 @@ public class UVJCAMPWriter
 	  CRLF);
     }
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
-   * build full spectrum data block.
+   * write full spectrum data block.
    * 
-   * @return java.lang.String
    * @param uv UVSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildFSData(int block, UVSpectrum uv) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writeFSData(int block, UVSpectrum uv, JCAMPOutput jcamp) throws IOException {
     int n = uv.getXData().getLength();
     double x0 = uv.getXData().pointAt(0);
     double x1 = uv.getXData().pointAt(n - 1);
@@ -97,18 +95,16 @@ public class UVJCAMPWriter
     jcamp.append("##LASTY=").append(y1).append(CRLF);
     jcamp.append("##YFACTOR=").append(yf).append(CRLF);
     jcamp.append("##XYDATA=(X++(Y..Y))").append(CRLF);
-    jcamp.append(ASDFEncoder.encode(Math.round(x0 * xf), Math.round(x1 * xf), y));
+    ASDFEncoder.encode(Math.round(x0 * xf), Math.round(x1 * xf), y, jcamp);
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
-   * build a peak table.
+   * write a peak table.
    * 
-   * @return java.lang.String
    * @param uv UVSpectrum
+   * @param jcamp JCAMPOutput
    */
-  private String buildPeakTable(int block, UVSpectrum uv) {
-    StringBuilder jcamp = new StringBuilder();
+  private void writePeakTable(int block, UVSpectrum uv, JCAMPOutput jcamp) throws IOException {
     String title = uv.getTitle();
     jcamp.append("##TITLE=").append(title != null ? title : "").append(CRLF);
     jcamp.append("##JCAMP-DX=4.24").append(CRLF);
@@ -143,7 +139,6 @@ public class UVJCAMPWriter
       }
     }
     jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
    * gets spectrum notes in JCAMP form.
@@ -212,11 +207,11 @@ public class UVJCAMPWriter
   /**
    * writes spectrum as compound JCAMP.
    */
-  public String toJCAMP(Spectrum spectrum) throws JCAMPException {
+  public void write(Spectrum spectrum, Appendable out) throws JCAMPException, IOException {
     if (!(spectrum instanceof UVSpectrum))
       throw new JCAMPException("JCAMP adapter missmatch");
     UVSpectrum uv = (UVSpectrum) spectrum;
-    StringBuilder jcamp = new StringBuilder();
+    JCAMPOutput jcamp = JCAMPOutput.wrap(out);
     String title = uv.getTitle();
     // main data
     int nDataBlocks = 1;
@@ -237,45 +232,55 @@ public class UVJCAMPWriter
       linked = true;
     }
     if (uv.isFullSpectrum()) {
-      jcamp.append(buildFSData(linked ? block : 0, uv));
+      writeFSData(linked ? block : 0, uv, jcamp);
       block++;
       if (uv.hasAssignments()) {
-	jcamp.append(buildAssignmentTable(linked ? block : 0, uv));
+	writeAssignmentTable(linked ? block : 0, uv, jcamp);
 	block++;
       }
       if (uv.hasPeakTable()) {
-	jcamp.append(buildPeakTable(linked ? block : 0, uv));
+	writePeakTable(linked ? block : 0, uv, jcamp);
 	block++;
       }
     } else { // peak spectrum
-      jcamp.append(buildPeakTable(linked ? block : 0, uv));
+      writePeakTable(linked ? block : 0, uv, jcamp);
     block++;
     if (uv.hasAssignments()) {
-      jcamp.append(buildAssignmentTable(linked ? block : 0, uv));
+      writeAssignmentTable(linked ? block : 0, uv, jcamp);
       block++;
     }
     }
     if (linked)
       jcamp.append("##END=").append(CRLF);
-    return jcamp.toString();
   }
   /**
    * writes spectrum as simple JCAMP.
    */
-  public String toSimpleJCAMP(Spectrum spectrum) throws JCAMPException {
+  public void writeSimple(Spectrum spectrum, Appendable out) throws JCAMPException, IOException {
     if (!(spectrum instanceof UVSpectrum))
       throw new JCAMPException("JCAMP adapter missmatch");
     UVSpectrum uv = (UVSpectrum) spectrum;
-    StringBuilder jcamp = new StringBuilder();
+    JCAMPOutput jcamp = JCAMPOutput.wrap(out);
     if (uv.isFullSpectrum()) {
-      jcamp.append(buildFSData(0, uv));
+      writeFSData(0, uv, jcamp);
     } else { // peak spectrum
       if (uv.hasAssignments()) {
-	jcamp.append(buildAssignmentTable(0, uv));
+	writeAssignmentTable(0, uv, jcamp);
       } else {
-	jcamp.append(buildPeakTable(0, uv));
+	writePeakTable(0, uv, jcamp);
       }
     }
-    return jcamp.toString();
+  }
+  /**
+   * writes spectrum as compound JCAMP.
+   */
+  public String toJCAMP(Spectrum spectrum) throws JCAMPException {
+    return JCAMPOutput.toString(this, spectrum, false);
+  }
+  /**
+   * writes spectrum as simple JCAMP.
+   */
+  public String toSimpleJCAMP(Spectrum spectrum) throws JCAMPException {
+    return JCAMPOutput.toString(this, spectrum, true);
   }
 }
@@ -1,7 +1,10 @@
 package org.jcamp.spectrum;
 
+import java.nio.DoubleBuffer;
+
 import org.jcamp.math.Array1D;
 import org.jcamp.math.IArray1D;
+import org.jcamp.math.MinMaxPyramid;
 import org.jcamp.math.Range;
 import org.jcamp.math.Range1D;
 import org.jcamp.units.CommonUnit;
@@ -25,6 +28,8 @@ public class ArrayData
   
   private String label;
   
+  private transient MinMaxPyramid pyramid;
+  
   /**
    * 
    */
@@ -63,6 +68,7 @@ public class ArrayData
     }
     o.data = (Array1D) this.data.clone();
     o.unit = (Unit) this.unit.clone();
+    o.pyramid = null;
     return o;
   }
   /**
@@ -114,6 +120,18 @@ public class ArrayData
   public Range1D.Double getRange1D() {
     return data.getRange1D();
   }
+  /**
+   * gets data range of data points <code>from</code> to <code>to</code> (exclusive).
+   * @see MinMaxPyramid
+   */
+  public Range1D.Double getRange1D(int from, int to) {
+    MinMaxPyramid p = pyramid;
+    if (p == null) {
+      p = new MinMaxPyramid(data);
+      pyramid = p;
+    }
+    return p.getRange(from, to);
+  }
   /**
    * gets the data unit.
    * @return Unit
@@ -132,6 +150,8 @@ public class ArrayData
    */
   public void scale(double amount) {
     this.data.scale(amount);
+    if (pyramid != null)
+      pyramid.transform(amount, 0);
   }
   /**
    * sets the data.
@@ -139,6 +159,7 @@ public class ArrayData
    */
   void setData(Array1D newData) {
     data = newData;
+    pyramid = null;
   }
   /**
    * Insert the method's description here.
@@ -155,13 +176,35 @@ public class ArrayData
   public void setUnit(Unit newUnit) {
     unit = newUnit;
   }
+  /**
+   * @see org.jcamp.math.IArray1D
+   */
+  public DoubleBuffer asBuffer() {
+    return data.asBuffer();
+  }
+  /**
+   * @see org.jcamp.math.IArray1D
+   */
+  public void copyTo(double[] dst, int dstOffset, int from, int to) {
+    data.copyTo(dst, dstOffset, from, to);
+  }
   /**
    * toArray method comment.
    */
   public double[] toArray() {
     return data.toArray();
   }
+  /**
+   * @see org.jcamp.math.IArray1D
+   */
+  public void transform(double amount, double translation) {
+    data.transform(amount, translation);
+    if (pyramid != null)
+      pyramid.transform(amount, translation);
+  }
   public void translate(double amount) {
     data.translate(amount);
+    if (pyramid != null)
+      pyramid.transform(1, amount);
   }
 }
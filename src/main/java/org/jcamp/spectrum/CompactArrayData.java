@@ -0,0 +1,346 @@
+package org.jcamp.spectrum;
+
+import java.nio.DoubleBuffer;
+
+import org.jcamp.math.MinMaxPyramid;
+import org.jcamp.math.Range;
+import org.jcamp.math.Range1D;
+import org.jcamp.units.CommonUnit;
+import org.jcamp.units.Unit;
+import org.jcamp.units.UnitException;
+
+/**
+ * data array stored in a smaller primitive type than double.
+ * values are <code>factor * stored + offset</code>, so scaling, translation
+ * and unit conversion only change factor and offset.
+ *
+ * @see #create(double[], double, Unit, int)
+ */
+public abstract class CompactArrayData
+  implements IDataArray1D {
+
+  /** for serialization. */
+  private static final long serialVersionUID = 6329467513082151843L;
+
+  /** store values as double, see {@link ArrayData} */
+  public final static int STORAGE_DOUBLE = 0;
+
+  /** store values as float, 4 bytes per value with float precision */
+  public final static int STORAGE_FLOAT = 1;
+
+  /**
+   * store values as double outside of the Java heap, see {@link DirectArrayData}
+   */
+  public final static int STORAGE_DIRECT = 3;
+
+  /**
+   * store values as short or int multiples of a factor, 2 or 4 bytes per value.
+   * used if all values are integer multiples of the factor, e.g. JCAMP-DX ordinates
+   * times ##YFACTOR=, otherwise the values are stored as double.
+   */
+  public final static int STORAGE_SCALED = 2;
+
+  protected double factor;
+
+  protected double offset;
+
+  private Unit unit;
+
+  private String label;
+
+  private Range1D.Double range;
+
+  private transient MinMaxPyramid pyramid;
+
+  /**
+   * CompactArrayData constructor.
+   *
+   * @param factor double
+   * @param unit Unit
+   */
+  protected CompactArrayData(double factor, Unit unit) {
+    this.factor = factor;
+    this.offset = 0;
+    if (unit != null)
+      this.unit = unit;
+    else
+      this.unit = CommonUnit.generic;
+  }
+
+  /**
+   * creates data array of values in the given storage.
+   *
+   * @return IDataArray1D
+   * @param values values, not copied for {@link #STORAGE_DOUBLE}
+   * @param factor factor of the values for {@link #STORAGE_SCALED}, e.g. ##YFACTOR=
+   * @param unit Unit
+   * @param storage {@link #STORAGE_DOUBLE}, {@link #STORAGE_FLOAT}, {@link #STORAGE_SCALED}
+   *        or {@link #STORAGE_DIRECT}
+   */
+  public static IDataArray1D create(double[] values, double factor, Unit unit, int storage) {
+    switch (storage) {
+      case STORAGE_FLOAT :
+	return new FloatArrayData(values, unit);
+      case STORAGE_SCALED :
+	if (factor != 0 && !Double.isNaN(factor) && !Double.isInfinite(factor)) {
+	  double min = 0;
+	  double max = 0;
+	  for (int i = 0; i < values.length; i++) {
+	    double q = Math.rint(values[i] / factor);
+	    if (q * factor != values[i])
+	      return new ArrayData(values, unit);
+	    if (q < min)
+	      min = q;
+	    else if (q > max)
+	      max = q;
+	  }
+	  if (min >= Short.MIN_VALUE && max <= Short.MAX_VALUE)
+	    return new ScaledShortArrayData(values, factor, unit);
+	  if (min >= Integer.MIN_VALUE && max <= Integer.MAX_VALUE)
+	    return new ScaledIntArrayData(values, factor, unit);
+	}
+	return new ArrayData(values, unit);
+      case STORAGE_DIRECT :
+	return new DirectArrayData(values, unit);
+      default :
+	return new ArrayData(values, unit);
+    }
+  }
+
+  /**
+   * gets storage of a data array, {@link #STORAGE_DOUBLE} for arrays of other classes.
+   *
+   * @return int
+   * @param data IDataArray1D
+   */
+  public static int getStorage(IDataArray1D data) {
+    if (data instanceof FloatArrayData)
+      return STORAGE_FLOAT;
+    if (data instanceof DirectArrayData)
+      return STORAGE_DIRECT;
+    if (data instanceof ScaledShortArrayData || data instanceof ScaledIntArrayData)
+      return STORAGE_SCALED;
+    return STORAGE_DOUBLE;
+  }
+
+  /**
+   * read-only copy of the values.
+   * @return DoubleBuffer
+   */
+  public DoubleBuffer asBuffer() {
+    return DoubleBuffer.wrap(toArray()).asReadOnlyBuffer();
+  }
+
+  /**
+   * calculates range of the values, the same way as {@link org.jcamp.math.Array1D}.
+   * to be called by subclass constructors.
+   */
+  protected void calcRange() {
+    double min = Double.MAX_VALUE;
+    double max = Double.MIN_VALUE;
+    int n = getLength();
+    for (int i = 0; i < n; i++) {
+      double value = pointAt(i);
+      if (value < min)
+	min = value;
+      if (value > max)
+	max = value;
+    }
+    range = new Range1D.Double(min, max);
+    pyramid = null;
+  }
+
+  /**
+   * sets range of the values, for subclasses calculating the range themselves.
+   * @param newRange Range1D.Double
+   */
+  protected void setRange(Range1D.Double newRange) {
+    range = newRange;
+    pyramid = null;
+  }
+
+  /**
+   * checks the arguments of {@link #copyTo(double[], int, int, int)}.
+   * @param length long number of values
+   * @param dst double[]
+   * @param dstOffset int
+   * @param from int
+   * @param to int
+   * @throws ArrayIndexOutOfBoundsException if the values or <code>dst</code> are out of bounds
+   */
+  protected static void checkCopy(long length, double[] dst, int dstOffset, int from, int to) {
+    if (from < 0 || to > length || from > to)
+      throw new ArrayIndexOutOfBoundsException("values " + from + " to " + to + " of " + length);
+    if (dstOffset < 0 || dstOffset + to - from > dst.length)
+      throw new ArrayIndexOutOfBoundsException("destination " + dstOffset + " to " + (dstOffset + to - from) + " of " + dst.length);
+  }
+
+  /**
+   * cloning, subclasses copy their values.
+   *
+   * @return java.lang.Object
+   */
+  @Override
+  public Object clone() {
+    CompactArrayData o = null;
+    try {
+      o = (CompactArrayData) super.clone();
+    } catch (CloneNotSupportedException e) {
+    }
+    o.range = (Range1D.Double) this.range.clone();
+    o.unit = (Unit) this.unit.clone();
+    o.pyramid = null;
+    return o;
+  }
+
+  /**
+   * copies values <code>from</code> to <code>to</code> (exclusive) into <code>dst</code>.
+   * @param dst double[]
+   * @param dstOffset int
+   * @param from int
+   * @param to int
+   */
+  public void copyTo(double[] dst, int dstOffset, int from, int to) {
+    checkCopy(getLength(), dst, dstOffset, from, to);
+    for (int i = from; i < to; i++)
+      dst[dstOffset++] = pointAt(i);
+  }
+
+  /**
+   * convert data to new unit. the unit conversions are linear,
+   * so only factor and offset are changed.
+   * @param newUnit Unit
+   */
+  public void convertToUnit(Unit newUnit) throws UnitException {
+    double b = newUnit.convertFrom(0, unit);
+    double a = newUnit.convertFrom(1, unit) - b;
+    factor *= a;
+    offset = offset * a + b;
+    calcRange();
+    setUnit(newUnit);
+  }
+
+  /**
+   * gets factor of the stored values.
+   * @return double
+   */
+  public double getFactor() {
+    return factor;
+  }
+
+  /**
+   * gets data label
+   *
+   * @return java.lang.String
+   */
+  public String getLabel() {
+    if (label == null)
+      return unit.toString();
+    return label;
+  }
+
+  /**
+   * gets offset of the stored values.
+   * @return double
+   */
+  public double getOffset() {
+    return offset;
+  }
+
+  /**
+   * get data range.
+   * @return Range.Double
+   */
+  public Range.Double getRange() {
+    return range;
+  }
+
+  /**
+   * gets data range.
+   * @return Range1D.Double
+   */
+  public Range1D.Double getRange1D() {
+    return range;
+  }
+
+  /**
+   * gets data range of data points <code>from</code> to <code>to</code> (exclusive).
+   * @see MinMaxPyramid
+   */
+  public Range1D.Double getRange1D(int from, int to) {
+    MinMaxPyramid p = pyramid;
+    if (p == null) {
+      p = new MinMaxPyramid(this);
+      pyramid = p;
+    }
+    return p.getRange(from, to);
+  }
+
+  /**
+   * gets the data unit.
+   * @return Unit
+   */
+  public Unit getUnit() {
+    return unit;
+  }
+
+  /**
+   * @see org.jcamp.math.IArray1D
+   */
+  public void scale(double amount) {
+    factor *= amount;
+    offset *= amount;
+    range = new Range1D.Double(range.getXMin() * amount, range.getXMax() * amount);
+    if (pyramid != null)
+      pyramid.transform(amount, 0);
+  }
+
+  /**
+   * sets data label.
+   *
+   * @param newLabel java.lang.String
+   */
+  public void setLabel(String newLabel) {
+    label = newLabel;
+  }
+
+  /**
+   * sets the unit for the data.
+   * @param newUnit Unit
+   */
+  public void setUnit(Unit newUnit) {
+    unit = newUnit;
+  }
+
+  /**
+   * toArray method comment.
+   */
+  public double[] toArray() {
+    int n = getLength();
+    double[] a = new double[n];
+    for (int i = 0; i < n; i++)
+      a[i] = pointAt(i);
+    return a;
+  }
+
+  /**
+   * @see org.jcamp.math.IArray1D
+   */
+  public void transform(double amount, double translation) {
+    factor *= amount;
+    offset = offset * amount + translation;
+    range = new Range1D.Double(range.getXMin() * amount + translation, range.getXMax() * amount + translation);
+    if (pyramid != null)
+      pyramid.transform(amount, translation);
+  }
+
+  /**
+   * @see org.jcamp.math.IArray1D
+   */
+  public void translate(double amount) {
+    offset += amount;
+    range.translate(amount);
+    if (pyramid != null)
+      pyramid.transform(1, amount);
+  }
+}
@@ -0,0 +1,281 @@
+package org.jcamp.spectrum;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+import org.jcamp.math.IArray1D;
+import org.jcamp.math.Range1D;
+import org.jcamp.units.Unit;
+
+/**
+ * data array stored outside of the Java heap in direct or memory mapped double buffers.
+ * large data, e.g. FIDs, 2D NMR and fluorescence matrices, is then not moved by
+ * the garbage collector. the values are split into buffers of 2^27 values,
+ * so arrays may have more than 2^31 values, see {@link #getLongLength()}.
+ */
+public class DirectArrayData
+  extends CompactArrayData {
+
+  /** for serialization. */
+  private static final long serialVersionUID = -5187066419355716213L;
+
+  // 2^27 values, 1 GB per buffer
+  private final static int CHUNK_SHIFT = 27;
+
+  private transient DoubleBuffer[] chunks;
+
+  private transient int shift;
+
+  private transient int mask;
+
+  private long length;
+
+  /**
+   * DirectArrayData constructor, allocates direct buffers for <code>length</code> values
+   * that are 0. the values are set by {@link #setPointAt(long, double)}, e.g. by a decoder,
+   * and {@link #calcRange()} is called afterwards.
+   *
+   * @param length long number of values
+   * @param unit Unit
+   */
+  public DirectArrayData(long length, Unit unit) {
+    super(1, unit);
+    if (length < 0)
+      throw new IllegalArgumentException("length < 0");
+    allocate(length);
+    calcRange();
+  }
+
+  /**
+   * DirectArrayData constructor, copies values into direct buffers.
+   *
+   * @param values double[]
+   * @param unit Unit
+   */
+  public DirectArrayData(double[] values, Unit unit) {
+    super(1, unit);
+    allocate(values.length);
+    int pos = 0;
+    for (int i = 0; i < chunks.length; i++) {
+      int n = chunks[i].capacity();
+      chunks[i].put(values, pos, n);
+      chunks[i].clear();
+      pos += n;
+    }
+    calcRange();
+  }
+
+  /**
+   * DirectArrayData constructor, uses <code>buffer</code> from position to limit without copying,
+   * e.g. a memory mapped file. values of a read-only buffer are not set by {@link #setPointAt(long, double)},
+   * but the array can still be scaled and translated.
+   *
+   * @param buffer DoubleBuffer
+   * @param unit Unit
+   */
+  public DirectArrayData(DoubleBuffer buffer, Unit unit) {
+    super(1, unit);
+    this.chunks = new DoubleBuffer[] { buffer.slice() };
+    this.length = chunks[0].capacity();
+    this.shift = 31;
+    this.mask = Integer.MAX_VALUE;
+    calcRange();
+  }
+
+  /**
+   * allocates zeroed buffers.
+   *
+   * @param n long number of values
+   */
+  private void allocate(long n) {
+    int size = 1 << CHUNK_SHIFT;
+    int nChunks = (int) ((n + size - 1) >>> CHUNK_SHIFT);
+    chunks = new DoubleBuffer[nChunks];
+    for (int i = 0; i < nChunks; i++) {
+      int chunkSize = (int) Math.min(size, n - ((long) i << CHUNK_SHIFT));
+      chunks[i] = ByteBuffer.allocateDirect(8 * chunkSize).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+    }
+    if (nChunks == 0)
+      chunks = new DoubleBuffer[] { DoubleBuffer.allocate(0) };
+    length = n;
+    shift = CHUNK_SHIFT;
+    mask = size - 1;
+  }
+
+  /**
+   * read-only view of the values. not copied if the values are in a single buffer
+   * and neither scaled nor translated.
+   * @return DoubleBuffer
+   */
+  @Override
+  public DoubleBuffer asBuffer() {
+    if (chunks.length > 1 || factor != 1 || offset != 0)
+      return super.asBuffer();
+    DoubleBuffer view = chunks[0].asReadOnlyBuffer();
+    view.clear();
+    return view;
+  }
+
+  /**
+   * calculates range of the values, to be called after values are set.
+   */
+  @Override
+  public void calcRange() {
+    double min = Double.MAX_VALUE;
+    double max = Double.MIN_VALUE;
+    for (long i = 0; i < length; i++) {
+      double value = pointAt(i);
+      if (value < min)
+	min = value;
+      if (value > max)
+	max = value;
+    }
+    setRange(new Range1D.Double(min, max));
+  }
+
+  /**
+   * cloning, the values are copied into new direct buffers.
+   *
+   * @return java.lang.Object
+   */
+  @Override
+  public Object clone() {
+    DirectArrayData o = (DirectArrayData) super.clone();
+    o.allocate(length);
+    // each new buffer lies within one buffer of this array
+    for (int i = 0; i < o.chunks.length; i++) {
+      long start = (long) i << CHUNK_SHIFT;
+      DoubleBuffer src = chunks[(int) (start >>> shift)].duplicate();
+      int from = (int) (start & mask);
+      src.limit(from + o.chunks[i].capacity());
+      src.position(from);
+      o.chunks[i].put(src);
+      o.chunks[i].clear();
+    }
+    return o;
+  }
+
+  /**
+   * copies values <code>from</code> to <code>to</code> (exclusive) into <code>dst</code>,
+   * in bulk from the buffers.
+   */
+  @Override
+  public void copyTo(double[] dst, int dstOffset, int from, int to) {
+    checkCopy(length, dst, dstOffset, from, to);
+    int pos = dstOffset;
+    long index = from;
+    while (index < to) {
+      DoubleBuffer src = chunks[(int) (index >>> shift)].duplicate();
+      int start = (int) (index & mask);
+      int n = (int) Math.min(to - index, src.capacity() - start);
+      src.clear();
+      src.position(start);
+      src.get(dst, pos, n);
+      pos += n;
+      index += n;
+    }
+    if (factor != 1 || offset != 0) {
+      for (int i = dstOffset; i < pos; i++)
+	dst[i] = factor * dst[i] + offset;
+    }
+  }
+
+  /**
+   * gets number of data points.
+   *
+   * @throws IllegalStateException if there are more than 2^31-1 values
+   */
+  public int getLength() {
+    if (length > Integer.MAX_VALUE)
+      throw new IllegalStateException("more than 2^31-1 values, use getLongLength()");
+    return (int) length;
+  }
+
+  /**
+   * gets number of data points.
+   * @return long
+   */
+  public long getLongLength() {
+    return length;
+  }
+
+  /**
+   * gets data point at index.
+   */
+  public final double pointAt(int index) {
+    return factor * chunks[index >>> shift].get(index & mask) + offset;
+  }
+
+  /**
+   * gets data point at index.
+   * @return double
+   * @param index long
+   */
+  public final double pointAt(long index) {
+    return factor * chunks[(int) (index >>> shift)].get((int) (index & mask)) + offset;
+  }
+
+  /**
+   * sets data point at index. the range is not changed.
+   * @param index long
+   * @param value double
+   */
+  public void setPointAt(long index, double value) {
+    chunks[(int) (index >>> shift)].put((int) (index & mask), (value - offset) / factor);
+  }
+
+  /**
+   * sets <code>count</code> data points starting at <code>index</code> to the values of <code>values</code>.
+   * the range is not changed.
+   * @param index long
+   * @param values IArray1D
+   * @param count int
+   */
+  public void setPointsAt(long index, IArray1D values, int count) {
+    for (int i = 0; i < count; i++)
+      setPointAt(index + i, values.pointAt(i));
+  }
+
+  /**
+   * toArray method comment.
+   */
+  @Override
+  public double[] toArray() {
+    double[] a = new double[getLength()];
+    int pos = 0;
+    for (int i = 0; i < chunks.length; i++) {
+      DoubleBuffer src = chunks[i].duplicate();
+      src.clear();
+      int n = src.remaining();
+      src.get(a, pos, n);
+      pos += n;
+    }
+    if (factor != 1 || offset != 0) {
+      for (int i = 0; i < a.length; i++)
+	a[i] = factor * a[i] + offset;
+    }
+    return a;
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    for (int i = 0; i < chunks.length; i++) {
+      DoubleBuffer src = chunks[i].duplicate();
+      src.clear();
+      while (src.hasRemaining())
+	out.writeDouble(src.get());
+    }
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    long n = length;
+    allocate(n);
+    for (long i = 0; i < n; i++)
+      chunks[(int) (i >>> shift)].put((int) (i & mask), in.readDouble());
+  }
+}
@@ -1,5 +1,7 @@
 package org.jcamp.spectrum;
 
+import java.nio.DoubleBuffer;
+
 import org.jcamp.math.DataException;
 import org.jcamp.math.LinearGrid1D;
 import org.jcamp.math.Range1D;
@@ -237,12 +239,30 @@ public class EquidistantData
   public void setUnit(org.jcamp.units.Unit newUnit) {
     unit = newUnit;
   }
+  /**
+   * @see org.jcamp.math.IArray1D
+   */
+  public DoubleBuffer asBuffer() {
+    return data.asBuffer();
+  }
+  /**
+   * @see org.jcamp.math.IArray1D
+   */
+  public void copyTo(double[] dst, int dstOffset, int from, int to) {
+    data.copyTo(dst, dstOffset, from, to);
+  }
   /**
    * @see com.creon.math.IArray1D
    */
   public double[] toArray() {
     return data.toArray();
   }
+  /**
+   * @see org.jcamp.math.IArray1D
+   */
+  public void transform(double amount, double translation) {
+    data.transform(amount, translation);
+  }
   /**
    * @see com.creon.math.IArray1D
    */
@@ -0,0 +1,78 @@
+package org.jcamp.spectrum;
+
+import org.jcamp.units.Unit;
+
+/**
+ * data array stored as float, half the size of {@link ArrayData}
+ * at float precision.
+ */
+public class FloatArrayData
+  extends CompactArrayData {
+
+  /** for serialization. */
+  private static final long serialVersionUID = -2279630414567716382L;
+
+  private float[] data;
+
+  /**
+   * FloatArrayData constructor.
+   *
+   * @param values double[] values, rounded to float
+   * @param unit Unit
+   */
+  public FloatArrayData(double[] values, Unit unit) {
+    super(1, unit);
+    this.data = new float[values.length];
+    for (int i = 0; i < values.length; i++)
+      this.data[i] = (float) values[i];
+    calcRange();
+  }
+
+  /**
+   * FloatArrayData constructor.
+   *
+   * @param values float[] values, not copied
+   * @param unit Unit
+   */
+  public FloatArrayData(float[] values, Unit unit) {
+    super(1, unit);
+    this.data = values;
+    calcRange();
+  }
+
+  /**
+   * cloning
+   *
+   * @return java.lang.Object
+   */
+  @Override
+  public Object clone() {
+    FloatArrayData o = (FloatArrayData) super.clone();
+    o.data = (float[]) this.data.clone();
+    return o;
+  }
+
+  /**
+   * copies values <code>from</code> to <code>to</code> (exclusive) into <code>dst</code>.
+   */
+  @Override
+  public void copyTo(double[] dst, int dstOffset, int from, int to) {
+    checkCopy(data.length, dst, dstOffset, from, to);
+    for (int i = from; i < to; i++)
+      dst[dstOffset++] = factor * data[i] + offset;
+  }
+
+  /**
+   * gets number of data points.
+   */
+  public int getLength() {
+    return data.length;
+  }
+
+  /**
+   * gets data point at index.
+   */
+  public final double pointAt(int index) {
+    return factor * data[index] + offset;
+  }
+}
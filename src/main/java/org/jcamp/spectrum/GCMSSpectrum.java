@@ -1,5 +1,11 @@
 package org.jcamp.spectrum;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.jcamp.math.Array1D;
 import org.jcamp.math.IArray1D;
 import org.jcamp.units.CommonUnit;
@@ -8,6 +14,8 @@ import org.jcamp.units.CommonUnit;
  * GC/MS spectra
  * GC/MS are usually represented as 1D TIC-chromatogram with a 1D MS-spectrum corresponding to
  * each chromatogram data point.
+ * lazy instances are backed by an IMassSpectrumProvider and create the mass spectrum
+ * of a scan on first access. the most recently used scans are kept in a bounded cache.
  * 
  * @author Thomas Weber
  */
@@ -18,7 +26,16 @@ public class GCMSSpectrum
   /** for serialization. */
   private static final long serialVersionUID = -7114727189019130125L;
 
+  /** default number of scans cached by lazy instances */
+  public final static int DEFAULT_SCAN_CACHE_SIZE = 32;
+
   protected MassSpectrum[] massSpectra;
+
+  private transient IMassSpectrumProvider provider = null;
+
+  private transient Map scanCache = null;
+
+  private int scanCacheSize = DEFAULT_SCAN_CACHE_SIZE;
   
   /**
    * GCMSSpectrum
@@ -45,6 +62,119 @@ public class GCMSSpectrum
       ms[i].setMasterSpectrum(this);
     }
   }
+  /**
+   * lazy GCMSSpectrum, mass spectra are created by <code>provider</code> on first access.
+   * @param times IOrderedDataArray1D array of retention time values
+   * @param tic IDataArray1D array of total ion counts time values
+   * @param provider IMassSpectrumProvider source of the mass spectra at above retention times
+   * @param cacheSize int maximum number of cached mass spectra
+   */
+  public GCMSSpectrum(IOrderedDataArray1D times, IDataArray1D tic, IMassSpectrumProvider provider, int cacheSize) {
+    super(times, tic);
+    if (provider.getScanCount() != times.getLength())
+      throw new IllegalArgumentException("number of scans does not match number of retention times");
+    this.massSpectra = null;
+    this.provider = provider;
+    this.scanCacheSize = Math.max(cacheSize, 1);
+    this.scanCache = createScanCache();
+  }
+  /**
+   * creates LRU cache for lazy instances.
+   * @return Map
+   */
+  private Map createScanCache() {
+    return new LinkedHashMap(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+      @Override
+      protected boolean removeEldestEntry(Map.Entry eldest) {
+	return size() > scanCacheSize;
+      }
+    };
+  }
+  /**
+   * true if mass spectra are created on demand.
+   * @return boolean
+   */
+  public boolean isLazy() {
+    return provider != null;
+  }
+  /**
+   * gets maximum number of mass spectra cached by lazy instances.
+   * @return int
+   */
+  public int getScanCacheSize() {
+    return scanCacheSize;
+  }
+  /**
+   * sets maximum number of mass spectra cached by lazy instances.
+   * @param cacheSize int
+   */
+  public synchronized void setScanCacheSize(int cacheSize) {
+    this.scanCacheSize = Math.max(cacheSize, 1);
+    if (scanCache != null) {
+      Iterator it = scanCache.keySet().iterator();
+      for (int n = scanCache.size(); n > scanCacheSize; n--) {
+	it.next();
+	it.remove();
+      }
+    }
+  }
+  /**
+   * gets mass spectrum of scan <code>index</code>, lazy instances create it on first access.
+   * scans are created outside of the lock, so other scans can be read meanwhile.
+   * @return MassSpectrum
+   * @param index int
+   */
+  public MassSpectrum getMassSpectrum(int index) {
+    if (provider == null)
+      return massSpectra[index];
+    if (index < 0 || index >= provider.getScanCount())
+      throw new ArrayIndexOutOfBoundsException(index);
+    Integer key = new Integer(index);
+    MassSpectrum ms;
+    synchronized (this) {
+      ms = (MassSpectrum) scanCache.get(key);
+    }
+    if (ms != null)
+      return ms;
+    MassSpectrum created = provider.createMassSpectrum(index);
+    synchronized (this) {
+      // another thread may have created the scan meanwhile
+      ms = (MassSpectrum) scanCache.get(key);
+      if (ms == null) {
+	created.setMasterSpectrum(this);
+	scanCache.put(key, created);
+	ms = created;
+      }
+    }
+    return ms;
+  }
+  /**
+   * gets the mass spectra held in memory, i.e. the scans in the scan cache of
+   * lazy instances and all mass spectra otherwise.
+   * @return MassSpectrum[]
+   */
+  public synchronized MassSpectrum[] getCachedMassSpectra() {
+    if (provider == null)
+      return (MassSpectrum[]) massSpectra.clone();
+    return (MassSpectrum[]) scanCache.values().toArray(new MassSpectrum[scanCache.size()]);
+  }
+  /**
+   * lazy instances are written with all mass spectra.
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    MassSpectrum[] ms = massSpectra;
+    if (provider != null) {
+      int n = provider.getScanCount();
+      ms = new MassSpectrum[n];
+      for (int i = 0; i < n; i++)
+	ms[i] = getMassSpectrum(i);
+    }
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("massSpectra", ms);
+    fields.put("scanCacheSize", scanCacheSize);
+    out.writeFields();
+  }
   /**
    * recalulate TIC
    * @return IDataArray1D
@@ -69,13 +199,18 @@ public class GCMSSpectrum
    */
   @Override
   public Object clone() {
+    GCMSSpectrum spectrum = null;
+    spectrum = (GCMSSpectrum) super.clone();
+    if (provider != null) {
+      // share provider, but not the cached spectra
+      spectrum.scanCache = spectrum.createScanCache();
+      return spectrum;
+    }
     int n = massSpectra.length;
     MassSpectrum[] ms = new MassSpectrum[n];
     for (int i = 0; i < n; i++) {
       ms[i] = (MassSpectrum) massSpectra[i].clone();
     }
-    GCMSSpectrum spectrum = null;
-    spectrum = (GCMSSpectrum) super.clone();
     spectrum.massSpectra = ms;
     return spectrum;
   }
@@ -91,14 +226,14 @@ public class GCMSSpectrum
    * getSlaveSpectrumFromIndex method comment.
    */
   public Spectrum1D getSlaveSpectrumFromXIndex(int ix) {
-    return massSpectra[ix];
+    return getMassSpectrum(ix);
   }
   /**
    * getSlaveSpectrumFromPosition method comment.
    */
   public Spectrum1D getSlaveSpectrumFromXPosition(double x) {
     int index = getXData().indexAt(x);
-    return massSpectra[index];
+    return getMassSpectrum(index);
   }
   /**
    * getSlaveSpectrumFromIndex method comment.
@@ -3,6 +3,7 @@ package org.jcamp.spectrum;
 import java.io.Serializable;
 
 import org.jcamp.math.IArray1D;
+import org.jcamp.math.Range1D;
 import org.jcamp.units.IMeasurable;
 
 /**
@@ -28,4 +29,31 @@ public interface IDataArray1D
    * @return java.lang.String
    */
   String getLabel();
+
+  /**
+   * gets data range of data points <code>from</code> to <code>to</code> (exclusive),
+   * e.g. of a zoomed view. NaN values are ignored.
+   * 
+   * @param from int first data point
+   * @param to int end of data points, exclusive
+   * @return Range1D.Double, or null if there are no values
+   * @see org.jcamp.math.MinMaxPyramid
+   */
+  default Range1D.Double getRange1D(int from, int to) {
+    int length = getLength();
+    if (from < 0 || to > length || from > to)
+      throw new ArrayIndexOutOfBoundsException("data points " + from + " to " + to + " of " + length);
+    double lo = Double.POSITIVE_INFINITY;
+    double hi = Double.NEGATIVE_INFINITY;
+    for (int i = from; i < to; i++) {
+      double value = pointAt(i);
+      if (value < lo)
+	lo = value;
+      if (value > hi)
+	hi = value;
+    }
+    if (lo > hi)
+      return null;
+    return new Range1D.Double(lo, hi);
+  }
 }
\ No newline at end of file
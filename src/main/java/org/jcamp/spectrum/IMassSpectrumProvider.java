@@ -0,0 +1,22 @@
+package org.jcamp.spectrum;
+
+/**
+ * source of the mass spectra of a GC/MS run, used by lazy GCMSSpectrum instances
+ * to create the spectrum of a scan on first access.
+ */
+public interface IMassSpectrumProvider {
+
+  /**
+   * number of scans.
+   * @return int
+   */
+  int getScanCount();
+  /**
+   * creates the mass spectrum of scan <code>index</code>.
+   * implementations signal decoding errors by an unchecked exception
+   * and have to allow concurrent calls.
+   * @return MassSpectrum
+   * @param index int
+   */
+  MassSpectrum createMassSpectrum(int index);
+}
@@ -101,9 +101,10 @@ public class NMRSpectrum
 
     if (xData.getUnit().equals(CommonUnit.ppm)) {
       // hz = freq * ppm + ref;
-      this.xData.scale(frequency);
       if (mode == JCAMPReader.STRICT && reference == reference) // we are notin a peak table
-	this.xData.translate(reference);
+	this.xData.transform(frequency, reference);
+      else
+	this.xData.scale(frequency);
       this.xData.setUnit(CommonUnit.hertz);
       adjustFullViewRange();
     }
@@ -131,7 +132,7 @@ public class NMRSpectrum
    * 
    */
   protected void convertToPercent() {
-    if (!yData.equals(CommonUnit.percentIntensity)) {
+    if (!yData.getUnit().equals(CommonUnit.percentIntensity)) {
       // rescale intensities to percent of maximum
       double imax = yData.getRange1D().getXMax();
       if (imax != 0.0) {
@@ -171,7 +171,23 @@ public abstract class OpticalSpectrum1D
       else
 	y[i] = 1;
     }
-    return new ArrayData(new Array1D(y, false), CommonUnit.absorbance);
+    return createData(y, CommonUnit.absorbance, data);
+  }
+
+  /**
+   * creates converted values in the storage of <code>data</code>. the conversion
+   * is not affine, so scaled values are stored as float.
+   *
+   * @return IDataArray1D
+   * @param y double[] converted values
+   * @param unit Unit
+   * @param data IDataArray1D values before conversion
+   */
+  private static IDataArray1D createData(double[] y, Unit unit, IDataArray1D data) {
+    int storage = CompactArrayData.getStorage(data);
+    if (storage == CompactArrayData.STORAGE_SCALED)
+      storage = CompactArrayData.STORAGE_FLOAT;
+    return CompactArrayData.create(y, Double.NaN, unit, storage);
   }
 
   /**
@@ -181,6 +197,14 @@ public abstract class OpticalSpectrum1D
     int n = data.getLength();
     if (data.getUnit().equals(CommonUnit.transmittance)) {
       double max = data.getRange1D().getXMax();
+      if (data instanceof CompactArrayData) {
+	// affine, only the factor changes
+	CompactArrayData percent = (CompactArrayData) data.clone();
+	percent.scale(100.0 / max);
+	percent.calcRange();
+	percent.setUnit(CommonUnit.percentTransmittance);
+	return percent;
+      }
       double[] y = new double[n];
       for (int i = 0; i < n; i++) {
 	y[i] = 100.0 * (data.pointAt(i) / max);
@@ -205,7 +229,7 @@ public abstract class OpticalSpectrum1D
 	   a = 0;
 	 y[i] = 100.0 / Math.pow(10, a);
        }
-       return new ArrayData(new Array1D(y, false), CommonUnit.percentTransmittance);
+       return createData(y, CommonUnit.percentTransmittance, data);
      } else
        return data;
    }
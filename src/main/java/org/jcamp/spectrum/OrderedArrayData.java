@@ -1,5 +1,7 @@
 package org.jcamp.spectrum;
 
+import java.nio.DoubleBuffer;
+
 import org.jcamp.math.DataException;
 import org.jcamp.math.IOrderedArray1D;
 import org.jcamp.math.OrderedArray1D;
@@ -294,12 +296,30 @@ public class OrderedArrayData
   public void setUnit(Unit newUnit) {
     unit = newUnit;
   }
+  /**
+   * @see org.jcamp.math.IArray1D
+   */
+  public DoubleBuffer asBuffer() {
+    return data.asBuffer();
+  }
+  /**
+   * @see org.jcamp.math.IArray1D
+   */
+  public void copyTo(double[] dst, int dstOffset, int from, int to) {
+    data.copyTo(dst, dstOffset, from, to);
+  }
   /**
    * toArray method comment.
    */
   public double[] toArray() {
     return data.toArray();
   }
+  /**
+   * @see org.jcamp.math.IArray1D
+   */
+  public void transform(double amount, double translation) {
+    data.transform(amount, translation);
+  }
   public void translate(double amount) {
     data.translate(amount);
   }
@@ -0,0 +1,80 @@
+package org.jcamp.spectrum;
+
+import org.jcamp.units.Unit;
+
+/**
+ * data array stored as int multiples of a factor, half the size of {@link ArrayData}.
+ * suited for JCAMP-DX ordinates of 32 bit integers times ##YFACTOR=.
+ */
+public class ScaledIntArrayData
+  extends CompactArrayData {
+
+  /** for serialization. */
+  private static final long serialVersionUID = 4786470181342627195L;
+
+  private int[] data;
+
+  /**
+   * ScaledIntArrayData constructor.
+   *
+   * @param values double[] values, rounded to the nearest multiple of <code>factor</code>
+   * @param factor double
+   * @param unit Unit
+   */
+  public ScaledIntArrayData(double[] values, double factor, Unit unit) {
+    super(factor, unit);
+    this.data = new int[values.length];
+    for (int i = 0; i < values.length; i++)
+      this.data[i] = (int) Math.rint(values[i] / factor);
+    calcRange();
+  }
+
+  /**
+   * ScaledIntArrayData constructor.
+   *
+   * @param values int[] stored values, not copied
+   * @param factor double
+   * @param unit Unit
+   */
+  public ScaledIntArrayData(int[] values, double factor, Unit unit) {
+    super(factor, unit);
+    this.data = values;
+    calcRange();
+  }
+
+  /**
+   * cloning
+   *
+   * @return java.lang.Object
+   */
+  @Override
+  public Object clone() {
+    ScaledIntArrayData o = (ScaledIntArrayData) super.clone();
+    o.data = (int[]) this.data.clone();
+    return o;
+  }
+
+  /**
+   * copies values <code>from</code> to <code>to</code> (exclusive) into <code>dst</code>.
+   */
+  @Override
+  public void copyTo(double[] dst, int dstOffset, int from, int to) {
+    checkCopy(data.length, dst, dstOffset, from, to);
+    for (int i = from; i < to; i++)
+      dst[dstOffset++] = factor * data[i] + offset;
+  }
+
+  /**
+   * gets number of data points.
+   */
+  public int getLength() {
+    return data.length;
+  }
+
+  /**
+   * gets data point at index.
+   */
+  public final double pointAt(int index) {
+    return factor * data[index] + offset;
+  }
+}
@@ -0,0 +1,80 @@
+package org.jcamp.spectrum;
+
+import org.jcamp.units.Unit;
+
+/**
+ * data array stored as short multiples of a factor, a quarter of the size of {@link ArrayData}.
+ * suited for JCAMP-DX ordinates of 16 bit integers times ##YFACTOR=.
+ */
+public class ScaledShortArrayData
+  extends CompactArrayData {
+
+  /** for serialization. */
+  private static final long serialVersionUID = -8410536284927605271L;
+
+  private short[] data;
+
+  /**
+   * ScaledShortArrayData constructor.
+   *
+   * @param values double[] values, rounded to the nearest multiple of <code>factor</code>
+   * @param factor double
+   * @param unit Unit
+   */
+  public ScaledShortArrayData(double[] values, double factor, Unit unit) {
+    super(factor, unit);
+    this.data = new short[values.length];
+    for (int i = 0; i < values.length; i++)
+      this.data[i] = (short) Math.rint(values[i] / factor);
+    calcRange();
+  }
+
+  /**
+   * ScaledShortArrayData constructor.
+   *
+   * @param values short[] stored values, not copied
+   * @param factor double
+   * @param unit Unit
+   */
+  public ScaledShortArrayData(short[] values, double factor, Unit unit) {
+    super(factor, unit);
+    this.data = values;
+    calcRange();
+  }
+
+  /**
+   * cloning
+   *
+   * @return java.lang.Object
+   */
+  @Override
+  public Object clone() {
+    ScaledShortArrayData o = (ScaledShortArrayData) super.clone();
+    o.data = (short[]) this.data.clone();
+    return o;
+  }
+
+  /**
+   * copies values <code>from</code> to <code>to</code> (exclusive) into <code>dst</code>.
+   */
+  @Override
+  public void copyTo(double[] dst, int dstOffset, int from, int to) {
+    checkCopy(data.length, dst, dstOffset, from, to);
+    for (int i = from; i < to; i++)
+      dst[dstOffset++] = factor * data[i] + offset;
+  }
+
+  /**
+   * gets number of data points.
+   */
+  public int getLength() {
+    return data.length;
+  }
+
+  /**
+   * gets data point at index.
+   */
+  public final double pointAt(int index) {
+    return factor * data[index] + offset;
+  }
+}
@@ -3,7 +3,9 @@ package org.jcamp.spectrum;
 import java.util.Arrays;
 
 import org.jcamp.math.AxisMap;
+import org.jcamp.math.Decimator;
 import org.jcamp.math.LinearAxisMap;
+import org.jcamp.math.LinearGrid1D;
 import org.jcamp.math.Range1D;
 import org.jcamp.math.Range2D;
 
@@ -190,6 +192,44 @@ public abstract class Spectrum1D
     }
   }
 
+  /**
+   * reduces the data points within <code>xRange</code> to at most <code>targetPoints</code>
+   * points for display.
+   *
+   * @param xRange Range1D.Double x range, or null for all data points
+   * @param targetPoints int maximum number of points, e.g. the width of a chart in pixels
+   * @param mode int {@link Decimator#MIN_MAX} or {@link Decimator#LTTB}
+   * @return double[][] {x values, y values}
+   */
+  public double[][] decimate(Range1D.Double xRange, int targetPoints, int mode) {
+    int[] indices = getIndexRange(xRange);
+    int n = Math.min(indices[1] - indices[0], targetPoints);
+    double[] x = new double[n];
+    double[] y = new double[n];
+    int count = Decimator.decimate(xData, yData, indices[0], indices[1], targetPoints, mode, x, y);
+    if (count < n) {
+      x = Arrays.copyOf(x, count);
+      y = Arrays.copyOf(y, count);
+    }
+    return new double[][] { x, y };
+  }
+
+  /**
+   * reduces the data points within <code>xRange</code> to at most <code>targetPoints</code>
+   * points into arrays of the caller, which can be reused for each repaint.
+   *
+   * @param xRange Range1D.Double x range, or null for all data points
+   * @param targetPoints int maximum number of points
+   * @param mode int {@link Decimator#MIN_MAX} or {@link Decimator#LTTB}
+   * @param x double[] x values of the points, at least <code>targetPoints</code> long
+   * @param y double[] y values of the points, at least <code>targetPoints</code> long
+   * @return int number of points
+   */
+  public int decimate(Range1D.Double xRange, int targetPoints, int mode, double[] x, double[] y) {
+    int[] indices = getIndexRange(xRange);
+    return Decimator.decimate(xData, yData, indices[0], indices[1], targetPoints, mode, x, y);
+  }
+
   /**
    * find index of label nearest to position.
    * @return ISpectrumLabel
@@ -285,6 +325,54 @@ public abstract class Spectrum1D
     return new Range2D.Double(getXFullViewRange(), getYFullViewRange());
   }
 
+  /**
+   * gets indices of the data points with x values between <code>x0</code> and <code>x1</code>.
+   * @param x0 double
+   * @param x1 double
+   * @return int[] {from, to}, <code>to</code> exclusive
+   */
+  public int[] getIndexRange(double x0, double x1) {
+    double lo = Math.min(x0, x1);
+    double hi = Math.max(x0, x1);
+    int n = xData.getLength();
+    int from;
+    int to;
+    if (xData instanceof EquidistantData) {
+      // index from grid coordinates, corrected for rounding
+      LinearGrid1D grid = ((EquidistantData) xData).getDataGrid();
+      double c0 = (lo - grid.getStart()) / grid.getStep();
+      double c1 = (hi - grid.getStart()) / grid.getStep();
+      from = (int) Math.max(0, Math.min(n, Math.ceil(Math.min(c0, c1))));
+      to = (int) Math.max(from, Math.min(n, Math.floor(Math.max(c0, c1)) + 1));
+      while (from > 0 && isInRange(from - 1, lo, hi))
+	from--;
+      while (from < to && !isInRange(from, lo, hi))
+	from++;
+      while (to < n && isInRange(to, lo, hi))
+	to++;
+      while (to > from && !isInRange(to - 1, lo, hi))
+	to--;
+    } else if (n > 1 && xData.pointAt(0) > xData.pointAt(n - 1)) {
+      from = searchIndex(hi, false, true);
+      to = searchIndex(lo, false, false);
+    } else {
+      from = searchIndex(lo, true, true);
+      to = searchIndex(hi, true, false);
+    }
+    return new int[] { from, Math.max(from, to) };
+  }
+
+  /**
+   * gets indices of the data points within <code>xRange</code>.
+   * @param xRange Range1D.Double, or null for all data points
+   * @return int[] {from, to}, <code>to</code> exclusive
+   */
+  private int[] getIndexRange(Range1D.Double xRange) {
+    if (xRange == null)
+      return new int[] { 0, xData.getLength() };
+    return getIndexRange(xRange.getXMin(), xRange.getXMax());
+  }
+
   /**
    * returns pattern nearest to postion <code>pos</code>.
    * @return Assignment
@@ -435,6 +523,19 @@ public abstract class Spectrum1D
     return new Range1D.Double(yAxisMap.getFullViewRange());
   }
 
+  /**
+   * gets range of the y values with x values between <code>x0</code> and <code>x1</code>,
+   * e.g. of a zoomed view, without scanning all data points.
+   * @param x0 double
+   * @param x1 double
+   * @return Range1D.Double, or null if there are no data points between <code>x0</code> and <code>x1</code>
+   * @see IDataArray1D#getRange1D(int, int)
+   */
+  public Range1D.Double getYRange(double x0, double x1) {
+    int[] indices = getIndexRange(x0, x1);
+    return yData.getRange1D(indices[0], indices[1]);
+  }
+
   /**
    * flag indicating assignments.
    * @return boolean
@@ -468,6 +569,14 @@ public abstract class Spectrum1D
     return fullSpectrum;
   }
 
+  /**
+   * checks x value of data point <code>index</code> against <code>lo</code> and <code>hi</code>.
+   */
+  private boolean isInRange(int index, double lo, double hi) {
+    double x = xData.pointAt(index);
+    return x >= lo && x <= hi;
+  }
+
   /**
    * remove assignment nearest to position <code>pos</code>.
    * @param pos double
@@ -510,6 +619,30 @@ public abstract class Spectrum1D
     }
   }
 
+  /**
+   * binary search of the first data point with an x value after <code>value</code>
+   * in ascending or descending order, or at <code>value</code> if <code>inclusive</code>.
+   * @return int index, or the number of data points if there is none
+   */
+  private int searchIndex(double value, boolean ascending, boolean inclusive) {
+    int lo = 0;
+    int hi = xData.getLength();
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      double x = xData.pointAt(mid);
+      boolean after;
+      if (ascending)
+	after = inclusive ? x >= value : x > value;
+      else
+	after = inclusive ? x <= value : x < value;
+      if (after)
+	hi = mid;
+      else
+	lo = mid + 1;
+    }
+    return lo;
+  }
+
   /**
    * sets assignment array.
    * @param newAssignments Assignment[]
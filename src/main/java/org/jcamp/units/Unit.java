@@ -140,9 +140,10 @@ public abstract class Unit
 
   /**
    * gets unit identifier (e.g. unit symbol).
+   * the unit is found again by {@link #getUnitFromString(String)}.
    * @return java.lang.String
    */
-  final String getIdentifier() {
+  public final String getIdentifier() {
     return identifier;
   }
 
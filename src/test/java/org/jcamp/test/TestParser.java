@@ -3,18 +3,65 @@ package org.jcamp.test;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.DoubleBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.TestCase;
 
+import org.jcamp.math.Decimator;
+import org.jcamp.math.IArray1D;
+import org.jcamp.math.IArray2D;
+import org.jcamp.math.IrregularGrid1D;
+import org.jcamp.math.Range1D;
+import org.jcamp.parser.AFFNTokenizer;
+import org.jcamp.parser.ASDFDecoder;
+import org.jcamp.parser.ASDFEncoder;
+import org.jcamp.parser.ASDFLineIndex;
+import org.jcamp.parser.ErrorHandlerAdapter;
+import org.jcamp.parser.IBatchListener;
+import org.jcamp.parser.JCAMPBatchReader;
+import org.jcamp.parser.JCAMPBinaryReader;
+import org.jcamp.parser.JCAMPBinaryWriter;
+import org.jcamp.parser.JCAMPBlock;
+import org.jcamp.parser.JCAMPDataRecord;
+import org.jcamp.parser.JCAMPException;
+import org.jcamp.parser.JCAMPNTuple;
+import org.jcamp.parser.JCAMPReadResult;
 import org.jcamp.parser.JCAMPReader;
+import org.jcamp.parser.JCAMPSpectrumCache;
+import org.jcamp.parser.JCAMPWriter;
+import org.jcamp.spectrum.CompactArrayData;
+import org.jcamp.spectrum.DirectArrayData;
+import org.jcamp.spectrum.FloatArrayData;
+import org.jcamp.spectrum.GCMSSpectrum;
 import org.jcamp.spectrum.IRSpectrum;
 import org.jcamp.spectrum.MassSpectrum;
 import org.jcamp.spectrum.NMRSpectrum;
+import org.jcamp.spectrum.ScaledIntArrayData;
+import org.jcamp.spectrum.ScaledShortArrayData;
 import org.jcamp.spectrum.Spectrum;
+import org.jcamp.spectrum.Spectrum1D;
 
 public class TestParser extends TestCase {
 
@@ -179,6 +226,27 @@ public class TestParser extends TestCase {
     reader.close();
     return fileData;
   }
+
+  /**
+   * Creates a GC/MS run as NTUPLE, without total ion counts.
+   *
+   * @param scans	the number of mass spectra
+   * @return		the JCAMP-DX text
+   */
+  protected String createGCMS(int scans) {
+    StringBuilder jcamp = new StringBuilder();
+    jcamp.append("##TITLE=gcms\n##JCAMP-DX=5.01\n##DATA TYPE=MASS SPECTRUM\n##DATA CLASS=NTUPLES\n");
+    jcamp.append("##NTUPLES=MASS SPECTRUM\n##VAR_NAME=MASS, INTENSITY, RETENTION TIME\n##SYMBOL=X, Y, T\n");
+    jcamp.append("##VAR_TYPE=INDEPENDENT, DEPENDENT, INDEPENDENT\n##VAR_FORM=AFFN, AFFN, AFFN\n");
+    jcamp.append("##VAR_DIM=5, 5, " + scans + "\n##UNITS=M/Z, RELATIVE ABUNDANCE, SECONDS\n");
+    for (int i = 0; i < scans; i++) {
+      jcamp.append("##PAGE=T=" + (i + 1) + "\n##NPOINTS=5\n##DATA TABLE=(XY..XY), PEAKS\n");
+      for (int j = 0; j < 5; j++)
+	jcamp.append((40 + 3 * j + i % 7) + "," + ((i * 31 + j * 17) % 101 + 1) + "\n");
+    }
+    jcamp.append("##END NTUPLES=MASS SPECTRUM\n##END=\n");
+    return jcamp.toString();
+  }
   
   public void testSpinworks() throws Exception{
     StringBuilder fileData = readFile("spinworks.dx");
@@ -279,6 +347,36 @@ public class TestParser extends TestCase {
     assertEquals(firstvalue,nmrspectrum.getXData().toArray()[0],.1);
   }
 
+  public void testConcurrentModes() throws Exception{
+    final String jcamp = readFile("mzdiv-813_c.jdx").toString();
+    final String[] modes = new String[] {JCAMPReader.STRICT, JCAMPReader.RELAXED};
+    final double[] expected = new double[modes.length];
+    for (int i = 0; i < modes.length; i++)
+      expected[i] = ((NMRSpectrum) new JCAMPReader(true, modes[i]).createSpectrum(jcamp)).getXData().toArray()[0];
+    final Throwable[] failure = new Throwable[1];
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      final int mode = t % modes.length;
+      threads[t] = new Thread() {
+        public void run() {
+          try {
+            for (int i = 0; i < 10; i++) {
+              NMRSpectrum spectrum = (NMRSpectrum) JCAMPReader.getInstance(true, modes[mode]).createSpectrum(jcamp);
+              assertEquals(expected[mode], spectrum.getXData().toArray()[0], 0.0);
+            }
+          } catch (Throwable e) {
+            failure[0] = e;
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (int t = 0; t < threads.length; t++)
+      threads[t].join();
+    if (failure[0] != null)
+      fail(failure[0].toString());
+  }
+
   public void testIR_floats() throws Exception{
     StringBuilder fileData = readFile("ir_floats.jdx");
     //we should get the same values when reading twice
@@ -307,6 +405,715 @@ public class TestParser extends TestCase {
     assertEquals(0.04798290995257375,irSpectrum.getYData().toArray()[4],.1);
   }
 
+  public void testCompactStorage() throws Exception {
+    String spinworks = readFile("spinworks.dx").toString();
+    String mzdiv = readFile("mzdiv-813_c.jdx").toString();
+    JCAMPReader reader = JCAMPReader.getInstance();
+    JCAMPReader scaled = reader.withStorage(CompactArrayData.STORAGE_SCALED);
+    Spectrum1D expected = (Spectrum1D) reader.createSpectrum(spinworks);
+    Spectrum1D actual = (Spectrum1D) scaled.createSpectrum(spinworks);
+    assertTrue(actual.getYData() instanceof ScaledShortArrayData);
+    assertTrue(Arrays.equals(expected.getYData().toArray(), actual.getYData().toArray()));
+    expected = (Spectrum1D) reader.createSpectrum(mzdiv);
+    actual = (Spectrum1D) scaled.createSpectrum(mzdiv);
+    assertTrue(actual.getYData() instanceof ScaledIntArrayData);
+    assertTrue(Arrays.equals(expected.getYData().toArray(), actual.getYData().toArray()));
+    actual = (Spectrum1D) reader.withStorage(CompactArrayData.STORAGE_FLOAT).createSpectrum(mzdiv);
+    assertTrue(actual.getYData() instanceof FloatArrayData);
+    for (int i = 0; i < expected.getYData().getLength(); i++)
+      assertEquals(expected.getYData().pointAt(i), actual.getYData().pointAt(i), 1e-6 * Math.abs(expected.getYData().pointAt(i)));
+    // transmittance is converted to absorbance in the storage of the reader
+    String irFloats = readFile("ir_floats.jdx").toString();
+    expected = (Spectrum1D) reader.createSpectrum(irFloats);
+    actual = (Spectrum1D) reader.withStorage(CompactArrayData.STORAGE_DIRECT).createSpectrum(irFloats);
+    assertTrue(actual.getYData() instanceof DirectArrayData);
+    assertTrue(Arrays.equals(expected.getYData().toArray(), actual.getYData().toArray()));
+    IRSpectrum ir = (IRSpectrum) reader.withStorage(CompactArrayData.STORAGE_FLOAT).createSpectrum(irFloats);
+    assertTrue(ir.getYData() instanceof FloatArrayData);
+    for (int i = 0; i < expected.getYData().getLength(); i++)
+      assertEquals(expected.getYData().pointAt(i), ir.getYData().pointAt(i), 1e-6 * Math.abs(expected.getYData().pointAt(i)));
+    ir.convertToTransmittance();
+    assertTrue(ir.getYData() instanceof FloatArrayData);
+    // NTUPLE pages of NMR spectra
+    String jcamp60 = readFile("jcamp60.jdx").toString();
+    expected = (Spectrum1D) reader.createSpectrum(jcamp60);
+    actual = (Spectrum1D) scaled.createSpectrum(jcamp60);
+    assertTrue(actual.getYData() instanceof ScaledIntArrayData);
+    assertTrue(Arrays.equals(expected.getYData().toArray(), actual.getYData().toArray()));
+  }
+
+  public void testDirectStorage() throws Exception {
+    Path file = new File(getTmpDirectory() + File.separator + "spinworks.dx").toPath();
+    Spectrum1D expected = (Spectrum1D) JCAMPReader.getInstance().createSpectrum(file);
+    Spectrum1D actual = (Spectrum1D) JCAMPReader.getInstance().withStorage(CompactArrayData.STORAGE_DIRECT).createSpectrum(file);
+    assertTrue(actual.getYData() instanceof DirectArrayData);
+    assertTrue(Arrays.equals(expected.getYData().toArray(), actual.getYData().toArray()));
+    assertEquals(expected.getYData().getRange1D().getXMax(), actual.getYData().getRange1D().getXMax(), 0.0);
+    DirectArrayData copy = (DirectArrayData) actual.getYData().clone();
+    copy.scale(2);
+    assertEquals(2 * expected.getYData().pointAt(100), copy.pointAt(100L), 0.0);
+    assertEquals(expected.getYData().pointAt(100), actual.getYData().pointAt(100), 0.0);
+    // y values stay in the memory mapped sidecar
+    Path sidecar = JCAMPBinaryReader.getSidecarPath(file);
+    JCAMPBinaryWriter.getInstance().write(expected, sidecar);
+    actual = (Spectrum1D) JCAMPBinaryReader.getInstance().createSpectrum(sidecar, true);
+    assertTrue(actual.getYData() instanceof DirectArrayData);
+    assertTrue(Arrays.equals(expected.getYData().toArray(), actual.getYData().toArray()));
+    Files.delete(sidecar);
+  }
+
+  public void testBulkAccess() throws Exception {
+    Path file = new File(getTmpDirectory() + File.separator + "spinworks.dx").toPath();
+    for (int storage = CompactArrayData.STORAGE_DOUBLE; storage <= CompactArrayData.STORAGE_DIRECT; storage++) {
+      Spectrum1D spectrum = (Spectrum1D) JCAMPReader.getInstance().withStorage(storage).createSpectrum(file);
+      IArray1D[] arrays = new IArray1D[] { spectrum.getXData(), spectrum.getYData() };
+      IArray1D[] expected = new IArray1D[] { (IArray1D) spectrum.getXData().clone(), (IArray1D) spectrum.getYData().clone() };
+      for (int i = 0; i < arrays.length; i++) {
+	double[] values = arrays[i].toArray();
+	double[] copy = new double[110];
+	arrays[i].copyTo(copy, 10, 50, 150);
+	assertTrue(Arrays.equals(Arrays.copyOfRange(values, 50, 150), Arrays.copyOfRange(copy, 10, 110)));
+	DoubleBuffer view = arrays[i].asBuffer();
+	assertTrue(view.isReadOnly());
+	double[] viewed = new double[view.remaining()];
+	view.get(viewed);
+	assertTrue(Arrays.equals(values, viewed));
+	expected[i].scale(0.5);
+	expected[i].translate(3);
+	arrays[i].transform(0.5, 3);
+	assertTrue(Arrays.equals(expected[i].toArray(), arrays[i].toArray()));
+	assertEquals(expected[i].getRange1D().getXMax(), arrays[i].getRange1D().getXMax(), 1e-9);
+      }
+    }
+  }
+
+  public void testZoomedYRange() throws Exception {
+    String[] files = new String[] { "spinworks.dx", "1567755.jdx", "ir_floats.jdx" };
+    for (int f = 0; f < files.length; f++) {
+      Path file = new File(getTmpDirectory() + File.separator + files[f]).toPath();
+      Spectrum1D spectrum = (Spectrum1D) JCAMPReader.getInstance().withStorage(CompactArrayData.STORAGE_SCALED).createSpectrum(file);
+      IArray1D x = spectrum.getXData();
+      IArray1D y = spectrum.getYData();
+      for (int pass = 0; pass < 2; pass++) {
+	if (pass == 1)
+	  spectrum.getYData().transform(-2, 10);
+	for (int k = 0; k < 50; k++) {
+	  int i0 = (int) ((long) k * 7919 % x.getLength());
+	  int i1 = (int) ((long) k * 104729 % x.getLength());
+	  double x0 = x.pointAt(i0);
+	  double x1 = x.pointAt(i1);
+	  double min = Double.POSITIVE_INFINITY;
+	  double max = Double.NEGATIVE_INFINITY;
+	  for (int i = 0; i < x.getLength(); i++) {
+	    if (x.pointAt(i) >= Math.min(x0, x1) && x.pointAt(i) <= Math.max(x0, x1)) {
+	      min = Math.min(min, y.pointAt(i));
+	      max = Math.max(max, y.pointAt(i));
+	    }
+	  }
+	  Range1D.Double range = spectrum.getYRange(x0, x1);
+	  assertEquals(files[f], min, range.getXMin(), 1e-9 * Math.abs(min));
+	  assertEquals(files[f], max, range.getXMax(), 1e-9 * Math.abs(max));
+	}
+      }
+      double outside = x.getRange1D().getXMax() + 1;
+      assertNull(spectrum.getYRange(outside, outside + 1));
+    }
+  }
+
+  public void testDecimation() throws Exception {
+    Spectrum1D spectrum = (Spectrum1D) JCAMPReader.getInstance().createSpectrum(
+	new File(getTmpDirectory() + File.separator + "spinworks.dx").toPath());
+    double[] values = spectrum.getYData().toArray();
+    Arrays.sort(values);
+    double[][] points = spectrum.decimate(null, 1000, Decimator.MIN_MAX);
+    assertTrue(points[0].length <= 1000);
+    double[] decimated = (double[]) points[1].clone();
+    Arrays.sort(decimated);
+    assertEquals(values[0], decimated[0], 0.0);
+    assertEquals(values[values.length - 1], decimated[decimated.length - 1], 0.0);
+    points = spectrum.decimate(null, 1000, Decimator.LTTB);
+    int n = spectrum.getXData().getLength();
+    assertEquals(1000, points[0].length);
+    assertEquals(spectrum.getXData().pointAt(0), points[0][0], 0.0);
+    assertEquals(spectrum.getXData().pointAt(n - 1), points[0][999], 0.0);
+    double[] x = new double[1000];
+    double[] y = new double[1000];
+    assertEquals(1000, spectrum.decimate(null, 1000, Decimator.LTTB, x, y));
+    assertTrue(Arrays.equals(points[0], x));
+    assertTrue(Arrays.equals(points[1], y));
+    // zoomed to fewer data points than target points
+    Range1D.Double zoom = new Range1D.Double(spectrum.getXData().pointAt(100), spectrum.getXData().pointAt(199));
+    points = spectrum.decimate(zoom, 1000, Decimator.MIN_MAX);
+    assertEquals(100, points[0].length);
+    assertEquals(spectrum.getYData().pointAt(150), points[1][50], 0.0);
+  }
+
+  public void testIrregularGridBatch() throws Exception {
+    double[] samples = new double[200];
+    for (int i = 0; i < samples.length; i++)
+      samples[i] = i + 0.25 * Math.sin(i) + 0.001 * i * i;
+    double[] queries = new double[500];
+    for (int i = 0; i < queries.length; i++)
+      queries[i] = -5 + 0.5 * i;
+    queries[20] = samples[5];
+    double[] reversed = new double[queries.length];
+    for (int i = 0; i < queries.length; i++)
+      reversed[i] = queries[queries.length - 1 - i];
+    double[] shuffled = (double[]) queries.clone();
+    for (int i = 0; i < shuffled.length; i++) {
+      int j = (i * 7919) % shuffled.length;
+      double t = shuffled[i];
+      shuffled[i] = shuffled[j];
+      shuffled[j] = t;
+    }
+    double[][] inputs = new double[][] { queries, reversed, shuffled };
+    for (int d = 0; d < 2; d++) {
+      IrregularGrid1D grid = new IrregularGrid1D(samples);
+      if (d == 1)
+	grid.scale(-1);
+      for (int k = 0; k < inputs.length; k++) {
+	double[] values = (double[]) inputs[k].clone();
+	if (d == 1) {
+	  for (int i = 0; i < values.length; i++)
+	    values[i] = -values[i];
+	}
+	double[] coordinates = new double[values.length];
+	grid.coordinatesAt(values, coordinates);
+	for (int i = 0; i < values.length; i++)
+	  assertEquals(grid.coordinateAt(values[i]), coordinates[i], 0.0);
+	double[] back = grid.valuesAt(coordinates);
+	for (int i = 0; i < values.length; i++)
+	  assertEquals(grid.valueAt(coordinates[i]), back[i], 0.0);
+      }
+    }
+    // map y = 2x + 1 sampled on the grid onto other x values
+    IrregularGrid1D grid = new IrregularGrid1D(samples);
+    double[] data = new double[samples.length];
+    for (int i = 0; i < samples.length; i++)
+      data[i] = 2 * samples[i] + 1;
+    double[] result = new double[queries.length];
+    grid.interpolate(data, queries, result);
+    for (int i = 0; i < queries.length; i++) {
+      if (queries[i] < samples[0] || queries[i] > samples[samples.length - 1])
+	assertTrue(Double.isNaN(result[i]));
+      else
+	assertEquals(2 * queries[i] + 1, result[i], 1e-9);
+    }
+  }
+
+  public void testMappedFile() throws Exception {
+    StringBuilder fileData = readFile("ir_floats.jdx");
+    Spectrum1D fromString = (Spectrum1D) JCAMPReader.getInstance().createSpectrum(fileData.toString());
+    Spectrum1D fromFile = (Spectrum1D) JCAMPReader.getInstance().createSpectrum(
+	new File(getTmpDirectory() + File.separator + "ir_floats.jdx").toPath());
+    assertTrue(fromFile instanceof IRSpectrum);
+    assertTrue(Arrays.equals(fromString.getXData().toArray(), fromFile.getXData().toArray()));
+    assertTrue(Arrays.equals(fromString.getYData().toArray(), fromFile.getYData().toArray()));
+  }
+
+  public void testStreamingWriter() throws Exception {
+    StringBuilder fileData = readFile("ir_floats.jdx");
+    Spectrum spectrum = JCAMPReader.getInstance().createSpectrum(fileData.toString());
+    String expected = JCAMPWriter.getInstance().toJCAMP(spectrum);
+    StringWriter writer = new StringWriter();
+    JCAMPWriter.getInstance().write(spectrum, writer);
+    assertEquals(expected, writer.toString());
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    JCAMPWriter.getInstance().writeTo(spectrum, stream);
+    assertEquals(expected, new String(stream.toByteArray(), "ISO-8859-1"));
+    // a PrintStream is both an Appendable and an OutputStream
+    stream.reset();
+    PrintStream print = new PrintStream(stream, false, "ISO-8859-1");
+    JCAMPWriter.getInstance().write(spectrum, print);
+    print.flush();
+    assertEquals(expected, new String(stream.toByteArray(), "ISO-8859-1"));
+  }
+
+  public void testSpectrumCache() throws Exception {
+    Path spinworks = new File(getTmpDirectory() + File.separator + "spinworks.dx").toPath();
+    final String irFloats = readFile("ir_floats.jdx").toString();
+    final JCAMPSpectrumCache cache = new JCAMPSpectrumCache(JCAMPReader.getInstance(), 1L << 30);
+    Spectrum spectrum = cache.getSpectrum(spinworks);
+    assertSame(spectrum, cache.getSpectrum(spinworks));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(JCAMPSpectrumCache.sizeOf(spectrum), cache.getBytes());
+    // concurrent lookups of the same string load it once
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List futures = new ArrayList();
+      for (int i = 0; i < 8; i++) {
+	futures.add(executor.submit(new Callable() {
+	  public Object call() throws Exception {
+	    return cache.getSpectrum(irFloats);
+	  }
+	}));
+      }
+      for (int i = 1; i < futures.size(); i++)
+	assertSame(((Future) futures.get(0)).get(), ((Future) futures.get(i)).get());
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(2, cache.getLoadCount());
+    assertEquals(2, cache.getEntryCount());
+    // a cache holding one spectrum evicts the least recently used one
+    JCAMPSpectrumCache small = new JCAMPSpectrumCache(JCAMPReader.getInstance(), JCAMPSpectrumCache.sizeOf(spectrum));
+    small.getSpectrum(spinworks);
+    small.getSpectrum(irFloats);
+    assertEquals(1, small.getEvictionCount());
+    assertEquals(1, small.getEntryCount());
+  }
+
+  public void testSpectrumCacheGCMS() throws Exception {
+    String jcamp = createGCMS(50);
+    // the mass spectra of a GC/MS run count
+    JCAMPSpectrumCache cache = new JCAMPSpectrumCache(JCAMPReader.getInstance(), 1L << 30);
+    GCMSSpectrum eager = (GCMSSpectrum) cache.getSpectrum(jcamp);
+    long scans = 0;
+    for (int i = 0; i < 50; i++)
+      scans += JCAMPSpectrumCache.sizeOf(eager.getMassSpectrum(i));
+    assertEquals(JCAMPSpectrumCache.sizeOf(eager), cache.getBytes());
+    assertTrue(cache.getBytes() > JCAMPSpectrumCache.SPECTRUM_OVERHEAD + scans);
+    // lazy spectra count the scans their scan cache can hold
+    JCAMPSpectrumCache lazyCache = new JCAMPSpectrumCache(JCAMPReader.getInstance().withLazy(true), 1L << 30);
+    GCMSSpectrum lazy = (GCMSSpectrum) lazyCache.getSpectrum(jcamp);
+    assertTrue(lazy.isLazy());
+    long scan = JCAMPSpectrumCache.sizeOf(lazy.getMassSpectrum(0));
+    assertTrue(lazyCache.getBytes() > JCAMPSpectrumCache.SPECTRUM_OVERHEAD + lazy.getScanCacheSize() * scan);
+    assertTrue(lazyCache.getBytes() < cache.getBytes());
+  }
+
+  public void testBinarySidecar() throws Exception {
+    String[] names = new String[] {"spinworks.dx", "ir_floats.jdx", "1567755.jdx"};
+    for (int i = 0; i < names.length; i++) {
+      Path file = new File(getTmpDirectory() + File.separator + names[i]).toPath();
+      Path sidecar = JCAMPBinaryReader.getSidecarPath(file);
+      Files.deleteIfExists(sidecar);
+      Spectrum1D parsed = (Spectrum1D) JCAMPBinaryReader.getInstance().createSpectrum(JCAMPReader.getInstance(), file);
+      assertTrue(Files.exists(sidecar));
+      Spectrum1D read = (Spectrum1D) JCAMPBinaryReader.getInstance().createSpectrum(sidecar);
+      assertSame(parsed.getClass(), read.getClass());
+      assertTrue(Arrays.equals(parsed.getXData().toArray(), read.getXData().toArray()));
+      assertTrue(Arrays.equals(parsed.getYData().toArray(), read.getYData().toArray()));
+      assertEquals(parsed.getYFullViewRange().getXMin(), read.getYFullViewRange().getXMin(), 0.0);
+      assertEquals(parsed.getNotes().size(), read.getNotes().size());
+      assertEquals(parsed.getPeakTable() == null, read.getPeakTable() == null);
+      // factors and data of the JCAMP-DX output depend on the range of the arrays
+      assertEquals(JCAMPWriter.getInstance().toJCAMP(parsed), JCAMPWriter.getInstance().toJCAMP(read));
+      // an existing sidecar is read with the storage of the reader
+      JCAMPReader floats = JCAMPReader.getInstance().withStorage(CompactArrayData.STORAGE_FLOAT);
+      read = (Spectrum1D) JCAMPBinaryReader.getInstance().createSpectrum(floats, file);
+      assertTrue(read.getYData() instanceof FloatArrayData);
+      Files.delete(sidecar);
+    }
+    // a sidecar written for other reader settings is replaced
+    Path spinworks = new File(getTmpDirectory() + File.separator + "spinworks.dx").toPath();
+    Path sidecar = JCAMPBinaryReader.getSidecarPath(spinworks);
+    JCAMPBinaryReader.getInstance().createSpectrum(JCAMPReader.getInstance(), spinworks);
+    JCAMPReader relaxed = JCAMPReader.getInstance(false, JCAMPReader.RELAXED);
+    NMRSpectrum expected = (NMRSpectrum) relaxed.createSpectrum(spinworks);
+    for (int i = 0; i < 2; i++) {
+      NMRSpectrum actual = (NMRSpectrum) JCAMPBinaryReader.getInstance().createSpectrum(relaxed, spinworks);
+      assertSame(JCAMPReader.RELAXED, actual.getMode());
+      assertTrue(Arrays.equals(expected.getXData().toArray(), actual.getXData().toArray()));
+    }
+    Files.delete(sidecar);
+    // no temporary files are left
+    DirectoryStream<Path> tmp = Files.newDirectoryStream(new File(getTmpDirectory()).toPath(), "*.jdxb*.tmp");
+    try {
+      assertFalse(tmp.iterator().hasNext());
+    } finally {
+      tmp.close();
+    }
+  }
+
+  public void testReadResult() throws Exception {
+    String child = readFile("ir_floats.jdx").toString();
+    StringBuilder jcamp = new StringBuilder("##TITLE=link\n##JCAMP-DX=5.00\n##DATA TYPE=LINK\n##BLOCKS=2\n");
+    for (int i = 1; i <= 2; i++)
+      jcamp.append(child.replaceFirst("\n", "\n##BLOCK_ID=" + i + "\n"));
+    jcamp.append("##END=\n");
+    JCAMPReader reader = JCAMPReader.getInstance(false, JCAMPReader.STRICT);
+    JCAMPReadResult result = new JCAMPReadResult();
+    assertTrue(reader.createSpectrum(jcamp.toString(), result) instanceof IRSpectrum);
+    assertTrue(result.getRootblock().isLinkBlock());
+    assertNotNull(result.getRootblock().getBlock(result.getIdoffirstspectrum()));
+    // the root block of a file holds the mapping and is not kept for the thread
+    Path file = new File(getTmpDirectory() + File.separator + "link.jdx").toPath();
+    Files.write(file, jcamp.toString().getBytes("ISO-8859-1"));
+    result = new JCAMPReadResult();
+    reader.createSpectrum(file, result);
+    assertTrue(result.getRootblock().isLinkBlock());
+    reader.createSpectrum(file);
+    assertNull(reader.getRootblock());
+    assertEquals(result.getIdoffirstspectrum(), reader.getIdoffirstspectrum());
+    reader.createSpectrum(jcamp.toString());
+    assertNotNull(reader.getRootblock());
+    // reading a single spectrum removes the result of the thread
+    reader.createSpectrum(child);
+    assertNull(reader.getRootblock());
+    assertEquals(-1, reader.getIdoffirstspectrum());
+    Files.delete(file);
+  }
+
+  public void testBatchReader() throws Exception {
+    String[] names = new String[] {"ir_floats.jdx", "cpd01.jdx", "spinworks.dx", "missing.jdx"};
+    List<Path> files = new ArrayList<Path>();
+    for (int i = 0; i < names.length; i++)
+      files.add(new File(getTmpDirectory() + File.separator + names[i]).toPath());
+    final Map read = new ConcurrentHashMap();
+    final Map failed = new ConcurrentHashMap();
+    IBatchListener listener = new IBatchListener() {
+      public void spectrumRead(Path file, Spectrum spectrum) {
+        read.put(file.getFileName().toString(), spectrum);
+      }
+      public void readFailed(Path file, Exception e) {
+        failed.put(file.getFileName().toString(), e);
+      }
+      public void warn(Path file, String msg) {
+      }
+    };
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      JCAMPBatchReader batchReader = new JCAMPBatchReader(JCAMPReader.getInstance(), executor, 2);
+      batchReader.read(files, listener);
+      assertEquals(3, read.size());
+      assertEquals(3, batchReader.getFilesRead());
+      assertEquals(1, batchReader.getFilesFailed());
+      assertTrue(failed.get("missing.jdx") instanceof IOException);
+      assertTrue(read.get("ir_floats.jdx") instanceof IRSpectrum);
+      assertTrue(batchReader.getPointsRead() > 0);
+      // entries that cannot be visited are reported, the walk goes on
+      batchReader.resetStatistics();
+      failed.clear();
+      batchReader.readDirectory(new File(getTmpDirectory() + File.separator + "missing-dir").toPath(), "*.jdx", listener);
+      assertEquals(1, batchReader.getFilesFailed());
+      assertTrue(failed.get("missing-dir") instanceof IOException);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testBatchReaderError() throws Exception {
+    List<Path> files = new ArrayList<Path>();
+    files.add(new File(getTmpDirectory() + File.separator + "ir_floats.jdx").toPath());
+    files.add(new File(getTmpDirectory() + File.separator + "cpd01.jdx").toPath());
+    final Map failed = new ConcurrentHashMap();
+    IBatchListener listener = new IBatchListener() {
+      public void spectrumRead(Path file, Spectrum spectrum) {
+      }
+      public void readFailed(Path file, Exception e) {
+	failed.put(file.getFileName().toString(), e);
+      }
+      public void warn(Path file, String msg) {
+      }
+    };
+    // the parser throws the error on the missing units of cpd01.jdx
+    final Error[] error = new Error[1];
+    JCAMPReader reader = JCAMPReader.getInstance(false, JCAMPReader.STRICT).withErrorHandler(new ErrorHandlerAdapter() {
+      public void warn(String msg) {
+	if (msg.startsWith("missing x unit"))
+	  throw error[0];
+      }
+    });
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      JCAMPBatchReader batchReader = new JCAMPBatchReader(reader, executor, 2);
+      // a stack overflow is reported as failed file
+      error[0] = new StackOverflowError();
+      batchReader.read(files, listener);
+      assertEquals(1, batchReader.getFilesRead());
+      assertEquals(1, batchReader.getFilesFailed());
+      assertTrue(failed.get("cpd01.jdx") instanceof JCAMPException);
+      // other errors are counted and rethrown after all files
+      batchReader.resetStatistics();
+      error[0] = new AssertionError("parser error");
+      try {
+	batchReader.read(files, listener);
+	fail("error not rethrown");
+      } catch (AssertionError e) {
+	assertSame(error[0], e);
+      }
+      assertEquals(1, batchReader.getFilesRead());
+      assertEquals(1, batchReader.getFilesFailed());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testLazyBlock() throws Exception {
+    String jcamp = readFile("spinworks.dx").toString();
+    JCAMPBlock eager = new JCAMPBlock(jcamp);
+    JCAMPBlock lazy = new JCAMPBlock(jcamp, eager.getErrorHandler(), true);
+    assertEquals(eager.numDataRecords(), lazy.numDataRecords());
+    assertEquals(eager.getDataRecord("TITLE").getContent(), lazy.getDataRecord("TITLE").getContent());
+    for (int i = 0; i < eager.numDataRecords(); i++) {
+      assertEquals(eager.getDataRecord(i).getKey(), lazy.getDataRecord(i).getKey());
+      assertEquals(eager.getDataRecord(i).getValue(), lazy.getDataRecord(i).getValue());
+    }
+    assertEquals(eager.numVariables(), lazy.numVariables());
+  }
+
+  public void testLazyBlockDuplicateLabels() throws Exception {
+    String jcamp = "##TITLE=duplicates\n##JCAMP-DX=4.24\n##DATA TYPE=INFRARED SPECTRUM\n"
+      + "##$COMMENT=a\n##ORIGIN=x\n##$COMMENT=b\n##OWNER=y\n##$COMMENT=c\n"
+      + "##XUNITS=1/CM\n##YUNITS=TRANSMITTANCE\n##NPOINTS=2\n##PEAK TABLE=(XY..XY)\n100,1 200,2\n##END=\n";
+    JCAMPBlock eager = new JCAMPBlock(jcamp);
+    int last = 7;
+    assertEquals("c", eager.getDataRecord(last).getContent());
+    // later occurrence accessed by index before the key
+    JCAMPBlock lazy = new JCAMPBlock(jcamp, eager.getErrorHandler(), true);
+    assertEquals("c", lazy.getDataRecord(last).getContent());
+    JCAMPDataRecord expected = eager.getDataRecord("$COMMENT");
+    JCAMPDataRecord actual = lazy.getDataRecord("$COMMENT");
+    while (expected != null) {
+      assertNotNull(actual);
+      assertEquals(expected.getContent(), actual.getContent());
+      assertEquals(expected.getBlockIndex(), actual.getBlockIndex());
+      assertEquals(expected.getListIndex(), actual.getListIndex());
+      expected = (JCAMPDataRecord) expected.listIterator().next();
+      actual = (JCAMPDataRecord) actual.listIterator().next();
+    }
+    assertNull(actual);
+    for (int i = 0; i < eager.numDataRecords(); i++)
+      assertEquals(eager.getDataRecord(i).getListIndex(), lazy.getDataRecord(i).getListIndex());
+  }
+
+  public void testASDFDecoderMatchesANTLR() throws Exception {
+    String[] files = new String[]{"spinworks.dx", "ir_floats.jdx"};
+    for (int i = 0; i < files.length; i++) {
+      JCAMPBlock block = new JCAMPBlock(readFile(files[i]).toString());
+      JCAMPDataRecord ldr = block.getDataRecord("XYDATA");
+      double firstX = Double.parseDouble(block.getDataRecord("FIRSTX").getContent());
+      double lastX = Double.parseDouble(block.getDataRecord("LASTX").getContent());
+      double xFactor = Double.parseDouble(block.getDataRecord("XFACTOR").getContent());
+      int nPoints = Integer.parseInt(block.getDataRecord("NPOINTS").getContent());
+      ASDFDecoder decoder = new ASDFDecoder();
+      decoder.setUseANTLR(true);
+      double[] expected = decoder.decode(ldr, firstX, lastX, xFactor, nPoints);
+      decoder.setUseANTLR(false);
+      double[] actual = decoder.decode(ldr, firstX, lastX, xFactor, nPoints);
+      assertTrue(files[i], Arrays.equals(expected, actual));
+    }
+  }
+
+  public void testParallelASDFDecoder() throws Exception {
+    String[] files = new String[]{"spinworks.dx", "ir_floats.jdx"};
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (int i = 0; i < files.length; i++) {
+	JCAMPBlock block = new JCAMPBlock(readFile(files[i]).toString());
+	JCAMPDataRecord ldr = block.getDataRecord("XYDATA");
+	double firstX = Double.parseDouble(block.getDataRecord("FIRSTX").getContent());
+	double lastX = Double.parseDouble(block.getDataRecord("LASTX").getContent());
+	double xFactor = Double.parseDouble(block.getDataRecord("XFACTOR").getContent());
+	int nPoints = Integer.parseInt(block.getDataRecord("NPOINTS").getContent());
+	ASDFDecoder decoder = new ASDFDecoder();
+	double[] expected = decoder.decode(ldr, firstX, lastX, xFactor, nPoints);
+	decoder.setParallelThreshold(1000);
+	double[] actual = decoder.decode(ldr, firstX, lastX, xFactor, nPoints, pool);
+	assertTrue(files[i], Arrays.equals(expected, actual));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  public void testParallelNTuple() throws Exception {
+    String jcamp = createGCMS(200);
+    IArray2D[] expected = new JCAMPBlock(jcamp).getNTuple().getXYData(null);
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      assertPagesEqual(expected, new JCAMPBlock(jcamp).getNTuple().getXYData(executor));
+    } finally {
+      executor.shutdown();
+    }
+    // decoding from a task of a pool with one thread
+    final JCAMPNTuple ntuple = new JCAMPBlock(jcamp).getNTuple();
+    final ExecutorService single = Executors.newFixedThreadPool(1);
+    try {
+      Future future = single.submit(new Callable() {
+	public Object call() throws Exception {
+	  return ntuple.getXYData(single);
+	}
+      });
+      assertPagesEqual(expected, (IArray2D[]) future.get(30, TimeUnit.SECONDS));
+    } finally {
+      single.shutdownNow();
+    }
+  }
+
+  public void testLazyGCMS() throws Exception {
+    String jcamp = createGCMS(100);
+    GCMSSpectrum eager = (GCMSSpectrum) JCAMPReader.getInstance().createSpectrum(jcamp);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      JCAMPReader[] readers = new JCAMPReader[] {
+	JCAMPReader.getInstance().withLazy(true),
+	JCAMPReader.getInstance().withLazy(true).withExecutor(executor)};
+      for (int r = 0; r < readers.length; r++) {
+	GCMSSpectrum lazy = (GCMSSpectrum) readers[r].createSpectrum(jcamp);
+	assertTrue(lazy.isLazy());
+	// total ion counts are calculated, there is no ##.RIC
+	assertTrue(Arrays.equals(eager.getYData().toArray(), lazy.getYData().toArray()));
+	for (int i = 0; i < 100; i++) {
+	  MassSpectrum expected = eager.getMassSpectrum(i);
+	  MassSpectrum actual = lazy.getMassSpectrum(i);
+	  assertTrue(Arrays.equals(expected.getXData().toArray(), actual.getXData().toArray()));
+	  assertTrue(Arrays.equals(expected.getYData().toArray(), actual.getYData().toArray()));
+	  assertSame(actual, lazy.getMassSpectrum(i));
+	}
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void assertPagesEqual(IArray2D[] expected, IArray2D[] actual) {
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertTrue(Arrays.equals(expected[i].getXArray().toArray(), actual[i].getXArray().toArray()));
+      assertTrue(Arrays.equals(expected[i].getYArray().toArray(), actual[i].getYArray().toArray()));
+    }
+  }
+
+  public void testASDFEncoderMatchesReference() throws Exception {
+    Random random = new Random(20261018L);
+    for (int t = 0; t < 4000; t++) {
+      int n = 1 + random.nextInt(200);
+      int[] data = new int[n];
+      int dif = 0;
+      for (int i = 0; i < n; i++) {
+	switch (t % 4) {
+	  case 0:
+	    // differences stay within int
+	    data[i] = random.nextInt() >> 1;
+	    break;
+	  case 1:
+	    data[i] = random.nextBoolean() ? Short.MIN_VALUE + random.nextInt(3) : Short.MAX_VALUE - random.nextInt(3);
+	    break;
+	  case 2:
+	    data[i] = i == 0 ? random.nextInt(1000) : data[i - 1] + random.nextInt(3) - 1;
+	    break;
+	  default:
+	    // runs of equal differences
+	    if (random.nextInt(5) == 0)
+	      dif = random.nextInt(2001) - 1000;
+	    data[i] = i == 0 ? 0 : data[i - 1] + dif;
+	}
+      }
+      double firstX = random.nextInt(10000) / 8.0;
+      double lastX = firstX + (random.nextBoolean() ? n : -n) * 0.125;
+      assertEquals(referenceASDF(firstX, lastX, data), ASDFEncoder.encode(firstX, lastX, data));
+    }
+  }
+
+  /**
+   * Encodes ASDF like the encoder did before it used a reusable line buffer.
+   *
+   * @param firstx	the first x value
+   * @param lastx	the last x value
+   * @param data	the y values
+   * @return		the ASDF lines
+   */
+  private static String referenceASDF(double firstx, double lastx, int[] data) {
+    StringBuilder difdup = new StringBuilder();
+    StringBuilder line = new StringBuilder();
+    boolean dif = false;
+    int n = data.length;
+    int dup = 1;
+    int odif = 0;
+    boolean checkDUP = false;
+    double deltax = (lastx - firstx) / (n - 1);
+    line.append(firstx);
+    line.append(referenceToken(data[0], "@ABCDEFGHI", "@abcdefghi"));
+    for (int i = 1; i < n; i++) {
+      if (line.length() > 60) {
+	difdup.append(line).append("\r\n");
+	line.setLength(0);
+	dup = 1;
+	checkDUP = false;
+	if (dif) {
+	  line.append(deltax * (i - 1) + firstx);
+	  line.append(referenceToken(data[i - 1], "@ABCDEFGHI", "@abcdefghi"));
+	  dif = false;
+	} else {
+	  line.append(deltax * i + firstx);
+	  line.append(referenceToken(data[i], "@ABCDEFGHI", "@abcdefghi"));
+	  continue;
+	}
+      }
+      int d = data[i] - data[i - 1];
+      String difChars = referenceToken(d, "%JKLMNOPQR", "%jklmnopqr");
+      String sqzChars = referenceToken(data[i], "@ABCDEFGHI", "@abcdefghi");
+      if (difChars.length() > sqzChars.length()) {
+	if (dup > 1) {
+	  line.append(referenceToken(dup, " STUVWXYZs", null));
+	  dup = 1;
+	}
+	line.append(sqzChars);
+	checkDUP = false;
+	dif = false;
+      } else {
+	if (checkDUP && d == odif) {
+	  dup++;
+	} else {
+	  if (dup > 1) {
+	    line.append(referenceToken(dup, " STUVWXYZs", null));
+	    dup = 1;
+	  }
+	  line.append(difChars);
+	  odif = d;
+	}
+	checkDUP = true;
+	dif = true;
+      }
+    }
+    if (dup > 1)
+      line.append(referenceToken(dup, " STUVWXYZs", null));
+    difdup.append(line).append("\r\n");
+    if (dif) {
+      line.setLength(0);
+      line.append(deltax * (n - 1) + firstx);
+      line.append(referenceToken(data[n - 1], "@ABCDEFGHI", "@abcdefghi"));
+      difdup.append(line).append("\r\n");
+    }
+    return difdup.toString();
+  }
+
+  /**
+   * Replaces the first digit of the value by its SQZ, DIF or DUP character.
+   *
+   * @param value	the value
+   * @param pos		the characters for positive values
+   * @param neg		the characters for negative values
+   * @return		the token
+   */
+  private static String referenceToken(int value, String pos, String neg) {
+    String digits = Integer.toString(Math.abs(value));
+    String chars = value < 0 ? neg : pos;
+    return chars.charAt(digits.charAt(0) - '0') + digits.substring(1);
+  }
+
+  public void testASDFLineIndex() throws Exception {
+    String[] files = new String[]{"spinworks.dx", "ir_floats.jdx"};
+    for (int i = 0; i < files.length; i++) {
+      JCAMPBlock block = new JCAMPBlock(readFile(files[i]).toString());
+      JCAMPDataRecord ldr = block.getDataRecord("XYDATA");
+      double firstX = Double.parseDouble(block.getDataRecord("FIRSTX").getContent());
+      double lastX = Double.parseDouble(block.getDataRecord("LASTX").getContent());
+      double xFactor = Double.parseDouble(block.getDataRecord("XFACTOR").getContent());
+      int nPoints = Integer.parseInt(block.getDataRecord("NPOINTS").getContent());
+      ASDFDecoder decoder = new ASDFDecoder();
+      double[] expected = decoder.decode(ldr, firstX, lastX, xFactor, nPoints);
+      ASDFLineIndex index = decoder.createIndex(ldr, firstX, lastX, xFactor, nPoints);
+      assertEquals(files[i], expected.length, index.getPointCount());
+      int from = expected.length / 3;
+      int to = 2 * expected.length / 3;
+      double[] actual = index.decodeRange(index.getX(from), index.getX(to));
+      assertTrue(files[i], Arrays.equals(Arrays.copyOfRange(expected, from, to + 1), actual));
+    }
+  }
+
   public void testBugJcamp60() throws Exception{
     StringBuilder fileData = readFile("jcamp60.jdx");
     Spectrum jcampSpectrum = JCAMPReader.getInstance().createSpectrum(fileData.toString());
@@ -325,4 +1132,12 @@ public class TestParser extends TestCase {
       assertEquals(massspectrum.getPeakTable().length,54);
     }
   }
+
+  public void testAFFNColumns() throws Exception {
+    AFFNTokenizer tokenizer = new AFFNTokenizer(new String[] {"X", "Y"}, "1.5,20 2.5E1 -3;\n4 0.25");
+    double[][] columns = tokenizer.readColumns();
+    assertTrue(Arrays.equals(new double[] {1.5, 25, 4}, columns[0]));
+    assertTrue(Arrays.equals(new double[] {20, -3, 0.25}, columns[1]));
+    assertFalse(tokenizer.hasMoreGroups());
+  }
 }